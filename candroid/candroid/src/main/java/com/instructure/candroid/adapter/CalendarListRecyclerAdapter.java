@@ -35,8 +35,6 @@ import com.instructure.candroid.model.EventData;
 import com.instructure.candroid.util.CanvasCalendarUtils;
 import com.instructure.candroid.util.StudentPrefs;
 import com.instructure.canvasapi2.StatusCallback;
-import com.instructure.canvasapi2.apis.CalendarEventAPI;
-import com.instructure.canvasapi2.managers.CalendarEventManager;
 import com.instructure.canvasapi2.managers.CourseManager;
 import com.instructure.canvasapi2.managers.GroupManager;
 import com.instructure.canvasapi2.models.CanvasContext;
@@ -44,9 +42,9 @@ import com.instructure.canvasapi2.models.Course;
 import com.instructure.canvasapi2.models.Group;
 import com.instructure.canvasapi2.models.ScheduleItem;
 import com.instructure.canvasapi2.models.User;
-import com.instructure.canvasapi2.utils.APIHelper;
 import com.instructure.canvasapi2.utils.ApiPrefs;
 import com.instructure.canvasapi2.utils.ApiType;
+import com.instructure.canvasapi2.utils.CalendarEventStore;
 import com.instructure.canvasapi2.utils.DateHelper;
 import com.instructure.canvasapi2.utils.LinkHeaders;
 import com.instructure.canvasapi2.utils.ModelExtensionsKt;
@@ -87,13 +85,12 @@ public class CalendarListRecyclerAdapter extends ExpandableRecyclerAdapter<Date,
     private static final int TYPE_ITEM = 1044;
 
     //region Callbacks
-    private StatusCallback<List<ScheduleItem>> mCalendarEventsCallback;
-    private StatusCallback<List<ScheduleItem>> mAssignmentEventsCallback;
     private StatusCallback<List<Course>> mAllCoursesCallback;
     private StatusCallback<List<Course>> mAllFavoriteCoursesCallback;
     private StatusCallback<List<Group>> mAllGroupsCallback;
     private AdapterToFragmentCallback<ScheduleItem> mAdapterToFragmentCallback;
     private AdapterToCalendarCallback mAdapterToCalendarCallback;
+    private CalendarEventStore.Request mEventsRequest;
     //endregion
 
     //region Models
@@ -102,8 +99,6 @@ public class CalendarListRecyclerAdapter extends ExpandableRecyclerAdapter<Date,
     private ArrayList<CanvasContext> mCanvasContextItems = new ArrayList<>();
     private ArrayList<String> mFavoriteContextIds = new ArrayList<>();
 
-    private ArrayList<ScheduleItem> mAssignmentEvents = new ArrayList<>();
-    private ArrayList<ScheduleItem> mCalendarEvents = new ArrayList<>();
     private ArrayList<ScheduleItem> mAllEvents = new ArrayList<>();
     private HashMap<Long, Course> favoriteCourseMap = new HashMap<>();
     private DateTime mSelectedDay;
@@ -299,49 +294,33 @@ public class CalendarListRecyclerAdapter extends ExpandableRecyclerAdapter<Date,
 
     }
 
-    // When sliding to the next month, we only want to recreate the events and assignment callbacks
-    private void setupAssignmentAndEventCallbacks() {
-        mAssignmentEventsCallback = new StatusCallback<List<ScheduleItem>>() {
+    // Events come from the store, which only goes to the network for the parts of the range it doesn't have yet
+    private CalendarEventStore.Listener createEventsListener() {
+        return new CalendarEventStore.Listener() {
 
             @Override
-            public void onResponse(@NonNull Response<List<ScheduleItem>> response, @NonNull LinkHeaders linkHeaders, @NonNull ApiType type) {
-                mAssignmentEvents.addAll(response.body());
-                for (ScheduleItem s : mAssignmentEvents) {
-                    s.setItemType(ScheduleItem.Type.TYPE_ASSIGNMENT);
+            public void onEventsLoaded(@NonNull List<ScheduleItem> events, boolean isComplete) {
+                mAllEvents.clear();
+                for (ScheduleItem s : events) {
                     if(s.getStartAt() != null && !s.isHidden()){
                         mAllEvents.add(s);
                     }
                 }
-                mHasLoadedAssignmentEvents = true;
-                finishCalendarEvents();
-                mAdapterToFragmentCallback.onRefreshFinished();
-            }
 
-            @Override
-            public void onFail(@Nullable Call<List<ScheduleItem>> call, @NonNull Throwable error, @Nullable Response response) {
-                //Panda Loading doesn't disappear on error or lose of data connection
-                mAdapterToCalendarCallback.hidePandaLoading();
-            }
-        };
-
-        mCalendarEventsCallback = new StatusCallback<List<ScheduleItem>>() {
-
-            @Override
-            public void onResponse(@NonNull Response<List<ScheduleItem>> response, @NonNull LinkHeaders linkHeaders, @NonNull ApiType type) {
-                mCalendarEvents.addAll(response.body());
-                for (ScheduleItem s : mCalendarEvents) {
-                    s.setItemType(ScheduleItem.Type.TYPE_CALENDAR);
-                    if(s.getStartAt() != null && !s.isHidden()){
-                        mAllEvents.add(s);
-                    }
+                if (isComplete) {
+                    mHasLoadedAssignmentEvents = true;
+                    mHasLoadedCalenderEvents = true;
+                    finishCalendarEvents();
+                    mAdapterToFragmentCallback.onRefreshFinished();
+                } else {
+                    // Show what we already have while the rest of the month loads
+                    getExtraData();
                 }
-                mHasLoadedCalenderEvents = true;
-                finishCalendarEvents();
-                mAdapterToFragmentCallback.onRefreshFinished();
             }
 
             @Override
-            public void onFail(@Nullable Call<List<ScheduleItem>> call, @NonNull Throwable error, @Nullable Response response) {
+            public void onLoadFailed() {
+                //Panda Loading doesn't disappear on error or lose of data connection
                 mAdapterToCalendarCallback.hidePandaLoading();
             }
         };
@@ -349,7 +328,6 @@ public class CalendarListRecyclerAdapter extends ExpandableRecyclerAdapter<Date,
 
     @Override
     public void setupCallbacks(){
-        setupAssignmentAndEventCallbacks();
         mAllCoursesCallback = new StatusCallback<List<Course>>() {
 
             @Override
@@ -456,29 +434,45 @@ public class CalendarListRecyclerAdapter extends ExpandableRecyclerAdapter<Date,
     //endregion
 
     /**
-     * Pulls down all calendar events for the provided date window.
+     * Pulls down all calendar events for the provided date window, then prefetches the months on either side of it
+     * so paging through the calendar is served from the event store.
      *
      * @param startDate
      * @param endDate
      */
     private void getEventsForTimePeriod(Calendar startDate, Calendar endDate, ArrayList<String> canvasContextIds) {
-        final String startDateString = APIHelper.dateToString(new Date(startDate.getTimeInMillis()));
-        final String endDateString = APIHelper.dateToString(new Date(endDate.getTimeInMillis()));
-        mAssignmentEventsCallback.cancel();
-        mCalendarEventsCallback.cancel();
+        if (mEventsRequest != null) {
+            mEventsRequest.cancel();
+            mEventsRequest = null;
+        }
 
         clear();
-        setupAssignmentAndEventCallbacks();
 
         if(canvasContextIds.size() < 1){
             //firstShow is false here
             mAdapterToCalendarCallback.showChooserDialog(false);
         } else {
-            CalendarEventManager.getCalendarEventsExhaustive(false, CalendarEventAPI.CalendarEventType.ASSIGNMENT, startDateString, endDateString, canvasContextIds, mAssignmentEventsCallback, isRefresh());
-            CalendarEventManager.getCalendarEventsExhaustive(false, CalendarEventAPI.CalendarEventType.CALENDAR, startDateString, endDateString, canvasContextIds, mCalendarEventsCallback, isRefresh());
+            CalendarEventStore store = CalendarEventStore.forCurrentUser();
+            DateTime start = DateTime.forInstant(startDate.getTimeInMillis(), TimeZone.getDefault());
+            DateTime end = DateTime.forInstant(endDate.getTimeInMillis(), TimeZone.getDefault());
+            mEventsRequest = store.getEvents(getStartOfDay(start), getStartOfDay(end.plusDays(1)), canvasContextIds, isRefresh(), createEventsListener());
+
+            // The full weeks of a month are centered on that month
+            DateTime month = DateTime.forInstant((startDate.getTimeInMillis() + endDate.getTimeInMillis()) / 2, TimeZone.getDefault());
+            prefetchMonth(store, month.getStartOfMonth().minusDays(1), canvasContextIds);
+            prefetchMonth(store, month.getEndOfMonth().plusDays(1), canvasContextIds);
         }
     }
 
+    private void prefetchMonth(CalendarEventStore store, DateTime month, ArrayList<String> canvasContextIds) {
+        ArrayList<DateTime> dates = CalendarHelper.getFullWeeks(month.getMonth(), month.getYear(), getStartDayOfWeek(), false);
+        store.prefetch(getStartOfDay(dates.get(0)), getStartOfDay(dates.get(dates.size() - 1).plusDays(1)), canvasContextIds);
+    }
+
+    private static long getStartOfDay(DateTime day) {
+        return day.getStartOfDay().getMilliseconds(TimeZone.getDefault());
+    }
+
     /**
      * This method makes sure that all calendar events have been pulled down before adding
      * items to our list and populating the calendar view.
@@ -796,8 +790,6 @@ public class CalendarListRecyclerAdapter extends ExpandableRecyclerAdapter<Date,
     @Override
     public void resetData() {
         mAllEvents.clear();
-        mAssignmentEvents.clear();
-        mCalendarEvents.clear();
         clear();
     }
 
@@ -50,6 +50,8 @@ import com.instructure.canvasapi2.utils.weave.*
 import com.instructure.interactions.FragmentInteractions
 import com.instructure.loginapi.login.dialog.NoInternetConnectionDialog
 import com.instructure.pandautils.discussions.DiscussionCaching
+import com.instructure.pandautils.discussions.DiscussionHtmlPager
+import com.instructure.pandautils.discussions.ScrollViewEndListener
 import com.instructure.pandautils.discussions.DiscussionUtils
 import com.instructure.pandautils.utils.*
 import com.instructure.pandautils.views.CanvasWebView
@@ -72,6 +74,10 @@ class DiscussionDetailsFragment : ParentFragment() {
     private var discussionMarkAsReadJob: Job? = null
     private var discussionLikeJob: Job? = null
     private var discussionsLoadingJob: WeaveJob? = null
+    private var loadMoreRepliesJob: WeaveJob? = null
+    private var repliesPager: DiscussionHtmlPager? = null
+    private var repliesEndListener: ScrollViewEndListener? = null
+    private var isAppendingReplies = false
 
     private var discussionTopicHeader: DiscussionTopicHeader by ParcelableArg(DiscussionTopicHeader())
     private var discussionTopic: DiscussionTopic? by NullableParcelableArg()
@@ -98,6 +104,7 @@ class DiscussionDetailsFragment : ParentFragment() {
 
     override fun onActivityCreated(savedInstanceState: Bundle?) {
         super.onActivityCreated(savedInstanceState)
+        repliesEndListener = ScrollViewEndListener(discussionsScrollView) { loadMoreReplies() }.apply { attach() }
         populateDiscussionData()
         swipeRefreshLayout.setOnRefreshListener {
             authenticatedSessionURL = null
@@ -140,10 +147,12 @@ class DiscussionDetailsFragment : ParentFragment() {
         discussionMarkAsReadJob?.cancel()
         discussionLikeJob?.cancel()
         discussionsLoadingJob?.cancel()
+        loadMoreRepliesJob?.cancel()
     }
 
     override fun onDestroyView() {
         super.onDestroyView()
+        repliesEndListener?.detach()
         discussionTopicHeaderWebView?.destroy()
         discussionRepliesWebView?.destroy()
     }
@@ -259,8 +268,8 @@ class DiscussionDetailsFragment : ParentFragment() {
                 discussionTopicRepliesTitle.setGone()
                 swipeRefreshLayout.isRefreshing = false
             } else {
-                val html = inBackground {
-                    DiscussionUtils.createDiscussionTopicHtml(
+                val pager = inBackground {
+                    DiscussionUtils.createDiscussionTopicHtmlPager(
                             this@DiscussionDetailsFragment.context,
                             isTablet,
                             canvasContext,
@@ -268,6 +277,9 @@ class DiscussionDetailsFragment : ParentFragment() {
                             discussionTopic!!.views,
                             discussionEntryId)
                 }
+                // Restoring the scroll position needs the replies above it, otherwise the rest are added while scrolling
+                val html = inBackground { if (scrollPosition > 0) pager.renderAll() else pager.firstPage() }
+                repliesPager = pager
 
                 loadDiscussionTopicViews(html)
                 discussionsScrollView.post { discussionsScrollView?.scrollTo(0, scrollPosition) }
@@ -277,6 +289,28 @@ class DiscussionDetailsFragment : ParentFragment() {
         }
     }
 
+    private fun loadMoreReplies() {
+        val pager = repliesPager ?: return
+        if (!pager.hasMore || isAppendingReplies) return
+        isAppendingReplies = true
+        loadMoreRepliesJob = tryWeave {
+            val html = inBackground { pager.nextPage() }
+            if (html == null) {
+                isAppendingReplies = false
+                return@tryWeave
+            }
+            val script = pager.appendScript(DiscussionUtils.getNewHTML(html, authenticatedSessionURL))
+            discussionRepliesWebView.evaluateJavascript(script) { appended ->
+                // Not added while the first page is still loading, the next scroll or layout tries again
+                if (appended == "true") pager.onPageAppended()
+                isAppendingReplies = false
+            }
+        } catch {
+            isAppendingReplies = false
+            Logger.e("Error loading more replies " + it.message)
+        }
+    }
+
     @BeforePageView
     private fun loadDiscussionTopicHeaderViews(discussionTopicHeader: DiscussionTopicHeader) {
         if (discussionTopicHeader.assignment != null) {
@@ -666,8 +700,7 @@ class DiscussionDetailsFragment : ParentFragment() {
         @JavascriptInterface
         fun getLikedImage(): String {
             //Returns a string of a bitmap colored for the thumbs up (like) image.
-            val likeImage = DiscussionUtils.getBitmapFromAssets(context, "discussion_liked.png")
-            return DiscussionUtils.makeBitmapForWebView(ThemePrefs.brandColor, likeImage)
+            return DiscussionUtils.makeAssetImageForWebView(context, ThemePrefs.brandColor, "discussion_liked.png")
         }
 
         //A helper to log out messages from the JS code
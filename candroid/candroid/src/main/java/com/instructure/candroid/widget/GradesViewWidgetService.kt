@@ -27,7 +27,6 @@ import android.widget.RemoteViewsService
 
 import com.instructure.candroid.R
 import com.instructure.candroid.activity.InterwebsToApplication
-import com.instructure.canvasapi2.managers.CourseManager
 import com.instructure.canvasapi2.models.Course
 import com.instructure.canvasapi2.utils.*
 import com.instructure.pandautils.utils.ColorKeeper
@@ -117,9 +116,10 @@ class GradesViewWidgetService : BaseRemoteViewsService(), Serializable {
         override fun loadData() {
             if(NetworkUtils.isNetworkAvailable && ApiPrefs.user != null) {
                 try {
-                    // Force network so we always get the latest data for grades
-                    setData(CourseManager.getCoursesSynchronous(true).filter
-                    { it.isFavorite && !it.isAccessRestrictedByDate && !it.isInvited() })
+                    WidgetDataLoader.load(WidgetDataLoader.courses) {
+                        WidgetUpdater.notifyWidgetDataChanged(GradesWidgetProvider::class.java)
+                    }
+                    setData(WidgetDataLoader.courses.value ?: emptyList())
                 } catch (e: Throwable) {
                     Logger.e("Could not load " + this::class.java.simpleName + " widget. " + e.message)
                 }
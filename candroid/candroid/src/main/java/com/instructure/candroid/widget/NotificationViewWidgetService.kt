@@ -29,17 +29,14 @@ import android.widget.RemoteViewsService
 import com.instructure.candroid.R
 import com.instructure.candroid.activity.NotificationWidgetRouter
 import com.instructure.candroid.util.StringUtilities
-import com.instructure.canvasapi2.managers.InboxManager
 import com.instructure.canvasapi2.managers.CourseManager
 import com.instructure.canvasapi2.managers.GroupManager
-import com.instructure.canvasapi2.managers.StreamManager
 import com.instructure.canvasapi2.models.CanvasContext
 import com.instructure.canvasapi2.models.StreamItem
 import com.instructure.canvasapi2.utils.*
 import com.instructure.pandautils.utils.ColorKeeper
 import kotlinx.coroutines.experimental.Job
 import java.io.Serializable
-import java.util.*
 
 class NotificationViewWidgetService : BaseRemoteViewsService(), Serializable {
 
@@ -145,26 +142,15 @@ class NotificationViewWidgetService : BaseRemoteViewsService(), Serializable {
         override fun loadData() {
             if(NetworkUtils.isNetworkAvailable && ApiPrefs.user != null) {
                 try {
-                    val courses = CourseManager.getCoursesSynchronous(true)
-                            .filter { it.isFavorite && !it.isAccessRestrictedByDate && !it.isInvited() }
-                    val groups = GroupManager.getFavoriteGroupsSynchronous(false)
-                    val userStream = StreamManager.getUserStreamSynchronous(25, false).toMutableList()
-
-                    Collections.sort(userStream)
-                    Collections.reverse(userStream)
-
-                    val courseMap = CourseManager.createCourseMap(courses)
-                    val groupMap = GroupManager.createGroupMap(groups)
+                    WidgetDataLoader.load(WidgetDataLoader.courses, WidgetDataLoader.groups, WidgetDataLoader.streamItems) {
+                        WidgetUpdater.notifyWidgetDataChanged(NotificationWidgetProvider::class.java)
+                    }
+                    val userStream = WidgetDataLoader.streamItems.value ?: emptyList()
 
-                    for (streamItem in userStream) {
-                        streamItem.setCanvasContextFromMap(courseMap, groupMap)
+                    val courseMap = CourseManager.createCourseMap(WidgetDataLoader.courses.value)
+                    val groupMap = GroupManager.createGroupMap(WidgetDataLoader.groups.value ?: emptyList())
 
-                        // load conversations if needed
-                        if (streamItem.type == StreamItem.Type.CONVERSATION) {
-                            val conversation = InboxManager.getConversationSynchronous(streamItem.conversationId, true)
-                            streamItem.setConversation(ContextKeeper.appContext, conversation, ApiPrefs.user!!.id, ContextKeeper.appContext.resources.getString(R.string.monologue))
-                        }
-                    }
+                    userStream.forEach { it.setCanvasContextFromMap(courseMap, groupMap) }
 
                     setData(userStream)
                 } catch (e: Throwable) {
@@ -27,7 +27,6 @@ import android.widget.RemoteViews
 import android.widget.RemoteViewsService
 import com.instructure.candroid.R
 import com.instructure.candroid.activity.InterwebsToApplication
-import com.instructure.canvasapi2.managers.CalendarEventManager
 import com.instructure.canvasapi2.managers.CourseManager
 import com.instructure.canvasapi2.managers.GroupManager
 import com.instructure.canvasapi2.managers.ToDoManager
@@ -159,14 +158,14 @@ class TodoViewWidgetService : BaseRemoteViewsService(), Serializable {
         override fun loadData() {
             if(NetworkUtils.isNetworkAvailable && ApiPrefs.user != null) {
                 try {
-                    val courses = CourseManager.getCoursesSynchronous(true)
-                            .filter { it.isFavorite && !it.isAccessRestrictedByDate && !it.isInvited() }
-                    val groups = GroupManager.getFavoriteGroupsSynchronous(true)
-                    val todos = ToDoManager.getTodosSynchronous(ApiPrefs.user!!, true)
-                    val events = CalendarEventManager.getUpcomingEventsSynchronous(true)
-
-                    val courseMap = CourseManager.createCourseMap(courses)
-                    val groupMap = GroupManager.createGroupMap(groups)
+                    WidgetDataLoader.load(WidgetDataLoader.courses, WidgetDataLoader.groups, WidgetDataLoader.todos, WidgetDataLoader.upcomingEvents) {
+                        WidgetUpdater.notifyWidgetDataChanged(TodoWidgetProvider::class.java)
+                    }
+                    val todos = WidgetDataLoader.todos.value
+                    val events = WidgetDataLoader.upcomingEvents.value ?: emptyList()
+
+                    val courseMap = CourseManager.createCourseMap(WidgetDataLoader.courses.value)
+                    val groupMap = GroupManager.createGroupMap(WidgetDataLoader.groups.value ?: emptyList())
 
                     val upcomingTodos = ArrayList<ToDo>(100)
                     events.forEach { upcomingTodos.add(ToDo.toDoWithScheduleItem(it)) }
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.instructure.candroid.widget
+
+import com.instructure.candroid.R
+import com.instructure.canvasapi2.managers.*
+import com.instructure.canvasapi2.models.*
+import com.instructure.canvasapi2.utils.ApiPrefs
+import com.instructure.canvasapi2.utils.ContextKeeper
+import com.instructure.canvasapi2.utils.Logger
+import java.util.concurrent.*
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Loads the data shown by the home screen widgets. Every widget service reads from the same resources, so
+ * refreshing all widgets at once fetches each list only one time.
+ *
+ * The first load reads from the cache and waits for it. After that the last loaded values are returned
+ * right away, and anything older than [FRESHNESS_WINDOW] is fetched from the network in the background.
+ * The widget is asked to reload once the new data is in.
+ */
+object WidgetDataLoader {
+
+    private const val FRESHNESS_WINDOW = 5 * 60 * 1000L
+    private const val STREAM_ITEM_COUNT = 25
+
+    private val threadCount = AtomicInteger()
+
+    private val fetchExecutor = ThreadPoolExecutor(4, 4, 30, TimeUnit.SECONDS, LinkedBlockingQueue(), ThreadFactory {
+        Thread(it, "WidgetDataLoader-" + threadCount.incrementAndGet())
+    }).apply { allowCoreThreadTimeOut(true) }
+
+    /* Waits for background refreshes to finish, kept off the fetch threads so it can't starve them */
+    private val notifyExecutor = ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, LinkedBlockingQueue(), ThreadFactory {
+        Thread(it, "WidgetDataLoader-notify")
+    }).apply { allowCoreThreadTimeOut(true) }
+
+    /* The user the loaded values belong to */
+    @Volatile private var userId = 0L
+
+    class Resource<T : Any> internal constructor(private val fetch: (forceNetwork: Boolean) -> T) {
+
+        @Volatile var value: T? = null
+            private set
+
+        /* 0 until a value has been fetched from the network */
+        @Volatile private var fetchedAt = 0L
+
+        private var pending: Future<T>? = null
+
+        /* Bumped by clear(), so a fetch that was already running for the previous user can't store its value */
+        private var generation = 0
+
+        /**
+         * Starts a fetch unless the value is fresh. The first fetch reads from the cache, later ones from the network.
+         * @return The fetch in flight for this resource, or null if the value is fresh
+         */
+        @Synchronized
+        internal fun refresh(): Future<T>? {
+            pending?.let { if (!it.isDone) return it }
+            if (value != null && System.currentTimeMillis() - fetchedAt < FRESHNESS_WINDOW) return null
+
+            val forceNetwork = value != null
+            val fetchGeneration = generation
+            return fetchExecutor.submit(Callable {
+                fetch(forceNetwork).also {
+                    synchronized(this) {
+                        if (generation == fetchGeneration) {
+                            value = it
+                            if (forceNetwork) fetchedAt = System.currentTimeMillis()
+                        }
+                    }
+                }
+            }).also { pending = it }
+        }
+
+        @Synchronized
+        internal fun clear() {
+            pending?.cancel(true)
+            pending = null
+            generation++
+            value = null
+            fetchedAt = 0L
+        }
+    }
+
+    @JvmField
+    val courses = Resource { forceNetwork ->
+        CourseManager.getCoursesSynchronous(forceNetwork).filter { it.isFavorite && !it.isAccessRestrictedByDate && !it.isInvited() }
+    }
+
+    @JvmField
+    val groups = Resource { GroupManager.getFavoriteGroupsSynchronous(it) }
+
+    @JvmField
+    val todos = Resource { ToDoManager.getUserTodosSynchronous(it) ?: emptyList() }
+
+    @JvmField
+    val upcomingEvents = Resource { CalendarEventManager.getUpcomingEventsSynchronous(it) }
+
+    @JvmField
+    val streamItems = Resource { forceNetwork ->
+        val userStream = StreamManager.getUserStreamSynchronous(STREAM_ITEM_COUNT, forceNetwork).sorted().reversed()
+
+        // load conversations if needed
+        userStream.filter { it.type == StreamItem.Type.CONVERSATION }.forEach {
+            val conversation = InboxManager.getConversationSynchronous(it.conversationId, forceNetwork)
+            it.setConversation(ContextKeeper.appContext, conversation, ApiPrefs.user!!.id, ContextKeeper.appContext.resources.getString(R.string.monologue))
+        }
+        userStream
+    }
+
+    private val allResources = listOf(courses, groups, todos, upcomingEvents, streamItems)
+
+    /**
+     * Makes sure each resource has a value, fetching them in parallel. Returns as soon as every resource has a value.
+     * Stale resources are refreshed in the background and [onRefreshed] is called once they are back.
+     *
+     * @throws Exception if a resource had no value and could not be loaded
+     */
+    fun load(vararg resources: Resource<*>, onRefreshed: () -> Unit) {
+        val user = ApiPrefs.user ?: return
+        if (userId != user.id) {
+            allResources.forEach { it.clear() }
+            userId = user.id
+        }
+
+        val missing = resources.filter { it.value == null }
+        var refreshing = resources.mapNotNull { it.refresh() }
+        if (missing.isNotEmpty()) {
+            try {
+                refreshing.forEach { it.get() }
+            } catch (e: ExecutionException) {
+                throw e.cause as? Exception ?: e
+            }
+            // Those came from the cache, now go get the latest
+            refreshing = resources.mapNotNull { it.refresh() }
+        }
+
+        if (refreshing.isNotEmpty()) notifyExecutor.execute {
+            val refreshed = refreshing.count {
+                try {
+                    it.get()
+                    true
+                } catch (e: Exception) {
+                    Logger.e("Could not refresh widget data. " + e.message)
+                    false
+                }
+            }
+            // Reloading after a failed refresh would only start another one
+            if (refreshed > 0) onRefreshed()
+        }
+    }
+}
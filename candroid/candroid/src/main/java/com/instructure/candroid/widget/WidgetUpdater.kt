@@ -3,6 +3,7 @@ package com.instructure.candroid.widget
 import android.appwidget.AppWidgetManager
 import android.content.ComponentName
 import android.content.Intent
+import com.instructure.candroid.R
 import com.instructure.canvasapi2.utils.ContextKeeper
 
 /**
@@ -18,6 +19,15 @@ object WidgetUpdater {
         updateTodoWidget(appWidgetManager)
     }
 
+    /**
+     * Reloads the lists of a widget type without rebuilding its views, ex: once fresh data has been loaded
+     */
+    @JvmStatic fun notifyWidgetDataChanged(providerClass: Class<out CanvasWidgetProvider>) {
+        val appWidgetManager = AppWidgetManager.getInstance(ContextKeeper.appContext)
+        val appWidgetIds = appWidgetManager.getAppWidgetIds(ComponentName(ContextKeeper.appContext, providerClass))
+        appWidgetManager.notifyAppWidgetViewDataChanged(appWidgetIds, R.id.contentList)
+    }
+
     private fun updateNotificationsWidget(appWidgetManager: AppWidgetManager) {
         ContextKeeper.appContext.sendBroadcast(getNotificationWidgetUpdateIntent(appWidgetManager))
     }
@@ -24,12 +24,19 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.instructure.canvasapi2.builders.RestParams;
 import com.instructure.canvasapi2.models.CanvasContext;
+import com.instructure.canvasapi2.utils.APIHelper;
 import com.instructure.canvasapi2.utils.ApiPrefs;
 import com.instructure.canvasapi2.utils.ContextKeeper;
 import com.instructure.canvasapi2.utils.Logger;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import okhttp3.Cache;
@@ -38,6 +45,7 @@ import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.logging.HttpLoggingInterceptor;
+import retrofit2.Converter;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
@@ -53,8 +61,50 @@ public abstract class CanvasRestAdapter {
     @Nullable private static StatusCallback mCallback;
     @Nullable private static File mHttpCacheDirectory;
     @NonNull private static Dispatcher mDispatcher = new Dispatcher();
+    @NonNull private static final PriorityCallQueue mPriorityQueue = new PriorityCallQueue();
     @Nullable private static Cache mCache;
     @Nullable private static OkHttpClient mOkHttpClient;
+    @Nullable private static OkHttpClient mOkHttpClientNoRedirects;
+    @Nullable private static Retrofit mInvalidDomainAdapter;
+
+    // Gson caches its type adapters, so share one per converter flavour instead of warming up a new one per call.
+    // The converters are wrapped to time parsing per endpoint, see NetworkMetrics.
+    @NonNull private static final Gson mGson = new Gson();
+    @NonNull private static final Converter.Factory mGsonConverterFactory = new TimingConverterFactory(GsonConverterFactory.create(mGson));
+    @NonNull private static final Converter.Factory mGsonConverterFactorySerializeNulls = new TimingConverterFactory(GsonConverterFactory.create(new GsonBuilder().serializeNulls().create()));
+
+    // Adapters by converter flavour and base url, and the services created from each adapter
+    @NonNull private static final ConcurrentHashMap<String, Retrofit> mAdapterCache = new ConcurrentHashMap<>();
+    @NonNull private static final ConcurrentHashMap<Retrofit, ConcurrentHashMap<Class<?>, Object>> mServiceCache = new ConcurrentHashMap<>();
+
+    // The params of the call that is currently creating its request on this thread, see TaggedCall
+    @NonNull private static final ThreadLocal<RestParams> mCallParams = new ThreadLocal<>();
+
+    protected enum AdapterType {
+        DEFAULT, SERIALIZE_NULLS, NO_REDIRECTS, STREAMING
+    }
+
+    // Streamed bodies are read by the callback, so it runs on the OkHttp thread rather than the main thread
+    @NonNull private static final Executor mDirectExecutor = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    @NonNull private static final Call.Factory mCallFactory = new UserCallFactory(new Call.Factory() {
+        @Override
+        public Call newCall(@NonNull Request request) {
+            return getOkHttpClient().newCall(tagRequest(request));
+        }
+    });
+
+    @NonNull private static final Call.Factory mCallFactoryNoRedirects = new UserCallFactory(new Call.Factory() {
+        @Override
+        public Call newCall(@NonNull Request request) {
+            return getOkHttpClientNoRedirects().newCall(tagRequest(request));
+        }
+    });
 
     /**
      * Constructor for CanvasRestAdapter
@@ -113,11 +163,13 @@ public abstract class CanvasRestAdapter {
 
             mOkHttpClient = new OkHttpClient.Builder()
                     .cache(mCache)
+                    .addInterceptor(TimingConverterFactory.INTERCEPTOR)
                     .addInterceptor(loggingInterceptor)
                     .addInterceptor(new RequestInterceptor(mCallback))
                     .addNetworkInterceptor(new ResponseInterceptor())
                     .readTimeout(TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)
                     .dispatcher(mDispatcher)
+                    .eventListenerFactory(NetworkTimingListener.FACTORY)
                     .build();
         }
 
@@ -125,102 +177,25 @@ public abstract class CanvasRestAdapter {
     }
 
     @NonNull
-    private OkHttpClient getOkHttpClientNoRedirects() {
-
-        OkHttpClient client = getOkHttpClient();
-        client = client.newBuilder().followRedirects(false).build();
-
-        return client;
+    private static OkHttpClient getOkHttpClientNoRedirects() {
+        if (mOkHttpClientNoRedirects == null) {
+            mOkHttpClientNoRedirects = getOkHttpClient().newBuilder().followRedirects(false).build();
+        }
+        return mOkHttpClientNoRedirects;
     }
 
     //region Adapter Builders
 
     public Retrofit buildAdapterNoRedirects(@NonNull RestParams params) {
-        if(params.getDomain() == null || params.getDomain().length() == 0) {
-            params = new RestParams.Builder(params).withDomain(ApiPrefs.getFullDomain()).build();
-        }
-
-        if(mCallback != null) {
-            mCallback.onCallbackStarted();
-        }
-
-        //Can make this check as we KNOW that the setter doesn't allow empty strings.
-        if (params.getDomain().equals("")) {
-            Logger.d("The RestAdapter hasn't been set up yet. Call setupInstance(context,token,domain)");
-            return new Retrofit.Builder().baseUrl("http://invalid.domain.com/").build();
-        }
-
-        String apiContext = "";
-        if (params.getCanvasContext() != null) {
-            if (params.getCanvasContext().getType() == CanvasContext.Type.COURSE) {
-                apiContext = "courses/";
-            } else if (params.getCanvasContext().getType() == CanvasContext.Type.GROUP) {
-                apiContext = "groups/";
-            } else if (params.getCanvasContext().getType() == CanvasContext.Type.SECTION) {
-                apiContext = "sections/";
-            } else {
-                apiContext = "users/";
-            }
-        }
-
-        //Sets the auth token, user agent, and handles masquerading.
-        final RestParams restParams = params;
-        return new Retrofit.Builder()
-                .baseUrl(params.getDomain() + params.getAPIVersion() + apiContext)
-                .addConverterFactory(GsonConverterFactory.create())
-                .callFactory(new Call.Factory() {
-                    @Override
-                    public Call newCall(Request request) {
-                        // Tag this request with the rest params so we can access them later in RequestInterceptor
-                        request = request.newBuilder().tag(restParams).build();
-                        return getOkHttpClientNoRedirects().newCall(request);
-                    }
-                })
-                .build();
+        return buildAdapterHelper(withDefaultDomain(params), AdapterType.NO_REDIRECTS);
     }
 
     public Retrofit buildAdapterSerializeNulls(@NonNull RestParams params) {
-        if(params.getDomain() == null || params.getDomain().length() == 0) {
-            params = new RestParams.Builder(params).withDomain(ApiPrefs.getFullDomain()).build();
-        }
-
-        if(mCallback != null) {
-            mCallback.onCallbackStarted();
-        }
-
-        //Can make this check as we KNOW that the setter doesn't allow empty strings.
-        if (params.getDomain().equals("")) {
-            Logger.d("The RestAdapter hasn't been set up yet. Call setupInstance(context,token,domain)");
-            return new Retrofit.Builder().baseUrl("http://invalid.domain.com/").build();
-        }
-
-        String apiContext = "";
-        if (params.getCanvasContext() != null) {
-            if (params.getCanvasContext().getType() == CanvasContext.Type.COURSE) {
-                apiContext = "courses/";
-            } else if (params.getCanvasContext().getType() == CanvasContext.Type.GROUP) {
-                apiContext = "groups/";
-            } else if (params.getCanvasContext().getType() == CanvasContext.Type.SECTION) {
-                apiContext = "sections/";
-            } else {
-                apiContext = "users/";
-            }
-        }
+        return buildAdapterHelper(withDefaultDomain(params), AdapterType.SERIALIZE_NULLS);
+    }
 
-        //Sets the auth token, user agent, and handles masquerading.
-        final RestParams restParams = params;
-        return new Retrofit.Builder()
-                .baseUrl(params.getDomain() + params.getAPIVersion() + apiContext)
-                .addConverterFactory(GsonConverterFactory.create(new GsonBuilder().serializeNulls().create()))
-                .callFactory(new Call.Factory() {
-                    @Override
-                    public Call newCall(Request request) {
-                        // Tag this request with the rest params so we can access them later in RequestInterceptor
-                        request = request.newBuilder().tag(restParams).build();
-                        return getOkHttpClient().newCall(request);
-                    }
-                })
-                .build();
+    public Retrofit buildAdapterStreaming(@NonNull RestParams params) {
+        return buildAdapterHelper(withDefaultDomain(params), AdapterType.STREAMING);
     }
 
     public Retrofit buildPingAdapter(@NonNull String url) {
@@ -250,15 +225,18 @@ public abstract class CanvasRestAdapter {
     }
 
     public Retrofit buildAdapter(@NonNull RestParams params) {
+        return buildAdapterHelper(withDefaultDomain(params), AdapterType.DEFAULT);
+    }
 
+    @NonNull
+    private static RestParams withDefaultDomain(@NonNull RestParams params) {
         if(params.getDomain() == null || params.getDomain().length() == 0) {
             params = new RestParams.Builder(params).withDomain(ApiPrefs.getFullDomain()).build();
         }
-
-        return buildAdapterHelper(params);
+        return params;
     }
 
-    private Retrofit buildAdapterHelper(@NonNull RestParams params) {
+    private Retrofit buildAdapterHelper(@NonNull RestParams params, @NonNull AdapterType type) {
 
         if(mCallback != null) {
             mCallback.onCallbackStarted();
@@ -267,7 +245,10 @@ public abstract class CanvasRestAdapter {
         //Can make this check as we KNOW that the setter doesn't allow empty strings.
         if (params.getDomain().equals("")) {
             Logger.d("The RestAdapter hasn't been set up yet. Call setupInstance(context,token,domain)");
-            return new Retrofit.Builder().baseUrl("http://invalid.domain.com/").build();
+            if (mInvalidDomainAdapter == null) {
+                mInvalidDomainAdapter = new Retrofit.Builder().baseUrl("http://invalid.domain.com/").build();
+            }
+            return mInvalidDomainAdapter;
         }
 
         String apiContext = "";
@@ -283,32 +264,295 @@ public abstract class CanvasRestAdapter {
             }
         }
 
-        return finalBuildAdapter(params, apiContext).build();
+        // The base url covers the domain, api version and context type
+        String key = type.name() + "|" + params.getDomain() + params.getAPIVersion() + apiContext;
+        Retrofit adapter = mAdapterCache.get(key);
+        if (adapter == null) {
+            adapter = finalBuildAdapter(params, apiContext, type).build();
+            Retrofit existing = mAdapterCache.putIfAbsent(key, adapter);
+            if (existing != null) {
+                adapter = existing;
+            }
+        }
+        return adapter;
     }
 
     /**
+     * Adapters are shared between calls, so they don't hold on to the params. Use {@link #createService(Class, RestParams, Retrofit)}
+     * to create the service, so its calls are tagged with the params for RequestInterceptor.
      * @param params RestParams
      * @param apiContext courses, groups, sections, users, or nothing
+     * @param type which converter and client the adapter uses
      * @return Retrofit.Builder
      */
-    protected Retrofit.Builder finalBuildAdapter(@NonNull final RestParams params, String apiContext) {
-        //Sets the auth token, user agent, and handles masquerading.
-        return new Retrofit.Builder()
+    protected Retrofit.Builder finalBuildAdapter(@NonNull final RestParams params, String apiContext, @NonNull AdapterType type) {
+        Retrofit.Builder builder = new Retrofit.Builder()
                 .baseUrl(params.getDomain() + params.getAPIVersion() + apiContext)
-                .addConverterFactory(GsonConverterFactory.create())
-                .callFactory(new Call.Factory() {
-                    @Override
-                    public Call newCall(Request request) {
-                        // Tag this request with the rest params so we can access them later in RequestInterceptor
-                        request = request.newBuilder().tag(params).build();
-                        return getOkHttpClient().newCall(request);
+                .addConverterFactory(type == AdapterType.SERIALIZE_NULLS ? mGsonConverterFactorySerializeNulls : mGsonConverterFactory)
+                .callFactory(type == AdapterType.NO_REDIRECTS ? mCallFactoryNoRedirects : mCallFactory);
+        if (type == AdapterType.STREAMING) {
+            builder.callbackExecutor(mDirectExecutor);
+        }
+        return builder;
+    }
+
+    /**
+     * Creates the service for an adapter from this class. The service itself is created once per adapter,
+     * each call made through the returned service is tagged with the params.
+     * @param clazz The service interface
+     * @param params RestParams
+     * @param adapter Retrofit adapter
+     * @return The service
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> T createService(@NonNull final Class<T> clazz, @NonNull RestParams params, @NonNull Retrofit adapter) {
+        ConcurrentHashMap<Class<?>, Object> services = mServiceCache.get(adapter);
+        if (services == null) {
+            services = new ConcurrentHashMap<>();
+            ConcurrentHashMap<Class<?>, Object> existing = mServiceCache.putIfAbsent(adapter, services);
+            if (existing != null) {
+                services = existing;
+            }
+        }
+        Object service = services.get(clazz);
+        if (service == null) {
+            service = adapter.create(clazz);
+            Object existing = services.putIfAbsent(clazz, service);
+            if (existing != null) {
+                service = existing;
+            }
+        }
+
+        final Object sharedService = service;
+        final RestParams restParams = withDefaultDomain(params);
+        return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[]{clazz}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getDeclaringClass() == Object.class) {
+                    // The proxy stands in for the service, so it's only equal to itself
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return clazz.getName() + " for " + restParams.getDomain();
+                        default:
+                            return method.invoke(sharedService, args);
                     }
-                });
+                }
+                Object result;
+                try {
+                    result = method.invoke(sharedService, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (result instanceof retrofit2.Call) {
+                    return new TaggedCall<>((retrofit2.Call<?>) result, restParams);
+                }
+                return result;
+            }
+        });
     }
     //endregion
 
     public static void cancelAllCalls() {
+        mPriorityQueue.cancelAll();
         mDispatcher.cancelAll();
     }
 
+    /**
+     * @return The queue enqueued calls wait in before they reach the dispatcher, for its queue depth metrics
+     */
+    /**
+     * The Gson used by the converters, for parsing models outside of a converter (e.g. StreamingListCallback)
+     */
+    @NonNull public static Gson getGson() {
+        return mGson;
+    }
+
+    @NonNull public static PriorityCallQueue getPriorityQueue() {
+        return mPriorityQueue;
+    }
+
+    /**
+     * @return The queue depths of the priority queue and of the OkHttp dispatcher behind it, for logging
+     */
+    @NonNull public static String describeQueues() {
+        return mPriorityQueue + ", dispatcher{running=" + mDispatcher.runningCallsCount() + " queued=" + mDispatcher.queuedCallsCount() + "}";
+    }
+
+    /**
+     * Tag the request with the rest params so we can access them later in RequestInterceptor
+     */
+    @NonNull
+    private static Request tagRequest(@NonNull Request request) {
+        RestParams params = mCallParams.get();
+        return params != null ? request.newBuilder().tag(params).build() : request;
+    }
+
+    /**
+     * Merges identical GETs of the same user, RequestInterceptor adds the token and masquerade id later
+     */
+    private static class UserCallFactory extends SingleFlightCallFactory {
+        UserCallFactory(@NonNull Call.Factory delegate) {
+            super(delegate);
+        }
+
+        @NonNull
+        @Override
+        protected String getKey(@NonNull Request request) {
+            return super.getKey(request) + "\n" + ApiPrefs.getToken() + "\n" + (ApiPrefs.isMasquerading() ? ApiPrefs.getMasqueradeId() : "");
+        }
+    }
+
+    /**
+     * Retrofit creates the OkHttp call (and its request) on the calling thread when a call is executed or enqueued,
+     * so the params are made available to the shared call factory for just that moment.
+     */
+    private static class TaggedCall<T> implements retrofit2.Call<T> {
+        @NonNull private final retrofit2.Call<T> mDelegate;
+        @NonNull private final RestParams mParams;
+        // The cache read of a stale-while-revalidate call
+        @Nullable private volatile retrofit2.Call<T> mCacheCall;
+
+        TaggedCall(@NonNull retrofit2.Call<T> delegate, @NonNull RestParams params) {
+            mDelegate = delegate;
+            mParams = params;
+        }
+
+        @Override
+        public retrofit2.Response<T> execute() throws IOException {
+            RestParams previous = mCallParams.get();
+            mCallParams.set(mParams);
+            try {
+                return mDelegate.execute();
+            } finally {
+                mCallParams.set(previous);
+            }
+        }
+
+        @Override
+        public void enqueue(@NonNull retrofit2.Callback<T> callback) {
+            if (mParams.isStaleWhileRevalidate() && !mParams.isForceReadFromCache() && !mParams.isForceReadFromNetwork()
+                    && APIHelper.hasNetworkConnection()) {
+                enqueueStaleWhileRevalidate(callback);
+            } else {
+                enqueueTagged(mDelegate, mParams, callback);
+            }
+        }
+
+        /**
+         * Reads the cached response first and hands it to the callback, then enqueues the actual call which
+         * revalidates it. The revalidation only reaches the callback if it changed.
+         */
+        private void enqueueStaleWhileRevalidate(@NonNull final retrofit2.Callback<T> callback) {
+            final retrofit2.Call<T> cacheCall = mDelegate.clone();
+            mCacheCall = cacheCall;
+            RestParams cacheParams = new RestParams.Builder(mParams).withForceReadFromCache(true).build();
+            enqueueTagged(cacheCall, cacheParams, new retrofit2.Callback<T>() {
+                @Override
+                public void onResponse(@NonNull retrofit2.Call<T> call, @NonNull retrofit2.Response<T> response) {
+                    // Not successful (504) when nothing is cached
+                    boolean delivered = response.isSuccessful() && !cacheCall.isCanceled();
+                    String cachedHash = null;
+                    if (delivered) {
+                        cachedHash = response.raw().header(StaleWhileRevalidateCallback.BODY_HASH_HEADER);
+                        callback.onResponse(TaggedCall.this, response);
+                    }
+                    enqueueTagged(mDelegate, mParams, new StaleWhileRevalidateCallback<>(callback, delivered, cachedHash));
+                }
+
+                @Override
+                public void onFailure(@NonNull retrofit2.Call<T> call, @NonNull Throwable t) {
+                    // If this was canceled the actual call is too, and reports it
+                    enqueueTagged(mDelegate, mParams, new StaleWhileRevalidateCallback<>(callback, false, null));
+                }
+            });
+        }
+
+        private static <D> void enqueueTagged(@NonNull final retrofit2.Call<D> call, @NonNull final RestParams params, @NonNull final retrofit2.Callback<D> callback) {
+            if (params.isForceReadFromCache()) {
+                // Cache reads don't use the network, so they don't wait for their turn
+                enqueueNow(call, params, callback);
+                return;
+            }
+            final RestParams.Priority priority = params.getPriority();
+            mPriorityQueue.submit(priority, new PriorityCallQueue.Task() {
+                @Override
+                public void start() {
+                    try {
+                        enqueueNow(call, params, new retrofit2.Callback<D>() {
+                            @Override
+                            public void onResponse(@NonNull retrofit2.Call<D> call, @NonNull retrofit2.Response<D> response) {
+                                mPriorityQueue.finished(priority);
+                                callback.onResponse(call, response);
+                            }
+
+                            @Override
+                            public void onFailure(@NonNull retrofit2.Call<D> call, @NonNull Throwable t) {
+                                mPriorityQueue.finished(priority);
+                                callback.onFailure(call, t);
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        // E.g. the call was already executed. It may have waited, so report it instead of throwing.
+                        mPriorityQueue.finished(priority);
+                        callback.onFailure(call, e);
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    call.cancel();
+                }
+            });
+        }
+
+        private static <D> void enqueueNow(@NonNull retrofit2.Call<D> call, @NonNull RestParams params, @NonNull retrofit2.Callback<D> callback) {
+            RestParams previous = mCallParams.get();
+            mCallParams.set(params);
+            try {
+                call.enqueue(callback);
+            } finally {
+                mCallParams.set(previous);
+            }
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return mDelegate.isExecuted();
+        }
+
+        @Override
+        public void cancel() {
+            retrofit2.Call<T> cacheCall = mCacheCall;
+            if (cacheCall != null) {
+                cacheCall.cancel();
+            }
+            mDelegate.cancel();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return mDelegate.isCanceled();
+        }
+
+        @Override
+        public retrofit2.Call<T> clone() {
+            return new TaggedCall<>(mDelegate.clone(), mParams);
+        }
+
+        @Override
+        public Request request() {
+            RestParams previous = mCallParams.get();
+            mCallParams.set(mParams);
+            try {
+                return mDelegate.request();
+            } finally {
+                mCallParams.set(previous);
+            }
+        }
+    }
+
 }
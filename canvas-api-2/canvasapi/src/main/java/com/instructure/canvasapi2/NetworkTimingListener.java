@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.canvasapi2;
+
+import android.support.annotation.NonNull;
+
+import com.instructure.canvasapi2.utils.NetworkMetrics;
+import com.instructure.canvasapi2.utils.NetworkMetrics.Phase;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * Times the phases of each OkHttp call into {@link NetworkMetrics}. A new listener is created per call.
+ */
+public class NetworkTimingListener extends EventListener {
+
+    public static final Factory FACTORY = new Factory() {
+        @Override
+        public EventListener create(@NonNull Call call) {
+            return NetworkMetrics.isEnabled() ? new NetworkTimingListener(call) : NONE;
+        }
+    };
+
+    @NonNull private final String mEndpoint;
+    private long mCallStart;
+    private long mDnsStart;
+    private long mConnectStart;
+    private long mSecureConnectStart;
+    private long mResponseHeadersStart;
+    private long mResponseBodyStart;
+    private boolean mUsedConnection;
+
+    private NetworkTimingListener(@NonNull Call call) {
+        mEndpoint = NetworkMetrics.getEndpointTemplate(call.request().url());
+    }
+
+    @Override
+    public void callStart(Call call) {
+        mCallStart = now();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        mDnsStart = now();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        record(Phase.DNS, mDnsStart);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        mConnectStart = now();
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        mSecureConnectStart = now();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        record(Phase.TLS, mSecureConnectStart);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        record(Phase.CONNECT, mConnectStart);
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        mUsedConnection = true;
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        mResponseHeadersStart = now();
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        record(Phase.SERVER, mResponseHeadersStart);
+    }
+
+    @Override
+    public void responseBodyStart(Call call) {
+        mResponseBodyStart = now();
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        record(Phase.DOWNLOAD, mResponseBodyStart);
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        record(mUsedConnection ? Phase.CALL : Phase.CACHED_CALL, mCallStart);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        // Failures and cancellations would skew the latencies, they show up in the error reporting instead
+    }
+
+    private void record(@NonNull Phase phase, long start) {
+        if (start != 0) NetworkMetrics.record(mEndpoint, phase, now() - start);
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.canvasapi2;
+
+import android.support.annotation.NonNull;
+
+import com.instructure.canvasapi2.builders.RestParams.Priority;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Sits in front of the shared OkHttp Dispatcher and decides when enqueued calls reach it, so user-visible calls
+ * don't wait in the per-host queue behind syncs and prefetches.
+ *
+ * INTERACTIVE calls go to the dispatcher right away. PREFETCH calls are limited to {@link #MAX_PREFETCH_CALLS}
+ * in flight, and BACKGROUND calls to {@link #MAX_BACKGROUND_CALLS}, none of which start while an interactive call
+ * is in flight. Waiting calls start in priority order, then in the order they were enqueued.
+ *
+ * A task has to call {@link #finished(Priority)} exactly once when it completes, however it completes.
+ */
+public class PriorityCallQueue {
+
+    public static final int MAX_PREFETCH_CALLS = 4;
+    public static final int MAX_BACKGROUND_CALLS = 2;
+
+    public interface Task {
+        /** Hands the call to the dispatcher. Called without the queue's lock held. */
+        void start();
+
+        /** Cancels the call before it starts, see {@link #cancelAll()} */
+        void cancel();
+    }
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final ArrayDeque<Waiting>[] mWaiting;
+    private final int[] mRunning = new int[PRIORITIES.length];
+    private final int[] mMaxWaiting = new int[PRIORITIES.length];
+    private final long[] mStartedCount = new long[PRIORITIES.length];
+    private final long[] mTotalWaitMs = new long[PRIORITIES.length];
+
+    @SuppressWarnings("unchecked")
+    public PriorityCallQueue() {
+        mWaiting = new ArrayDeque[PRIORITIES.length];
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            mWaiting[i] = new ArrayDeque<>();
+        }
+    }
+
+    public void submit(@NonNull Priority priority, @NonNull Task task) {
+        boolean startNow;
+        synchronized (this) {
+            startNow = mWaiting[priority.ordinal()].isEmpty() && canStart(priority);
+            if (startNow) {
+                mRunning[priority.ordinal()]++;
+                mStartedCount[priority.ordinal()]++;
+            } else {
+                ArrayDeque<Waiting> waiting = mWaiting[priority.ordinal()];
+                waiting.add(new Waiting(task, System.nanoTime()));
+                mMaxWaiting[priority.ordinal()] = Math.max(mMaxWaiting[priority.ordinal()], waiting.size());
+            }
+        }
+        if (startNow) task.start();
+    }
+
+    public void finished(@NonNull Priority priority) {
+        List<Task> ready;
+        synchronized (this) {
+            mRunning[priority.ordinal()]--;
+            ready = takeReady();
+        }
+        for (Task task : ready) {
+            task.start();
+        }
+    }
+
+    /**
+     * Cancels every waiting call and starts it regardless of the limits, so it fails right away like the calls
+     * the dispatcher cancels instead of waiting its turn.
+     */
+    public void cancelAll() {
+        List<Task> tasks = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            for (Priority priority : PRIORITIES) {
+                ArrayDeque<Waiting> waiting = mWaiting[priority.ordinal()];
+                while (!waiting.isEmpty()) {
+                    tasks.add(start(priority, waiting.poll(), now));
+                }
+            }
+        }
+        for (Task task : tasks) {
+            task.cancel();
+            task.start();
+        }
+    }
+
+    private boolean canStart(@NonNull Priority priority) {
+        switch (priority) {
+            case PREFETCH:
+                return mRunning[Priority.PREFETCH.ordinal()] < MAX_PREFETCH_CALLS;
+            case BACKGROUND:
+                return mRunning[Priority.BACKGROUND.ordinal()] < MAX_BACKGROUND_CALLS && mRunning[Priority.INTERACTIVE.ordinal()] == 0;
+            default:
+                return true;
+        }
+    }
+
+    private List<Task> takeReady() {
+        List<Task> ready = new ArrayList<>();
+        long now = System.nanoTime();
+        for (Priority priority : PRIORITIES) {
+            ArrayDeque<Waiting> waiting = mWaiting[priority.ordinal()];
+            while (!waiting.isEmpty() && canStart(priority)) {
+                ready.add(start(priority, waiting.poll(), now));
+            }
+        }
+        return ready;
+    }
+
+    private Task start(@NonNull Priority priority, @NonNull Waiting waiting, long now) {
+        mRunning[priority.ordinal()]++;
+        mStartedCount[priority.ordinal()]++;
+        mTotalWaitMs[priority.ordinal()] += (now - waiting.enqueuedAt) / 1000000;
+        return waiting.task;
+    }
+
+    //region Metrics
+
+    /** @return The number of calls of this priority waiting to reach the dispatcher */
+    public synchronized int getWaitingCount(@NonNull Priority priority) {
+        return mWaiting[priority.ordinal()].size();
+    }
+
+    /** @return The number of calls of this priority handed to the dispatcher that haven't finished yet */
+    public synchronized int getRunningCount(@NonNull Priority priority) {
+        return mRunning[priority.ordinal()];
+    }
+
+    /** @return The most calls of this priority that were waiting at the same time, since the last reset */
+    public synchronized int getMaxWaitingCount(@NonNull Priority priority) {
+        return mMaxWaiting[priority.ordinal()];
+    }
+
+    /** @return The average time calls of this priority waited before starting, since the last reset */
+    public synchronized long getAverageWaitMs(@NonNull Priority priority) {
+        long started = mStartedCount[priority.ordinal()];
+        return started == 0 ? 0 : mTotalWaitMs[priority.ordinal()] / started;
+    }
+
+    public synchronized void resetMetrics() {
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            mMaxWaiting[i] = mWaiting[i].size();
+            mStartedCount[i] = 0;
+            mTotalWaitMs[i] = 0;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder("PriorityCallQueue{");
+        for (Priority priority : PRIORITIES) {
+            if (priority.ordinal() > 0) builder.append(", ");
+            builder.append(priority.name().toLowerCase(Locale.US))
+                    .append(": running=").append(getRunningCount(priority))
+                    .append(" waiting=").append(getWaitingCount(priority))
+                    .append(" maxWaiting=").append(getMaxWaitingCount(priority))
+                    .append(" avgWaitMs=").append(getAverageWaitMs(priority));
+        }
+        return builder.append('}').toString();
+    }
+
+    //endregion
+
+    private static class Waiting {
+        final Task task;
+        final long enqueuedAt;
+
+        Waiting(Task task, long enqueuedAt) {
+            this.task = task;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import com.instructure.canvasapi2.utils.ApiPrefs;
 
 import java.io.IOException;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.CacheControl;
 import okhttp3.HttpUrl;
@@ -34,6 +35,9 @@ import okhttp3.Response;
 
 public class RequestInterceptor implements Interceptor {
 
+    // Treats the cached response as expired, so the cache makes a conditional request if it has a validator
+    private static final CacheControl REVALIDATE = new CacheControl.Builder().maxAge(0, TimeUnit.SECONDS).build();
+
     @Nullable
     private StatusCallback mCallback;
 
@@ -80,6 +84,9 @@ public class RequestInterceptor implements Interceptor {
         } else if(params.isForceReadFromNetwork()) {
             //Typical from a pull-to-refresh
             builder.cacheControl(CacheControl.FORCE_NETWORK);
+        } else if(params.isStaleWhileRevalidate()) {
+            //The cached response was already delivered, have the cache revalidate it with the server
+            builder.cacheControl(REVALIDATE);
         }
 
         //Fun Fact: HTTP referer (originally a misspelling of referrer) is an HTTP header field that identifies
@@ -17,11 +17,14 @@
 
 package com.instructure.canvasapi2;
 
+import com.instructure.canvasapi2.builders.RestParams;
+
 import java.io.IOException;
 
 import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
+import okio.BufferedSource;
 
 
 public class ResponseInterceptor implements Interceptor {
@@ -56,6 +59,14 @@ public class ResponseInterceptor implements Interceptor {
              * be made.
              */ 
             builder.addHeader("Cache-Control", "public, max-age=3600");//1 Hour
+
+            // Stored with the cached response, so a revalidation can tell if the body changed
+            Object tag = request.tag();
+            if (response.code() == 200 && response.body() != null && tag instanceof RestParams && ((RestParams) tag).isStaleWhileRevalidate()) {
+                BufferedSource source = response.body().source();
+                source.request(Long.MAX_VALUE);
+                builder.header(StaleWhileRevalidateCallback.BODY_HASH_HEADER, source.buffer().snapshot().md5().hex());
+            }
         }
         return builder.build();
     }
@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.canvasapi2;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.instructure.canvasapi2.builders.RestParams;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Merges enqueued GETs for the same request into one exchange. The first call is enqueued, calls enqueued while
+ * it is in flight aren't dispatched at all and get a copy of its buffered response when it arrives, so no thread
+ * waits for another call. A call that doesn't have to share its response isn't buffered, so it can still be streamed.
+ *
+ * Executed calls already have a thread of their own, so they always make their own request.
+ */
+public class SingleFlightCallFactory implements Call.Factory {
+
+    private static final AtomicLong sRequestCount = new AtomicLong();
+    private static final AtomicLong sMergedCount = new AtomicLong();
+
+    @NonNull private final Call.Factory mDelegate;
+    private final ConcurrentHashMap<String, Flight> mFlights = new ConcurrentHashMap<>();
+
+    public SingleFlightCallFactory(@NonNull Call.Factory delegate) {
+        mDelegate = delegate;
+    }
+
+    @Override
+    public Call newCall(@NonNull Request request) {
+        Call call = mDelegate.newCall(request);
+        if (!"GET".equals(call.request().method())) {
+            return call;
+        }
+        return new SingleFlightCall(call);
+    }
+
+    /**
+     * Calls are only merged if their keys match. The calls don't have the headers of RequestInterceptor yet,
+     * so the key has the params that decide them instead. Override to add what else the response depends on.
+     */
+    @NonNull
+    protected String getKey(@NonNull Request request) {
+        StringBuilder key = new StringBuilder()
+                .append(request.url()).append('\n')
+                .append(request.header("Authorization")).append('\n')
+                .append(request.header("Cache-Control"));
+        Object tag = request.tag();
+        if (tag instanceof RestParams) {
+            RestParams params = (RestParams) tag;
+            key.append('\n')
+                    .append(params.shouldIgnoreToken()).append(',')
+                    .append(params.usePerPageQueryParam()).append(',')
+                    .append(params.isForceReadFromCache()).append(',')
+                    .append(params.isForceReadFromNetwork()).append(',')
+                    .append(params.isStaleWhileRevalidate());
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return The number of GETs that made their own request
+     */
+    public static long getRequestCount() {
+        return sRequestCount.get();
+    }
+
+    /**
+     * @return The number of GETs that got the response of another call instead of making a request
+     */
+    public static long getMergedCount() {
+        return sMergedCount.get();
+    }
+
+    public static void resetCounts() {
+        sRequestCount.set(0);
+        sMergedCount.set(0);
+    }
+
+    private class SingleFlightCall implements Call {
+        @NonNull private final Call mCall;
+        private boolean mExecuted;
+        private volatile boolean mCanceled;
+        // The flight this call is waiting for, if it joined one
+        @Nullable private Flight mFlight;
+
+        SingleFlightCall(@NonNull Call call) {
+            mCall = call;
+        }
+
+        @Override
+        public Request request() {
+            return mCall.request();
+        }
+
+        @Override
+        public Response execute() throws IOException {
+            markExecuted();
+            return mCall.execute();
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback callback) {
+            markExecuted();
+            String key = getKey(mCall.request());
+            Flight flight = new Flight(key);
+            Flight existing = mFlights.putIfAbsent(key, flight);
+            if (existing == null) {
+                sRequestCount.incrementAndGet();
+                flight.lead(this, callback);
+            } else if (!existing.join(this, callback)) {
+                // The other call already has its response
+                enqueueAlone(callback);
+            }
+        }
+
+        void enqueueAlone(@NonNull final Callback callback) {
+            if (mCanceled) {
+                callback.onFailure(this, new IOException("Canceled"));
+                return;
+            }
+            sRequestCount.incrementAndGet();
+            mCall.enqueue(new Callback() {
+                @Override
+                public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                    callback.onFailure(SingleFlightCall.this, e);
+                }
+
+                @Override
+                public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
+                    callback.onResponse(SingleFlightCall.this, response);
+                }
+            });
+        }
+
+        private synchronized void markExecuted() {
+            if (mExecuted) throw new IllegalStateException("Already Executed");
+            mExecuted = true;
+        }
+
+        @Override
+        public void cancel() {
+            mCanceled = true;
+            Flight flight;
+            synchronized (this) {
+                flight = mFlight;
+            }
+            Callback callback = flight != null ? flight.leave(this) : null;
+            if (callback != null) {
+                callback.onFailure(this, new IOException("Canceled"));
+            }
+            mCall.cancel();
+        }
+
+        @Override
+        public synchronized boolean isExecuted() {
+            return mExecuted;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return mCanceled || mCall.isCanceled();
+        }
+
+        @Override
+        public Call clone() {
+            return new SingleFlightCall(mCall.clone());
+        }
+    }
+
+    private static class Follower {
+        @NonNull final SingleFlightCall mCall;
+        @NonNull final Callback mCallback;
+
+        Follower(@NonNull SingleFlightCall call, @NonNull Callback callback) {
+            mCall = call;
+            mCallback = callback;
+        }
+    }
+
+    private class Flight {
+        @NonNull private final String mKey;
+        private boolean mLanded;
+        private final List<Follower> mFollowers = new ArrayList<>();
+
+        Flight(@NonNull String key) {
+            mKey = key;
+        }
+
+        /**
+         * Enqueues the call that makes the request for this flight
+         */
+        void lead(@NonNull final SingleFlightCall leader, @NonNull final Callback callback) {
+            leader.mCall.enqueue(new Callback() {
+                @Override
+                public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                    fail(land(), e);
+                }
+
+                private void fail(@NonNull List<Follower> followers, @NonNull IOException e) {
+                    try {
+                        callback.onFailure(leader, e);
+                    } finally {
+                        // The waiting calls may still succeed, e.g. if only the first one was canceled
+                        for (Follower follower : followers) {
+                            follower.mCall.enqueueAlone(follower.mCallback);
+                        }
+                    }
+                }
+
+                @Override
+                public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
+                    List<Follower> followers = land();
+                    ResponseBody body = response.body();
+                    if (followers.isEmpty() || body == null) {
+                        try {
+                            callback.onResponse(leader, response);
+                        } finally {
+                            for (Follower follower : followers) {
+                                follower.mCall.enqueueAlone(follower.mCallback);
+                            }
+                        }
+                        return;
+                    }
+
+                    MediaType contentType = body.contentType();
+                    byte[] bytes;
+                    try {
+                        bytes = body.bytes();
+                    } catch (IOException e) {
+                        fail(followers, e);
+                        return;
+                    }
+                    sMergedCount.addAndGet(followers.size());
+                    Response shared = response.newBuilder().body(null).build();
+                    try {
+                        callback.onResponse(leader, response.newBuilder().body(ResponseBody.create(contentType, bytes)).build());
+                    } finally {
+                        for (Follower follower : followers) {
+                            deliver(follower, shared, contentType, bytes);
+                        }
+                    }
+                }
+            });
+        }
+
+        private void deliver(@NonNull Follower follower, @NonNull Response shared, @Nullable MediaType contentType, @NonNull byte[] bytes) {
+            if (follower.mCall.isCanceled()) {
+                follower.mCallback.onFailure(follower.mCall, new IOException("Canceled"));
+                return;
+            }
+            Response response = shared.newBuilder()
+                    .request(follower.mCall.request())
+                    .body(ResponseBody.create(contentType, bytes))
+                    .build();
+            try {
+                follower.mCallback.onResponse(follower.mCall, response);
+            } catch (IOException e) {
+                // Like OkHttp, a callback that fails to handle its response isn't called again
+            }
+        }
+
+        /**
+         * @return False if this flight already landed, in which case the call has to make its own request
+         */
+        boolean join(@NonNull SingleFlightCall call, @NonNull Callback callback) {
+            synchronized (this) {
+                if (mLanded) return false;
+                mFollowers.add(new Follower(call, callback));
+            }
+            synchronized (call) {
+                call.mFlight = this;
+            }
+            return true;
+        }
+
+        /**
+         * @return The callback of the call if it was still waiting for this flight
+         */
+        @Nullable
+        synchronized Callback leave(@NonNull SingleFlightCall call) {
+            Iterator<Follower> iterator = mFollowers.iterator();
+            while (iterator.hasNext()) {
+                Follower follower = iterator.next();
+                if (follower.mCall == call) {
+                    iterator.remove();
+                    return follower.mCallback;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Ends the flight, calls enqueued from now on make their own request
+         * @return The calls that were waiting for the response
+         */
+        @NonNull
+        private List<Follower> land() {
+            List<Follower> followers;
+            synchronized (this) {
+                mLanded = true;
+                followers = new ArrayList<>(mFollowers);
+                mFollowers.clear();
+            }
+            mFlights.remove(mKey, this);
+            return followers;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.canvasapi2;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.instructure.canvasapi2.utils.ApiType;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Receives the revalidation of a response that was already delivered from the cache, see
+ * {@link com.instructure.canvasapi2.builders.RestParams.Builder#withStaleWhileRevalidate(boolean)}.
+ * Unchanged responses only finish the callback, so adapters don't get the same data twice.
+ */
+public class StaleWhileRevalidateCallback<T> implements Callback<T> {
+
+    /**
+     * Hash of the body, added by ResponseInterceptor to responses of stale-while-revalidate calls
+     */
+    public static final String BODY_HASH_HEADER = "X-Canvas-Body-Hash";
+
+    @NonNull private final Callback<T> mCallback;
+    private final boolean mCacheDelivered;
+    @Nullable private final String mCachedHash;
+
+    /**
+     * @param callback The callback of the call
+     * @param cacheDelivered Whether a cached response was delivered to the callback
+     * @param cachedHash The body hash of the cached response, if it has one
+     */
+    public StaleWhileRevalidateCallback(@NonNull Callback<T> callback, boolean cacheDelivered, @Nullable String cachedHash) {
+        mCallback = callback;
+        mCacheDelivered = cacheDelivered;
+        mCachedHash = cachedHash;
+    }
+
+    @Override
+    public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+        if (isUnchanged(response.raw(), mCacheDelivered, mCachedHash)) {
+            if (mCallback instanceof StatusCallback) {
+                ((StatusCallback) mCallback).onCallbackFinished(ApiType.API);
+            }
+            return;
+        }
+        if (response.isSuccessful() && response.raw().cacheResponse() != null) {
+            // The cache revalidated with the server and got a new body, so this isn't a cached response
+            response = Response.success(response.body(), response.raw().newBuilder().cacheResponse(null).build());
+        }
+        mCallback.onResponse(call, response);
+    }
+
+    @Override
+    public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+        mCallback.onFailure(call, t);
+    }
+
+    /**
+     * @param revalidated The response of the revalidation
+     * @param cacheDelivered Whether a cached response was delivered before
+     * @param cachedHash The body hash of that cached response, if it has one
+     * @return True if the revalidation has the data that was already delivered
+     */
+    public static boolean isUnchanged(@NonNull okhttp3.Response revalidated, boolean cacheDelivered, @Nullable String cachedHash) {
+        if (!cacheDelivered || !revalidated.isSuccessful()) return false;
+
+        okhttp3.Response networkResponse = revalidated.networkResponse();
+        if (networkResponse == null || networkResponse.code() == 304) {
+            // Served from the cache again, or the server confirmed the cached response
+            return true;
+        }
+        return cachedHash != null && cachedHash.equals(revalidated.header(BODY_HASH_HEADER));
+    }
+}
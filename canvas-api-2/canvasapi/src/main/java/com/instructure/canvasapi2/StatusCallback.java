@@ -24,6 +24,7 @@ import com.instructure.canvasapi2.utils.APIHelper;
 import com.instructure.canvasapi2.utils.ApiType;
 import com.instructure.canvasapi2.utils.LinkHeaders;
 import com.instructure.canvasapi2.utils.Logger;
+import com.instructure.canvasapi2.utils.NetworkMetrics;
 
 import org.greenrobot.eventbus.EventBus;
 
@@ -47,7 +48,12 @@ public abstract class StatusCallback<DATA> implements Callback<DATA> {
     final public void onResponse(@NonNull final Call<DATA> data, @NonNull final Response<DATA> response) {
         mIsApiCallInProgress = true;
         if (response.isSuccessful()) {
+            long start = System.nanoTime();
             publishHeaderResponseResults(response, response.raw(), APIHelper.parseLinkHeaderResponse(response.headers()));
+            if (NetworkMetrics.isEnabled()) {
+                String endpoint = NetworkMetrics.getEndpointTemplate(response.raw().request().url());
+                NetworkMetrics.record(endpoint, NetworkMetrics.Phase.CALLBACK, (System.nanoTime() - start) / 1000000);
+            }
         } else if (response.code() == 504) {
             // Cached response does not exist.
             Logger.e("StatusCallback: GOT A 504");
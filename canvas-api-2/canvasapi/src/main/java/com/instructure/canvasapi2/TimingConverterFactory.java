@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.canvasapi2;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.instructure.canvasapi2.utils.NetworkMetrics;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Wraps a converter factory to time response parsing into {@link NetworkMetrics}.
+ *
+ * Converters don't know which call they are parsing, so {@link #INTERCEPTOR} remembers the endpoint on the thread
+ * that gets the response. Retrofit parses the response on that same thread, right after the interceptors return.
+ * The endpoint is forgotten when the response body is closed, which Retrofit does whether it parsed the body or not,
+ * so a response that isn't parsed can't leave its endpoint behind for the next call on the thread.
+ * A GET merged by {@link SingleFlightCallFactory} reads its body before it is parsed, so its parsing isn't timed.
+ */
+public class TimingConverterFactory extends Converter.Factory {
+
+    private static final ThreadLocal<String> sEndpoint = new ThreadLocal<>();
+
+    /** Has to be the first application interceptor, so it is the last to see the response */
+    public static final okhttp3.Interceptor INTERCEPTOR = new okhttp3.Interceptor() {
+        @Override
+        public okhttp3.Response intercept(@NonNull Chain chain) throws IOException {
+            sEndpoint.remove();
+            okhttp3.Response response = chain.proceed(chain.request());
+            ResponseBody body = response.body();
+            if (NetworkMetrics.isEnabled() && body != null) {
+                HttpUrl url = response.request().url();
+                sEndpoint.set(NetworkMetrics.getEndpointTemplate(url));
+                return response.newBuilder().body(new EndpointBody(body)).build();
+            }
+            return response;
+        }
+    };
+
+    /**
+     * Forgets the endpoint of the thread when the body is closed
+     */
+    private static class EndpointBody extends ResponseBody {
+        @NonNull private final ResponseBody mDelegate;
+
+        EndpointBody(@NonNull ResponseBody delegate) {
+            mDelegate = delegate;
+        }
+
+        @Nullable
+        @Override
+        public MediaType contentType() {
+            return mDelegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return mDelegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return mDelegate.source();
+        }
+
+        @Override
+        public void close() {
+            sEndpoint.remove();
+            mDelegate.close();
+        }
+    }
+
+    @NonNull private final Converter.Factory mDelegate;
+
+    public TimingConverterFactory(@NonNull Converter.Factory delegate) {
+        mDelegate = delegate;
+    }
+
+    @Nullable
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        final Converter<ResponseBody, ?> converter = mDelegate.responseBodyConverter(type, annotations, retrofit);
+        if (converter == null) return null;
+        return new Converter<ResponseBody, Object>() {
+            @Override
+            public Object convert(@NonNull ResponseBody value) throws IOException {
+                String endpoint = sEndpoint.get();
+                if (endpoint == null) return converter.convert(value);
+                sEndpoint.remove();
+                long start = System.nanoTime();
+                try {
+                    return converter.convert(value);
+                } finally {
+                    NetworkMetrics.record(endpoint, NetworkMetrics.Phase.PARSE, (System.nanoTime() - start) / 1000000);
+                }
+            }
+        };
+    }
+
+    @Nullable
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations, Annotation[] methodAnnotations, Retrofit retrofit) {
+        return mDelegate.requestBodyConverter(type, parameterAnnotations, methodAnnotations, retrofit);
+    }
+
+    @Nullable
+    @Override
+    public Converter<?, String> stringConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        return mDelegate.stringConverter(type, annotations, retrofit);
+    }
+}
@@ -20,12 +20,13 @@ import com.instructure.canvasapi2.builders.RestBuilder
 import com.instructure.canvasapi2.builders.RestParams
 import com.instructure.canvasapi2.models.Attachment
 import com.instructure.canvasapi2.models.FileUploadParams
-import okhttp3.MediaType
 import okhttp3.MultipartBody
 import okhttp3.RequestBody
 import retrofit2.Call
+import retrofit2.HttpException
+import retrofit2.Response
 import retrofit2.http.*
-import java.io.File
+import java.io.IOException
 
 
 internal object FileUploadAPI {
@@ -64,45 +65,81 @@ internal object FileUploadAPI {
             renameOnDuplicate: Boolean
     ): FileUploadParams? {
         try {
-            val renameStrategy = if (renameOnDuplicate) "rename" else "overwrite"
-            val uploadParams = adapter
-                    .build(FileUploadInterface::class.java, params)
-                    .getUploadParams(
-                            uploadContext,
-                            fileName,
-                            fileSize,
-                            contentType,
-                            parentId,
-                            parentPath,
-                            renameStrategy
-                    ).execute().body()
-            /* At least one API endpoint (quizzes) returns a list instead of a single object, so we
-            attempt to return the first item in the list or else fall back to the object itself */
-            return uploadParams?.list?.firstOrNull() ?: uploadParams
+            return getUploadParamsOrThrow(uploadContext, fileName, fileSize, contentType, parentId, parentPath, adapter, params, renameOnDuplicate)
         } catch (ignore: Exception) {
             return null
         }
     }
 
+    /**
+     * @throws IOException If the request failed
+     * @throws HttpException If the server responded with an error
+     */
+    @Throws(IOException::class)
+    fun getUploadParamsOrThrow(
+            uploadContext: String,
+            fileName: String,
+            fileSize: Long,
+            contentType: String,
+            parentId: Long?,
+            parentPath: String?,
+            adapter: RestBuilder,
+            params: RestParams,
+            renameOnDuplicate: Boolean
+    ): FileUploadParams? {
+        val renameStrategy = if (renameOnDuplicate) "rename" else "overwrite"
+        val uploadParams = adapter
+                .build(FileUploadInterface::class.java, params)
+                .getUploadParams(
+                        uploadContext,
+                        fileName,
+                        fileSize,
+                        contentType,
+                        parentId,
+                        parentPath,
+                        renameStrategy
+                ).execute().bodyOrThrow()
+        /* At least one API endpoint (quizzes) returns a list instead of a single object, so we
+        attempt to return the first item in the list or else fall back to the object itself */
+        return uploadParams?.list?.firstOrNull() ?: uploadParams
+    }
+
     fun uploadSynchronous(
             uploadParams: FileUploadParams,
-            file: File,
+            fileName: String,
+            fileBody: RequestBody,
             adapter: RestBuilder,
             params: RestParams
     ): Attachment? {
-        val requestFile = RequestBody.create(MediaType.parse("application/octet-stream"), file)
-        val requestFilePart = MultipartBody.Part.createFormData("file", file.name, requestFile)
         return try {
-            adapter.build(FileUploadInterface::class.java, params)
-                    .uploadFile(
-                            uploadParams.uploadUrl.orEmpty(),
-                            uploadParams.getPlainTextUploadParams(),
-                            requestFilePart
-                    ).execute().body()
+            uploadOrThrow(uploadParams, fileName, fileBody, adapter, params)
         } catch (e: Exception) {
             e.printStackTrace()
             null
         }
     }
 
+    /**
+     * @throws IOException If the request failed
+     * @throws HttpException If the server responded with an error
+     */
+    @Throws(IOException::class)
+    fun uploadOrThrow(
+            uploadParams: FileUploadParams,
+            fileName: String,
+            fileBody: RequestBody,
+            adapter: RestBuilder,
+            params: RestParams
+    ): Attachment? {
+        val requestFilePart = MultipartBody.Part.createFormData("file", fileName, fileBody)
+        return adapter.build(FileUploadInterface::class.java, params)
+                .uploadFile(
+                        uploadParams.uploadUrl.orEmpty(),
+                        uploadParams.getPlainTextUploadParams(),
+                        requestFilePart
+                ).execute().bodyOrThrow()
+    }
+
+    private fun <T> Response<T>.bodyOrThrow(): T? = if (isSuccessful) body() else throw HttpException(this)
+
 }
@@ -25,10 +25,12 @@ import com.instructure.canvasapi2.builders.RestBuilder;
 import com.instructure.canvasapi2.builders.RestParams;
 import com.instructure.canvasapi2.models.Conversation;
 import com.instructure.canvasapi2.utils.ApiType;
+import com.instructure.canvasapi2.utils.StreamingListCallback;
 
 import java.io.IOException;
 import java.util.List;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.Response;
 import retrofit2.http.DELETE;
@@ -37,6 +39,7 @@ import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 import retrofit2.http.Url;
 
 
@@ -61,8 +64,9 @@ public class InboxApi {
 
     interface InboxInterface {
 
+        @Streaming
         @GET("conversations/?interleave_submissions=1&include[]=participant_avatars")
-        Call<List<Conversation>> getConversations(@Query("scope") String scope);
+        Call<ResponseBody> getConversations(@Query("scope") String scope);
 
         @GET("conversations/?interleave_submissions=1&include[]=participant_avatars")
         Call<List<Conversation>> getConversationsFiltered(@Query("scope") String scope, @Query("filter") String canvasContextFilter);
@@ -70,6 +74,10 @@ public class InboxApi {
         @GET
         Call<List<Conversation>> getNextPage(@Url String nextURL);
 
+        @Streaming
+        @GET
+        Call<ResponseBody> getNextPageStreamed(@Url String nextURL);
+
         @POST("conversations?group_conversation=true")
         Call<List<Conversation>> createConversation(@Query("recipients[]") List<String> recipients, @Query("body") String message, @Query("subject") String subject, @Query("context_code") String contextCode, @Query("attachment_ids[]") long[] attachmentIds, @Query("bulk_message") int isBulk);
 
@@ -106,11 +114,14 @@ public class InboxApi {
         callback.addCall(adapter.build(InboxInterface.class, params).getConversation(conversationId)).enqueue(callback);
     }
 
+    /**
+     * A page of conversations can be large, so each page is streamed to the callback in chunks as it is read
+     */
     public static void getConversations(@NonNull Scope scope, @NonNull RestBuilder adapter, @NonNull StatusCallback<List<Conversation>> callback, @NonNull RestParams params) {
         if (StatusCallback.isFirstPage(callback.getLinkHeaders())) {
-            adapter.build(InboxInterface.class, params).getConversations(conversationScopeToString(scope)).enqueue(callback);
+            new StreamingListCallback<>(callback, Conversation.class).enqueue(adapter.buildStreaming(InboxInterface.class, params).getConversations(conversationScopeToString(scope)));
         } else if (StatusCallback.moreCallsExist(callback.getLinkHeaders()) && callback.getLinkHeaders() != null) {
-            adapter.build(InboxInterface.class, params).getNextPage(callback.getLinkHeaders().nextUrl).enqueue(callback);
+            new StreamingListCallback<>(callback, Conversation.class).enqueue(adapter.buildStreaming(InboxInterface.class, params).getNextPageStreamed(callback.getLinkHeaders().nextUrl));
         } else {
             callback.onCallbackFinished(ApiType.API);
         }
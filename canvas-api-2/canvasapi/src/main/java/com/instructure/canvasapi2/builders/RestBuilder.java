@@ -45,7 +45,7 @@ public class RestBuilder extends CanvasRestAdapter {
     public <T> T build(@NonNull Class<T> clazz, @NonNull RestParams params) {
         params = new RestParams.Builder(params).withForceReadFromCache(false).build();
         Retrofit restAdapter = buildAdapter(params);
-        return restAdapter.create(clazz);
+        return createService(clazz, params, restAdapter);
     }
 
     public <T> T buildNotorious(@NonNull Class<T> clazz) {
@@ -60,13 +60,23 @@ public class RestBuilder extends CanvasRestAdapter {
     public <T> T buildSerializeNulls(@NonNull Class<T> clazz, @NonNull RestParams params) {
         params = new RestParams.Builder(params).withForceReadFromCache(false).build();
         Retrofit restAdapter = buildAdapterSerializeNulls(params);
-        return restAdapter.create(clazz);
+        return createService(clazz, params, restAdapter);
     }
 
     public <T> T buildNoRedirects(@NonNull Class<T> clazz, @NonNull RestParams params) {
         params = new RestParams.Builder(params).withForceReadFromCache(false).build();
         Retrofit restAdapter = buildAdapterNoRedirects(params);
-        return restAdapter.create(clazz);
+        return createService(clazz, params, restAdapter);
+    }
+
+    /**
+     * The callbacks of calls made through this service run on the OkHttp thread, use it with
+     * {@link com.instructure.canvasapi2.utils.StreamingListCallback}
+     */
+    public <T> T buildStreaming(@NonNull Class<T> clazz, @NonNull RestParams params) {
+        params = new RestParams.Builder(params).withForceReadFromCache(false).build();
+        Retrofit restAdapter = buildAdapterStreaming(params);
+        return createService(clazz, params, restAdapter);
     }
 
     public <T> T buildPing(@NonNull Class<T> clazz, @NonNull RestParams params) {
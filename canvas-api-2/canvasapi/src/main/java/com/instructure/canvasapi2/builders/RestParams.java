@@ -19,12 +19,25 @@ package com.instructure.canvasapi2.builders;
 
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.support.annotation.NonNull;
 
 import com.instructure.canvasapi2.models.CanvasContext;
 
 
 public class RestParams implements Parcelable {
 
+    /**
+     * How urgently an enqueued call should reach the network, see PriorityCallQueue. Executed calls aren't queued.
+     */
+    public enum Priority {
+        /** Something the user is waiting to see */
+        INTERACTIVE,
+        /** Content the user is likely to open next */
+        PREFETCH,
+        /** Syncs and counts the user isn't waiting on */
+        BACKGROUND
+    }
+
     private CanvasContext canvasContext;
     private String domain;
     private String apiVersion;
@@ -32,6 +45,8 @@ public class RestParams implements Parcelable {
     private boolean shouldIgnoreToken;
     private boolean forceReadFromCache;
     private boolean forceReadFromNetwork;
+    private boolean staleWhileRevalidate;
+    private Priority priority;
 
     private RestParams(Builder builder) {
         canvasContext = builder.innerCanvasContext;
@@ -41,6 +56,8 @@ public class RestParams implements Parcelable {
         shouldIgnoreToken = builder.innerShouldIgnoreToken;
         forceReadFromCache = builder.innerForceReadFromCache;
         forceReadFromNetwork = builder.innerForceReadFromNetwork;
+        staleWhileRevalidate = builder.innerStaleWhileRevalidate;
+        priority = builder.innerPriority;
     }
 
     public static final class Builder {
@@ -51,6 +68,8 @@ public class RestParams implements Parcelable {
         private boolean innerShouldIgnoreToken;
         private boolean innerForceReadFromCache;
         private boolean innerForceReadFromNetwork;
+        private boolean innerStaleWhileRevalidate;
+        private Priority innerPriority = Priority.INTERACTIVE;
 
         public Builder() {
         }
@@ -63,6 +82,8 @@ public class RestParams implements Parcelable {
             innerShouldIgnoreToken = params.shouldIgnoreToken;
             innerForceReadFromCache = params.forceReadFromCache;
             innerForceReadFromNetwork = params.forceReadFromNetwork;
+            innerStaleWhileRevalidate = params.staleWhileRevalidate;
+            innerPriority = params.priority;
         }
 
         public Builder withCanvasContext(CanvasContext val) {
@@ -95,6 +116,24 @@ public class RestParams implements Parcelable {
             return this;
         }
 
+        /**
+         * Enqueued calls first deliver the cached response (ApiType.CACHE), then revalidate it with the server.
+         * The revalidated response is only delivered (ApiType.API) when it changed, a 304 or a body with the
+         * same hash just finishes the callback. Has no effect on executed calls, or when offline.
+         */
+        public Builder withStaleWhileRevalidate(boolean val) {
+            innerStaleWhileRevalidate = val;
+            return this;
+        }
+
+        public Builder withPriority(@NonNull Priority val) {
+            if (val == null) {
+                throw new IllegalArgumentException("The priority must not be null");
+            }
+            innerPriority = val;
+            return this;
+        }
+
         public Builder withAPIVersion(String apiVersion) {
             innerAPIVersion = apiVersion;
             return this;
@@ -133,6 +172,15 @@ public class RestParams implements Parcelable {
         return forceReadFromNetwork;
     }
 
+    public boolean isStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
+    @NonNull
+    public Priority getPriority() {
+        return priority;
+    }
+
     @Override
     public int describeContents() {
         return 0;
@@ -147,6 +195,8 @@ public class RestParams implements Parcelable {
         dest.writeByte(this.forceReadFromCache ? (byte) 1 : (byte) 0);
         dest.writeByte(this.forceReadFromNetwork ? (byte) 1 : (byte) 0);
         dest.writeString(this.apiVersion);
+        dest.writeByte(this.staleWhileRevalidate ? (byte) 1 : (byte) 0);
+        dest.writeInt(this.priority.ordinal());
     }
 
     protected RestParams(Parcel in) {
@@ -157,6 +207,8 @@ public class RestParams implements Parcelable {
         this.forceReadFromCache = in.readByte() != 0;
         this.forceReadFromNetwork = in.readByte() != 0;
         this.apiVersion = in.readString();
+        this.staleWhileRevalidate = in.readByte() != 0;
+        this.priority = Priority.values()[in.readInt()];
     }
 
     public static final Creator<RestParams> CREATOR = new Creator<RestParams>() {
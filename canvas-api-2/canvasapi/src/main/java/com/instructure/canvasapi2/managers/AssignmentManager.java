@@ -196,7 +196,7 @@ public class AssignmentManager extends BaseManager {
             AssignmentManager_Test.getAllGradeableStudentsForAssignment(courseId, assignmentId, callback);
         } else {
             final RestBuilder adapter = new RestBuilder(callback);
-            StatusCallback<List<GradeableStudent>> depaginatedCallback = new ExhaustiveListCallback<GradeableStudent>(callback) {
+            StatusCallback<List<GradeableStudent>> depaginatedCallback = new ExhaustiveListCallback<GradeableStudent>(callback, MAX_CONCURRENT_PAGES) {
                 @Override
                 public void getNextPage(@NotNull StatusCallback<List<GradeableStudent>> callback, @NotNull String nextUrl, boolean isCached) {
                     AssignmentAPI.getNextPageGradeableStudents(forceNetwork, nextUrl, adapter, callback);
@@ -212,7 +212,7 @@ public class AssignmentManager extends BaseManager {
             AssignmentManager_Test.getAllSubmissionsForAssignment(courseId, assignmentId, callback);
         } else {
             final RestBuilder adapter = new RestBuilder(callback);
-            StatusCallback<List<Submission>> depaginatedCallback = new ExhaustiveListCallback<Submission>(callback) {
+            StatusCallback<List<Submission>> depaginatedCallback = new ExhaustiveListCallback<Submission>(callback, MAX_CONCURRENT_PAGES) {
                 @Override
                 public void getNextPage(@NonNull StatusCallback<List<Submission>> callback, @NonNull String nextUrl, boolean isCached) {
                     AssignmentAPI.getNextPageSubmissions(nextUrl, adapter, forceNetwork, callback);
@@ -228,7 +228,7 @@ public class AssignmentManager extends BaseManager {
             AssignmentManager_Test.getAllAssignments(courseId, callback);
         } else {
             final RestBuilder adapter = new RestBuilder(callback);
-            StatusCallback<List<Assignment>> depaginatedCallback = new ExhaustiveListCallback<Assignment>(callback) {
+            StatusCallback<List<Assignment>> depaginatedCallback = new ExhaustiveListCallback<Assignment>(callback, MAX_CONCURRENT_PAGES) {
                 @Override
                 public void getNextPage(@NonNull StatusCallback<List<Assignment>> callback, @NonNull String nextUrl, boolean isCached) {
                     AssignmentAPI.getNextPageAssignments(nextUrl, adapter, forceNetwork, callback);
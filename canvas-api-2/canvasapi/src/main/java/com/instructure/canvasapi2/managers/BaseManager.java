@@ -25,6 +25,12 @@ public class BaseManager {
 
     private static boolean mIsTesting = BuildConfig.IS_TESTING;
 
+    /**
+     * How many pages an exhaustive call may request at once when the page count is known up front.
+     * Kept below OkHttp's default limit of 5 requests per host so other calls aren't starved.
+     */
+    protected static final int MAX_CONCURRENT_PAGES = 4;
+
     public static boolean isTesting() {
         return mIsTesting;
     }
@@ -65,6 +65,18 @@ public class CalendarEventManager extends BaseManager {
             @NonNull final List<String> canvasContexts,
             @NonNull StatusCallback<List<ScheduleItem>> callback,
             boolean forceNetwork) {
+        getCalendarEventsExhaustive(allEvents, type, startDate, endDate, canvasContexts, callback, forceNetwork, RestParams.Priority.INTERACTIVE);
+    }
+
+    public static void getCalendarEventsExhaustive(
+            final boolean allEvents,
+            @NonNull final CalendarEventAPI.CalendarEventType type,
+            @Nullable final String startDate,
+            @Nullable final String endDate,
+            @NonNull final List<String> canvasContexts,
+            @NonNull StatusCallback<List<ScheduleItem>> callback,
+            boolean forceNetwork,
+            @NonNull RestParams.Priority priority) {
 
         if (isTesting() || mTesting) {
             CalendarEventManager_Test.getCalendarEvents(callback);
@@ -73,6 +85,7 @@ public class CalendarEventManager extends BaseManager {
             final RestParams params = new RestParams.Builder()
                     .withPerPageQueryParam(true)
                     .withForceReadFromNetwork(forceNetwork)
+                    .withPriority(priority)
                     .build();
 
             StatusCallback<List<ScheduleItem>> exhaustiveCallback = new ExhaustiveListCallback<ScheduleItem>(callback) {
@@ -73,7 +73,7 @@ public class CourseManager extends BaseManager {
                     .withForceReadFromNetwork(forceNetwork)
                     .build();
 
-            StatusCallback<List<Course>> depaginatedCallback = new ExhaustiveListCallback<Course>(callback) {
+            StatusCallback<List<Course>> depaginatedCallback = new ExhaustiveListCallback<Course>(callback, MAX_CONCURRENT_PAGES) {
                 @Override
                 public void getNextPage(@NonNull StatusCallback<List<Course>> callback, @NonNull String nextUrl, boolean isCached) {
                     CourseAPI.getNextPageFavoriteCourses(forceNetwork, nextUrl, adapter, callback);
@@ -97,7 +97,7 @@ public class CourseManager extends BaseManager {
                     .withForceReadFromNetwork(forceNetwork)
                     .build();
 
-            StatusCallback<List<Course>> depaginatedCallback = new ExhaustiveListCallback<Course>(callback) {
+            StatusCallback<List<Course>> depaginatedCallback = new ExhaustiveListCallback<Course>(callback, MAX_CONCURRENT_PAGES) {
                 @Override
                 public void getNextPage(@NonNull StatusCallback<List<Course>> callback, @NonNull String nextUrl, boolean isCached) {
                     CourseAPI.getNextPageCourses(forceNetwork, nextUrl, adapter, callback);
@@ -17,6 +17,7 @@
 
 package com.instructure.canvasapi2.managers
 
+import android.net.Uri
 import com.instructure.canvasapi2.apis.FileUploadAPI
 import com.instructure.canvasapi2.builders.RestBuilder
 import com.instructure.canvasapi2.builders.RestParams
@@ -24,13 +25,21 @@ import com.instructure.canvasapi2.models.Attachment
 import com.instructure.canvasapi2.models.Avatar
 import com.instructure.canvasapi2.models.AvatarWrapper
 import com.instructure.canvasapi2.models.FileUploadParams
+import com.instructure.canvasapi2.utils.ContextKeeper
+import com.instructure.canvasapi2.utils.StreamingFileBody
+import okhttp3.MediaType
+import okhttp3.RequestBody
+import retrofit2.HttpException
 import java.io.File
+import java.io.IOException
 
 @Suppress("MemberVisibilityCanPrivate")
 object FileUploadManager : BaseManager() {
 
     private val mTesting = false
 
+    private val OCTET_STREAM = MediaType.parse("application/octet-stream")
+
     @JvmStatic
     private fun getUploadParamsSynchronous(
             uploadContext: String,
@@ -39,20 +48,25 @@ object FileUploadManager : BaseManager() {
             contentType: String,
             parentId: Long?,
             parentPath: String?,
-            renameOnDuplicate: Boolean
+            renameOnDuplicate: Boolean,
+            throwErrors: Boolean = false
     ): FileUploadParams? {
         if (isTesting() || mTesting) {
             // TODO
         } else {
             val adapter = RestBuilder()
             val params = RestParams.Builder().build()
-            return FileUploadAPI.getUploadParams(uploadContext, fileName, fileSize, contentType, parentId, parentPath, adapter, params, renameOnDuplicate)
+            return if (throwErrors) {
+                FileUploadAPI.getUploadParamsOrThrow(uploadContext, fileName, fileSize, contentType, parentId, parentPath, adapter, params, renameOnDuplicate)
+            } else {
+                FileUploadAPI.getUploadParams(uploadContext, fileName, fileSize, contentType, parentId, parentPath, adapter, params, renameOnDuplicate)
+            }
         }
         return null
     }
 
     @JvmStatic
-    private fun performUploadSynchronous(file: File, uploadParams: FileUploadParams): Attachment? {
+    private fun performUploadSynchronous(fileName: String, fileBody: RequestBody, uploadParams: FileUploadParams, throwErrors: Boolean = false): Attachment? {
         if (isTesting() || mTesting) {
             // TODO
         } else {
@@ -60,12 +74,21 @@ object FileUploadManager : BaseManager() {
             val params = RestParams.Builder()
                     .withShouldIgnoreToken(true)
                     .build()
-            return FileUploadAPI.uploadSynchronous(uploadParams, file, adapter, params)
+            return if (throwErrors) {
+                FileUploadAPI.uploadOrThrow(uploadParams, fileName, fileBody, adapter, params)
+            } else {
+                FileUploadAPI.uploadSynchronous(uploadParams, fileName, fileBody, adapter, params)
+            }
         }
         return null
     }
 
     @JvmStatic
+    /**
+     * @throws IOException If a request failed, so the upload can be tried again
+     * @throws HttpException If the server responded with an error
+     */
+    @Throws(IOException::class)
     fun uploadFileSynchronous (uploadContext: UploadContextProvider, config: FileUploadConfig): Attachment? {
         if (config.parentFolderId != null && config.parentFolderPath != null) {
             throw IllegalArgumentException("Specifying both the parent folder ID and parent folder path is disallowed.")
@@ -77,15 +100,27 @@ object FileUploadManager : BaseManager() {
                 config.contentType,
                 config.parentFolderId,
                 config.parentFolderPath,
-                config.renameOnDuplicate
-        )?.let { performUploadSynchronous(File(config.filePath), it) }
+                config.renameOnDuplicate,
+                throwErrors = true
+        )?.let { performUploadSynchronous(config.fileName, createFileBody(config), it, throwErrors = true) }
+    }
+
+    private fun createFileBody(config: FileUploadConfig): RequestBody {
+        val contentUri = config.contentUri
+        return if (contentUri != null) {
+            val resolver = ContextKeeper.appContext.contentResolver
+            StreamingFileBody.fromUri(resolver, contentUri, config.fileSize, OCTET_STREAM, config.progressListener)
+        } else {
+            StreamingFileBody.fromFile(File(config.filePath), OCTET_STREAM, config.progressListener)
+        }
     }
 
     @JvmStatic
     fun uploadAvatarSynchronous(imageName: String, size: Long, contentType: String, path: String): AvatarWrapper {
         val uploadParams = getUploadParamsSynchronous(UserUploadContext().getUploadContext, imageName, size, contentType, null, "profile pictures", true) ?: return AvatarWrapper(AvatarWrapper.ERROR_UNKNOWN)
         if (uploadParams.message == "file size exceeds quota") return AvatarWrapper(AvatarWrapper.ERROR_QUOTA_EXCEEDED)
-        val attachment = performUploadSynchronous(File(path), uploadParams) ?: return AvatarWrapper(AvatarWrapper.ERROR_UNKNOWN)
+        val file = File(path)
+        val attachment = performUploadSynchronous(file.name, StreamingFileBody.fromFile(file, OCTET_STREAM, null), uploadParams) ?: return AvatarWrapper(AvatarWrapper.ERROR_UNKNOWN)
         return AvatarWrapper(AvatarWrapper.ERROR_NONE, Avatar().apply {
             url = attachment.url
             displayName = attachment.displayName
@@ -137,4 +172,10 @@ data class FileUploadConfig(
     var parentFolderId: Long? = null
     var parentFolderPath: String? = null
     var renameOnDuplicate: Boolean = true
+
+    /** When set, the file is streamed from this Uri's file descriptor and [filePath] is not read */
+    var contentUri: Uri? = null
+
+    /** Notified as the file content is written to the upload target */
+    var progressListener: StreamingFileBody.ProgressListener? = null
 }
@@ -20,6 +20,7 @@ object UnreadCountManager : BaseManager() {
             val adapter = RestBuilder(callback)
             val params = RestParams.Builder()
                     .withForceReadFromNetwork(forceNetwork)
+                    .withPriority(RestParams.Priority.BACKGROUND)
                     .build()
             UnreadCountAPI.getUnreadConversationCount(adapter, params, callback)
         }
@@ -33,6 +34,7 @@ object UnreadCountManager : BaseManager() {
             val adapter = RestBuilder(callback)
             val params = RestParams.Builder()
                     .withForceReadFromNetwork(forceNetwork)
+                    .withPriority(RestParams.Priority.BACKGROUND)
                     .build()
             UnreadCountAPI.getUnreadNotificationsCount(adapter, params, callback)
         }
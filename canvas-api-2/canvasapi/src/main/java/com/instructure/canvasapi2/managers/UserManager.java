@@ -59,6 +59,7 @@ public class UserManager extends BaseManager {
                 .withPerPageQueryParam(false)
                 .withForceReadFromCache(!forceNetwork)
                 .withForceReadFromNetwork(forceNetwork)
+                .withPriority(RestParams.Priority.BACKGROUND)
                 .build();
 
         if(isTesting() || mTesting) {
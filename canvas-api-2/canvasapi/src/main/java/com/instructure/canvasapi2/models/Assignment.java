@@ -23,7 +23,7 @@ import android.support.annotation.Nullable;
 
 import com.google.gson.annotations.SerializedName;
 import com.instructure.canvasapi2.R;
-import com.instructure.canvasapi2.utils.APIHelper;
+import com.instructure.canvasapi2.utils.ParsedDate;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -99,6 +99,12 @@ public class Assignment extends CanvasModel<Assignment> {
     private String lockAt; //Date the teacher no longer accepts submissions.
     @SerializedName("unlock_at")
     private String unlockAt;
+
+    // Parsed from the date strings above when they are first needed
+    private transient ParsedDate parsedDueAt;
+    private transient ParsedDate parsedLockAt;
+    private transient ParsedDate parsedUnlockAt;
+
     @SerializedName("lock_explanation")
     private String lockExplanation;
     @SerializedName("discussion_topic")
@@ -514,7 +520,8 @@ public class Assignment extends CanvasModel<Assignment> {
     }
 
     public @Nullable Date getDueAt() {
-        return APIHelper.stringToDate(dueAt);
+        parsedDueAt = ParsedDate.of(parsedDueAt, dueAt);
+        return parsedDueAt.getDate();
     }
 
     public double getPointsPossible() {
@@ -591,11 +598,13 @@ public class Assignment extends CanvasModel<Assignment> {
     }
 
     public @Nullable Date getLockAt() {
-        return APIHelper.stringToDate(lockAt);
+        parsedLockAt = ParsedDate.of(parsedLockAt, lockAt);
+        return parsedLockAt.getDate();
     }
 
     public @Nullable Date getUnlockAt() {
-        return APIHelper.stringToDate(unlockAt);
+        parsedUnlockAt = ParsedDate.of(parsedUnlockAt, unlockAt);
+        return parsedUnlockAt.getDate();
     }
 
     public String getLockExplanation() {
@@ -21,7 +21,7 @@ import android.os.Parcel;
 import android.support.annotation.Nullable;
 
 import com.google.gson.annotations.SerializedName;
-import com.instructure.canvasapi2.utils.APIHelper;
+import com.instructure.canvasapi2.utils.ParsedDate;
 
 import java.util.Date;
 
@@ -38,6 +38,12 @@ public class AssignmentDueDate extends CanvasModel<AssignmentDueDate> {
     private String unlockAt;
     @SerializedName("lock_at")
     private String lockAt;
+
+    // Parsed from the date strings above when they are first needed
+    private transient ParsedDate parsedDueAt;
+    private transient ParsedDate parsedUnlockAt;
+    private transient ParsedDate parsedLockAt;
+
     private boolean base;
 
     @Override
@@ -60,7 +66,8 @@ public class AssignmentDueDate extends CanvasModel<AssignmentDueDate> {
     //region Getters
 
     public @Nullable Date getDueAt() {
-        return APIHelper.stringToDate(dueAt);
+        parsedDueAt = ParsedDate.of(parsedDueAt, dueAt);
+        return parsedDueAt.getDate();
     }
 
     public String getTitle() {
@@ -68,11 +75,13 @@ public class AssignmentDueDate extends CanvasModel<AssignmentDueDate> {
     }
 
     public @Nullable Date getUnlockAt() {
-        return APIHelper.stringToDate(unlockAt);
+        parsedUnlockAt = ParsedDate.of(parsedUnlockAt, unlockAt);
+        return parsedUnlockAt.getDate();
     }
 
     public @Nullable Date getLockAt() {
-        return APIHelper.stringToDate(lockAt);
+        parsedLockAt = ParsedDate.of(parsedLockAt, lockAt);
+        return parsedLockAt.getDate();
     }
 
     public boolean isBase() {
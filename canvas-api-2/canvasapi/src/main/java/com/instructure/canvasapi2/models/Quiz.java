@@ -24,6 +24,7 @@ import android.support.annotation.Nullable;
 import com.google.gson.annotations.SerializedName;
 import com.instructure.canvasapi2.R;
 import com.instructure.canvasapi2.utils.APIHelper;
+import com.instructure.canvasapi2.utils.ParsedDate;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -103,6 +104,12 @@ public class Quiz extends CanvasModel<Quiz> {
     private boolean oneTimeResults;
     @SerializedName("lock_at")
     private String lockAt;
+
+    // Parsed from the date strings above when they are first needed
+    private transient ParsedDate parsedDueAt;
+    private transient ParsedDate parsedLockAt;
+    private transient ParsedDate parsedUnlockAt;
+
     @SerializedName("question_types")
     private List<String> questionTypes = new ArrayList<>();
     @SerializedName("has_access_code")
@@ -229,7 +236,8 @@ public class Quiz extends CanvasModel<Quiz> {
 
     @Nullable
     public Date getDueAt() {
-        return APIHelper.stringToDate(dueAt);
+        parsedDueAt = ParsedDate.of(parsedDueAt, dueAt);
+        return parsedDueAt.getDate();
     }
 
     public void setDueAt(String dueAt) {
@@ -305,7 +313,8 @@ public class Quiz extends CanvasModel<Quiz> {
 
     @Nullable
     public Date getUnlockAt() {
-        return APIHelper.stringToDate(unlockAt);
+        parsedUnlockAt = ParsedDate.of(parsedUnlockAt, unlockAt);
+        return parsedUnlockAt.getDate();
     }
 
     public void setUnlockAt(String unlockAt) {
@@ -322,7 +331,8 @@ public class Quiz extends CanvasModel<Quiz> {
 
     @Nullable
     public Date getLockAt() {
-        return APIHelper.stringToDate(lockAt);
+        parsedLockAt = ParsedDate.of(parsedLockAt, lockAt);
+        return parsedLockAt.getDate();
     }
 
     public void setLockAt(String lockAt) {
@@ -401,11 +411,13 @@ public class Quiz extends CanvasModel<Quiz> {
     }
 
     public @Nullable Date getLockAtDate() {
-        return APIHelper.stringToDate(lockAt);
+        parsedLockAt = ParsedDate.of(parsedLockAt, lockAt);
+        return parsedLockAt.getDate();
     }
 
     public @Nullable Date getUnlockAtDate() {
-        return APIHelper.stringToDate(unlockAt);
+        parsedUnlockAt = ParsedDate.of(parsedUnlockAt, unlockAt);
+        return parsedUnlockAt.getDate();
     }
 
     public boolean isUnpublishable() {
@@ -531,7 +543,8 @@ public class Quiz extends CanvasModel<Quiz> {
     @Nullable
     @Override
     public Date getComparisonDate() {
-        return APIHelper.stringToDate(dueAt);
+        parsedDueAt = ParsedDate.of(parsedDueAt, dueAt);
+        return parsedDueAt.getDate();
     }
 
     @Nullable
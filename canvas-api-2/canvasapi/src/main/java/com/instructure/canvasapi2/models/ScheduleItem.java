@@ -26,6 +26,7 @@ import com.google.gson.annotations.SerializedName;
 import com.instructure.canvasapi2.R;
 import com.instructure.canvasapi2.utils.APIHelper;
 import com.instructure.canvasapi2.utils.DateHelper;
+import com.instructure.canvasapi2.utils.ParsedDate;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -46,6 +47,11 @@ public class ScheduleItem extends CanvasModel<ScheduleItem> {
     private String startAt;
     @SerializedName("end_at")
     private String endAt;
+
+    // Parsed from the date strings above when they are first needed
+    private transient ParsedDate parsedStartAt;
+    private transient ParsedDate parsedEndAt;
+
     @SerializedName("all_day")
     private boolean allDay;
     @SerializedName("all_day_date")
@@ -135,7 +141,8 @@ public class ScheduleItem extends CanvasModel<ScheduleItem> {
 
     @Nullable
     public Date getStartAt() {
-        return APIHelper.stringToDate(startAt);
+        parsedStartAt = ParsedDate.of(parsedStartAt, startAt);
+        return parsedStartAt.getDate();
     }
 
     public String getStartString(Context context) {
@@ -182,7 +189,8 @@ public class ScheduleItem extends CanvasModel<ScheduleItem> {
 
     @Nullable
     public Date getEndAt() {
-        return APIHelper.stringToDate(endAt);
+        parsedEndAt = ParsedDate.of(parsedEndAt, endAt);
+        return parsedEndAt.getDate();
     }
 
     public boolean isAllDay() {
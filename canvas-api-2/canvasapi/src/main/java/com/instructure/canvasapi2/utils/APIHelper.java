@@ -21,6 +21,7 @@ import android.content.Context;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
 import com.instructure.canvasapi2.builders.RestParams;
@@ -28,12 +29,15 @@ import com.instructure.canvasapi2.builders.RestParams;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import okhttp3.Headers;
 import okhttp3.MediaType;
@@ -43,6 +47,7 @@ import retrofit2.Response;
 public class APIHelper {
 
     private final static String SHARED_PREFERENCES_AIRWOLF_DOMAIN = "airwolf_domain";
+    private final static Pattern PAGE_QUERY_PARAM = Pattern.compile("[?&]page=(\\d+)(?=&|$)");
 
     public static boolean hasNetworkConnection() {
         ConnectivityManager cm = (ConnectivityManager) ContextKeeper.getAppContext().getSystemService(Context.CONNECTIVITY_SERVICE);
@@ -126,6 +131,47 @@ public class APIHelper {
         return linkHeaders;
     }
 
+    /**
+     * getRemainingPageUrls builds the urls of every page from the next page through the last page. Used to request pages in parallel.
+     *
+     * @param linkHeaders The link headers of the current page
+     * @return The urls in page order, or null if the pages aren't numbered (bookmark pagination) or there is no last page
+     */
+    public static
+    @Nullable
+    List<String> getRemainingPageUrls(@Nullable LinkHeaders linkHeaders) {
+        if (linkHeaders == null || linkHeaders.nextUrl == null || linkHeaders.lastUrl == null) {
+            return null;
+        }
+
+        Matcher nextMatcher = PAGE_QUERY_PARAM.matcher(linkHeaders.nextUrl);
+        Matcher lastMatcher = PAGE_QUERY_PARAM.matcher(linkHeaders.lastUrl);
+        if (!nextMatcher.find() || !lastMatcher.find()) {
+            return null;
+        }
+
+        int nextPage;
+        int lastPage;
+        try {
+            nextPage = Integer.parseInt(nextMatcher.group(1));
+            lastPage = Integer.parseInt(lastMatcher.group(1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (lastPage < nextPage) {
+            return null;
+        }
+
+        // Only the page number changes, keep the rest of the next url (per_page, includes, etc.)
+        String prefix = linkHeaders.nextUrl.substring(0, nextMatcher.start(1));
+        String suffix = linkHeaders.nextUrl.substring(nextMatcher.end(1));
+        List<String> urls = new ArrayList<>(lastPage - nextPage + 1);
+        for (int page = nextPage; page <= lastPage; page++) {
+            urls.add(prefix + page + suffix);
+        }
+        return urls;
+    }
+
     /**
      * removeDomainFromUrl is a helper function for removing the domain from a url. Used for pagination/routing
      *
@@ -164,6 +210,9 @@ public class APIHelper {
     }
 
     public static Date stringToDate(final String iso8601string) {
+        Date date = IsoDateFormat.parse(iso8601string);
+        if (date != null) return date;
+        // Fall back on the lenient parse for anything that isn't strictly ISO-8601
         try {
             String s = iso8601string.replace("Z", "+00:00");
             s = s.substring(0, 22) + s.substring(23);
@@ -178,8 +227,7 @@ public class APIHelper {
             return null;
         }
 
-        String formatted = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.US).format(date);
-        return formatted.substring(0, 22) + ":" + formatted.substring(22);
+        return IsoDateFormat.format(date);
     }
 
     public static String dateToString(final GregorianCalendar date) {
@@ -187,8 +235,7 @@ public class APIHelper {
             return null;
         }
 
-        String formatted = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.US).format(new Date(date.getTimeInMillis()));
-        return formatted.substring(0, 22) + ":" + formatted.substring(22);
+        return IsoDateFormat.format(new Date(date.getTimeInMillis()));
     }
 
     /**
@@ -119,6 +119,9 @@ object ApiPrefs : PrefManager(PREFERENCE_FILE_NAME) {
      */
     @JvmStatic
     fun clearAllData(): Boolean {
+        // Write out pending changes first, so none of them land after the clear
+        PrefManager.flushAll()
+
         // Clear preferences
         clearPrefs()
 
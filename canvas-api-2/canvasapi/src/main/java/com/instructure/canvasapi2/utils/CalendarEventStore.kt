@@ -0,0 +1,432 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.instructure.canvasapi2.utils
+
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import com.instructure.canvasapi2.StatusCallback
+import com.instructure.canvasapi2.apis.CalendarEventAPI.CalendarEventType
+import com.instructure.canvasapi2.builders.RestParams
+import com.instructure.canvasapi2.managers.CalendarEventManager
+import com.instructure.canvasapi2.models.ScheduleItem
+import retrofit2.Call
+import retrofit2.Response
+import java.io.File
+import java.util.*
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+/**
+ * Keeps calendar events by context and time interval, in memory and on disk, so paging between months
+ * doesn't download the same events again.
+ *
+ * For each event type and context the store tracks which intervals have been fetched and when. A range query
+ * fetches only the parts of the range that are missing or older than [freshnessWindow], sharing fetches that
+ * are already in flight. Events come from [CalendarEventManager.getCalendarEventsExhaustive].
+ *
+ * Ranges are half open, [start, end) in milliseconds. Fetch callbacks arrive on the main thread, disk reads and
+ * writes happen on a background thread. The first query waits for the stored events to be read.
+ */
+class CalendarEventStore @JvmOverloads constructor(
+        private val file: File?,
+        private val fetcher: Fetcher = ManagerFetcher,
+        private val freshnessWindow: Long = DEFAULT_FRESHNESS_WINDOW
+) {
+
+    interface Fetcher {
+        fun fetch(type: CalendarEventType, startDate: String, endDate: String, contextIds: List<String>, priority: RestParams.Priority, callback: StatusCallback<List<ScheduleItem>>)
+    }
+
+    interface Listener {
+        /**
+         * Called with the stored events for the requested range. [isComplete] is false when some of the range is
+         * still being fetched, in which case this is called again once it is in.
+         */
+        fun onEventsLoaded(events: List<@JvmSuppressWildcards ScheduleItem>, isComplete: Boolean)
+
+        /** Called after the final [onEventsLoaded] if part of the range could not be fetched */
+        fun onLoadFailed()
+    }
+
+    /** A pending range query. Cancelling it stops its listener from being called, fetches it started carry on. */
+    inner class Request internal constructor(
+            internal val start: Long,
+            internal val end: Long,
+            internal val contextIds: List<String>,
+            internal val listener: Listener?
+    ) {
+        internal var pendingFetches = 0
+        internal var failed = false
+        /* Set while getEvents is still starting fetches, so a fetch that finishes right away doesn't deliver early */
+        internal var isStarting = true
+        var isCancelled = false
+            private set
+
+        fun cancel() {
+            synchronized(this@CalendarEventStore) { isCancelled = true }
+        }
+    }
+
+    private class Interval(val start: Long, val end: Long, val fetchedAt: Long)
+
+    private class Bucket {
+        /* Fetched intervals by start, never overlapping */
+        val intervals = TreeMap<Long, Interval>()
+        /* Events by start time, then by id */
+        val events = TreeMap<Long, MutableMap<Long, ScheduleItem>>()
+        val eventStarts = HashMap<Long, Long>()
+        /* Used to find events that start before a range and run into it */
+        var longestEvent = 0L
+    }
+
+    private class Fetch(val type: CalendarEventType, val start: Long, val end: Long, val contextIds: List<String>, val priority: RestParams.Priority) {
+        val waiters = LinkedHashSet<Request>()
+    }
+
+    private val buckets = HashMap<String, Bucket>()
+    private val fetches = ArrayList<Fetch>()
+
+    private val diskExecutor: ExecutorService = Executors.newSingleThreadExecutor { Thread(it, "CalendarEventStore") }
+    private var saveScheduled = false
+
+    /* The read of the stored events, until a query has waited for it */
+    private var loading: Future<*>? = if (file != null) diskExecutor.submit(Runnable { load(file) }) else null
+
+    /**
+     * Gets the events of both types that overlap the range, for the given contexts. Stored events are delivered
+     * right away. Missing parts of the range are fetched, and the listener is called again once they are all in.
+     *
+     * @param forceNetwork Fetch the whole range, ex: on pull to refresh
+     */
+    @JvmOverloads
+    @Synchronized
+    fun getEvents(start: Long, end: Long, contextIds: List<String>, forceNetwork: Boolean, listener: Listener?, priority: RestParams.Priority = RestParams.Priority.INTERACTIVE): Request {
+        awaitLoad()
+        val request = Request(start, end, ArrayList(contextIds), listener)
+        val now = System.currentTimeMillis()
+
+        for (type in TYPES) {
+            // Contexts missing the same parts of the range share a fetch
+            val missingByContext = LinkedHashMap<List<Pair<Long, Long>>, MutableList<String>>()
+            for (contextId in request.contextIds) {
+                val missing = if (forceNetwork) listOf(start to end) else findMissing(buckets[keyOf(type, contextId)], start, end, now)
+                val unclaimed = missing.flatMap { claimInFlight(type, contextId, it, priority, request) }
+                if (unclaimed.isNotEmpty()) missingByContext.getOrPut(unclaimed) { ArrayList() }.add(contextId)
+            }
+            missingByContext.forEach { (spans, contexts) ->
+                spans.forEach { startFetch(type, it.first, it.second, contexts, priority, request) }
+            }
+        }
+
+        request.isStarting = false
+        if (request.pendingFetches == 0) {
+            listener?.onEventsLoaded(query(request), true)
+            if (request.failed) listener?.onLoadFailed()
+        } else {
+            val stored = query(request)
+            if (stored.isNotEmpty()) listener?.onEventsLoaded(stored, false)
+        }
+        return request
+    }
+
+    /**
+     * Fetches the missing parts of a range in the background without waiting on them, ex: the next month
+     */
+    fun prefetch(start: Long, end: Long, contextIds: List<String>) {
+        getEvents(start, end, contextIds, false, null, RestParams.Priority.PREFETCH)
+    }
+
+    /**
+     * @return The stored events of both types overlapping the range, without fetching anything
+     */
+    @Synchronized
+    fun getStoredEvents(start: Long, end: Long, contextIds: List<String>): List<ScheduleItem> {
+        awaitLoad()
+        return query(Request(start, end, contextIds, null))
+    }
+
+    /** Forgets every stored event, ex: when the user logs out */
+    @Synchronized
+    fun clear() {
+        awaitLoad()
+        buckets.clear()
+        scheduleSave()
+    }
+
+    /** Blocks until pending disk reads and writes are done */
+    fun flush() {
+        diskExecutor.submit(Callable { Unit }).get()
+    }
+
+    private fun keyOf(type: CalendarEventType, contextId: String) = type.name + "|" + contextId
+
+    private fun bucketOf(type: CalendarEventType, contextId: String) = buckets.getOrPut(keyOf(type, contextId)) { Bucket() }
+
+    /**
+     * @return The parts of [start, end) that were never fetched or were fetched before the freshness window
+     */
+    private fun findMissing(bucket: Bucket?, start: Long, end: Long, now: Long): List<Pair<Long, Long>> {
+        if (bucket == null) return listOf(start to end)
+        val missing = ArrayList<Pair<Long, Long>>()
+        var cursor = start
+        val first = bucket.intervals.floorKey(start) ?: start
+        for (interval in bucket.intervals.subMap(first, true, end, false).values) {
+            if (interval.end <= cursor || now - interval.fetchedAt >= freshnessWindow) continue
+            if (interval.start > cursor) missing.add(cursor to interval.start)
+            cursor = maxOf(cursor, interval.end)
+            if (cursor >= end) break
+        }
+        if (cursor < end) missing.add(cursor to end)
+        return missing
+    }
+
+    /**
+     * Attaches the request to fetches in flight that already cover part of the span for this context. A fetch
+     * that waits in a less urgent queue, ex: a prefetch when the user opens that month, isn't shared.
+     * @return The parts of the span nothing is fetching yet
+     */
+    private fun claimInFlight(type: CalendarEventType, contextId: String, span: Pair<Long, Long>, priority: RestParams.Priority, request: Request): List<Pair<Long, Long>> {
+        var remaining = listOf(span)
+        for (fetch in fetches) {
+            if (fetch.type != type || !fetch.contextIds.contains(contextId) || fetch.priority > priority) continue
+            val next = ArrayList<Pair<Long, Long>>()
+            for ((start, end) in remaining) {
+                if (fetch.end <= start || fetch.start >= end) {
+                    next.add(start to end)
+                    continue
+                }
+                if (fetch.waiters.add(request)) request.pendingFetches++
+                if (start < fetch.start) next.add(start to fetch.start)
+                if (fetch.end < end) next.add(fetch.end to end)
+            }
+            remaining = next
+        }
+        return remaining
+    }
+
+    private fun startFetch(type: CalendarEventType, start: Long, end: Long, contextIds: List<String>, priority: RestParams.Priority, request: Request) {
+        val fetch = Fetch(type, start, end, contextIds, priority)
+        fetch.waiters.add(request)
+        request.pendingFetches++
+        fetches.add(fetch)
+        fetcher.fetch(type, APIHelper.dateToString(Date(start)), APIHelper.dateToString(Date(end)), contextIds, priority, object : StatusCallback<List<ScheduleItem>>() {
+            override fun onResponse(response: Response<List<ScheduleItem>>, linkHeaders: LinkHeaders, type: ApiType) {
+                onFetchFinished(fetch, response.body() ?: emptyList(), true)
+            }
+
+            override fun onFail(call: Call<List<ScheduleItem>>?, error: Throwable, response: Response<*>?) {
+                onFetchFinished(fetch, emptyList(), false)
+            }
+
+            // Finished without a response (ex: a 504 when offline) or cancelled, the fetch is done either way
+            override fun onFinished(type: ApiType?) {
+                onFetchFinished(fetch, emptyList(), false)
+            }
+
+            override fun onCancelled() {
+                onFetchFinished(fetch, emptyList(), false)
+            }
+        })
+    }
+
+    @Synchronized
+    private fun onFetchFinished(fetch: Fetch, items: List<ScheduleItem>, success: Boolean) {
+        // onFinished also follows a response, only the first outcome counts
+        if (!fetches.remove(fetch)) return
+        if (success) {
+            store(fetch, items)
+            scheduleSave()
+        }
+        for (request in fetch.waiters) {
+            request.pendingFetches--
+            if (!success) request.failed = true
+            if (request.pendingFetches == 0 && !request.isStarting && !request.isCancelled) {
+                request.listener?.onEventsLoaded(query(request), true)
+                if (request.failed) request.listener?.onLoadFailed()
+            }
+        }
+    }
+
+    private fun store(fetch: Fetch, items: List<ScheduleItem>) {
+        val now = System.currentTimeMillis()
+        val itemType = if (fetch.type == CalendarEventType.ASSIGNMENT) ScheduleItem.Type.TYPE_ASSIGNMENT else ScheduleItem.Type.TYPE_CALENDAR
+        val byContext = HashMap<String, MutableList<ScheduleItem>>()
+        for (item in items) {
+            if (item.startAt == null) continue
+            item.itemType = itemType
+            byContext.getOrPut(contextOf(item, fetch.contextIds)) { ArrayList() }.add(item)
+        }
+
+        for (contextId in fetch.contextIds) {
+            val bucket = bucketOf(fetch.type, contextId)
+            // The fetch replaces whatever was stored for its range, so deleted events go away
+            bucket.events.subMap(fetch.start, true, fetch.end, false).values.toList().forEach { events ->
+                events.values.toList().forEach { removeEvent(bucket, it) }
+            }
+            byContext[contextId]?.forEach { addEvent(bucket, it) }
+            addInterval(bucket, Interval(fetch.start, fetch.end, now))
+        }
+    }
+
+    /**
+     * Events can belong to a section or a user in the course that was asked for, so match on the effective
+     * context codes too.
+     */
+    private fun contextOf(item: ScheduleItem, contextIds: List<String>): String {
+        val contextCode = item.contextCode
+        if (contextCode != null && contextIds.contains(contextCode)) return contextCode
+        item.effectiveContextCode?.split(',')?.firstOrNull { contextIds.contains(it) }?.let { return it }
+        return if (contextIds.size == 1 || contextCode == null) contextIds[0] else contextCode
+    }
+
+    private fun addEvent(bucket: Bucket, item: ScheduleItem) {
+        removeEvent(bucket, item)
+        val start = item.startAt.time
+        bucket.events.getOrPut(start) { LinkedHashMap() }[item.id] = item
+        bucket.eventStarts[item.id] = start
+        val end = item.endAt?.time ?: start
+        bucket.longestEvent = maxOf(bucket.longestEvent, end - start)
+    }
+
+    private fun removeEvent(bucket: Bucket, item: ScheduleItem) {
+        val start = bucket.eventStarts.remove(item.id) ?: return
+        val events = bucket.events[start] ?: return
+        events.remove(item.id)
+        if (events.isEmpty()) bucket.events.remove(start)
+    }
+
+    private fun addInterval(bucket: Bucket, interval: Interval) {
+        // Trim the intervals the new one overlaps
+        val first = bucket.intervals.floorKey(interval.start) ?: interval.start
+        for (existing in bucket.intervals.subMap(first, true, interval.end, false).values.toList()) {
+            if (existing.end <= interval.start) continue
+            bucket.intervals.remove(existing.start)
+            if (existing.start < interval.start) bucket.intervals[existing.start] = Interval(existing.start, interval.start, existing.fetchedAt)
+            if (existing.end > interval.end) bucket.intervals[interval.end] = Interval(interval.end, existing.end, existing.fetchedAt)
+        }
+        bucket.intervals[interval.start] = interval
+    }
+
+    private fun query(request: Request): List<ScheduleItem> {
+        val results = ArrayList<ScheduleItem>()
+        for (type in TYPES) {
+            for (contextId in request.contextIds) {
+                val bucket = buckets[keyOf(type, contextId)] ?: continue
+                for (events in bucket.events.subMap(request.start - bucket.longestEvent, true, request.end, false).values) {
+                    for (item in events.values) {
+                        val end = item.endAt?.time ?: item.startAt.time
+                        if (end >= request.start) results.add(item)
+                    }
+                }
+            }
+        }
+        return results
+    }
+
+    //region Disk
+
+    private class StoredBucket(val key: String, val intervals: List<LongArray>, val events: List<ScheduleItem>)
+
+    /** Only the first query can block, the read is started as soon as the store is created */
+    private fun awaitLoad() {
+        val pending = loading ?: return
+        loading = null
+        try {
+            pending.get()
+        } catch (e: ExecutionException) {
+            Logger.e("Could not read calendar events: " + e.message)
+        }
+    }
+
+    @Synchronized
+    private fun scheduleSave() {
+        if (file == null || saveScheduled) return
+        saveScheduled = true
+        diskExecutor.execute { save(file) }
+    }
+
+    private fun save(file: File) {
+        val snapshot = synchronized(this) {
+            saveScheduled = false
+            buckets.map { (key, bucket) ->
+                StoredBucket(key,
+                        bucket.intervals.values.map { longArrayOf(it.start, it.end, it.fetchedAt) },
+                        bucket.events.values.flatMap { it.values })
+            }
+        }
+        try {
+            val temp = File(file.path + ".tmp")
+            temp.writeText(gson.toJson(snapshot))
+            if (!temp.renameTo(file)) temp.delete()
+        } catch (e: Exception) {
+            Logger.e("Could not save calendar events: " + e.message)
+        }
+    }
+
+    private fun load(file: File) {
+        if (!file.exists()) return
+        val stored: List<StoredBucket> = try {
+            gson.fromJson(file.readText(), object : TypeToken<List<StoredBucket>>() {}.type) ?: return
+        } catch (e: Exception) {
+            Logger.e("Could not read calendar events: " + e.message)
+            file.delete()
+            return
+        }
+
+        // Nothing touches the buckets until the first query has waited for this
+        for (storedBucket in stored) {
+            val bucket = Bucket()
+            storedBucket.intervals.forEach { bucket.intervals[it[0]] = Interval(it[0], it[1], it[2]) }
+            storedBucket.events.forEach { if (it.startAt != null) addEvent(bucket, it) }
+            buckets[storedBucket.key] = bucket
+        }
+    }
+
+    //endregion
+
+    private object ManagerFetcher : Fetcher {
+        override fun fetch(type: CalendarEventType, startDate: String, endDate: String, contextIds: List<String>, priority: RestParams.Priority, callback: StatusCallback<List<ScheduleItem>>) {
+            CalendarEventManager.getCalendarEventsExhaustive(false, type, startDate, endDate, contextIds, callback, true, priority)
+        }
+    }
+
+    companion object {
+        private const val DEFAULT_FRESHNESS_WINDOW = 60 * 60 * 1000L
+        private val TYPES = arrayOf(CalendarEventType.ASSIGNMENT, CalendarEventType.CALENDAR)
+        private val gson = Gson()
+
+        private var currentStore: CalendarEventStore? = null
+        private var currentStoreKey: String? = null
+
+        /**
+         * @return The store for the logged in user, kept in the cache directory
+         */
+        @JvmStatic
+        @Synchronized
+        fun forCurrentUser(): CalendarEventStore {
+            val key = ApiPrefs.domain + "_" + (ApiPrefs.user?.id ?: 0L)
+            currentStore?.let { if (key == currentStoreKey) return it }
+            val file = File(ContextKeeper.appContext.cacheDir, "calendar_events_" + Integer.toHexString(key.hashCode()) + ".json")
+            return CalendarEventStore(file).also {
+                currentStore = it
+                currentStoreKey = key
+            }
+        }
+    }
+}
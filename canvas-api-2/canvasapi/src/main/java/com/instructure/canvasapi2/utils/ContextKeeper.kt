@@ -16,10 +16,13 @@
  */
 package com.instructure.canvasapi2.utils
 
+import android.content.ComponentCallbacks2
 import android.content.ContentProvider
 import android.content.ContentValues
 import android.content.Context
+import android.content.res.Configuration
 import android.net.Uri
+import com.instructure.canvasapi2.utils.pageview.PageViewUtils
 
 class ContextKeeper : ContentProvider() {
 
@@ -30,9 +33,22 @@ class ContextKeeper : ContentProvider() {
 
     override fun onCreate(): Boolean {
         appContext = context
+        // Persist pending PrefManager and page view writes when the app is backgrounded, as it may be killed without notice after that
+        appContext.registerComponentCallbacks(object : ComponentCallbacks2 {
+            override fun onTrimMemory(level: Int) {
+                if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) flushPendingWrites()
+            }
+            override fun onLowMemory() = flushPendingWrites()
+            override fun onConfigurationChanged(newConfig: Configuration?) {}
+        })
         return false
     }
 
+    private fun flushPendingWrites() {
+        PrefManager.flushAll()
+        PageViewUtils.flush()
+    }
+
     override fun delete(uri: Uri, selection: String?, selectionArgs: Array<String>?) = 0
     override fun getType(uri: Uri): String? = null
     override fun insert(uri: Uri, values: ContentValues?) = null
@@ -34,6 +34,9 @@ import java.util.Locale;
 public class DateHelper {
 
     public static Date stringToDate(final String iso8601string) {
+        Date date = IsoDateFormat.parse(iso8601string);
+        if (date != null) return date;
+        // Fall back on the lenient parse for anything that isn't strictly ISO-8601
         try {
             String s = iso8601string.replace("Z", "+00:00");
             s = s.substring(0, 22) + s.substring(23);
@@ -44,6 +47,9 @@ public class DateHelper {
     }
 
     public static Date stringToDateWithMillis(final String iso8601string) {
+        Date date = IsoDateFormat.parse(iso8601string);
+        if (date != null) return date;
+        // Fall back on the lenient parse for anything that isn't strictly ISO-8601
         try {
             String s = iso8601string.replace("Z", "+00:00");
             s = s.substring(0, 22) + s.substring(23);
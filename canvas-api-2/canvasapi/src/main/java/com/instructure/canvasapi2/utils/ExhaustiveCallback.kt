@@ -21,13 +21,36 @@ import retrofit2.Call
 import retrofit2.Response
 import java.util.*
 
+/**
+ * Requests every page of a paginated endpoint and delivers all of the items in a single response.
+ *
+ * By default pages are requested one after another. When [maxConcurrentPages] is greater than 1 and the
+ * first page has numbered 'next' and 'last' link headers, the remaining pages are requested in parallel
+ * (at most [maxConcurrentPages] at a time) and joined back together in page order. Otherwise it falls back
+ * to sequential paging.
+ */
 @JvmSuppressWildcards
-abstract class ExhaustiveCallback<MODEL, out ITEM>(
-        private val callback: StatusCallback<List<ITEM>>
+abstract class ExhaustiveCallback<MODEL, out ITEM> @JvmOverloads constructor(
+        private val callback: StatusCallback<List<ITEM>>,
+        private val maxConcurrentPages: Int = 1
 ) : StatusCallback<@JvmSuppressWildcards MODEL>() {
 
     private val extractedItems = ArrayList<ITEM>()
     private var finished = false
+    // Set when a page has asked for more pages, so finishing that page doesn't finish the list
+    private var isPaging = false
+    private var isCancelReported = false
+
+    // Concurrent paging state
+    private var pageUrls: List<String> = emptyList()
+    private var pageItems: MutableList<List<ITEM>?> = ArrayList()
+    private val pageCallbacks = ArrayList<PageCallback>()
+    private var nextPageIndex = 0
+    private var completedPages = 0
+    private var isCachedPages = false
+    private var pagesResponse: Response<MODEL>? = null
+    private var pagesLinkHeaders: LinkHeaders? = null
+    private var pagesType = ApiType.API
 
     abstract fun getNextPage(callback: StatusCallback<MODEL>, nextUrl: String, isCached: Boolean)
 
@@ -43,7 +66,13 @@ abstract class ExhaustiveCallback<MODEL, out ITEM>(
             val items = extractItems(it)
             extractedItems.addAll(items)
             if (items.isNotEmpty() && moreCallsExist(response, linkHeaders)) {
-                getNextPage(this, getNextUrl(response, linkHeaders), type.isCache)
+                val remainingPageUrls = if (maxConcurrentPages > 1) APIHelper.getRemainingPageUrls(linkHeaders) else null
+                isPaging = true
+                if (remainingPageUrls != null && remainingPageUrls.size > 1) {
+                    getPagesConcurrently(remainingPageUrls, response, linkHeaders, type)
+                } else {
+                    getNextPage(this, getNextUrl(response, linkHeaders), type.isCache)
+                }
             } else {
                 finished = true
                 callback.onResponse(Response.success<List<ITEM>>(extractedItems, response.raw()), linkHeaders, type)
@@ -57,11 +86,133 @@ abstract class ExhaustiveCallback<MODEL, out ITEM>(
     }
 
     override fun onFinished(type: ApiType?) {
-        if (finished) callback.onFinished(type)
+        when {
+            finished -> callback.onFinished(type)
+            isPaging -> isPaging = false
+            !callback.isCanceled -> {
+                // The page finished without a response (e.g. a 504 when it isn't cached), so the list ends here
+                finished = true
+                callback.onFinished(type)
+            }
+        }
+    }
+
+    override fun onCancelled() {
+        if (finished || isCancelReported) return
+        isCancelReported = true
+        cancel()
+        callback.onCancelled()
+    }
+
+    override fun cancel() {
+        super.cancel()
+        pageCallbacks.forEach { it.cancel() }
     }
 
     override fun reset() {
         finished = false
+        isPaging = false
+        isCancelReported = false
         super.reset()
+        pageCallbacks.clear()
+        pageUrls = emptyList()
+        pageItems = ArrayList()
+    }
+
+    private fun getPagesConcurrently(urls: List<String>, response: Response<MODEL>, linkHeaders: LinkHeaders, type: ApiType) {
+        pageUrls = urls
+        pageItems = MutableList(urls.size) { null }
+        pageCallbacks.clear()
+        nextPageIndex = 0
+        completedPages = 0
+        isCachedPages = type.isCache
+        // Used for the joined response if the last page doesn't come back (e.g. not in the cache)
+        pagesResponse = response
+        pagesLinkHeaders = linkHeaders
+        pagesType = type
+
+        while (nextPageIndex < pageUrls.size && nextPageIndex < maxConcurrentPages) {
+            requestNextPage()
+        }
+    }
+
+    private fun requestNextPage() {
+        val pageCallback = PageCallback(nextPageIndex++)
+        pageCallbacks.add(pageCallback)
+        getNextPage(pageCallback, pageUrls[pageCallback.pageIndex], isCachedPages)
+    }
+
+    private fun onPageResponse(pageIndex: Int, response: Response<MODEL>?, linkHeaders: LinkHeaders?, type: ApiType) {
+        if (finished || pageIndex >= pageItems.size) return
+        if (callback.isCanceled) { cancel(); return }
+
+        pageItems[pageIndex] = response?.body()?.let { extractItems(it) } ?: emptyList()
+        if (response != null && linkHeaders != null && pageIndex == pageUrls.lastIndex) {
+            pagesResponse = response
+            pagesLinkHeaders = linkHeaders
+            pagesType = type
+        }
+
+        completedPages++
+        if (nextPageIndex < pageUrls.size) {
+            requestNextPage()
+        } else if (completedPages == pageUrls.size) {
+            pageItems.forEach { it?.let { extractedItems.addAll(it) } }
+            val lastPageItems = pageItems.last()
+            pageCallbacks.clear()
+            pageUrls = emptyList()
+            pageItems = ArrayList()
+
+            val lastResponse = pagesResponse ?: return
+            val lastLinkHeaders = pagesLinkHeaders ?: return
+            if (lastPageItems != null && lastPageItems.isNotEmpty() && moreCallsExist(lastResponse, lastLinkHeaders)) {
+                // More pages were added since the first page was fetched, finish them up one at a time
+                getNextPage(this, getNextUrl(lastResponse, lastLinkHeaders), isCachedPages)
+            } else {
+                finished = true
+                callback.onResponse(Response.success<List<ITEM>>(extractedItems, lastResponse.raw()), lastLinkHeaders, pagesType)
+                callback.onFinished(pagesType)
+            }
+        }
+    }
+
+    private fun onPageFail(error: Throwable, response: Response<*>?): Boolean {
+        if (finished) return false
+        onFail(null, error, response)
+        cancel()
+        return true
+    }
+
+    /**
+     * Receives a single page when pages are requested concurrently
+     */
+    private inner class PageCallback(val pageIndex: Int) : StatusCallback<@JvmSuppressWildcards MODEL>() {
+        private var received = false
+        private var reportedFailure = false
+
+        override fun onResponse(response: Response<MODEL>, linkHeaders: LinkHeaders, type: ApiType) {
+            received = true
+            onPageResponse(pageIndex, response, linkHeaders, type)
+        }
+
+        override fun onFail(call: Call<MODEL>?, error: Throwable, response: Response<*>?) {
+            received = true
+            reportedFailure = onPageFail(error, response)
+        }
+
+        override fun onCancelled() {
+            this@ExhaustiveCallback.onCancelled()
+        }
+
+        override fun onFinished(type: ApiType?) {
+            when {
+                reportedFailure -> this@ExhaustiveCallback.onFinished(type)
+                !received -> {
+                    // Finished without a response, i.e. the page isn't cached. Carry on without it.
+                    received = true
+                    onPageResponse(pageIndex, null, null, type ?: ApiType.API)
+                }
+            }
+        }
     }
 }
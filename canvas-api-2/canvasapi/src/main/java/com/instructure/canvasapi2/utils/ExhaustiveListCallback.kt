@@ -19,8 +19,9 @@ package com.instructure.canvasapi2.utils
 import com.instructure.canvasapi2.StatusCallback
 
 @JvmSuppressWildcards
-abstract class ExhaustiveListCallback<MODEL>(
-        callback: StatusCallback<List<MODEL>>
-) : ExhaustiveCallback<@kotlin.jvm.JvmSuppressWildcards List<MODEL>, @kotlin.jvm.JvmSuppressWildcards MODEL>(callback) {
+abstract class ExhaustiveListCallback<MODEL> @JvmOverloads constructor(
+        callback: StatusCallback<List<MODEL>>,
+        maxConcurrentPages: Int = 1
+) : ExhaustiveCallback<@kotlin.jvm.JvmSuppressWildcards List<MODEL>, @kotlin.jvm.JvmSuppressWildcards MODEL>(callback, maxConcurrentPages) {
     override fun extractItems(response: List<MODEL>) = response
 }
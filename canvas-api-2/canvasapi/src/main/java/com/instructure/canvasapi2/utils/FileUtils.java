@@ -22,7 +22,6 @@ import android.webkit.MimeTypeMap;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -33,6 +32,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.io.Serializable;
 
 
@@ -232,19 +232,25 @@ public class FileUtils {
      */
     public static String getAssetsFile(Context context, String fileName) {
         try {
-            String file = "";
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(context.getAssets().open(fileName)));
-
-            // do reading
-            String line = "";
-            while (line != null) {
-                file += line;
-                line = reader.readLine();
+            StringBuilder file = new StringBuilder();
+            Reader reader = new InputStreamReader(context.getAssets().open(fileName));
+
+            // Read in blocks, leaving out the line breaks like reading it line by line did
+            char[] buffer = new char[8192];
+            int count;
+            while ((count = reader.read(buffer)) >= 0) {
+                int start = 0;
+                for (int i = 0; i < count; i++) {
+                    if (buffer[i] == '\n' || buffer[i] == '\r') {
+                        file.append(buffer, start, i - start);
+                        start = i + 1;
+                    }
+                }
+                file.append(buffer, start, count - start);
             }
 
             reader.close();
-            return file;
+            return file.toString();
 
         } catch (Exception e) {
             return "";
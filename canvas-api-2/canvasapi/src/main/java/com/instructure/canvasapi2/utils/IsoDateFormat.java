@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.instructure.canvasapi2.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Parses and formats the ISO-8601 dates used by the API ("2037-07-28T19:38:31Z", "2037-07-28T19:38:31.123-06:00")
+ * directly from the characters of the string, without a SimpleDateFormat or any intermediate strings.
+ * Stateless, so it is safe to use from any thread.
+ */
+public final class IsoDateFormat {
+
+    /**
+     * Returned by {@link #parseMillis(CharSequence)} when the string isn't an ISO-8601 date time
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+    private static final long MILLIS_PER_DAY = 24 * 60 * MILLIS_PER_MINUTE;
+
+    private IsoDateFormat() {}
+
+    /**
+     * @param date An ISO-8601 date time, with a 'Z' or a +hh:mm / +hhmm offset and optional fractional seconds
+     * @return The date, or null if it couldn't be parsed
+     */
+    @Nullable
+    public static Date parse(@Nullable CharSequence date) {
+        long millis = parseMillis(date);
+        return millis == INVALID ? null : new Date(millis);
+    }
+
+    /**
+     * Same as {@link #parse(CharSequence)}, without allocating a Date
+     * @return The epoch millis of the date, or {@link #INVALID}
+     */
+    public static long parseMillis(@Nullable CharSequence date) {
+        if (date == null) return INVALID;
+        int length = date.length();
+        if (length < 20) return INVALID;
+
+        int year = readDigits(date, 0, 4);
+        int month = readDigits(date, 5, 2);
+        int day = readDigits(date, 8, 2);
+        int hour = readDigits(date, 11, 2);
+        int minute = readDigits(date, 14, 2);
+        int second = readDigits(date, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59
+                || date.charAt(4) != '-' || date.charAt(7) != '-' || !isTimeSeparator(date.charAt(10))
+                || date.charAt(13) != ':' || date.charAt(16) != ':') {
+            return INVALID;
+        }
+
+        int index = 19;
+        int millis = 0;
+        char c = date.charAt(index);
+        if (c == '.' || c == ',') {
+            // Keep the first three digits of the fraction, "5" is 500ms and "123456" is 123ms
+            int scale = 100;
+            index++;
+            int start = index;
+            while (index < length && isDigit(date.charAt(index))) {
+                if (scale > 0) {
+                    millis += (date.charAt(index) - '0') * scale;
+                    scale /= 10;
+                }
+                index++;
+            }
+            if (index == start || index == length) return INVALID;
+            c = date.charAt(index);
+        }
+
+        int offsetMinutes;
+        if (c == 'Z' || c == 'z') {
+            offsetMinutes = 0;
+            index++;
+        } else if (c == '+' || c == '-') {
+            int offsetHours = readDigits(date, index + 1, 2);
+            index += 3;
+            if (index < length && date.charAt(index) == ':') index++;
+            int offsetMins = readDigits(date, index, 2);
+            index += 2;
+            if (offsetHours < 0 || offsetHours > 23 || offsetMins < 0 || offsetMins > 59) return INVALID;
+            offsetMinutes = offsetHours * 60 + offsetMins;
+            if (c == '-') offsetMinutes = -offsetMinutes;
+        } else {
+            return INVALID;
+        }
+        if (index != length) return INVALID;
+
+        long epochDay = daysFromCivil(year, month, day);
+        long localMillis = epochDay * MILLIS_PER_DAY + ((hour * 60L + minute) * 60L + second) * 1000L + millis;
+        return localMillis - offsetMinutes * MILLIS_PER_MINUTE;
+    }
+
+    /**
+     * Formats the date in the default time zone, e.g. "2037-07-28T19:38:31-06:00"
+     */
+    @NonNull
+    public static String format(@NonNull Date date) {
+        return format(date.getTime(), TimeZone.getDefault());
+    }
+
+    /**
+     * Formats the epoch millis in the time zone, e.g. "2037-07-28T19:38:31-06:00". Milliseconds are dropped.
+     */
+    @NonNull
+    public static String format(long millis, @NonNull TimeZone timeZone) {
+        int offsetMinutes = (int) (timeZone.getOffset(millis) / MILLIS_PER_MINUTE);
+        long localMillis = millis + offsetMinutes * MILLIS_PER_MINUTE;
+        long epochDay = floorDiv(localMillis, MILLIS_PER_DAY);
+        int millisOfDay = (int) (localMillis - epochDay * MILLIS_PER_DAY);
+        int secondOfDay = millisOfDay / 1000;
+
+        // Civil date from the day count, see daysFromCivil
+        long z = epochDay + 719468;
+        long era = floorDiv(z, 146097);
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        int month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+        char[] chars = new char[25];
+        writeDigits(chars, 0, year, 4);
+        chars[4] = '-';
+        writeDigits(chars, 5, month, 2);
+        chars[7] = '-';
+        writeDigits(chars, 8, day, 2);
+        chars[10] = 'T';
+        writeDigits(chars, 11, secondOfDay / 3600, 2);
+        chars[13] = ':';
+        writeDigits(chars, 14, secondOfDay / 60 % 60, 2);
+        chars[16] = ':';
+        writeDigits(chars, 17, secondOfDay % 60, 2);
+        chars[19] = offsetMinutes < 0 ? '-' : '+';
+        int absOffset = Math.abs(offsetMinutes);
+        writeDigits(chars, 20, absOffset / 60, 2);
+        chars[22] = ':';
+        writeDigits(chars, 23, absOffset % 60, 2);
+        return new String(chars);
+    }
+
+    /**
+     * Days since 1970-01-01 of a proleptic Gregorian date, from http://howardhinnant.github.io/date_algorithms.html
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = floorDiv(year, 400);
+        int yearOfEra = (int) (year - era * 400);
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean isLeapYear = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return isLeapYear ? 29 : 28;
+        }
+        return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+    }
+
+    /**
+     * @return The value of the digits, or -1 if they aren't all digits
+     */
+    private static int readDigits(CharSequence s, int start, int count) {
+        if (start + count > s.length()) return -1;
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void writeDigits(char[] chars, int start, int value, int count) {
+        for (int i = start + count - 1; i >= start; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isTimeSeparator(char c) {
+        return c == 'T' || c == 't' || c == ' ';
+    }
+
+    private static long floorDiv(long x, long y) {
+        long result = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) result--;
+        return result;
+    }
+}
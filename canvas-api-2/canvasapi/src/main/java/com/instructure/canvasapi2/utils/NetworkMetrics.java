@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.canvasapi2.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Timings of the network stack, per endpoint template (e.g. courses/{id}/assignments) and phase. They are fed by
+ * NetworkTimingListener, TimingConverterFactory and StatusCallback, and go to a pluggable {@link Sink}. The default
+ * sink keeps a {@link LatencyHistogram} per endpoint and phase, see {@link #dump()}.
+ */
+public final class NetworkMetrics {
+
+    public enum Phase {
+        /** DNS lookup, when the call needed a new connection */
+        DNS,
+        /** TCP and TLS connect, when the call needed a new connection */
+        CONNECT,
+        /** TLS handshake, part of CONNECT */
+        TLS,
+        /** From the request being sent to the response headers arriving, which is mostly server time */
+        SERVER,
+        /** Reading the response body. For parsed responses this overlaps PARSE, as Gson reads the body as it goes. */
+        DOWNLOAD,
+        /** A whole call that used the network */
+        CALL,
+        /** A whole call that was answered without a connection, from the cache or a merged in-flight request */
+        CACHED_CALL,
+        /** Converting the response body into models */
+        PARSE,
+        /** Running the StatusCallback on the main thread */
+        CALLBACK
+    }
+
+    public interface Sink {
+        /** Called from network and main threads, so it has to be cheap and thread safe */
+        void record(@NonNull String endpoint, @NonNull Phase phase, long durationMs);
+    }
+
+    // Endpoints past this many share one bucket, so odd urls can't grow the histograms without bound
+    private static final int MAX_ENDPOINTS = 300;
+    private static final String OTHER_ENDPOINT = "other";
+    private static final String ID = "{id}";
+
+    private static final HistogramSink sHistograms = new HistogramSink();
+    @Nullable private static volatile Sink sSink = sHistograms;
+
+    private NetworkMetrics() {}
+
+    /**
+     * Replaces where timings go, e.g. with a sink that reports them to an analytics service. Null turns timing off.
+     */
+    public static void setSink(@Nullable Sink sink) {
+        sSink = sink;
+    }
+
+    public static boolean isEnabled() {
+        return sSink != null;
+    }
+
+    public static void record(@NonNull String endpoint, @NonNull Phase phase, long durationMs) {
+        Sink sink = sSink;
+        if (sink != null) sink.record(endpoint, phase, durationMs);
+    }
+
+    /** @return The default sink, which keeps the histograms */
+    @NonNull
+    public static HistogramSink getHistograms() {
+        return sHistograms;
+    }
+
+    /** @return p50/p95/p99 per endpoint and phase, slowest endpoints first, from the default sink */
+    @NonNull
+    public static String dump() {
+        return sHistograms.dump();
+    }
+
+    /**
+     * Turns a url into the endpoint it calls, with ids replaced by {id} and the query dropped. Canvas API urls lose
+     * their /api/v1/ prefix, other hosts (e.g. file upload targets) keep the host.
+     */
+    @NonNull
+    public static String getEndpointTemplate(@NonNull HttpUrl url) {
+        List<String> segments = url.encodedPathSegments();
+        StringBuilder builder = new StringBuilder();
+        int start = 0;
+        if (segments.size() >= 2 && "api".equals(segments.get(0)) && segments.get(1).matches("v\\d+")) {
+            start = 2;
+        } else {
+            builder.append(url.host()).append('/');
+        }
+        for (int i = start; i < segments.size(); i++) {
+            String segment = segments.get(i);
+            if (segment.isEmpty()) continue;
+            if (i > start) builder.append('/');
+            builder.append(isId(segment) ? ID : segment);
+        }
+        return builder.toString();
+    }
+
+    /** Numeric ids, sharded ids (1~234), SIS ids (sis_course_id:abc) and long tokens such as uuids */
+    private static boolean isId(@NonNull String segment) {
+        if (segment.startsWith("sis_")) return true;
+        boolean hasDigit = false;
+        boolean onlyIdChars = true;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if (c != '~') {
+                onlyIdChars = false;
+            }
+        }
+        return hasDigit && (onlyIdChars || segment.length() >= 16);
+    }
+
+    /**
+     * Keeps a {@link LatencyHistogram} per endpoint and phase. Recording is lock free once an endpoint has been seen.
+     */
+    public static class HistogramSink implements Sink {
+
+        private final ConcurrentHashMap<String, LatencyHistogram[]> mHistograms = new ConcurrentHashMap<>();
+
+        @Override
+        public void record(@NonNull String endpoint, @NonNull Phase phase, long durationMs) {
+            getHistograms(endpoint)[phase.ordinal()].record(durationMs);
+        }
+
+        /** @return The histogram of an endpoint and phase, empty if nothing was recorded for it */
+        @NonNull
+        public LatencyHistogram getHistogram(@NonNull String endpoint, @NonNull Phase phase) {
+            LatencyHistogram[] histograms = mHistograms.get(endpoint);
+            return histograms != null ? histograms[phase.ordinal()] : new LatencyHistogram();
+        }
+
+        @NonNull
+        public List<String> getEndpoints() {
+            return new ArrayList<>(mHistograms.keySet());
+        }
+
+        public void reset() {
+            mHistograms.clear();
+        }
+
+        @NonNull
+        public String dump() {
+            List<String> endpoints = getEndpoints();
+            final ConcurrentHashMap<String, Long> slowest = new ConcurrentHashMap<>();
+            for (String endpoint : endpoints) {
+                slowest.put(endpoint, Math.max(
+                        getHistogram(endpoint, Phase.CALL).getPercentile(95),
+                        getHistogram(endpoint, Phase.CACHED_CALL).getPercentile(95)));
+            }
+            Collections.sort(endpoints, new Comparator<String>() {
+                @Override
+                public int compare(String a, String b) {
+                    return Long.compare(slowest.get(b), slowest.get(a));
+                }
+            });
+
+            StringBuilder builder = new StringBuilder();
+            for (String endpoint : endpoints) {
+                builder.append(endpoint).append('\n');
+                for (Phase phase : Phase.values()) {
+                    LatencyHistogram histogram = getHistogram(endpoint, phase);
+                    if (histogram.getCount() == 0) continue;
+                    builder.append(String.format(Locale.US, "  %-12s", phase.name().toLowerCase(Locale.US)))
+                            .append(histogram.describe())
+                            .append('\n');
+                }
+            }
+            return builder.toString();
+        }
+
+        @NonNull
+        private LatencyHistogram[] getHistograms(@NonNull String endpoint) {
+            LatencyHistogram[] histograms = mHistograms.get(endpoint);
+            if (histograms != null) return histograms;
+            if (mHistograms.size() >= MAX_ENDPOINTS) {
+                endpoint = OTHER_ENDPOINT;
+                histograms = mHistograms.get(endpoint);
+                if (histograms != null) return histograms;
+            }
+            histograms = new LatencyHistogram[Phase.values().length];
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+            LatencyHistogram[] existing = mHistograms.putIfAbsent(endpoint, histograms);
+            return existing != null ? existing : histograms;
+        }
+    }
+}
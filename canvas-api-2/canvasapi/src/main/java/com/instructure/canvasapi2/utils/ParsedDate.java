@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.instructure.canvasapi2.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Date;
+
+/**
+ * A date string and its parsed value. Models keep one in a transient field per date, so getters that are called
+ * over and over (e.g. from comparators while sorting) only parse the string again when it changes:
+ *
+ * <pre>
+ * mDueAtDate = ParsedDate.of(mDueAtDate, dueAt);
+ * return mDueAtDate.getDate();
+ * </pre>
+ *
+ * Immutable, so it can be shared between threads without locking.
+ */
+public final class ParsedDate {
+
+    @Nullable private final String mSource;
+    private final long mMillis;
+
+    private ParsedDate(@Nullable String source, long millis) {
+        mSource = source;
+        mMillis = millis;
+    }
+
+    /**
+     * @param previous The previous result for this field, may be null
+     * @param iso8601string The current value of the field
+     * @return previous if it was parsed from the same string, otherwise a newly parsed date
+     */
+    @NonNull
+    public static ParsedDate of(@Nullable ParsedDate previous, @Nullable String iso8601string) {
+        if (previous != null && (previous.mSource == null ? iso8601string == null : previous.mSource.equals(iso8601string))) {
+            return previous;
+        }
+        Date date = APIHelper.stringToDate(iso8601string);
+        return new ParsedDate(iso8601string, date == null ? IsoDateFormat.INVALID : date.getTime());
+    }
+
+    /**
+     * @return A new copy of the date each time, as Dates are mutable, or null if the string couldn't be parsed
+     */
+    @Nullable
+    public Date getDate() {
+        return mMillis == IsoDateFormat.INVALID ? null : new Date(mMillis);
+    }
+}
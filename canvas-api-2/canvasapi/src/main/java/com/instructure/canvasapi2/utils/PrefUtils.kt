@@ -24,6 +24,12 @@ import android.content.SharedPreferences.Editor
 import android.support.annotation.ColorRes
 import com.google.gson.Gson
 import com.google.gson.reflect.TypeToken
+import java.lang.reflect.Type
+import java.util.ConcurrentModificationException
+import java.util.concurrent.CopyOnWriteArraySet
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
 import kotlin.properties.ReadWriteProperty
 import kotlin.reflect.KClass
 import kotlin.reflect.KMutableProperty0
@@ -95,6 +101,12 @@ abstract class PrefManager(prefFileName: String) {
 
     private val delegates = arrayListOf<Pref<*>>()
 
+    /* Serializers of the values waiting to be written, by key. See [scheduleWrite] */
+    private val pendingWrites = LinkedHashMap<String, () -> String?>()
+    private var isFlushScheduled = false
+    private var clearCount = 0
+    private val flushLock = Any()
+
     internal fun registerDelegate(delegate: Pref<*>) {
         delegates += delegate
     }
@@ -120,7 +132,84 @@ abstract class PrefManager(prefFileName: String) {
     fun clearPrefs() {
         onClearPrefs()
         delegates.forEach { it.onClear() }
-        editor.clear().apply()
+        synchronized(pendingWrites) {
+            // Values set before the clear must not be written after it
+            pendingWrites.clear()
+            clearCount++
+            editor.clear().apply()
+        }
+    }
+
+    /**
+     * Queues a value to be serialized and written to [prefs] on a background thread. Changes to the same key
+     * made before the write happens are coalesced, so only the latest value is serialized, and all of the
+     * pending values of this PrefManager are saved with a single apply().
+     */
+    internal fun scheduleWrite(key: String, serialize: () -> String?) {
+        synchronized(pendingWrites) {
+            pendingWrites[key] = serialize
+            if (!isFlushScheduled) {
+                isFlushScheduled = true
+                dirtyManagers += this
+                writeExecutor.schedule({ flush() }, WRITE_DELAY_MS, TimeUnit.MILLISECONDS)
+            }
+        }
+    }
+
+    /**
+     * Writes all pending values to [prefs] on the calling thread. This happens automatically shortly after
+     * a value changes; see [flushAll] to flush every PrefManager, e.g. before the process may be killed.
+     */
+    fun flush() {
+        synchronized(flushLock) {
+            var snapshotClearCount = 0
+            val writes = synchronized(pendingWrites) {
+                isFlushScheduled = false
+                dirtyManagers -= this
+                if (pendingWrites.isEmpty()) return
+                snapshotClearCount = clearCount
+                LinkedHashMap(pendingWrites).also { pendingWrites.clear() }
+            }
+            val batch = LinkedHashMap<String, String?>()
+            for ((key, serialize) in writes) {
+                try {
+                    batch[key] = serialize()
+                } catch (e: ConcurrentModificationException) {
+                    // The value was changed in place while it was being serialized, try again with the next flush
+                    synchronized(pendingWrites) { if (key !in pendingWrites) scheduleWrite(key, serialize) }
+                }
+            }
+            synchronized(pendingWrites) {
+                // Cleared while serializing, the values are stale
+                if (clearCount != snapshotClearCount) return
+                val batchEditor = prefs.edit()
+                for ((key, value) in batch) {
+                    // Set again since the snapshot, the next flush writes the newer value
+                    if (key in pendingWrites) continue
+                    if (value == null) batchEditor.remove(key) else batchEditor.putString(key, value)
+                }
+                batchEditor.apply()
+            }
+        }
+    }
+
+    companion object {
+        /* How long changes are collected before they are written */
+        private const val WRITE_DELAY_MS = 250L
+
+        private val writeExecutor: ScheduledExecutorService by lazy { Executors.newSingleThreadScheduledExecutor() }
+
+        /* PrefManagers with pending writes */
+        private val dirtyManagers = CopyOnWriteArraySet<PrefManager>()
+
+        /**
+         * Writes the pending values of every PrefManager. Called when the app is backgrounded (see [ContextKeeper])
+         * and before [ApiPrefs.clearAllData].
+         */
+        @JvmStatic
+        fun flushAll() {
+            dirtyManagers.forEach { it.flush() }
+        }
     }
 
     /**
@@ -356,41 +445,69 @@ class ColorPref(@ColorRes defaultValue: Int, keyName: String? = null) : Pref<Int
     override fun Editor.setValue(key: String, value: Int): Editor = putInt(key, value)
 }
 
+/* Shared by the Gson backed delegates, Gson caches its type adapters */
+private val prefGson by lazy { Gson() }
+
 /**
- * [Pref] delegate for arbitrary, nullable properties to be stored in SharedPreferences as
- * serialized strings using Gson. May only be used in [PrefManager] implementations.
- *
- * @param defaultValue (Optional) A default value to use until this property has been set.
- * @param keyName The optional key name under which the property value will be stored. Defaults
- * to the property name. This is useful when converting other [SharedPreferences] implementations
- * to [PrefManager] and the required key name does not match the desired property name.
+ * Base class for [Pref] delegates whose values are stored in SharedPreferences as strings serialized
+ * with Gson. The decoded value is kept in memory, so it is only deserialized once, and new values are
+ * serialized and saved in the background by [PrefManager.scheduleWrite], which coalesces rapid changes
+ * into a single write.
  */
-class GsonPref<T>(
-        val klazz: Class<T>,
-        defaultValue: T? = null,
-        keyName: String? = null
-) : Pref<T?>(defaultValue, keyName) {
+abstract class GsonBackedPref<T>(defaultValue: T, keyName: String?) : Pref<T>(defaultValue, keyName) {
 
     private var cachedObject: T? = null
+    private var isCached = false
 
-    override fun onClear() { cachedObject = null }
+    /** Deserializes the stored value, or returns null if there is none */
+    protected abstract fun decode(json: String?): T?
 
-    override fun SharedPreferences.getValue(key: String, default: T?): T? {
-        if (cachedObject == null) {
-            cachedObject = Gson().fromJson<T>(getString(key, null), klazz)
+    protected open fun encode(value: T): String? = prefGson.toJson(value)
+
+    override fun onClear() {
+        cachedObject = null
+        isCached = false
+    }
+
+    override fun SharedPreferences.getValue(key: String, default: T): T {
+        if (!isCached) {
+            cachedObject = decode(getString(key, null))
+            isCached = true
         }
         return cachedObject ?: default
     }
 
-    override fun Editor.setValue(key: String, value: T?): SharedPreferences.Editor {
+    override fun Editor.setValue(key: String, value: T): Editor {
         cachedObject = value
-        if (value == null) {
-            putString(key, null)
-        } else {
-            putString(key, Gson().toJson(value) ?: return this)
-        }
+        isCached = true
+        val json = encode(value)
+        if (json == null) remove(key) else putString(key, json)
         return this
     }
+
+    override fun setValue(thisRef: PrefManager, property: KProperty<*>, value: T) {
+        cachedObject = value
+        isCached = true
+        thisRef.scheduleWrite(keyName ?: property.name) { encode(value) }
+    }
+}
+
+/**
+ * [Pref] delegate for arbitrary, nullable properties to be stored in SharedPreferences as
+ * serialized strings using Gson. May only be used in [PrefManager] implementations.
+ *
+ * @param defaultValue (Optional) A default value to use until this property has been set.
+ * @param keyName The optional key name under which the property value will be stored. Defaults
+ * to the property name. This is useful when converting other [SharedPreferences] implementations
+ * to [PrefManager] and the required key name does not match the desired property name.
+ */
+class GsonPref<T>(
+        val klazz: Class<T>,
+        defaultValue: T? = null,
+        keyName: String? = null
+) : GsonBackedPref<T?>(defaultValue, keyName) {
+    override fun decode(json: String?): T? = prefGson.fromJson<T>(json, klazz)
+    override fun encode(value: T?): String? = value?.let { prefGson.toJson(it) }
 }
 
 /**
@@ -406,25 +523,9 @@ class GsonListPref<T>(
         val klazz: Class<T>,
         defaultValue: List<T> = emptyList(),
         keyName: String? = null
-) : Pref<List<T>>(defaultValue, keyName) {
-
-    private var cachedObject: List<T>? = null
-
-    override fun onClear() { cachedObject = null }
-
-    override fun SharedPreferences.getValue(key: String, default: List<T>): List<T> {
-        if (cachedObject == null) {
-            val type = TypeToken.getParameterized(List::class.java, klazz).type
-            cachedObject = Gson().fromJson<List<T>>(getString(key, null), type)
-        }
-        return cachedObject ?: default
-    }
-
-    override fun Editor.setValue(key: String, value: List<T>): SharedPreferences.Editor {
-        cachedObject = value
-        putString(key, Gson().toJson(value) ?: return this)
-        return this
-    }
+) : GsonBackedPref<List<T>>(defaultValue, keyName) {
+    private val type: Type by lazy { TypeToken.getParameterized(List::class.java, klazz).type }
+    override fun decode(json: String?): List<T>? = prefGson.fromJson<List<T>>(json, type)
 }
 
 /**
@@ -436,24 +537,9 @@ class GsonListPref<T>(
  * to the property name. This is useful when converting other [SharedPreferences] implementations
  * to [PrefManager] and the required key name does not match the desired property name.
  */
-class NonNullGsonPref<T : Any>(defaultValue: T, keyName: String? = null) : Pref<T>(defaultValue, keyName) {
-
-    private var cachedObject: T? = null
-
-    override fun onClear() { cachedObject = null }
-
-    override fun SharedPreferences.getValue(key: String, default: T): T {
-        if (cachedObject == null) {
-            cachedObject = Gson().fromJson<T>(getString(key, null), default.javaClass) ?: return default
-        }
-        return cachedObject!!
-    }
-
-    override fun Editor.setValue(key: String, value: T): SharedPreferences.Editor {
-        cachedObject = value
-        putString(key, Gson().toJson(value))
-        return this
-    }
+class NonNullGsonPref<T : Any>(defaultValue: T, keyName: String? = null) : GsonBackedPref<T>(defaultValue, keyName) {
+    private val klazz = defaultValue.javaClass
+    override fun decode(json: String?): T? = prefGson.fromJson<T>(json, klazz)
 }
 
 /**
@@ -468,24 +554,9 @@ class NonNullGsonPref<T : Any>(defaultValue: T, keyName: String? = null) : Pref<
 class BooleanMapPref(
         defaultValue: HashMap<String, Boolean> = hashMapOf(),
         keyName: String? = null
-) : Pref<HashMap<String, Boolean>>(defaultValue, keyName) {
-
-    private var cachedObject: HashMap<String, Boolean>? = null
-
-    override fun onClear() { cachedObject = null }
-
-    override fun SharedPreferences.getValue(key: String, default: HashMap<String, Boolean>): HashMap<String, Boolean> {
-        if (cachedObject == null) {
-            cachedObject = Gson().fromJson(getString(key, null), default::class.java)
-        }
-        return cachedObject ?: default
-    }
-
-    override fun Editor.setValue(key: String, value: HashMap<String, Boolean>): Editor {
-        cachedObject = value
-        putString(key, Gson().toJson(value) ?: return this)
-        return this
-    }
+) : GsonBackedPref<HashMap<String, Boolean>>(defaultValue, keyName) {
+    private val klazz = defaultValue::class.java
+    override fun decode(json: String?): HashMap<String, Boolean>? = prefGson.fromJson(json, klazz)
 }
 
 /**
@@ -503,23 +574,7 @@ class SetPref<T : Any>(
     private val klazz: KClass<T>,
     defaultValue: Set<T> = setOf(),
     keyName: String? = null
-) : Pref<Set<T>>(defaultValue, keyName) {
-
-    private var cachedObject: Set<T>? = null
-
-    override fun onClear() { cachedObject = null }
-
-    override fun SharedPreferences.getValue(key: String, default: Set<T>): Set<T> {
-        if (cachedObject == null) {
-            val type = TypeToken.getParameterized(HashSet::class.java, klazz.javaObjectType).type
-            cachedObject = Gson().fromJson<HashSet<T>>(getString(key, null), type)
-        }
-        return cachedObject ?: default
-    }
-
-    override fun Editor.setValue(key: String, value: Set<T>): SharedPreferences.Editor {
-        cachedObject = value
-        putString(key, Gson().toJson(value))
-        return this
-    }
+) : GsonBackedPref<Set<T>>(defaultValue, keyName) {
+    private val type: Type by lazy { TypeToken.getParameterized(HashSet::class.java, klazz.javaObjectType).type }
+    override fun decode(json: String?): Set<T>? = prefGson.fromJson<HashSet<T>>(json, type)
 }
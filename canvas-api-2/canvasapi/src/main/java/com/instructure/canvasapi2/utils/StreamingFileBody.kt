@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.instructure.canvasapi2.utils
+
+import android.content.ContentResolver
+import android.net.Uri
+import android.os.ParcelFileDescriptor
+import okhttp3.MediaType
+import okhttp3.RequestBody
+import okio.BufferedSink
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileNotFoundException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * A [RequestBody] that streams a file straight from a [FileChannel] into the request, one fixed-size
+ * buffer at a time. Nothing is copied to a temporary file or held in memory beyond that buffer, so
+ * uploading a 1 GB recording costs the same memory as uploading a 1 KB document.
+ *
+ * The channel is reopened on every [writeTo] call, so OkHttp can safely replay the body when it
+ * retries or follows a redirect.
+ */
+class StreamingFileBody(
+        private val contentType: MediaType?,
+        private val contentLength: Long,
+        private val progressListener: ProgressListener?,
+        private val openChannel: () -> FileChannel
+) : RequestBody() {
+
+    interface ProgressListener {
+        /** Called from the upload thread. [contentLength] is -1 when the size of the content is unknown. */
+        fun onProgress(bytesWritten: Long, contentLength: Long)
+    }
+
+    private val buffer = ByteArray(BUFFER_SIZE)
+
+    override fun contentType(): MediaType? = contentType
+
+    override fun contentLength(): Long = contentLength
+
+    override fun writeTo(sink: BufferedSink) {
+        val reportInterval = Math.max(BUFFER_SIZE.toLong(), contentLength / PROGRESS_STEPS)
+        val byteBuffer = ByteBuffer.wrap(buffer)
+        var bytesWritten = 0L
+        var lastReported = 0L
+        progressListener?.onProgress(0, contentLength)
+        openChannel().use { channel ->
+            while (true) {
+                byteBuffer.clear()
+                val read = channel.read(byteBuffer)
+                if (read == -1) break
+                sink.write(buffer, 0, read)
+                bytesWritten += read
+                if (progressListener != null && bytesWritten - lastReported >= reportInterval) {
+                    progressListener.onProgress(bytesWritten, contentLength)
+                    lastReported = bytesWritten
+                }
+            }
+        }
+        if (lastReported != bytesWritten) progressListener?.onProgress(bytesWritten, contentLength)
+    }
+
+    companion object {
+        const val BUFFER_SIZE = 64 * 1024
+
+        /** Upper bound on the number of progress callbacks for content of a known length */
+        private const val PROGRESS_STEPS = 100
+
+        @JvmStatic
+        fun fromFile(file: File, contentType: MediaType?, progressListener: ProgressListener?) =
+                StreamingFileBody(contentType, file.length(), progressListener) { FileInputStream(file).channel }
+
+        /**
+         * Streams the content behind [uri] through its file descriptor, e.g. a document picked with the
+         * Storage Access Framework, without copying it into the cache directory first.
+         */
+        @JvmStatic
+        fun fromUri(resolver: ContentResolver, uri: Uri, contentLength: Long, contentType: MediaType?, progressListener: ProgressListener?) =
+                StreamingFileBody(contentType, contentLength, progressListener) {
+                    val descriptor = resolver.openFileDescriptor(uri, "r") ?: throw FileNotFoundException(uri.toString())
+                    ParcelFileDescriptor.AutoCloseInputStream(descriptor).channel
+                }
+    }
+}
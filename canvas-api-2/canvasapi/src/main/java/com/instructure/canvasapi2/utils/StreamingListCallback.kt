@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.instructure.canvasapi2.utils
+
+import android.os.Handler
+import android.os.Looper
+import com.google.gson.Gson
+import com.google.gson.stream.JsonReader
+import com.instructure.canvasapi2.CanvasRestAdapter
+import com.instructure.canvasapi2.StatusCallback
+import okhttp3.ResponseBody
+import retrofit2.Call
+import retrofit2.Response
+import java.io.IOException
+import java.io.Reader
+import java.util.*
+
+/**
+ * Reads a JSON array response with a [JsonReader] and hands its items to [callback] in chunks of [chunkSize]
+ * while the body is still downloading, rather than parsing the whole page before [StatusCallback.onResponse] fires.
+ *
+ * The call is a @Streaming Call<ResponseBody> from [com.instructure.canvasapi2.builders.RestBuilder.buildStreaming],
+ * so it waits in the priority queue and runs on the OkHttp dispatcher like any other call, and this callback reads
+ * the body on the dispatcher thread. Each chunk is delivered to [callback] on the main thread as its own onResponse
+ * with the link headers of the page, followed by a single onFinished once the page has been read. At most one
+ * chunk is held at a time, regardless of per_page. Cancelling [callback] cancels the call, also partway through the body.
+ */
+class StreamingListCallback<ITEM> @JvmOverloads constructor(
+        private val callback: StatusCallback<List<ITEM>>,
+        private val itemType: Class<ITEM>,
+        private val chunkSize: Int = DEFAULT_CHUNK_SIZE,
+        private val gson: Gson = CanvasRestAdapter.getGson()
+) : StatusCallback<ResponseBody>() {
+
+    private var call: Call<ResponseBody>? = null
+
+    // Set when the body couldn't be read, in which case the page doesn't finish
+    @Volatile private var readFailed = false
+
+    /**
+     * Registers the call with [callback], so the call is cancelled with it, and enqueues it
+     */
+    @Suppress("UNCHECKED_CAST")
+    fun enqueue(call: Call<ResponseBody>) {
+        this.call = call
+        // StatusCallback only ever cancels the calls it holds
+        callback.addCall(call as Call<List<ITEM>>)
+        addCall(call).enqueue(this)
+    }
+
+    override fun onResponse(response: Response<ResponseBody>, linkHeaders: LinkHeaders, type: ApiType) {
+        val body = response.body() ?: return
+        try {
+            body.use {
+                readChunks(it.charStream()) { chunk ->
+                    if (isCallCanceled()) throw IOException("Canceled")
+                    post {
+                        if (!isCallCanceled()) {
+                            callback.linkHeaders = linkHeaders
+                            callback.onResponse(Response.success(chunk, response.raw()), linkHeaders, type)
+                        }
+                    }
+                }
+            }
+        } catch (e: Exception) {
+            // IOExceptions from the network, or a JsonParseException partway through the array
+            readFailed = true
+            post {
+                if (isCallCanceled()) {
+                    Logger.d("StreamingListCallback: call was cancelled")
+                    callback.onCancelled()
+                } else {
+                    Logger.e("StreamingListCallback: Failure: " + e.message)
+                    callback.onFail(null, e, null)
+                }
+            }
+        }
+    }
+
+    override fun onFail(call: Call<ResponseBody>?, error: Throwable, response: Response<*>?) {
+        post { callback.onFail(null, error, response) }
+    }
+
+    override fun onCancelled() {
+        post { callback.onCancelled() }
+    }
+
+    override fun onFinished(type: ApiType) {
+        if (!readFailed) post { callback.onCallbackFinished(type) }
+    }
+
+    private fun isCallCanceled() = call?.isCanceled == true
+
+    /**
+     * Reads the items of a JSON array, passing them to [onChunk] [chunkSize] at a time as soon as each chunk is full.
+     * An empty array produces a single empty chunk, so the page is still delivered.
+     */
+    fun readChunks(reader: Reader, onChunk: (List<ITEM>) -> Unit) {
+        val jsonReader = JsonReader(reader)
+        var chunk = ArrayList<ITEM>(chunkSize)
+        var hasReadChunk = false
+        jsonReader.beginArray()
+        while (jsonReader.hasNext()) {
+            chunk.add(gson.fromJson(jsonReader, itemType))
+            if (chunk.size == chunkSize) {
+                onChunk(chunk)
+                hasReadChunk = true
+                chunk = ArrayList(chunkSize)
+            }
+        }
+        jsonReader.endArray()
+        if (chunk.isNotEmpty() || !hasReadChunk) onChunk(chunk)
+    }
+
+    private fun post(block: () -> Unit) {
+        mainHandler.post { block() }
+    }
+
+    companion object {
+        const val DEFAULT_CHUNK_SIZE = 20
+
+        private val mainHandler: Handler by lazy { Handler(Looper.getMainLooper()) }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.instructure.canvasapi2.utils.pageview
+
+import com.google.gson.Gson
+import com.google.gson.GsonBuilder
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.util.zip.GZIPOutputStream
+
+/** Sends a batch of page view events, as a gzipped JSON array, to wherever page views are collected */
+interface PageViewUploader {
+    /** Returns true once the batch has been accepted; the batch is retried otherwise. Called from a background thread. */
+    fun upload(gzippedJson: ByteArray, eventCount: Int): Boolean
+}
+
+/**
+ * An append-only log of completed page view events, stored one JSON object per line with the oldest first.
+ *
+ * The log is capped at [maxBytes]. Appending past the cap drops the oldest events until the log is back under
+ * three quarters of it, so the rewrite isn't repeated on every append once the log is full.
+ *
+ * Not thread safe; [PageViewUtils] only touches the log from its single writer thread.
+ */
+class PageViewLog @JvmOverloads constructor(
+        private val file: File,
+        private val maxBytes: Long = MAX_LOG_BYTES,
+        private val gson: Gson = GSON
+) {
+
+    val sizeInBytes: Long get() = file.length()
+
+    fun append(events: List<PageViewEvent>) {
+        if (events.isEmpty()) return
+        file.parentFile?.mkdirs()
+        FileOutputStream(file, true).bufferedWriter().use { writer ->
+            events.forEach {
+                writer.write(gson.toJson(it))
+                writer.write('\n'.toInt())
+            }
+        }
+        if (file.length() > maxBytes) trimToSize(maxBytes * 3 / 4)
+    }
+
+    fun readAll(): List<PageViewEvent> = readLines().map { gson.fromJson(it, PageViewEvent::class.java) }
+
+    /** Removes the events with the given keys, e.g. events that were logged against a user who has since logged out */
+    fun remove(keys: Set<String>) {
+        val lines = readLines()
+        val remaining = lines.filter { gson.fromJson(it, PageViewEvent::class.java).key !in keys }
+        if (remaining.size != lines.size) rewrite(remaining)
+    }
+
+    fun clear() {
+        file.delete()
+    }
+
+    /**
+     * Uploads the log oldest first, [batchSize] events at a time, removing each batch once it is accepted. A batch
+     * that fails is retried up to [maxAttempts] times with exponential backoff starting at [retryDelayMs]; if it still
+     * fails the upload stops and the remaining events are kept for next time.
+     *
+     * @return The number of events uploaded
+     */
+    fun upload(uploader: PageViewUploader, batchSize: Int, maxAttempts: Int, retryDelayMs: Long): Int {
+        var uploaded = 0
+        var lines = readLines()
+        while (lines.isNotEmpty()) {
+            val batch = lines.take(batchSize)
+            val payload = gzip(batch)
+            var attempt = 1
+            while (!uploadQuietly(uploader, payload, batch.size)) {
+                if (attempt == maxAttempts) return uploaded
+                Thread.sleep(retryDelayMs shl (attempt - 1))
+                attempt++
+            }
+            lines = lines.drop(batch.size)
+            rewrite(lines)
+            uploaded += batch.size
+        }
+        return uploaded
+    }
+
+    private fun uploadQuietly(uploader: PageViewUploader, payload: ByteArray, eventCount: Int): Boolean {
+        return try {
+            uploader.upload(payload, eventCount)
+        } catch (e: IOException) {
+            false
+        }
+    }
+
+    private fun trimToSize(targetBytes: Long) {
+        val lines = readLines()
+        var size = file.length()
+        var dropCount = 0
+        while (dropCount < lines.size && size > targetBytes) {
+            size -= lines[dropCount].toByteArray().size + 1
+            dropCount++
+        }
+        rewrite(lines.drop(dropCount))
+    }
+
+    private fun readLines(): List<String> {
+        if (!file.exists()) return emptyList()
+        return file.bufferedReader().useLines { lines -> lines.filter { it.isNotBlank() }.toList() }
+    }
+
+    private fun rewrite(lines: List<String>) {
+        if (lines.isEmpty()) {
+            file.delete()
+            return
+        }
+        val temp = File(file.path + ".tmp")
+        temp.bufferedWriter().use { writer ->
+            lines.forEach {
+                writer.write(it)
+                writer.write('\n'.toInt())
+            }
+        }
+        if (!temp.renameTo(file)) {
+            file.delete()
+            temp.renameTo(file)
+        }
+    }
+
+    companion object {
+        const val MAX_LOG_BYTES = 512L * 1024
+
+        private val GSON: Gson = GsonBuilder().setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").create()
+
+        private fun gzip(lines: List<String>): ByteArray {
+            val bytes = ByteArrayOutputStream()
+            GZIPOutputStream(bytes).bufferedWriter().use { writer ->
+                writer.write("[")
+                lines.forEachIndexed { index, line ->
+                    if (index > 0) writer.write(",")
+                    writer.write(line)
+                }
+                writer.write("]")
+            }
+            return bytes.toByteArray()
+        }
+    }
+}
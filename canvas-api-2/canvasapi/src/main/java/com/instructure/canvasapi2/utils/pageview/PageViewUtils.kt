@@ -19,10 +19,13 @@ package com.instructure.canvasapi2.utils.pageview
 
 import android.view.ViewTreeObserver
 import com.instructure.canvasapi2.utils.ApiPrefs
+import com.instructure.canvasapi2.utils.ContextKeeper
 import com.instructure.canvasapi2.utils.Logger
-import com.instructure.canvasapi2.utils.weave.weave
-import io.paperdb.Paper
+import java.io.File
 import java.lang.ref.WeakReference
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
 
 object PageViewUtils {
 
@@ -30,63 +33,121 @@ object PageViewUtils {
 
     private const val ENABLED = false
 
-    private val book = Paper.book("pageViewEvents")
+    /** Stopped events are written to the log once this many are pending, or [FLUSH_DELAY_MS] after the first one */
+    private const val FLUSH_COUNT = 10
+    private const val FLUSH_DELAY_MS = 30_000L
+
+    private const val UPLOAD_BATCH_SIZE = 100
+    private const val UPLOAD_MAX_ATTEMPTS = 4
+    private const val UPLOAD_RETRY_DELAY_MS = 2_000L
+
+    /** Sends logged page views. Until one is set, events stay in the log, which drops the oldest once it is full. */
+    @JvmStatic
+    var uploader: PageViewUploader? = null
+
+    private val log by lazy { PageViewLog(File(ContextKeeper.appContext.filesDir, "pageViewEvents.log")) }
+
+    /** Events that have stopped but haven't been written to the log yet. Also guards [flushScheduled]. */
+    private val pendingEvents = ArrayList<PageViewEvent>()
+    private var flushScheduled = false
+
+    /** All log I/O and uploads run one at a time on this thread, away from the navigation that produces events */
+    private val writer: ScheduledExecutorService by lazy {
+        Executors.newSingleThreadScheduledExecutor { Thread(it, "PageViewWriter").apply { priority = Thread.MIN_PRIORITY } }
+    }
 
     @JvmStatic
-    @Suppress("EXPERIMENTAL_FEATURE_WARNING")
     fun startEvent(eventName: String, url: String): PageViewEvent? {
         if (!ENABLED || ApiPrefs.token.isBlank()) return null
         val event = PageViewEvent(eventName, url, ApiPrefs.user?.id ?: return null)
         Logger.d("PageView: Event STARTED $url ($eventName)")
-        weave { inBackground { book.write(event.key, event) } }
         return event
     }
 
     @JvmStatic
-    @Suppress("EXPERIMENTAL_FEATURE_WARNING")
     fun stopEvent(event: PageViewEvent?) {
         if (!ENABLED || event == null || event.eventDuration > 0) return
         event.eventDuration = (System.currentTimeMillis() - event.timestamp.time) / 1000.0
         Logger.d("PageView: Event STOPPED ${event.url} (${event.eventName}) - ${event.eventDuration} seconds")
-        weave {
-            inBackground {
-                if (event.eventDuration < MIN_INTERACTION_SECONDS) {
-                    book.delete(event.key)
-                    Logger.d("PageView: Event DROPPED ${event.url} (${event.eventName}) - ${event.eventDuration} seconds, TOO SHORT")
-                } else {
-                    book.write(event.key, event)
-                }
-            }
+        if (event.eventDuration < MIN_INTERACTION_SECONDS) {
+            Logger.d("PageView: Event DROPPED ${event.url} (${event.eventName}) - ${event.eventDuration} seconds, TOO SHORT")
+        } else {
+            enqueue(event)
         }
     }
 
     @JvmStatic
-    @Suppress("EXPERIMENTAL_FEATURE_WARNING")
     fun saveSingleEvent(event: PageViewEvent) {
         if (!ENABLED) return
-        weave { inBackground { book.write(event.key, event) } }
+        enqueue(event)
         Logger.d("PageView: Event SAVED ${event.url} (${event.eventName})")
     }
 
     @JvmStatic
-    @Suppress("EXPERIMENTAL_FEATURE_WARNING")
     fun clearEvents(events: List<PageViewEvent>) {
         if (!ENABLED) return
-        weave { inBackground { events.forEach { book.delete(it.key) } } }
+        val keys = events.mapTo(HashSet()) { it.key }
+        synchronized(pendingEvents) { pendingEvents.removeAll { it.key in keys } }
+        runOnWriter { log.remove(keys) }
     }
 
     @JvmStatic
-    @Suppress("EXPERIMENTAL_FEATURE_WARNING")
     fun clearAllEvents() {
         if (!ENABLED) return
-        weave { inBackground { book.destroy() } }
+        synchronized(pendingEvents) { pendingEvents.clear() }
+        runOnWriter { log.clear() }
+    }
+
+    /** Writes pending events to the log now, e.g. when the app is backgrounded and may be killed without notice */
+    @JvmStatic
+    fun flush() {
+        if (!ENABLED) return
+        runOnWriter { writePending() }
     }
 
     @JvmStatic
-    @Suppress("EXPERIMENTAL_FEATURE_WARNING")
+    @JvmOverloads
     fun uploadData(loggingOut: Boolean = false) {
         if (!ENABLED) return
-        // TODO: Upload page views
+        runOnWriter {
+            writePending()
+            uploader?.let {
+                val count = log.upload(it, UPLOAD_BATCH_SIZE, UPLOAD_MAX_ATTEMPTS, UPLOAD_RETRY_DELAY_MS)
+                Logger.d("PageView: UPLOADED $count events")
+            }
+            // Whatever couldn't be sent belongs to the user who is leaving, so it must not be sent with the next login
+            if (loggingOut) log.clear()
+        }
+    }
+
+    private fun enqueue(event: PageViewEvent) {
+        synchronized(pendingEvents) {
+            pendingEvents += event
+            if (pendingEvents.size >= FLUSH_COUNT) {
+                runOnWriter { writePending() }
+            } else if (!flushScheduled) {
+                flushScheduled = true
+                writer.schedule(Runnable { runLogged { writePending() } }, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS)
+            }
+        }
+    }
+
+    private fun writePending() {
+        val events = synchronized(pendingEvents) {
+            flushScheduled = false
+            pendingEvents.toList().also { pendingEvents.clear() }
+        }
+        log.append(events)
+    }
+
+    private fun runOnWriter(block: () -> Unit) = writer.execute { runLogged(block) }
+
+    private inline fun runLogged(block: () -> Unit) {
+        try {
+            block()
+        } catch (e: Exception) {
+            Logger.e("PageView: " + e.message)
+        }
     }
 
 }
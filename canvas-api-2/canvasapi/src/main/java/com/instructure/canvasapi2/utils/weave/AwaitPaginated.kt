@@ -95,6 +95,7 @@ class WeavePager<T>(
 
     private var nextUrl: String? = null
     private var isFirstPage = true
+    private var hasPageResponse = false
     private var isCanceled = false
 
     private val type: PagerType = when {
@@ -112,13 +113,21 @@ class WeavePager<T>(
             if (!isCanceled) {
                 response.body()?.let {
                     isFirstPage = false
+                    hasPageResponse = true
                     nextUrl = config.extractNextUrlBlock(it) ?: linkHeaders?.nextUrl
                     config.responseBlock(it)
-                    if (nextUrl.isNullOrBlank()) {
-                        config.completeBlock()
-                        onRelease()
-                        continuation.resumeSafely(Unit)
-                    }
+                }
+            }
+        }
+
+        /* A page can arrive in several responses (see StreamingListCallback), so the last page completes once it has finished */
+        pageCallback.finishedCallback = {
+            if (!isCanceled && hasPageResponse) {
+                hasPageResponse = false
+                if (nextUrl.isNullOrBlank()) {
+                    config.completeBlock()
+                    onRelease()
+                    continuation.resumeSafely(Unit)
                 }
             }
         }
@@ -164,6 +173,7 @@ class WeavePager<T>(
 class PaginationCallback<T> : StatusCallback<T>() {
     lateinit var responseCallback: (Response<T>, LinkHeaders?) -> Unit
     lateinit var errorCallback: ErrorCall
+    var finishedCallback: () -> Unit = {}
 
     override fun onResponse(response: Response<T>, linkHeaders: LinkHeaders, type: ApiType) {
         responseCallback(response, linkHeaders)
@@ -172,4 +182,8 @@ class PaginationCallback<T> : StatusCallback<T>() {
     override fun onFail(call: Call<T>?, error: Throwable, response: Response<*>?) {
         errorCallback(StatusCallbackError(call, error, response))
     }
+
+    override fun onFinished(type: ApiType) {
+        finishedCallback()
+    }
 }
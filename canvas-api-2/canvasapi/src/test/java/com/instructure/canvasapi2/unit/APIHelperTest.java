@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
 
@@ -38,6 +39,7 @@ import okhttp3.Response;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
 
 
 public class APIHelperTest {
@@ -50,6 +52,38 @@ public class APIHelperTest {
         assertEquals(linkHeaders.nextUrl, "courses/123456/discussion_topics.json?page2");
     }
 
+    @Test
+    public void getRemainingPageUrls() throws Exception {
+        LinkHeaders linkHeaders = new LinkHeaders();
+        linkHeaders.nextUrl = "courses?include[]=term&page=2&per_page=10";
+        linkHeaders.lastUrl = "courses?include[]=term&page=4&per_page=10";
+
+        List<String> urls = APIHelper.getRemainingPageUrls(linkHeaders);
+
+        assertNotNull(urls);
+        assertEquals(3, urls.size());
+        assertEquals("courses?include[]=term&page=2&per_page=10", urls.get(0));
+        assertEquals("courses?include[]=term&page=3&per_page=10", urls.get(1));
+        assertEquals("courses?include[]=term&page=4&per_page=10", urls.get(2));
+    }
+
+    @Test
+    public void getRemainingPageUrls_noLastUrl() throws Exception {
+        LinkHeaders linkHeaders = new LinkHeaders();
+        linkHeaders.nextUrl = "courses?page=2&per_page=10";
+
+        assertNull(APIHelper.getRemainingPageUrls(linkHeaders));
+    }
+
+    @Test
+    public void getRemainingPageUrls_bookmarkPages() throws Exception {
+        LinkHeaders linkHeaders = new LinkHeaders();
+        linkHeaders.nextUrl = "conversations?page=bookmark:WzE0NDld&per_page=10";
+        linkHeaders.lastUrl = "conversations?page=bookmark:WzE0NTBd&per_page=10";
+
+        assertNull(APIHelper.getRemainingPageUrls(linkHeaders));
+    }
+
     @Test
     public void removeDomainFromUrl() throws Exception {
         String url = "https://mobiledev.instructure.com/api/v1/courses/833052/external_tools?include_parents=true";
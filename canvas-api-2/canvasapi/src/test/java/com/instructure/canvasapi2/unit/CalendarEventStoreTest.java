@@ -0,0 +1,387 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.canvasapi2.unit;
+
+import com.instructure.canvasapi2.StatusCallback;
+import com.instructure.canvasapi2.apis.CalendarEventAPI;
+import com.instructure.canvasapi2.builders.RestParams;
+import com.instructure.canvasapi2.models.ScheduleItem;
+import com.instructure.canvasapi2.utils.APIHelper;
+import com.instructure.canvasapi2.utils.ApiType;
+import com.instructure.canvasapi2.utils.CalendarEventStore;
+import com.instructure.canvasapi2.utils.LinkHeaders;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import retrofit2.Response;
+
+import static org.junit.Assert.*;
+
+public class CalendarEventStoreTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long MARCH = 1519862400000L; // 2018-03-01 UTC
+    private static final long APRIL = MARCH + 31 * DAY;
+    private static final long MAY = APRIL + 30 * DAY;
+    private static final List<String> COURSE = Collections.singletonList("course_1");
+    private static final List<String> COURSE_AND_GROUP = Arrays.asList("course_1", "group_2");
+
+    private static class FetchCall {
+        final CalendarEventAPI.CalendarEventType type;
+        final String startDate;
+        final String endDate;
+        final List<String> contextIds;
+        final RestParams.Priority priority;
+        final StatusCallback<List<ScheduleItem>> callback;
+
+        FetchCall(CalendarEventAPI.CalendarEventType type, String startDate, String endDate, List<String> contextIds, RestParams.Priority priority, StatusCallback<List<ScheduleItem>> callback) {
+            this.type = type;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.contextIds = contextIds;
+            this.priority = priority;
+            this.callback = callback;
+        }
+
+        void respond(ScheduleItem... items) {
+            callback.onResponse(Response.success((List<ScheduleItem>) new ArrayList<>(Arrays.asList(items))), new LinkHeaders(), ApiType.API);
+        }
+
+        void fail() {
+            callback.onFail(null, new Exception("offline"), null);
+        }
+
+        // What StatusCallback does for a 504, i.e. nothing cached while offline
+        void finishWithoutResponse() {
+            callback.onFinished(ApiType.CACHE);
+        }
+    }
+
+    private static class FakeFetcher implements CalendarEventStore.Fetcher {
+        final List<FetchCall> calls = new ArrayList<>();
+
+        @Override
+        public void fetch(CalendarEventAPI.CalendarEventType type, String startDate, String endDate, List<String> contextIds, RestParams.Priority priority, StatusCallback<List<ScheduleItem>> callback) {
+            calls.add(new FetchCall(type, startDate, endDate, contextIds, priority, callback));
+        }
+
+        void respondAll(ScheduleItem... items) {
+            List<FetchCall> pending = new ArrayList<>(calls);
+            calls.clear();
+            for (FetchCall call : pending) {
+                List<ScheduleItem> matching = new ArrayList<>();
+                for (ScheduleItem item : items) {
+                    boolean isAssignment = item.getItemType() == ScheduleItem.Type.TYPE_ASSIGNMENT;
+                    if (isAssignment == (call.type == CalendarEventAPI.CalendarEventType.ASSIGNMENT)) matching.add(item);
+                }
+                call.respond(matching.toArray(new ScheduleItem[0]));
+            }
+        }
+    }
+
+    private static class RecordingListener implements CalendarEventStore.Listener {
+        final List<List<ScheduleItem>> deliveries = new ArrayList<>();
+        final List<Boolean> completes = new ArrayList<>();
+        boolean failed = false;
+
+        @Override
+        public void onEventsLoaded(List<ScheduleItem> events, boolean isComplete) {
+            deliveries.add(events);
+            completes.add(isComplete);
+        }
+
+        @Override
+        public void onLoadFailed() {
+            failed = true;
+        }
+
+        List<ScheduleItem> last() {
+            return deliveries.get(deliveries.size() - 1);
+        }
+    }
+
+    private static ScheduleItem event(long id, String contextCode, long start, long end, ScheduleItem.Type type) {
+        ScheduleItem item = new ScheduleItem();
+        item.setId(id);
+        item.setContextCode(contextCode);
+        item.setStartAt(new Date(start));
+        item.setEndAt(new Date(end));
+        item.setItemType(type);
+        return item;
+    }
+
+    private static ScheduleItem calendarEvent(long id, String contextCode, long start) {
+        return event(id, contextCode, start, start + 60 * 60 * 1000L, ScheduleItem.Type.TYPE_CALENDAR);
+    }
+
+    private static ScheduleItem assignment(long id, String contextCode, long due) {
+        return event(id, contextCode, due, due, ScheduleItem.Type.TYPE_ASSIGNMENT);
+    }
+
+    @Test
+    public void getEvents_fetchesOnlyMissingIntervals() {
+        FakeFetcher fetcher = new FakeFetcher();
+        CalendarEventStore store = new CalendarEventStore(null, fetcher);
+
+        RecordingListener march = new RecordingListener();
+        store.getEvents(MARCH, APRIL, COURSE, false, march);
+        assertEquals(2, fetcher.calls.size());
+        assertTrue(march.deliveries.isEmpty());
+        fetcher.respondAll(calendarEvent(1, "course_1", MARCH + DAY), assignment(2, "course_1", MARCH + 2 * DAY));
+        assertEquals(Collections.singletonList(true), march.completes);
+        assertEquals(2, march.last().size());
+
+        // Back to the same month comes straight from the store
+        RecordingListener again = new RecordingListener();
+        store.getEvents(MARCH, APRIL, COURSE, false, again);
+        assertTrue(fetcher.calls.isEmpty());
+        assertEquals(Collections.singletonList(true), again.completes);
+        assertEquals(2, again.last().size());
+
+        // Half of this range is already stored
+        store.getEvents(MARCH + 15 * DAY, APRIL + 15 * DAY, COURSE, false, new RecordingListener());
+        assertEquals(2, fetcher.calls.size());
+        for (FetchCall call : fetcher.calls) {
+            assertEquals(APIHelper.dateToString(new Date(APRIL)), call.startDate);
+            assertEquals(APIHelper.dateToString(new Date(APRIL + 15 * DAY)), call.endDate);
+        }
+    }
+
+    @Test
+    public void getEvents_onlyFetchesNewContexts() {
+        FakeFetcher fetcher = new FakeFetcher();
+        CalendarEventStore store = new CalendarEventStore(null, fetcher);
+
+        store.getEvents(MARCH, APRIL, COURSE, false, new RecordingListener());
+        fetcher.respondAll(calendarEvent(1, "course_1", MARCH + DAY));
+
+        RecordingListener listener = new RecordingListener();
+        store.getEvents(MARCH, APRIL, COURSE_AND_GROUP, false, listener);
+        assertEquals(2, fetcher.calls.size());
+        assertEquals(Collections.singletonList("group_2"), fetcher.calls.get(0).contextIds);
+        // The course's events are shown while the group's are fetched
+        assertEquals(Collections.singletonList(false), listener.completes);
+
+        fetcher.respondAll(calendarEvent(3, "group_2", MARCH + 3 * DAY));
+        assertEquals(Arrays.asList(false, true), listener.completes);
+        assertEquals(2, listener.last().size());
+    }
+
+    @Test
+    public void getEvents_sharesInFlightFetches() {
+        FakeFetcher fetcher = new FakeFetcher();
+        CalendarEventStore store = new CalendarEventStore(null, fetcher);
+
+        store.getEvents(APRIL, MAY, COURSE, false, new RecordingListener());
+        assertEquals(2, fetcher.calls.size());
+
+        RecordingListener listener = new RecordingListener();
+        store.getEvents(APRIL, MAY, COURSE, false, listener);
+        assertEquals(2, fetcher.calls.size());
+        assertTrue(listener.deliveries.isEmpty());
+
+        // A prefetch can wait on a more urgent fetch
+        store.prefetch(APRIL, MAY, COURSE);
+        assertEquals(2, fetcher.calls.size());
+
+        fetcher.respondAll(calendarEvent(4, "course_1", APRIL + DAY));
+        assertEquals(Collections.singletonList(true), listener.completes);
+        assertEquals(1, listener.last().size());
+    }
+
+    @Test
+    public void getEvents_doesNotWaitOnPrefetch() {
+        FakeFetcher fetcher = new FakeFetcher();
+        CalendarEventStore store = new CalendarEventStore(null, fetcher);
+
+        store.prefetch(APRIL, MAY, COURSE);
+        assertEquals(2, fetcher.calls.size());
+        assertEquals(RestParams.Priority.PREFETCH, fetcher.calls.get(0).priority);
+
+        // The month is opened while its prefetch is still queued behind interactive calls
+        RecordingListener listener = new RecordingListener();
+        store.getEvents(APRIL, MAY, COURSE, false, listener);
+        assertEquals(4, fetcher.calls.size());
+        assertEquals(RestParams.Priority.INTERACTIVE, fetcher.calls.get(2).priority);
+        assertEquals(RestParams.Priority.INTERACTIVE, fetcher.calls.get(3).priority);
+
+        for (FetchCall call : new ArrayList<>(fetcher.calls.subList(2, 4))) {
+            if (call.type == CalendarEventAPI.CalendarEventType.CALENDAR) call.respond(calendarEvent(4, "course_1", APRIL + DAY));
+            else call.respond();
+        }
+        assertEquals(Collections.singletonList(true), listener.completes);
+        assertEquals(1, listener.last().size());
+    }
+
+    @Test
+    public void getEvents_finishedWithoutResponseFails() {
+        FakeFetcher fetcher = new FakeFetcher();
+        CalendarEventStore store = new CalendarEventStore(null, fetcher);
+
+        RecordingListener listener = new RecordingListener();
+        store.getEvents(MARCH, APRIL, COURSE, false, listener);
+        List<FetchCall> calls = new ArrayList<>(fetcher.calls);
+        fetcher.calls.clear();
+        for (FetchCall call : calls) call.finishWithoutResponse();
+
+        assertEquals(Collections.singletonList(true), listener.completes);
+        assertTrue(listener.last().isEmpty());
+        assertTrue(listener.failed);
+
+        // Nothing is left in flight, so the month is fetched again
+        store.getEvents(MARCH, APRIL, COURSE, false, new RecordingListener());
+        assertEquals(2, fetcher.calls.size());
+    }
+
+    @Test
+    public void getStoredEvents_includesEventsRunningIntoRange() {
+        FakeFetcher fetcher = new FakeFetcher();
+        CalendarEventStore store = new CalendarEventStore(null, fetcher);
+
+        store.getEvents(MARCH, MAY, COURSE_AND_GROUP, false, new RecordingListener());
+        fetcher.respondAll(
+                event(1, "course_1", APRIL - 2 * DAY, APRIL + DAY, ScheduleItem.Type.TYPE_CALENDAR),
+                calendarEvent(2, "course_1", APRIL - 5 * DAY),
+                calendarEvent(3, "group_2", APRIL + 3 * DAY),
+                calendarEvent(4, "course_1", MAY - DAY));
+
+        List<Long> ids = new ArrayList<>();
+        for (ScheduleItem item : store.getStoredEvents(APRIL, APRIL + 7 * DAY, COURSE_AND_GROUP)) ids.add(item.getId());
+        Collections.sort(ids);
+        assertEquals(Arrays.asList(1L, 3L), ids);
+
+        assertEquals(1, store.getStoredEvents(APRIL, APRIL + 7 * DAY, COURSE).size());
+    }
+
+    @Test
+    public void getEvents_forceNetworkReplacesStoredEvents() {
+        FakeFetcher fetcher = new FakeFetcher();
+        CalendarEventStore store = new CalendarEventStore(null, fetcher);
+
+        store.getEvents(MARCH, APRIL, COURSE, false, new RecordingListener());
+        fetcher.respondAll(calendarEvent(1, "course_1", MARCH + DAY), calendarEvent(2, "course_1", MARCH + 2 * DAY));
+
+        RecordingListener listener = new RecordingListener();
+        store.getEvents(MARCH, APRIL, COURSE, true, listener);
+        assertEquals(2, fetcher.calls.size());
+        // Event 2 was deleted and event 1 moved
+        fetcher.respondAll(calendarEvent(1, "course_1", MARCH + 9 * DAY));
+
+        List<ScheduleItem> events = listener.last();
+        assertEquals(1, events.size());
+        assertEquals(MARCH + 9 * DAY, events.get(0).getStartAt().getTime());
+    }
+
+    @Test
+    public void getEvents_failureDeliversStoredEvents() {
+        FakeFetcher fetcher = new FakeFetcher();
+        CalendarEventStore store = new CalendarEventStore(null, fetcher, 0);
+
+        store.getEvents(MARCH, APRIL, COURSE, false, new RecordingListener());
+        fetcher.respondAll(calendarEvent(1, "course_1", MARCH + DAY));
+
+        // Nothing is fresh with no freshness window, but what's stored still shows up while offline
+        RecordingListener listener = new RecordingListener();
+        store.getEvents(MARCH, APRIL, COURSE, false, listener);
+        assertEquals(2, fetcher.calls.size());
+        assertEquals(Collections.singletonList(false), listener.completes);
+
+        for (FetchCall call : new ArrayList<>(fetcher.calls)) call.fail();
+        assertEquals(Arrays.asList(false, true), listener.completes);
+        assertEquals(1, listener.last().size());
+        assertTrue(listener.failed);
+    }
+
+    @Test
+    public void cancel_stopsDelivery() {
+        FakeFetcher fetcher = new FakeFetcher();
+        CalendarEventStore store = new CalendarEventStore(null, fetcher);
+
+        RecordingListener listener = new RecordingListener();
+        CalendarEventStore.Request request = store.getEvents(MARCH, APRIL, COURSE, false, listener);
+        request.cancel();
+        fetcher.respondAll(calendarEvent(1, "course_1", MARCH + DAY));
+
+        assertTrue(listener.deliveries.isEmpty());
+        assertEquals(1, store.getStoredEvents(MARCH, APRIL, COURSE).size());
+    }
+
+    @Test
+    public void store_persistsToDisk() throws Exception {
+        File file = File.createTempFile("calendar_events", ".json");
+        file.delete();
+        try {
+            FakeFetcher fetcher = new FakeFetcher();
+            CalendarEventStore store = new CalendarEventStore(file, fetcher);
+            store.getEvents(MARCH, APRIL, COURSE, false, new RecordingListener());
+            fetcher.respondAll(calendarEvent(1, "course_1", MARCH + DAY), assignment(2, "course_1", MARCH + 2 * DAY));
+            store.flush();
+            assertTrue(file.exists());
+
+            FakeFetcher reloadedFetcher = new FakeFetcher();
+            CalendarEventStore reloaded = new CalendarEventStore(file, reloadedFetcher);
+            reloaded.flush();
+            RecordingListener listener = new RecordingListener();
+            reloaded.getEvents(MARCH, APRIL, COURSE, false, listener);
+
+            assertTrue(reloadedFetcher.calls.isEmpty());
+            assertEquals(2, listener.last().size());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void store_firstQueryWaitsForDisk() throws Exception {
+        File file = File.createTempFile("calendar_events", ".json");
+        file.delete();
+        try {
+            FakeFetcher fetcher = new FakeFetcher();
+            CalendarEventStore store = new CalendarEventStore(file, fetcher);
+            store.getEvents(MARCH, APRIL, COURSE, false, new RecordingListener());
+            fetcher.respondAll(calendarEvent(1, "course_1", MARCH + DAY));
+            store.flush();
+
+            // Queried right away, before the stored events could have been read in the background
+            FakeFetcher reloadedFetcher = new FakeFetcher();
+            CalendarEventStore reloaded = new CalendarEventStore(file, reloadedFetcher);
+            RecordingListener listener = new RecordingListener();
+            reloaded.getEvents(MARCH, APRIL, COURSE, false, listener);
+
+            assertTrue(reloadedFetcher.calls.isEmpty());
+            assertEquals(1, listener.last().size());
+
+            // A later month is fetched, and saving it keeps the month that was read from disk
+            reloaded.getEvents(APRIL, MAY, COURSE, false, new RecordingListener());
+            reloadedFetcher.respondAll(calendarEvent(2, "course_1", APRIL + DAY));
+            reloaded.flush();
+
+            CalendarEventStore again = new CalendarEventStore(file, new FakeFetcher());
+            assertEquals(2, again.getStoredEvents(MARCH, MAY, COURSE).size());
+        } finally {
+            file.delete();
+        }
+    }
+}
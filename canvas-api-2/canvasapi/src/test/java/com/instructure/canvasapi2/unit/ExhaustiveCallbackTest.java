@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.canvasapi2.unit;
+
+import com.instructure.canvasapi2.StatusCallback;
+import com.instructure.canvasapi2.utils.ApiType;
+import com.instructure.canvasapi2.utils.ExhaustiveCallback;
+import com.instructure.canvasapi2.utils.LinkHeaders;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * getNextPage only records the requests, each test decides the order in which the pages come back
+ */
+public class ExhaustiveCallbackTest {
+
+    private final RecordingCallback mResult = new RecordingCallback();
+
+    @Test
+    public void pagesOutOfOrder_areJoinedInPageOrder() {
+        PagedCallback paged = new PagedCallback(mResult, 3);
+        respond(paged, 1, 4, ApiType.API);
+        assertEquals(Arrays.asList(url(2), url(3), url(4)), new ArrayList<>(paged.mRequests.keySet()));
+
+        respond(paged.page(4), 4, 4, ApiType.API);
+        respond(paged.page(2), 2, 4, ApiType.API);
+        assertNull(mResult.mItems);
+        respond(paged.page(3), 3, 4, ApiType.API);
+
+        assertEquals(items(1, 2, 3, 4), mResult.mItems);
+        assertEquals(1, mResult.mFinishedCount);
+    }
+
+    @Test
+    public void concurrentPages_areLimited() {
+        PagedCallback paged = new PagedCallback(mResult, 2);
+        respond(paged, 1, 5, ApiType.API);
+        assertEquals(Arrays.asList(url(2), url(3)), new ArrayList<>(paged.mRequests.keySet()));
+
+        respond(paged.page(3), 3, 5, ApiType.API);
+        assertEquals(Arrays.asList(url(2), url(3), url(4)), new ArrayList<>(paged.mRequests.keySet()));
+
+        respond(paged.page(2), 2, 5, ApiType.API);
+        respond(paged.page(4), 4, 5, ApiType.API);
+        respond(paged.page(5), 5, 5, ApiType.API);
+
+        assertEquals(items(1, 2, 3, 4, 5), mResult.mItems);
+    }
+
+    @Test
+    public void failedPage_failsTheWholeList() {
+        PagedCallback paged = new PagedCallback(mResult, 3);
+        respond(paged, 1, 4, ApiType.API);
+
+        respond(paged.page(2), 2, 4, ApiType.API);
+        StatusCallback<List<String>> failed = paged.page(3);
+        failed.onFail(null, new Throwable("500"), null);
+        failed.onFinished(ApiType.API);
+
+        assertEquals(1, mResult.mFailCount);
+        assertEquals(1, mResult.mFinishedCount);
+        assertTrue(paged.page(4).isCanceled());
+
+        // A page that was already on its way doesn't deliver a partial list
+        respond(paged.page(4), 4, 4, ApiType.API);
+        assertNull(mResult.mItems);
+        assertEquals(1, mResult.mFinishedCount);
+    }
+
+    @Test
+    public void missingCachedPage_isLeftOut() {
+        PagedCallback paged = new PagedCallback(mResult, 3);
+        respond(paged, 1, 4, ApiType.CACHE);
+        assertTrue(paged.mIsCached);
+
+        respond(paged.page(2), 2, 4, ApiType.CACHE);
+        // Not in the cache, so there is no response at all
+        paged.page(3).onFinished(ApiType.CACHE);
+        respond(paged.page(4), 4, 4, ApiType.CACHE);
+
+        assertEquals(items(1, 2, 4), mResult.mItems);
+        assertEquals(ApiType.CACHE, mResult.mType);
+        assertEquals(1, mResult.mFinishedCount);
+    }
+
+    @Test
+    public void pagesAddedAfterTheJoin_areFetchedOneAtATime() {
+        PagedCallback paged = new PagedCallback(mResult, 3);
+        respond(paged, 1, 3, ApiType.API);
+
+        respond(paged.page(2), 2, 3, ApiType.API);
+        // The last page now links to a page that didn't exist when the first page was fetched
+        respond(paged.page(3), 3, 4, ApiType.API);
+        assertNull(mResult.mItems);
+        assertSame(paged, paged.page(4));
+
+        respond(paged.page(4), 4, 4, ApiType.API);
+        assertEquals(items(1, 2, 3, 4), mResult.mItems);
+        assertEquals(1, mResult.mFinishedCount);
+    }
+
+    @Test
+    public void noLastPage_pagesOneAtATime() {
+        PagedCallback paged = new PagedCallback(mResult, 3);
+        LinkHeaders linkHeaders = new LinkHeaders();
+        linkHeaders.nextUrl = url(2);
+        paged.onResponse(Response.success(items(1)), linkHeaders, ApiType.API);
+
+        assertEquals(1, paged.mRequests.size());
+        assertSame(paged, paged.page(2));
+    }
+
+    @Test
+    public void sequentialByDefault() {
+        PagedCallback paged = new PagedCallback(mResult, 1);
+        respond(paged, 1, 3, ApiType.API);
+
+        assertEquals(1, paged.mRequests.size());
+        assertSame(paged, paged.page(2));
+        respond(paged.page(2), 2, 3, ApiType.API);
+        respond(paged.page(3), 3, 3, ApiType.API);
+
+        assertEquals(items(1, 2, 3), mResult.mItems);
+        assertFalse(mResult.mFailCount > 0);
+    }
+
+    @Test
+    public void firstPageWithoutResponse_finishesTheList() {
+        PagedCallback paged = new PagedCallback(mResult, 3);
+        // A 504, i.e. nothing cached while offline
+        paged.onFinished(ApiType.CACHE);
+
+        assertNull(mResult.mItems);
+        assertEquals(1, mResult.mFinishedCount);
+        assertEquals(ApiType.CACHE, mResult.mType);
+    }
+
+    @Test
+    public void nextPageWithoutResponse_finishesTheList() {
+        PagedCallback paged = new PagedCallback(mResult, 1);
+        respond(paged, 1, 3, ApiType.API);
+        assertEquals(0, mResult.mFinishedCount);
+
+        paged.page(2).onFinished(ApiType.API);
+        assertEquals(1, mResult.mFinishedCount);
+    }
+
+    @Test
+    public void cancelledPage_isReportedOnce() {
+        PagedCallback paged = new PagedCallback(mResult, 3);
+        respond(paged, 1, 4, ApiType.API);
+
+        paged.page(2).onCancelled();
+        paged.page(3).onCancelled();
+
+        assertEquals(1, mResult.mCancelledCount);
+        assertTrue(paged.page(4).isCanceled());
+        assertNull(mResult.mItems);
+    }
+
+    private static String url(int page) {
+        return "courses?page=" + page + "&per_page=2";
+    }
+
+    private static List<String> items(int... pages) {
+        List<String> items = new ArrayList<>();
+        for (int page : pages) {
+            items.add(page + "a");
+            items.add(page + "b");
+        }
+        return items;
+    }
+
+    /**
+     * Delivers a page the way StatusCallback does, the response followed by onFinished
+     */
+    private static void respond(StatusCallback<List<String>> callback, int page, int lastPage, ApiType type) {
+        LinkHeaders linkHeaders = new LinkHeaders();
+        if (page < lastPage) linkHeaders.nextUrl = url(page + 1);
+        linkHeaders.lastUrl = url(lastPage);
+        callback.onResponse(Response.success(items(page)), linkHeaders, type);
+        callback.onFinished(type);
+    }
+
+    private static class PagedCallback extends ExhaustiveCallback<List<String>, String> {
+        final Map<String, StatusCallback<List<String>>> mRequests = new LinkedHashMap<>();
+        boolean mIsCached;
+
+        PagedCallback(StatusCallback<List<String>> callback, int maxConcurrentPages) {
+            super(callback, maxConcurrentPages);
+        }
+
+        StatusCallback<List<String>> page(int page) {
+            return mRequests.get(url(page));
+        }
+
+        @Override
+        public void getNextPage(StatusCallback<List<String>> callback, String nextUrl, boolean isCached) {
+            mRequests.put(nextUrl, callback);
+            mIsCached = isCached;
+        }
+
+        @Override
+        public List<String> extractItems(List<String> response) {
+            return response;
+        }
+    }
+
+    private static class RecordingCallback extends StatusCallback<List<String>> {
+        List<String> mItems;
+        ApiType mType;
+        int mFailCount;
+        int mCancelledCount;
+        int mFinishedCount;
+
+        @Override
+        public void onResponse(Response<List<String>> response, LinkHeaders linkHeaders, ApiType type) {
+            mItems = new ArrayList<>(response.body());
+            mType = type;
+        }
+
+        @Override
+        public void onFail(Call<List<String>> call, Throwable error, Response response) {
+            mFailCount++;
+        }
+
+        @Override
+        public void onCancelled() {
+            mCancelledCount++;
+        }
+
+        @Override
+        public void onFinished(ApiType type) {
+            mFinishedCount++;
+            mType = type;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.canvasapi2.unit;
+
+import com.instructure.canvasapi2.utils.IsoDateFormat;
+
+import org.junit.Test;
+
+import static com.instructure.canvasapi2.unit.IsoDateFormatTest.SCHEDULE_ITEM_DATES;
+import static com.instructure.canvasapi2.unit.IsoDateFormatTest.legacyParse;
+
+/**
+ * Compares IsoDateFormat with the SimpleDateFormat parsing it replaced. Not part of the default test run,
+ * use ./gradlew :canvasapi:testDebugUnitTest -Pbenchmark --tests '*IsoDateFormatBenchmark'
+ */
+public class IsoDateFormatBenchmark {
+
+    private static final int WARM_UP_ITERATIONS = 200;
+    private static final int ITERATIONS = 2000;
+
+    @Test
+    public void parse() throws Exception {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            for (String date : SCHEDULE_ITEM_DATES) {
+                legacyParse(date);
+                IsoDateFormat.parseMillis(date);
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (String date : SCHEDULE_ITEM_DATES) {
+                legacyParse(date);
+            }
+        }
+        long legacy = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (String date : SCHEDULE_ITEM_DATES) {
+                IsoDateFormat.parseMillis(date);
+            }
+        }
+        long iso = System.nanoTime() - start;
+
+        long parses = (long) ITERATIONS * SCHEDULE_ITEM_DATES.length;
+        System.out.println("SimpleDateFormat: " + (legacy / parses) + "ns/date");
+        System.out.println("IsoDateFormat: " + (iso / parses) + "ns/date");
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.instructure.canvasapi2.unit;
+
+import com.instructure.canvasapi2.utils.IsoDateFormat;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class IsoDateFormatTest {
+
+    // The start_at, end_at, created_at and updated_at values of the ScheduleItemUnitTest fixtures
+    static final String[] SCHEDULE_ITEM_DATES = {
+            "2012-10-06T00:23:46Z", "2012-10-06T01:01:27Z", "2012-10-06T01:09:52Z", "2012-10-09T01:51:59Z",
+            "2012-10-17T06:00:00Z", "2013-04-30T19:10:08Z", "2013-04-30T19:12:27Z", "2013-04-30T19:19:18Z",
+            "2013-04-30T19:20:09Z", "2013-05-01T06:00:00Z", "2013-05-02T23:00:00Z", "2013-05-03T00:00:00Z",
+            "2013-10-04T17:39:19Z", "2013-10-28T22:41:46Z", "2013-10-29T06:00:00Z", "2013-11-12T23:41:13Z",
+            "2013-11-13T19:00:00Z", "2013-11-13T21:00:00Z", "2013-12-13T22:21:48Z", "2013-12-13T22:22:31Z",
+            "2013-12-14T02:00:00Z", "2013-12-14T03:00:00Z", "2014-01-15T20:21:21Z", "2014-01-17T21:00:00Z",
+            "2014-01-17T22:00:00Z", "2014-02-06T21:14:30Z", "2014-02-07T21:00:00Z", "2014-02-07T23:00:00Z",
+            "2014-04-22T22:18:19Z", "2014-07-08T21:07:42Z", "2014-07-15T20:54:35Z", "2014-07-15T21:52:25Z",
+            "2014-07-23T16:21:38Z", "2014-07-23T21:29:31Z", "2014-07-30T20:21:13Z", "2014-11-05T18:31:13Z",
+            "2014-11-24T17:46:43Z", "2014-11-25T18:26:11Z", "2014-11-25T18:26:50Z", "2014-11-25T18:45:42Z",
+            "2014-11-25T18:45:43Z", "2015-01-02T22:12:27Z", "2015-02-06T18:25:04Z", "2015-02-06T18:25:05Z",
+            "2015-02-06T19:01:12Z", "2015-02-10T21:03:17Z", "2015-02-10T21:03:52Z", "2015-02-19T07:00:00Z",
+            "2015-03-09T22:12:17Z", "2015-03-09T22:28:43Z", "2015-03-09T22:43:44Z", "2015-03-09T23:06:17Z",
+            "2015-03-10T20:27:39Z", "2015-03-11T21:17:29Z", "2015-03-11T21:30:56Z", "2015-03-12T19:48:40Z",
+            "2015-03-13T23:49:17Z"
+    };
+
+    @Test
+    public void parse_matchesSimpleDateFormat() throws Exception {
+        for (String date : SCHEDULE_ITEM_DATES) {
+            assertEquals(date, legacyParse(date), IsoDateFormat.parse(date));
+        }
+    }
+
+    @Test
+    public void parse_offsets() throws Exception {
+        Date utc = IsoDateFormat.parse("2037-07-28T19:38:31Z");
+        assertEquals(utc, IsoDateFormat.parse("2037-07-28T13:38:31-06:00"));
+        assertEquals(utc, IsoDateFormat.parse("2037-07-28T13:38:31-0600"));
+        assertEquals(utc, IsoDateFormat.parse("2037-07-29T01:08:31+05:30"));
+        assertEquals(utc, IsoDateFormat.parse("2037-07-28T19:38:31+00:00"));
+    }
+
+    @Test
+    public void parse_fractionalSeconds() throws Exception {
+        long utc = IsoDateFormat.parseMillis("2037-07-28T19:38:31Z");
+        assertEquals(utc + 123, IsoDateFormat.parseMillis("2037-07-28T19:38:31.123Z"));
+        assertEquals(utc + 500, IsoDateFormat.parseMillis("2037-07-28T19:38:31.5Z"));
+        assertEquals(utc + 123, IsoDateFormat.parseMillis("2037-07-28T19:38:31.123456-00:00"));
+    }
+
+    @Test
+    public void parse_calendarEdges() throws Exception {
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(2016, Calendar.FEBRUARY, 29, 23, 59, 59);
+        assertEquals(calendar.getTime(), IsoDateFormat.parse("2016-02-29T23:59:59Z"));
+        calendar.set(1969, Calendar.DECEMBER, 31, 0, 0, 0);
+        assertEquals(calendar.getTime(), IsoDateFormat.parse("1969-12-31T00:00:00Z"));
+        calendar.set(2000, Calendar.JANUARY, 1, 0, 0, 0);
+        assertEquals(calendar.getTime(), IsoDateFormat.parse("2000-01-01T00:00:00Z"));
+    }
+
+    @Test
+    public void parse_invalid() throws Exception {
+        assertNull(IsoDateFormat.parse(null));
+        assertNull(IsoDateFormat.parse(""));
+        assertNull(IsoDateFormat.parse("2037-07-28"));
+        assertNull(IsoDateFormat.parse("2037-07-28T19:38:31"));
+        assertNull(IsoDateFormat.parse("2037-13-28T19:38:31Z"));
+        assertNull(IsoDateFormat.parse("2017-02-29T19:38:31Z"));
+        assertNull(IsoDateFormat.parse("2037-07-28T19:38:31Zjunk"));
+        assertNull(IsoDateFormat.parse("2037-07-28T19:38:31.Z"));
+        assertNull(IsoDateFormat.parse("not a date at all, really"));
+    }
+
+    @Test
+    public void format_matchesSimpleDateFormat() throws Exception {
+        TimeZone timeZone = TimeZone.getTimeZone("America/Denver");
+        SimpleDateFormat legacyFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.US);
+        legacyFormat.setTimeZone(timeZone);
+        for (String date : SCHEDULE_ITEM_DATES) {
+            Date parsed = IsoDateFormat.parse(date);
+            String legacy = legacyFormat.format(parsed);
+            assertEquals(legacy.substring(0, 22) + ":" + legacy.substring(22), IsoDateFormat.format(parsed.getTime(), timeZone));
+        }
+    }
+
+    @Test
+    public void format_roundTrips() throws Exception {
+        TimeZone timeZone = TimeZone.getTimeZone("Asia/Kolkata");
+        for (String date : SCHEDULE_ITEM_DATES) {
+            long millis = IsoDateFormat.parseMillis(date);
+            assertEquals(millis, IsoDateFormat.parseMillis(IsoDateFormat.format(millis, timeZone)));
+        }
+    }
+
+    /**
+     * What APIHelper.stringToDate did before IsoDateFormat, and still does for anything that isn't strictly ISO-8601
+     */
+    static Date legacyParse(String iso8601string) {
+        try {
+            String s = iso8601string.replace("Z", "+00:00");
+            s = s.substring(0, 22) + s.substring(23);
+            return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.US).parse(s);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
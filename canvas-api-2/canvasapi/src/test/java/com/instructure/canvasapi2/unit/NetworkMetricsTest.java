@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.canvasapi2.unit;
+
+import com.instructure.canvasapi2.utils.LatencyHistogram;
+import com.instructure.canvasapi2.utils.NetworkMetrics;
+import com.instructure.canvasapi2.utils.NetworkMetrics.Phase;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NetworkMetricsTest {
+
+    @After
+    public void tearDown() throws Exception {
+        NetworkMetrics.setSink(NetworkMetrics.getHistograms());
+        NetworkMetrics.getHistograms().reset();
+    }
+
+    @Test
+    public void endpointTemplate_replacesIds() throws Exception {
+        assertEquals("courses/{id}/assignments", template("https://mobiledev.instructure.com/api/v1/courses/123/assignments?include[]=submission"));
+        assertEquals("courses/{id}/assignments/{id}/submissions/self", template("https://mobiledev.instructure.com/api/v1/courses/1~234/assignments/55/submissions/self"));
+        assertEquals("users/self/colors", template("https://mobiledev.instructure.com/api/v1/users/self/colors"));
+        assertEquals("courses/{id}/users", template("https://mobiledev.instructure.com/api/v1/courses/sis_course_id:ABC-101/users"));
+        assertEquals("files/{id}/download", template("https://mobiledev.instructure.com/api/v1/files/0c9a1f7e2b8d4c6aa1b2/download"));
+    }
+
+    @Test
+    public void endpointTemplate_keepsHostOutsideApi() throws Exception {
+        assertEquals("instructure-uploads.s3.amazonaws.com/", template("https://instructure-uploads.s3.amazonaws.com/"));
+        assertEquals("mobiledev.instructure.com/login/oauth2/token", template("https://mobiledev.instructure.com/login/oauth2/token"));
+    }
+
+    @Test
+    public void histogram_percentilesWithinBucketError() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertWithin(500, histogram.getPercentile(50));
+        assertWithin(950, histogram.getPercentile(95));
+        assertWithin(990, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void histogram_smallAndHugeValues() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(3);
+        histogram.record(10 * 60 * 1000);
+
+        assertEquals(0, histogram.getPercentile(10));
+        assertEquals(3, histogram.getPercentile(50));
+        assertTrue(histogram.getPercentile(100) >= 131072);
+        assertEquals(0, new LatencyHistogram().getPercentile(50));
+    }
+
+    @Test
+    public void sink_isPluggable() throws Exception {
+        final List<String> recorded = new ArrayList<>();
+        NetworkMetrics.setSink(new NetworkMetrics.Sink() {
+            @Override
+            public void record(String endpoint, Phase phase, long durationMs) {
+                recorded.add(endpoint + " " + phase + " " + durationMs);
+            }
+        });
+
+        NetworkMetrics.record("courses", Phase.PARSE, 12);
+
+        assertEquals(1, recorded.size());
+        assertEquals("courses PARSE 12", recorded.get(0));
+        assertEquals(0, NetworkMetrics.getHistograms().getEndpoints().size());
+
+        NetworkMetrics.setSink(null);
+        NetworkMetrics.record("courses", Phase.PARSE, 12);
+        assertEquals(1, recorded.size());
+    }
+
+    @Test
+    public void dump_listsSlowestEndpointFirst() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            NetworkMetrics.record("users/self/colors", Phase.CALL, 40);
+            NetworkMetrics.record("courses/{id}/assignments", Phase.CALL, 900);
+            NetworkMetrics.record("courses/{id}/assignments", Phase.PARSE, 120);
+        }
+
+        String dump = NetworkMetrics.dump();
+
+        assertTrue(dump, dump.indexOf("courses/{id}/assignments") < dump.indexOf("users/self/colors"));
+        assertTrue(dump, dump.contains("parse"));
+        assertTrue(dump, dump.contains("n=20"));
+    }
+
+    private static String template(String url) {
+        return NetworkMetrics.getEndpointTemplate(HttpUrl.parse(url));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("Expected ~" + expected + " but was " + actual, actual >= expected && actual <= expected * 1.125 + 1);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.instructure.canvasapi2.unit;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import com.instructure.canvasapi2.utils.pageview.PageViewEvent;
+import com.instructure.canvasapi2.utils.pageview.PageViewLog;
+import com.instructure.canvasapi2.utils.pageview.PageViewUploader;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PageViewLogTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("pageViews", ".log");
+        file.delete();
+        file.deleteOnExit();
+    }
+
+    @Test
+    public void append_keepsEventsInOrder() throws Exception {
+        PageViewLog log = new PageViewLog(file);
+        log.append(events(0, 3));
+        log.append(events(3, 2));
+
+        List<PageViewEvent> logged = log.readAll();
+        assertEquals(5, logged.size());
+        for (int i = 0; i < logged.size(); i++) {
+            assertEquals(event(i), logged.get(i));
+        }
+    }
+
+    @Test
+    public void append_evictsOldestPastCap() throws Exception {
+        PageViewLog log = new PageViewLog(file, 4096);
+        for (int i = 0; i < 100; i++) {
+            log.append(events(i, 1));
+        }
+
+        List<PageViewEvent> logged = log.readAll();
+        assertTrue(log.getSizeInBytes() <= 4096);
+        assertFalse(logged.isEmpty());
+        // Only the newest events survive, still in order
+        assertEquals(event(99), logged.get(logged.size() - 1));
+        for (int i = 1; i < logged.size(); i++) {
+            assertEquals(logged.get(i - 1).getUserId() + 1, logged.get(i).getUserId());
+        }
+    }
+
+    @Test
+    public void remove_dropsMatchingKeys() throws Exception {
+        PageViewLog log = new PageViewLog(file);
+        log.append(events(0, 3));
+
+        log.remove(Collections.singleton(event(1).getKey()));
+
+        List<PageViewEvent> logged = log.readAll();
+        assertEquals(2, logged.size());
+        assertEquals(event(0), logged.get(0));
+        assertEquals(event(2), logged.get(1));
+    }
+
+    @Test
+    public void upload_sendsGzippedBatchesOldestFirst() throws Exception {
+        PageViewLog log = new PageViewLog(file);
+        log.append(events(0, 25));
+        RecordingUploader uploader = new RecordingUploader(0);
+
+        int uploaded = log.upload(uploader, 10, 3, 1);
+
+        assertEquals(25, uploaded);
+        assertEquals(3, uploader.batches.size());
+        assertEquals(10, uploader.batches.get(0).size());
+        assertEquals(5, uploader.batches.get(2).size());
+        assertEquals(0, uploader.batches.get(0).get(0).getAsJsonObject().get("userId").getAsLong());
+        assertEquals(24, uploader.batches.get(2).get(4).getAsJsonObject().get("userId").getAsLong());
+        assertTrue(log.readAll().isEmpty());
+    }
+
+    @Test
+    public void upload_retriesFailedBatch() throws Exception {
+        PageViewLog log = new PageViewLog(file);
+        log.append(events(0, 5));
+        RecordingUploader uploader = new RecordingUploader(2);
+
+        int uploaded = log.upload(uploader, 10, 3, 1);
+
+        assertEquals(5, uploaded);
+        assertEquals(3, uploader.attempts);
+        assertTrue(log.readAll().isEmpty());
+    }
+
+    @Test
+    public void upload_keepsEventsWhenRetriesRunOut() throws Exception {
+        PageViewLog log = new PageViewLog(file);
+        log.append(events(0, 15));
+
+        // The first batch goes through, the second fails and there are no attempts left
+        int uploaded = log.upload(new PageViewUploader() {
+            int calls;
+
+            @Override
+            public boolean upload(byte[] gzippedJson, int eventCount) {
+                return calls++ == 0;
+            }
+        }, 10, 1, 1);
+
+        assertEquals(10, uploaded);
+        List<PageViewEvent> logged = log.readAll();
+        assertEquals(5, logged.size());
+        assertEquals(event(10), logged.get(0));
+    }
+
+    private static List<PageViewEvent> events(int first, int count) {
+        List<PageViewEvent> events = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            events.add(event(i));
+        }
+        return events;
+    }
+
+    private static PageViewEvent event(int index) {
+        return new PageViewEvent("event" + index, "https://canvas.example.com/courses/1/pages/" + index, index, 2.5, new Date(1500000000000L + index * 1000L), "key" + index);
+    }
+
+    private static class RecordingUploader implements PageViewUploader {
+        final List<JsonArray> batches = new ArrayList<>();
+        int failures;
+        int attempts;
+
+        RecordingUploader(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public boolean upload(byte[] gzippedJson, int eventCount) {
+            attempts++;
+            if (failures > 0) {
+                failures--;
+                return false;
+            }
+            try {
+                InputStreamReader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(gzippedJson)), "UTF-8");
+                JsonArray batch = new JsonParser().parse(reader).getAsJsonArray();
+                assertEquals(eventCount, batch.size());
+                batches.add(batch);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.canvasapi2.unit;
+
+import com.instructure.canvasapi2.PriorityCallQueue;
+import com.instructure.canvasapi2.builders.RestParams;
+import com.instructure.canvasapi2.builders.RestParams.Priority;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PriorityCallQueueTest {
+
+    @Test
+    public void defaultPriority_isInteractive() throws Exception {
+        assertEquals(Priority.INTERACTIVE, new RestParams.Builder().build().getPriority());
+        RestParams params = new RestParams.Builder().withPriority(Priority.BACKGROUND).build();
+        assertEquals(Priority.BACKGROUND, new RestParams.Builder(params).build().getPriority());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void withPriority_rejectsNull() throws Exception {
+        new RestParams.Builder().withPriority(null);
+    }
+
+    @Test
+    public void interactive_startsImmediately() throws Exception {
+        PriorityCallQueue queue = new PriorityCallQueue();
+        List<String> started = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            queue.submit(Priority.INTERACTIVE, new RecordingTask("i" + i, started));
+        }
+
+        assertEquals(20, started.size());
+        assertEquals(20, queue.getRunningCount(Priority.INTERACTIVE));
+        assertEquals(0, queue.getWaitingCount(Priority.INTERACTIVE));
+    }
+
+    @Test
+    public void background_waitsForInteractive() throws Exception {
+        PriorityCallQueue queue = new PriorityCallQueue();
+        List<String> started = new ArrayList<>();
+        queue.submit(Priority.INTERACTIVE, new RecordingTask("i", started));
+        queue.submit(Priority.BACKGROUND, new RecordingTask("b", started));
+
+        assertEquals(1, started.size());
+        assertEquals(1, queue.getWaitingCount(Priority.BACKGROUND));
+
+        queue.finished(Priority.INTERACTIVE);
+
+        assertEquals("b", started.get(1));
+        assertEquals(1, queue.getRunningCount(Priority.BACKGROUND));
+    }
+
+    @Test
+    public void limits_areEnforcedPerPriority() throws Exception {
+        PriorityCallQueue queue = new PriorityCallQueue();
+        List<String> started = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            queue.submit(Priority.PREFETCH, new RecordingTask("p" + i, started));
+            queue.submit(Priority.BACKGROUND, new RecordingTask("b" + i, started));
+        }
+
+        assertEquals(PriorityCallQueue.MAX_PREFETCH_CALLS, queue.getRunningCount(Priority.PREFETCH));
+        assertEquals(PriorityCallQueue.MAX_BACKGROUND_CALLS, queue.getRunningCount(Priority.BACKGROUND));
+        assertEquals(10 - PriorityCallQueue.MAX_PREFETCH_CALLS, queue.getWaitingCount(Priority.PREFETCH));
+        assertEquals(10 - PriorityCallQueue.MAX_BACKGROUND_CALLS, queue.getWaitingCount(Priority.BACKGROUND));
+        assertEquals(10 - PriorityCallQueue.MAX_BACKGROUND_CALLS, queue.getMaxWaitingCount(Priority.BACKGROUND));
+    }
+
+    @Test
+    public void waitingCalls_startInPriorityThenSubmitOrder() throws Exception {
+        PriorityCallQueue queue = new PriorityCallQueue();
+        List<String> started = new ArrayList<>();
+        // Hold everything back behind an interactive call and full prefetch slots
+        queue.submit(Priority.INTERACTIVE, new RecordingTask("i", started));
+        for (int i = 0; i < PriorityCallQueue.MAX_PREFETCH_CALLS; i++) {
+            queue.submit(Priority.PREFETCH, new RecordingTask("running" + i, started));
+        }
+        queue.submit(Priority.BACKGROUND, new RecordingTask("b1", started));
+        queue.submit(Priority.PREFETCH, new RecordingTask("p1", started));
+        queue.submit(Priority.BACKGROUND, new RecordingTask("b2", started));
+        queue.submit(Priority.PREFETCH, new RecordingTask("p2", started));
+        started.clear();
+
+        queue.finished(Priority.PREFETCH);
+        queue.finished(Priority.PREFETCH);
+        assertEquals(listOf("p1", "p2"), started);
+
+        queue.finished(Priority.INTERACTIVE);
+        assertEquals(listOf("p1", "p2", "b1", "b2"), started);
+    }
+
+    @Test
+    public void newCalls_dontJumpAheadOfWaitingOnes() throws Exception {
+        PriorityCallQueue queue = new PriorityCallQueue();
+        List<String> started = new ArrayList<>();
+        queue.submit(Priority.INTERACTIVE, new RecordingTask("i", started));
+        queue.submit(Priority.BACKGROUND, new RecordingTask("b1", started));
+        queue.finished(Priority.INTERACTIVE);
+        queue.submit(Priority.BACKGROUND, new RecordingTask("b2", started));
+        queue.submit(Priority.BACKGROUND, new RecordingTask("b3", started));
+
+        assertEquals(listOf("i", "b1", "b2"), started);
+        assertEquals(1, queue.getWaitingCount(Priority.BACKGROUND));
+    }
+
+    @Test
+    public void cancelAll_startsWaitingCallsCanceled() throws Exception {
+        PriorityCallQueue queue = new PriorityCallQueue();
+        List<String> started = new ArrayList<>();
+        queue.submit(Priority.INTERACTIVE, new RecordingTask("i", started));
+        RecordingTask waiting = new RecordingTask("b", started);
+        queue.submit(Priority.BACKGROUND, waiting);
+        assertFalse(waiting.canceled);
+
+        queue.cancelAll();
+
+        assertTrue(waiting.canceled);
+        assertEquals(listOf("i", "b"), started);
+        assertEquals(0, queue.getWaitingCount(Priority.BACKGROUND));
+    }
+
+    private static List<String> listOf(String... names) {
+        List<String> list = new ArrayList<>();
+        for (String name : names) list.add(name);
+        return list;
+    }
+
+    private static class RecordingTask implements PriorityCallQueue.Task {
+        final String name;
+        final List<String> started;
+        boolean canceled;
+
+        RecordingTask(String name, List<String> started) {
+            this.name = name;
+            this.started = started;
+        }
+
+        @Override
+        public void start() {
+            started.add(name);
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+        }
+    }
+}
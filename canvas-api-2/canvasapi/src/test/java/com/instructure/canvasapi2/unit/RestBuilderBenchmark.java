@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.canvasapi2.unit;
+
+import com.instructure.canvasapi2.StatusCallback;
+import com.instructure.canvasapi2.builders.RestBuilder;
+import com.instructure.canvasapi2.builders.RestParams;
+import com.instructure.canvasapi2.unit.RestBuilderTest.TestInterface;
+
+import org.junit.Test;
+
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Compares building a Retrofit and Gson per call, as RestBuilder used to, with the shared adapters.
+ * Not part of the default test run, use ./gradlew :canvasapi:testDebugUnitTest -Pbenchmark --tests '*RestBuilderBenchmark'
+ */
+public class RestBuilderBenchmark {
+
+    private static final String DOMAIN = "https://mobiledev.instructure.com";
+    private static final int ITERATIONS = 2000;
+
+    @Test
+    public void build() {
+        RestBuilder builder = new RestBuilder(new StatusCallback<Object>() {});
+        RestParams params = new RestParams.Builder().withDomain(DOMAIN).build();
+
+        // Warm up both paths
+        createUncached().getSelf();
+        builder.build(TestInterface.class, params).getSelf();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            createUncached().getSelf();
+        }
+        long uncached = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            builder.build(TestInterface.class, params).getSelf();
+        }
+        long cached = System.nanoTime() - start;
+
+        System.out.println("New Retrofit and Gson per call: " + (uncached / ITERATIONS) + "ns/call");
+        System.out.println("Shared Retrofit and Gson: " + (cached / ITERATIONS) + "ns/call");
+    }
+
+    private static TestInterface createUncached() {
+        return new Retrofit.Builder()
+                .baseUrl(DOMAIN + "/api/v1/")
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(TestInterface.class);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.canvasapi2.unit;
+
+import com.instructure.canvasapi2.StatusCallback;
+import com.instructure.canvasapi2.builders.RestBuilder;
+import com.instructure.canvasapi2.builders.RestParams;
+
+import org.junit.Test;
+
+import retrofit2.Call;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RestBuilderTest {
+
+    private static final String DOMAIN = "https://mobiledev.instructure.com";
+
+    interface TestInterface {
+        @GET("users/self")
+        Call<Object> getSelf();
+    }
+
+    @Test
+    public void buildAdapter_sameBaseUrlSharesAdapter() {
+        RestBuilder builder = new RestBuilder(new StatusCallback<Object>() {});
+        RestParams params = new RestParams.Builder().withDomain(DOMAIN).build();
+        RestParams otherParams = new RestParams.Builder().withDomain(DOMAIN).withPerPageQueryParam(true).build();
+
+        assertSame(builder.buildAdapter(params), builder.buildAdapter(otherParams));
+        assertSame(builder.buildAdapterSerializeNulls(params), builder.buildAdapterSerializeNulls(otherParams));
+        assertSame(builder.buildAdapterNoRedirects(params), builder.buildAdapterNoRedirects(otherParams));
+    }
+
+    @Test
+    public void buildAdapter_differentFlavoursDontShareAdapters() {
+        RestBuilder builder = new RestBuilder(new StatusCallback<Object>() {});
+        RestParams params = new RestParams.Builder().withDomain(DOMAIN).build();
+
+        Retrofit adapter = builder.buildAdapter(params);
+        assertNotSame(adapter, builder.buildAdapterSerializeNulls(params));
+        assertNotSame(adapter, builder.buildAdapterNoRedirects(params));
+        assertNotSame(builder.buildAdapterSerializeNulls(params), builder.buildAdapterNoRedirects(params));
+    }
+
+    @Test
+    public void buildAdapter_differentBaseUrlsDontShareAdapters() {
+        RestBuilder builder = new RestBuilder(new StatusCallback<Object>() {});
+        RestParams params = new RestParams.Builder().withDomain(DOMAIN).build();
+        RestParams otherDomain = new RestParams.Builder().withDomain("https://other.instructure.com").build();
+        RestParams otherVersion = new RestParams.Builder().withDomain(DOMAIN).withAPIVersion("/api/v2/").build();
+
+        Retrofit adapter = builder.buildAdapter(params);
+        assertNotSame(adapter, builder.buildAdapter(otherDomain));
+        assertNotSame(adapter, builder.buildAdapter(otherVersion));
+        assertEquals(DOMAIN + "/api/v2/", builder.buildAdapter(otherVersion).baseUrl().toString());
+    }
+
+    @Test
+    public void build_createsCalls() {
+        RestBuilder builder = new RestBuilder(new StatusCallback<Object>() {});
+        RestParams params = new RestParams.Builder().withDomain(DOMAIN).build();
+
+        TestInterface service = builder.build(TestInterface.class, params);
+        Call<Object> call = service.getSelf();
+        assertNotNull(call);
+        assertNotNull(call.clone());
+        assertTrue(service.equals(service));
+    }
+
+    @Test
+    public void build_serviceObjectMethods() {
+        RestBuilder builder = new RestBuilder(new StatusCallback<Object>() {});
+        RestParams params = new RestParams.Builder().withDomain(DOMAIN).build();
+
+        TestInterface service = builder.build(TestInterface.class, params);
+        TestInterface other = builder.build(TestInterface.class, params);
+        assertTrue(service.equals(service));
+        assertFalse(service.equals(other));
+        assertFalse(service.equals(null));
+        assertEquals(System.identityHashCode(service), service.hashCode());
+        assertTrue(service.toString().contains(TestInterface.class.getName()));
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.canvasapi2.unit;
+
+import com.instructure.canvasapi2.SingleFlightCallFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The delegate only records the calls that reach it, each test decides when and how they complete
+ */
+public class SingleFlightCallFactoryTest {
+
+    private static final String URL = "https://mobiledev.instructure.com/api/v1/users/self/favorites/courses";
+    private static final String BODY = "[{\"id\":1,\"name\":\"Biology 101\"}]";
+
+    private final List<TestCall> mDispatched = new ArrayList<>();
+    private final SingleFlightCallFactory mFactory = new SingleFlightCallFactory(new Call.Factory() {
+        @Override
+        public Call newCall(Request request) {
+            return new TestCall(request);
+        }
+    });
+
+    @Before
+    public void setUp() {
+        SingleFlightCallFactory.resetCounts();
+    }
+
+    @Test
+    public void concurrentGets_makeOneRequest() throws Exception {
+        int calls = 5;
+        List<Call> enqueued = new ArrayList<>();
+        List<RecordingCallback> callbacks = new ArrayList<>();
+        for (int i = 0; i < calls; i++) {
+            Call call = mFactory.newCall(get("Bearer token").tag(i).build());
+            RecordingCallback callback = new RecordingCallback();
+            call.enqueue(callback);
+            enqueued.add(call);
+            callbacks.add(callback);
+        }
+        assertEquals(1, mDispatched.size());
+
+        mDispatched.get(0).respond();
+
+        for (int i = 0; i < calls; i++) {
+            RecordingCallback callback = callbacks.get(i);
+            assertSame(enqueued.get(i), callback.mCall);
+            assertSame(enqueued.get(i).request(), callback.mResponse.request());
+            assertEquals(BODY, callback.mBody);
+        }
+        assertEquals(1, SingleFlightCallFactory.getRequestCount());
+        assertEquals(calls - 1, SingleFlightCallFactory.getMergedCount());
+    }
+
+    @Test
+    public void getAfterResponse_makesItsOwnRequest() throws Exception {
+        mFactory.newCall(get("Bearer token").build()).enqueue(new RecordingCallback());
+        mDispatched.get(0).respond();
+
+        RecordingCallback callback = new RecordingCallback();
+        mFactory.newCall(get("Bearer token").build()).enqueue(callback);
+        assertEquals(2, mDispatched.size());
+        mDispatched.get(1).respond();
+
+        assertEquals(BODY, callback.mBody);
+        assertEquals(0, SingleFlightCallFactory.getMergedCount());
+    }
+
+    @Test
+    public void differentAuth_isNotMerged() throws Exception {
+        mFactory.newCall(get("Bearer one").build()).enqueue(new RecordingCallback());
+        mFactory.newCall(get("Bearer two").build()).enqueue(new RecordingCallback());
+        assertEquals(2, mDispatched.size());
+    }
+
+    @Test
+    public void posts_areNotMerged() throws Exception {
+        Request request = new Request.Builder()
+                .url(URL)
+                .post(RequestBody.create(MediaType.parse("application/json"), "{}"))
+                .build();
+
+        mFactory.newCall(request).enqueue(new RecordingCallback());
+        mFactory.newCall(request).enqueue(new RecordingCallback());
+        assertEquals(2, mDispatched.size());
+    }
+
+    @Test
+    public void executedGets_areNotMerged() throws Exception {
+        mFactory.newCall(get("Bearer token").build()).enqueue(new RecordingCallback());
+        Response response = mFactory.newCall(get("Bearer token").build()).execute();
+
+        assertEquals(BODY, response.body().string());
+        assertEquals(2, mDispatched.size());
+    }
+
+    @Test
+    public void failedRequest_waitingCallsMakeTheirOwn() throws Exception {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        mFactory.newCall(get("Bearer token").build()).enqueue(first);
+        mFactory.newCall(get("Bearer token").build()).enqueue(second);
+        assertEquals(1, mDispatched.size());
+
+        mDispatched.get(0).fail();
+        assertTrue(first.mFailure != null);
+        assertEquals(2, mDispatched.size());
+
+        mDispatched.get(1).respond();
+        assertEquals(BODY, second.mBody);
+        assertNull(second.mFailure);
+    }
+
+    @Test
+    public void canceledWaitingCall_failsWithoutRequest() throws Exception {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        mFactory.newCall(get("Bearer token").build()).enqueue(first);
+        Call waiting = mFactory.newCall(get("Bearer token").build());
+        waiting.enqueue(second);
+
+        waiting.cancel();
+        assertEquals("Canceled", second.mFailure.getMessage());
+        assertTrue(waiting.isCanceled());
+
+        mDispatched.get(0).respond();
+        assertEquals(BODY, first.mBody);
+        assertNull(second.mBody);
+        assertEquals(1, mDispatched.size());
+        assertEquals(0, SingleFlightCallFactory.getMergedCount());
+    }
+
+    private static Request.Builder get(String authorization) {
+        return new Request.Builder().url(URL).header("Authorization", authorization);
+    }
+
+    private static Response response(Request request) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(MediaType.parse("application/json"), BODY))
+                .build();
+    }
+
+    private static class RecordingCallback implements Callback {
+        Call mCall;
+        Response mResponse;
+        String mBody;
+        IOException mFailure;
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            mCall = call;
+            mFailure = e;
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            mCall = call;
+            mResponse = response;
+            mBody = response.body().string();
+        }
+    }
+
+    private class TestCall implements Call {
+        private final Request mRequest;
+        private Callback mCallback;
+        private boolean mCanceled;
+
+        TestCall(Request request) {
+            mRequest = request;
+        }
+
+        void respond() throws IOException {
+            mCallback.onResponse(this, response(mRequest));
+        }
+
+        void fail() {
+            mCallback.onFailure(this, new IOException("Connection reset"));
+        }
+
+        @Override
+        public Request request() {
+            return mRequest;
+        }
+
+        @Override
+        public Response execute() throws IOException {
+            mDispatched.add(this);
+            return response(mRequest);
+        }
+
+        @Override
+        public void enqueue(Callback callback) {
+            mDispatched.add(this);
+            mCallback = callback;
+        }
+
+        @Override
+        public void cancel() {
+            mCanceled = true;
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return mCallback != null;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return mCanceled;
+        }
+
+        @Override
+        public Call clone() {
+            return new TestCall(mRequest);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.canvasapi2.unit;
+
+import com.instructure.canvasapi2.StaleWhileRevalidateCallback;
+import com.instructure.canvasapi2.builders.RestParams;
+
+import org.junit.Test;
+
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StaleWhileRevalidateTest {
+
+    private static final String HASH = "5d41402abc4b2a76b9719d911017c592";
+
+    @Test
+    public void builder_copiesStaleWhileRevalidate() {
+        RestParams params = new RestParams.Builder().withStaleWhileRevalidate(true).build();
+        assertTrue(params.isStaleWhileRevalidate());
+        assertTrue(new RestParams.Builder(params).withForceReadFromCache(true).build().isStaleWhileRevalidate());
+        assertFalse(new RestParams.Builder().build().isStaleWhileRevalidate());
+    }
+
+    @Test
+    public void isUnchanged_notModified() {
+        Response revalidated = response(200, HASH).newBuilder()
+                .cacheResponse(response(200, HASH))
+                .networkResponse(response(304, null))
+                .build();
+        assertTrue(StaleWhileRevalidateCallback.isUnchanged(revalidated, true, HASH));
+    }
+
+    @Test
+    public void isUnchanged_sameHash() {
+        Response revalidated = response(200, HASH).newBuilder().networkResponse(response(200, HASH)).build();
+        assertTrue(StaleWhileRevalidateCallback.isUnchanged(revalidated, true, HASH));
+    }
+
+    @Test
+    public void isUnchanged_differentHash() {
+        Response revalidated = response(200, "other").newBuilder().networkResponse(response(200, "other")).build();
+        assertFalse(StaleWhileRevalidateCallback.isUnchanged(revalidated, true, HASH));
+    }
+
+    @Test
+    public void isUnchanged_noCachedHash() {
+        Response revalidated = response(200, HASH).newBuilder().networkResponse(response(200, HASH)).build();
+        assertFalse(StaleWhileRevalidateCallback.isUnchanged(revalidated, true, null));
+    }
+
+    @Test
+    public void isUnchanged_nothingDeliveredFromCache() {
+        Response revalidated = response(200, HASH).newBuilder()
+                .cacheResponse(response(200, HASH))
+                .networkResponse(response(304, null))
+                .build();
+        assertFalse(StaleWhileRevalidateCallback.isUnchanged(revalidated, false, null));
+    }
+
+    @Test
+    public void isUnchanged_error() {
+        Response revalidated = response(401, null).newBuilder().networkResponse(response(401, null)).build();
+        assertFalse(StaleWhileRevalidateCallback.isUnchanged(revalidated, true, HASH));
+    }
+
+    private static Response response(int code, String hash) {
+        Response.Builder builder = new Response.Builder()
+                .request(new Request.Builder().url("https://mobiledev.instructure.com/api/v1/courses").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("");
+        if (hash != null) {
+            builder.header(StaleWhileRevalidateCallback.BODY_HASH_HEADER, hash);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.instructure.canvasapi2.unit;
+
+import com.instructure.canvasapi2.utils.StreamingFileBody;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import kotlin.jvm.functions.Function0;
+import okhttp3.MediaType;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Sink;
+import okio.Timeout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingFileBodyTest {
+
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    @Test
+    public void writeTo_streamsWholeFile() throws Exception {
+        File file = createFile(5 * 1024 * 1024 + 123);
+        RecordingListener listener = new RecordingListener();
+        StreamingFileBody body = StreamingFileBody.fromFile(file, OCTET_STREAM, listener);
+
+        CountingSink sink = new CountingSink();
+        writeBody(body, sink);
+
+        assertEquals(file.length(), body.contentLength());
+        assertEquals(file.length(), sink.count);
+        assertEquals(checksum(file), sink.crc.getValue());
+    }
+
+    @Test
+    public void writeTo_reportsBoundedProgress() throws Exception {
+        File file = createFile(10 * 1024 * 1024);
+        RecordingListener listener = new RecordingListener();
+        StreamingFileBody body = StreamingFileBody.fromFile(file, OCTET_STREAM, listener);
+
+        writeBody(body, new CountingSink());
+
+        assertEquals(0L, (long) listener.progress.get(0));
+        assertEquals(file.length(), (long) listener.progress.get(listener.progress.size() - 1));
+        assertTrue("Too many progress callbacks: " + listener.progress.size(), listener.progress.size() <= 102);
+        for (int i = 1; i < listener.progress.size(); i++) {
+            assertTrue(listener.progress.get(i) > listener.progress.get(i - 1));
+        }
+        for (long length : listener.lengths) {
+            assertEquals(file.length(), length);
+        }
+    }
+
+    @Test
+    public void writeTo_canBeReplayed() throws Exception {
+        File file = createFile(300 * 1024);
+        RecordingListener listener = new RecordingListener();
+        StreamingFileBody body = StreamingFileBody.fromFile(file, OCTET_STREAM, listener);
+
+        CountingSink first = new CountingSink();
+        writeBody(body, first);
+        int firstCallbacks = listener.progress.size();
+        CountingSink second = new CountingSink();
+        writeBody(body, second);
+
+        // A retried or redirected request reopens the file and starts reporting again from zero
+        assertEquals(first.crc.getValue(), second.crc.getValue());
+        assertEquals(file.length(), second.count);
+        assertEquals(0L, (long) listener.progress.get(firstCallbacks));
+    }
+
+    @Test
+    public void writeTo_unknownLength() throws Exception {
+        final File file = createFile(200 * 1024);
+        RecordingListener listener = new RecordingListener();
+        StreamingFileBody body = new StreamingFileBody(OCTET_STREAM, -1, listener, new Function0<FileChannel>() {
+            @Override
+            public FileChannel invoke() {
+                try {
+                    return new FileInputStream(file).getChannel();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+
+        CountingSink sink = new CountingSink();
+        writeBody(body, sink);
+
+        assertEquals(-1, body.contentLength());
+        assertEquals(file.length(), sink.count);
+        assertEquals(file.length(), (long) listener.progress.get(listener.progress.size() - 1));
+    }
+
+    @Test
+    public void writeTo_emptyFile() throws Exception {
+        File file = createFile(0);
+        RecordingListener listener = new RecordingListener();
+        StreamingFileBody body = StreamingFileBody.fromFile(file, OCTET_STREAM, listener);
+
+        CountingSink sink = new CountingSink();
+        writeBody(body, sink);
+
+        assertEquals(0, sink.count);
+        assertEquals(1, listener.progress.size());
+    }
+
+    private static void writeBody(StreamingFileBody body, CountingSink sink) throws IOException {
+        BufferedSink bufferedSink = Okio.buffer(sink);
+        body.writeTo(bufferedSink);
+        bufferedSink.close();
+    }
+
+    private static File createFile(int size) throws IOException {
+        File file = File.createTempFile("upload", ".bin");
+        file.deleteOnExit();
+        Random random = new Random(size);
+        byte[] chunk = new byte[8192];
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            int remaining = size;
+            while (remaining > 0) {
+                random.nextBytes(chunk);
+                int count = Math.min(chunk.length, remaining);
+                output.write(chunk, 0, count);
+                remaining -= count;
+            }
+        } finally {
+            output.close();
+        }
+        return file;
+    }
+
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[8192];
+        FileInputStream input = new FileInputStream(file);
+        try {
+            int read;
+            while ((read = input.read(chunk)) != -1) crc.update(chunk, 0, read);
+        } finally {
+            input.close();
+        }
+        return crc.getValue();
+    }
+
+    private static class RecordingListener implements StreamingFileBody.ProgressListener {
+        final List<Long> progress = new ArrayList<>();
+        final List<Long> lengths = new ArrayList<>();
+
+        @Override
+        public void onProgress(long bytesWritten, long contentLength) {
+            progress.add(bytesWritten);
+            lengths.add(contentLength);
+        }
+    }
+
+    /** Checksums and discards everything written to it, like a socket would */
+    private static class CountingSink implements Sink {
+        final CRC32 crc = new CRC32();
+        final byte[] chunk = new byte[8192];
+        long count;
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            while (byteCount > 0) {
+                int read = source.read(chunk, 0, (int) Math.min(chunk.length, byteCount));
+                crc.update(chunk, 0, read);
+                count += read;
+                byteCount -= read;
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.instructure.canvasapi2.unit
+
+import com.google.gson.Gson
+import com.instructure.canvasapi2.StatusCallback
+import com.instructure.canvasapi2.models.AccountDomain
+import com.instructure.canvasapi2.utils.StreamingListCallback
+import junit.framework.Assert
+import org.intellij.lang.annotations.Language
+import org.junit.Test
+import java.io.StringReader
+
+class StreamingListCallbackUnitTest : Assert() {
+
+    @Test
+    fun testReadChunks() {
+        val chunks = readChunks(accountDomainsJSON, 2)
+        Assert.assertEquals(listOf(2, 2, 1), chunks.map { it.size })
+        Assert.assertEquals("npe.instructure.com", chunks[0][0].domain)
+        Assert.assertEquals("Eastern Panda College", chunks[2][0].name)
+    }
+
+    @Test
+    fun testReadChunks_exactMultiple() {
+        val chunks = readChunks(accountDomainsJSON, 5)
+        Assert.assertEquals(listOf(5), chunks.map { it.size })
+    }
+
+    @Test
+    fun testReadChunks_emptyArray() {
+        val chunks = readChunks("[]", 5)
+        Assert.assertEquals(1, chunks.size)
+        Assert.assertTrue(chunks[0].isEmpty())
+    }
+
+    private fun readChunks(json: String, chunkSize: Int): List<List<AccountDomain>> {
+        val chunks = ArrayList<List<AccountDomain>>()
+        val callback = StreamingListCallback(object : StatusCallback<List<AccountDomain>>() {}, AccountDomain::class.java, chunkSize, Gson())
+        callback.readChunks(StringReader(json)) { chunks.add(it) }
+        return chunks
+    }
+
+    @Language("JSON")
+    private val accountDomainsJSON = """
+      [
+        {
+          "name": "Northeastern Panda Educational",
+          "domain": "npe.instructure.com"
+        },
+        {
+          "name": "Southern Panda University",
+          "domain": "spu.instructure.com"
+        },
+        {
+          "name": "Western Panda Institute",
+          "domain": "wpi.instructure.com"
+        },
+        {
+          "name": "Northern Panda Academy",
+          "domain": "npa.instructure.com"
+        },
+        {
+          "name": "Eastern Panda College",
+          "domain": "epc.instructure.com"
+        }
+      ]"""
+}
@@ -3,7 +3,6 @@ package com.instructure.interactions.router
 import android.support.v4.app.Fragment
 import com.instructure.canvasapi2.models.CanvasContext
 import java.util.ArrayList
-import java.util.HashMap
 
 open class BaseRouteMatcher {
 
@@ -15,6 +14,18 @@ open class BaseRouteMatcher {
     protected val fullscreenFragments = ArrayList<Class<out Fragment>>()
     protected val bottomSheetFragments = ArrayList<Class<out Fragment>>()
 
+    /* Compiled from routes the first time a url is matched, and again if routes are added after that */
+    @Volatile
+    private var routeTrie: RouteTrie? = null
+
+    private val courseIdTrie by lazy { RouteTrie(listOf(Route(courseOrGroup("/:course_id/(.*)")))) }
+
+    private fun getRouteTrie(): RouteTrie {
+        val trie = routeTrie
+        if (trie != null && trie.size == routes.size) return trie
+        return RouteTrie(routes).also { routeTrie = it }
+    }
+
     protected fun isFullScreenClass(clazz: Class<out Fragment>): Boolean {
         return fullscreenFragments.contains(clazz)
     }
@@ -35,9 +46,9 @@ open class BaseRouteMatcher {
             return null
         }
 
-        return routes.find { it.apply(url) }?.takeUnless {
-            RouteContext.INTERNAL === it.routeContext || RouteContext.DO_NOT_ROUTE === it.routeContext
-        }
+        return getRouteTrie().match(url)?.takeUnless {
+            RouteContext.INTERNAL === it.route.routeContext || RouteContext.DO_NOT_ROUTE === it.route.routeContext
+        }?.toRoute()
     }
 
     fun getInternalRoute(primaryClass: Class<out Fragment>, secondaryClass: Class<out Fragment>): Route? {
@@ -55,20 +66,11 @@ open class BaseRouteMatcher {
         }
 
         try {
-            var params = HashMap<String, String>()
-            var route: Route? = null
-
-            for (r in routes) {
-                if (r.apply(url)) {
-                    route = r
-                    params = r.paramsHash
-                    break
-                }
-            }
+            val match = (if (routes === this.routes) getRouteTrie() else RouteTrie(routes)).match(url)
 
             return when {
-                route == null -> ""
-                params.containsKey(RouterParams.COURSE_ID) -> return CanvasContext.makeContextId(route.getContextType(), params[RouterParams.COURSE_ID]!!.toLong())
+                match == null -> ""
+                match.params.containsKey(RouterParams.COURSE_ID) -> return CanvasContext.makeContextId(match.toRoute().getContextType(), match.params[RouterParams.COURSE_ID]!!.toLong())
                 else -> return ""
             }
 
@@ -83,14 +85,7 @@ open class BaseRouteMatcher {
         }
 
         return try {
-            var params = HashMap<String, String>()
-            val route = Route(courseOrGroup("/:course_id/(.*)"))
-
-            if (route.apply(url)) {
-                params = route.paramsHash
-            }
-
-            params[RouterParams.COURSE_ID] ?: ""
+            courseIdTrie.match(url)?.params?.get(RouterParams.COURSE_ID) ?: ""
         } catch (e: Throwable) {
             ""
         }
@@ -56,8 +56,13 @@ data class Route private constructor(
         var routeType: RouteType = RouteType.FULLSCREEN
 ) : Parcelable {
 
+    /* The route as it was written, ex: /courses/:course_id. Used to compile the route into a RouteTrie */
+    var template: String? = null
+        private set
+
     constructor(route: String?) : this() {
         if (route == null) return
+        template = route
 
         /* match anything but a slash after a colon and create a group for the name of the param */
         val matcher = Pattern.compile("/:([^/]*)").matcher(route)
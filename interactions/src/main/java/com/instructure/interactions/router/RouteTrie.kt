@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.instructure.interactions.router
+
+import android.net.Uri
+import android.os.Bundle
+import java.util.HashMap
+
+/**
+ * The result of matching a url against a [RouteTrie]. Holds the values that [Route.apply] used to write into the
+ * shared route, so matching never mutates the routes a matcher was built from.
+ */
+class RouteMatch internal constructor(
+        /* The route that matched, as it was registered */
+        val route: Route,
+        val url: String,
+        val uri: Uri,
+        val params: Map<String, String>,
+        val queryParams: Map<String, String>
+) {
+
+    /**
+     * @return A copy of the matched route with the url, uri, params and query params filled in
+     */
+    fun toRoute(): Route = route.copy(
+            arguments = Bundle(route.arguments),
+            url = url,
+            uri = uri,
+            paramsHash = HashMap(params),
+            queryParamsHash = HashMap(queryParams))
+}
+
+/**
+ * Matches urls against a list of routes by walking the path one segment at a time instead of running every route's
+ * regex in turn. Routes keep their list precedence: when several routes match, the one added first wins.
+ *
+ * Route templates are compiled segment by segment. Literal segments, `:params`, `(?:a|b)` alternations and a trailing
+ * `.*` (optionally after a literal prefix, ex: `/login.*`) go into the trie. Anything else falls back to the route's
+ * regex, checked in list order alongside the trie results.
+ *
+ * A RouteTrie is immutable once built and safe to share between threads.
+ */
+class RouteTrie(routes: List<Route>) {
+
+    private class Node {
+        val children = HashMap<String, Node>()
+        var param: Node? = null
+        /* Indices of the routes that end at this node */
+        val terminals = ArrayList<Int>()
+        /* Routes that end in a wildcard at this depth: the literal prefix of the segment and the route index */
+        val wildcards = ArrayList<Pair<String, Int>>()
+    }
+
+    private sealed class Segment {
+        class Literal(val values: List<String>) : Segment()
+        class Param(val name: String) : Segment()
+        class Wildcard(val prefix: String) : Segment()
+    }
+
+    private val routes: List<Route> = ArrayList(routes)
+    private val root = Node()
+    private val compiled = arrayOfNulls<List<Segment>>(routes.size)
+    /* Indices of routes whose template could not be compiled, in list order */
+    private val fallbacks = ArrayList<Int>()
+
+    val size: Int get() = routes.size
+
+    init {
+        this.routes.forEachIndexed { index, route ->
+            val segments = route.template?.let { compile(it) }
+            if (segments == null) {
+                if (route.routePattern != null) fallbacks.add(index)
+            } else {
+                compiled[index] = segments
+                insert(root, segments, 0, index)
+            }
+        }
+    }
+
+    /**
+     * Finds the first route that matches the url, following the same rules as calling [Route.apply] on each route in
+     * order: external routes match on the path alone, and routes with query param names need one of them present.
+     *
+     * @param url A Url string to be checked against routes
+     * @return The match, or null if no route matches
+     */
+    fun match(url: String?): RouteMatch? {
+        if (url == null) return null
+        val uri = Uri.parse(url)
+        val path = uri.path ?: return null
+
+        // The regex makes a leading /api/v1 optional, trying the form without it first
+        val fullSegments = splitPath(path)
+        val apiSegments = if (fullSegments != null && fullSegments.size >= 2 && fullSegments[0] == "api" && fullSegments[1] == "v1") {
+            fullSegments.subList(2, fullSegments.size)
+        } else null
+
+        val candidates = sortedMapOf<Int, List<String>>()
+        if (apiSegments != null) collect(root, apiSegments, 0, apiSegments, candidates)
+        if (fullSegments != null) collect(root, fullSegments, 0, fullSegments, candidates)
+
+        var queryParams: Map<String, String>? = null
+        val fallbackIterator = fallbacks.iterator()
+        var nextFallback = if (fallbackIterator.hasNext()) fallbackIterator.next() else Int.MAX_VALUE
+        val candidateIterator = candidates.entries.iterator()
+        var nextCandidate = if (candidateIterator.hasNext()) candidateIterator.next() else null
+
+        while (nextCandidate != null || nextFallback != Int.MAX_VALUE) {
+            val index: Int
+            val params: Map<String, String>
+            if (nextCandidate != null && nextCandidate.key < nextFallback) {
+                index = nextCandidate.key
+                params = extractParams(compiled[index]!!, nextCandidate.value)
+                nextCandidate = if (candidateIterator.hasNext()) candidateIterator.next() else null
+            } else {
+                index = nextFallback
+                nextFallback = if (fallbackIterator.hasNext()) fallbackIterator.next() else Int.MAX_VALUE
+                params = matchFallback(routes[index], path) ?: continue
+            }
+
+            val route = routes[index]
+            if (RouteContext.EXTERNAL != route.routeContext && !route.queryParamNames.isEmpty()) {
+                val query = queryParams ?: createQueryParams(uri).also { queryParams = it }
+                if (route.queryParamNames.none { query.containsKey(it) }) continue
+            }
+            return RouteMatch(route, url, uri, params, queryParams ?: createQueryParams(uri))
+        }
+        return null
+    }
+
+    private fun collect(node: Node, segments: List<String>, depth: Int, variant: List<String>, out: MutableMap<Int, List<String>>) {
+        val size = segments.size
+        // An optional slash is allowed at the end, which shows up as one empty trailing segment
+        if (depth == size || (depth == size - 1 && segments[depth].isEmpty())) {
+            node.terminals.forEach { if (!out.containsKey(it)) out[it] = variant }
+        }
+        if (depth >= size) return
+
+        val segment = segments[depth]
+        node.wildcards.forEach { (prefix, index) ->
+            if (segment.startsWith(prefix) && !out.containsKey(index)) out[index] = variant
+        }
+        node.children[segment]?.let { collect(it, segments, depth + 1, variant, out) }
+        node.param?.let { collect(it, segments, depth + 1, variant, out) }
+    }
+
+    private fun insert(node: Node, segments: List<Segment>, depth: Int, index: Int) {
+        if (depth == segments.size) {
+            node.terminals.add(index)
+            return
+        }
+        val segment = segments[depth]
+        when (segment) {
+            is Segment.Literal -> segment.values.forEach {
+                insert(node.children.getOrPut(it) { Node() }, segments, depth + 1, index)
+            }
+            is Segment.Param -> insert(node.param ?: Node().also { node.param = it }, segments, depth + 1, index)
+            is Segment.Wildcard -> node.wildcards.add(segment.prefix to index)
+        }
+    }
+
+    private fun extractParams(template: List<Segment>, segments: List<String>): Map<String, String> {
+        val params = HashMap<String, String>()
+        template.forEachIndexed { position, segment ->
+            if (segment is Segment.Param) params[segment.name] = segments[position]
+        }
+        return params
+    }
+
+    private fun matchFallback(route: Route, path: String): Map<String, String>? {
+        val matcher = route.routePattern!!.matcher(path)
+        if (!matcher.find()) return null
+        val params = HashMap<String, String>()
+        route.paramNames.forEachIndexed { i, name ->
+            if (i < matcher.groupCount()) matcher.group(i + 1)?.let { params[name] = it }
+        }
+        return params
+    }
+
+    private fun createQueryParams(uri: Uri): Map<String, String> {
+        val queryParams = HashMap<String, String>()
+        for (param in uri.queryParameterNames) {
+            queryParams[param] = uri.getQueryParameter(param)
+        }
+        return queryParams
+    }
+
+    companion object {
+        private val ALTERNATION = Regex("\\(\\?:([^()]*)\\)")
+        private const val REGEX_CHARS = "\\^$.|?*+()[]{}"
+
+        private fun isLiteral(value: String) = value.none { REGEX_CHARS.indexOf(it) >= 0 }
+
+        /**
+         * Splits a path into its segments, keeping empty ones so a trailing slash can be told apart.
+         * ex: "" -> [], "/" -> [""], "/courses/1/" -> ["courses", "1", ""]
+         */
+        private fun splitPath(path: String): List<String>? {
+            if (path.isEmpty()) return emptyList()
+            if (!path.startsWith("/")) return null
+            return path.substring(1).split('/')
+        }
+
+        /**
+         * @return The segments of a route template, or null if the template uses regex the trie can't represent
+         */
+        private fun compile(template: String): List<Segment>? {
+            if (!template.startsWith("/")) return null
+            // A trailing slash is optional either way, so "/pages/" and "/pages" match the same paths
+            val body = template.substring(1).removeSuffix("/")
+            if (body.isEmpty()) return emptyList()
+
+            val tokens = body.split('/')
+            val segments = ArrayList<Segment>(tokens.size)
+            tokens.forEachIndexed { i, token ->
+                val isLast = i == tokens.size - 1
+                segments.add(when {
+                    token.startsWith(":") && isLiteral(token.substring(1)) -> Segment.Param(token.substring(1))
+                    isLast && token == "(.*)" -> Segment.Wildcard("")
+                    isLast && token.endsWith(".*") && isLiteral(token.removeSuffix(".*")) -> Segment.Wildcard(token.removeSuffix(".*"))
+                    isLiteral(token) && token.isNotEmpty() -> Segment.Literal(listOf(token))
+                    else -> {
+                        val alternatives = ALTERNATION.matchEntire(token)?.groupValues?.get(1)?.split('|')
+                        if (alternatives == null || alternatives.any { it.isEmpty() || !isLiteral(it) }) return null
+                        Segment.Literal(alternatives)
+                    }
+                })
+            }
+            return segments
+        }
+    }
+}
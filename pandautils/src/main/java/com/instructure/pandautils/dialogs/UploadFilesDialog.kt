@@ -404,7 +404,7 @@ class UploadFilesDialog : AppCompatDialogFragment() {
                 //make sure that what we've uploaded can still be uploaded (allowed extensions)
                 run {
                     fileList.forEach {
-                        if (!isExtensionAllowed(it.fullPath)) {
+                        if (!isExtensionAllowed(it.name)) {
                             //didn't match any of the extensions, don't upload
                             Toast.makeText(activity, R.string.oneOrMoreExtensionNotAllowed, Toast.LENGTH_SHORT).show()
                             uploadNotSupported = true
@@ -459,6 +459,7 @@ class UploadFilesDialog : AppCompatDialogFragment() {
                 dialogCallback?.invoke(EVENT_ON_UPLOAD_BEGIN)
                 dialogAttachmentCallback?.invoke(EVENT_ON_UPLOAD_BEGIN, null)
                 intent.putExtras(bundle)
+                FileUploadService.grantContentUris(intent, fileList)
                 activity.startService(intent)
                 dismiss()
             }
@@ -482,7 +483,13 @@ class UploadFilesDialog : AppCompatDialogFragment() {
                 val cr = activity.contentResolver
                 val mimeType = FileUploadUtils.getFileMimeType(cr, fileUri)
                 val fileName = FileUploadUtils.getFileNameWithDefault(cr, fileUri, mimeType)
-                FileUploadUtils.getFileSubmitObjectFromInputStream(activity, fileUri, fileName, mimeType)
+                if (uploadType == FileUploadType.DISCUSSION) {
+                    // Discussion attachments are posted as multipart by the caller, which needs a file on disk
+                    FileUploadUtils.getFileSubmitObjectFromInputStream(activity, fileUri, fileName, mimeType)
+                } else {
+                    // Everything else goes through FileUploadService, which can stream from the Uri directly
+                    FileUploadUtils.getStreamableFileSubmitObject(activity, fileUri, fileName, mimeType)
+                }
             }
 
             submitObject?.let {
@@ -507,9 +514,9 @@ class UploadFilesDialog : AppCompatDialogFragment() {
         }
 
         //get the extension and compare it to the list of allowed extensions
-        val index = fileSubmitObject.fullPath.lastIndexOf(".")
+        val index = fileSubmitObject.name.lastIndexOf(".")
         if (assignment != null && index != -1) {
-            val ext = fileSubmitObject.fullPath.substring(index + 1)
+            val ext = fileSubmitObject.name.substring(index + 1)
             for (i in 0 until (assignment?.allowedExtensions?.size ?: 0)) {
                 if (assignment!!.allowedExtensions!![i].trim { it <= ' ' }.equals(ext, ignoreCase = true)) {
                     addToFileSubmitObjects(fileSubmitObject)
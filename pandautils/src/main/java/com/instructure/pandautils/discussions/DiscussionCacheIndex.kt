@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.instructure.pandautils.discussions
+
+import com.instructure.canvasapi2.models.DiscussionEntry
+import java.util.ArrayDeque
+
+/**
+ * The cached replies of a discussion, indexed by entry id and parent id so they can be matched against the server tree
+ * without going back to disk.
+ */
+class DiscussionCacheIndex(entries: List<DiscussionEntry>) {
+
+    private val entriesById = LinkedHashMap<Long, DiscussionEntry>(entries.size * 2)
+
+    init {
+        entries.forEach { entriesById[it.id] = it }
+    }
+
+    val size: Int get() = entriesById.size
+
+    fun isEmpty(): Boolean = entriesById.isEmpty()
+
+    operator fun get(entryId: Long): DiscussionEntry? = entriesById[entryId]
+
+    /**
+     * Removes the cached entries that are already part of the server tree
+     * @return The ids of the removed entries, so they can be deleted from the cache in one go
+     */
+    fun removeServerEntries(discussionEntries: List<DiscussionEntry>): List<Long> {
+        val removedIds = ArrayList<Long>()
+        if (entriesById.isEmpty()) return removedIds
+        forEachEntry(discussionEntries) { entry ->
+            if (entriesById.remove(entry.id) != null) removedIds.add(entry.id)
+        }
+        return removedIds
+    }
+
+    /**
+     * Adds the cached entries to the server tree, under their parents. Cached entries without a parent are added to
+     * the top level. Entries that get cached children are sorted by creation date again.
+     */
+    fun unify(discussionEntries: MutableList<DiscussionEntry>): MutableList<DiscussionEntry> {
+        if (entriesById.isEmpty()) return discussionEntries // Nothing in the cache
+
+        // Each group is removed once it has been added, so a bad parent id can't add entries under themselves forever
+        val entriesByParentId = HashMap(entriesById.values.groupBy { it.parentId })
+
+        // Situation where the first set of replies is cached. We setup the parent ID as -1
+        entriesByParentId.remove(-1L)?.let { discussionEntries.addAll(it) }
+        discussionEntries.sortBy { it.createdAt }
+
+        forEachEntry(discussionEntries) { parentEntry ->
+            entriesByParentId.remove(parentEntry.id)?.let { cachedReplies ->
+                val replies = parentEntry.replies ?: ArrayList<DiscussionEntry>().apply { parentEntry.replies = this }
+                replies.addAll(cachedReplies)
+                parentEntry.totalChildren += cachedReplies.size
+                replies.sortBy { it.createdAt }
+            }
+        }
+
+        return discussionEntries
+    }
+
+    /**
+     * Visits every entry of the tree, parents before their replies. Iterative, as reply trees can be deep.
+     */
+    private inline fun forEachEntry(discussionEntries: List<DiscussionEntry>, action: (DiscussionEntry) -> Unit) {
+        val stack = ArrayDeque<DiscussionEntry>()
+        discussionEntries.asReversed().forEach { stack.push(it) }
+        while (stack.isNotEmpty()) {
+            val entry = stack.pop()
+            action(entry)
+            entry.replies?.asReversed()?.forEach { stack.push(it) }
+        }
+    }
+}
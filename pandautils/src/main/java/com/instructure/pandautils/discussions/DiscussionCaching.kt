@@ -34,6 +34,13 @@ class DiscussionCaching(discussionTopicHeaderId: Long) {
         return entries.toMutableList()
     }
 
+    /**
+     * Reads the whole cache once, to match it against a discussion without going back to disk for every entry
+     */
+    fun loadIndex(): DiscussionCacheIndex {
+        return DiscussionCacheIndex(loadEntries())
+    }
+
     fun removeEntry(entry: DiscussionEntry?) {
         if(entry == null) return
         removeEntry(entry.id)
@@ -43,6 +50,10 @@ class DiscussionCaching(discussionTopicHeaderId: Long) {
         book.delete(entryId.toString())
     }
 
+    fun removeEntries(entryIds: Collection<Long>) {
+        entryIds.forEach { book.delete(it.toString()) }
+    }
+
     fun exists(entry: DiscussionEntry): Boolean {
         return book.contains(entry.id.toString())
     }
@@ -21,6 +21,8 @@ import com.instructure.canvasapi2.models.DiscussionEntry
 import com.instructure.canvasapi2.utils.DateHelper
 import com.instructure.pandautils.BuildConfig
 import com.instructure.pandautils.R
+import com.instructure.pandautils.utils.AssetTemplates
+import com.instructure.pandautils.utils.HtmlTemplate
 
 /**
  * Used to convert DiscussionEntries into HTML. Typically this class only takes data and does little calculation.
@@ -28,13 +30,29 @@ import com.instructure.pandautils.R
  */
 class DiscussionEntryHtmlConverter {
 
+    companion object {
+        private val ENTRY_KEYS = EntryPlaceholder.values().map { it.key }
+
+        /**
+         * @return discussion_html_template_item.html compiled for [buildHtml], it is only compiled once per process
+         */
+        @JvmStatic
+        fun getTemplate(context: Context): HtmlTemplate {
+            return AssetTemplates.getTemplate(context, "discussion_html_template_item.html", ENTRY_KEYS)
+        }
+    }
+
+    /**
+     * Appends the HTML of the entry to the builder
+     */
     fun buildHtml(
+            builder: StringBuilder,
             context: Context,
             isTablet: Boolean,
             brandColor: Int,
             likeColor: Int,
             discussionEntry: DiscussionEntry,
-            template: String,
+            template: HtmlTemplate,
             avatarImage: String,
             canReply: Boolean,
             canEdit: Boolean,
@@ -44,7 +62,7 @@ class DiscussionEntryHtmlConverter {
             indent: Int,
             likeImage: String,
             replyButtonWidth: String,
-            deletedText: String): String {
+            deletedText: String) {
 
         val repliesButtonText = context.resources.getQuantityString(R.plurals.utils_discussionsReplies, discussionEntry.totalChildren, discussionEntry.totalChildren)
 
@@ -163,50 +181,47 @@ class DiscussionEntryHtmlConverter {
             date = DateHelper.getDateTimeString(context, discussionEntry.updatedAt)
         }
 
-        return template
-                .replace("__GROUP__", "display: block;")
-                .replace("__LIKE_ICON__", likingIcon)
-                .replace("__LIKE_COUNT__", likingSum)
-                .replace("__LIKE_ALLOWED__", liking)
-                .replace("__LIKE_COLOR__", colorToHex(likingColor))
-                .replace("__BRAND_COLOR__", colorToHex(brandColor))
-                .replace("__ATTACHMENTS_WRAPPER__", attachments)
-                .replace("__INDENT_DISPLAY_1__", indentDisplay1)
-                .replace("__INDENT_DISPLAY_2__", indentDisplay2)
-                .replace("__INDENT_DISPLAY_3__", indentDisplay3)
-                .replace("__INDENT_DISPLAY_4__", indentDisplay4)
-                .replace("__INDENT_DISPLAY_5__", indentDisplay5)
-                .replace("__REPLY_BUTTON_TEXT__", repliesButtonText)
-                .replace("__REPLY_BUTTON_WIDTH__", replyButtonWidth)
-
-                .replace("__HTML_LISTENER__", htmlListener)
-                .replace("__AVATAR_LISTENER__", avatarListener)
-                .replace("__ATTACHMENT_LISTENER__", attachmentListener)
-                .replace("__REPLY_LISTENER__", replyListener)
-                .replace("__EDIT_LISTENER__", editListener)
-                .replace("__LIKE_LISTENER__", likeListener)
-                .replace("__DELETE_LISTENER__", deleteListener)
-                .replace("__MORE_REPLIES_LISTENER__", moreRepliesListener)
-
-                .replace("", "")
-                .replace("__LTI_BUTTON_WIDTH__", ltiButtonWidth)
-                .replace("__LTI_BUTTON_MARGIN__", ltiButtonMargin)
-
-                .replace("__AVATAR_URL__", avatarImage)
-                .replace("__TITLE__", authorName)
-                .replace("__DATE__", date)
-                .replace("__CONTENT_HTML__", content)
-                .replace("__HEADER_ID__", discussionEntry.id.toString())
-                .replace("__ENTRY_ID__", discussionEntry.id.toString())
-                .replace("__USER_ID__", userId)
-                .replace("__REPLY_TEXT__", reply)
-                .replace("__EDIT_TEXT__", edit)
-                .replace("__DELETE_TEXT__", delete)
-                .replace("__EDIT_DIVIDER__", editDivider)
-                .replace("__DELETE_DIVIDER__", deleteDivider)
-                .replace("__DETAILS_WRAPPER__", detailsWrapperStyle)
-                .replace("__REPLY_BUTTON_WRAPPER__", replyButtonWrapperStyle)
-                .replace("__READ_STATE__", getReadState(discussionEntry))
+        val values = Array<String>(EntryPlaceholder.values().size) { "" }
+        values[EntryPlaceholder.GROUP] = "display: block;"
+        values[EntryPlaceholder.LIKE_ICON] = likingIcon
+        values[EntryPlaceholder.LIKE_COUNT] = likingSum
+        values[EntryPlaceholder.LIKE_ALLOWED] = liking
+        values[EntryPlaceholder.LIKE_COLOR] = colorToHex(likingColor)
+        values[EntryPlaceholder.BRAND_COLOR] = colorToHex(brandColor)
+        values[EntryPlaceholder.ATTACHMENTS_WRAPPER] = attachments
+        values[EntryPlaceholder.INDENT_DISPLAY_1] = indentDisplay1
+        values[EntryPlaceholder.INDENT_DISPLAY_2] = indentDisplay2
+        values[EntryPlaceholder.INDENT_DISPLAY_3] = indentDisplay3
+        values[EntryPlaceholder.INDENT_DISPLAY_4] = indentDisplay4
+        values[EntryPlaceholder.INDENT_DISPLAY_5] = indentDisplay5
+        values[EntryPlaceholder.REPLY_BUTTON_TEXT] = repliesButtonText
+        values[EntryPlaceholder.REPLY_BUTTON_WIDTH] = replyButtonWidth
+        values[EntryPlaceholder.HTML_LISTENER] = htmlListener
+        values[EntryPlaceholder.AVATAR_LISTENER] = avatarListener
+        values[EntryPlaceholder.ATTACHMENT_LISTENER] = attachmentListener
+        values[EntryPlaceholder.REPLY_LISTENER] = replyListener
+        values[EntryPlaceholder.EDIT_LISTENER] = editListener
+        values[EntryPlaceholder.LIKE_LISTENER] = likeListener
+        values[EntryPlaceholder.DELETE_LISTENER] = deleteListener
+        values[EntryPlaceholder.MORE_REPLIES_LISTENER] = moreRepliesListener
+        values[EntryPlaceholder.LTI_BUTTON_WIDTH] = ltiButtonWidth
+        values[EntryPlaceholder.LTI_BUTTON_MARGIN] = ltiButtonMargin
+        values[EntryPlaceholder.AVATAR_URL] = avatarImage
+        values[EntryPlaceholder.TITLE] = authorName
+        values[EntryPlaceholder.DATE] = date
+        values[EntryPlaceholder.CONTENT_HTML] = content
+        values[EntryPlaceholder.HEADER_ID] = discussionEntry.id.toString()
+        values[EntryPlaceholder.ENTRY_ID] = discussionEntry.id.toString()
+        values[EntryPlaceholder.USER_ID] = userId
+        values[EntryPlaceholder.REPLY_TEXT] = reply
+        values[EntryPlaceholder.EDIT_TEXT] = edit
+        values[EntryPlaceholder.DELETE_TEXT] = delete
+        values[EntryPlaceholder.EDIT_DIVIDER] = editDivider
+        values[EntryPlaceholder.DELETE_DIVIDER] = deleteDivider
+        values[EntryPlaceholder.DETAILS_WRAPPER] = detailsWrapperStyle
+        values[EntryPlaceholder.REPLY_BUTTON_WRAPPER] = replyButtonWrapperStyle
+        values[EntryPlaceholder.READ_STATE] = getReadState(discussionEntry)
+        template.fill(builder, values)
     }
 
     private fun getContentHTML(message: String?): String {
@@ -300,3 +315,54 @@ class DiscussionEntryHtmlConverter {
         return ""
     }
 }
+
+/**
+ * The placeholders of discussion_html_template_item.html
+ */
+enum class EntryPlaceholder {
+    GROUP,
+    LIKE_ICON,
+    LIKE_COUNT,
+    LIKE_ALLOWED,
+    LIKE_COLOR,
+    BRAND_COLOR,
+    ATTACHMENTS_WRAPPER,
+    INDENT_DISPLAY_1,
+    INDENT_DISPLAY_2,
+    INDENT_DISPLAY_3,
+    INDENT_DISPLAY_4,
+    INDENT_DISPLAY_5,
+    REPLY_BUTTON_TEXT,
+    REPLY_BUTTON_WIDTH,
+    HTML_LISTENER,
+    AVATAR_LISTENER,
+    ATTACHMENT_LISTENER,
+    REPLY_LISTENER,
+    EDIT_LISTENER,
+    LIKE_LISTENER,
+    DELETE_LISTENER,
+    MORE_REPLIES_LISTENER,
+    LTI_BUTTON_WIDTH,
+    LTI_BUTTON_MARGIN,
+    AVATAR_URL,
+    TITLE,
+    DATE,
+    CONTENT_HTML,
+    HEADER_ID,
+    ENTRY_ID,
+    USER_ID,
+    REPLY_TEXT,
+    EDIT_TEXT,
+    DELETE_TEXT,
+    EDIT_DIVIDER,
+    DELETE_DIVIDER,
+    DETAILS_WRAPPER,
+    REPLY_BUTTON_WRAPPER,
+    READ_STATE;
+
+    val key = "__" + name + "__"
+}
+
+private operator fun Array<String>.set(placeholder: EntryPlaceholder, value: String) {
+    this[placeholder.ordinal] = value
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.instructure.pandautils.discussions
+
+import com.instructure.canvasapi2.models.DiscussionEntry
+import com.instructure.pandautils.views.CanvasWebView
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * A reply of the discussion as it is shown, the replies are shown as a flat list of indented entries
+ */
+class DiscussionHtmlRow(val entry: DiscussionEntry, val indent: Int, val reachedViewableEnd: Boolean)
+
+/**
+ * Renders the replies of a discussion a page at a time. The WebView is loaded with [firstPage], which only has the
+ * first screenful of replies, and the rest are added with [nextPage] and [appendScript] as the user scrolls down.
+ * Rows are only converted to HTML when their page is rendered.
+ */
+class DiscussionHtmlPager(
+        private val header: String,
+        private val footer: String,
+        private val rows: List<DiscussionHtmlRow>,
+        private val renderRow: (DiscussionHtmlRow, StringBuilder) -> Unit) {
+
+    // Marks the WebView content this pager rendered, so pages are never added to an older or unloaded one
+    private val pageMarker = "discussion_page_" + nextPagerId.incrementAndGet()
+
+    private var nextRow = 0
+
+    // A page from nextPage() that hasn't been added to the WebView yet
+    private var pendingPage: String? = null
+
+    val hasMore: Boolean
+        @Synchronized get() = pendingPage != null || nextRow < rows.size
+
+    val rowCount: Int get() = rows.size
+
+    /**
+     * @return The page to load the WebView with: the header, the first screenful of replies and the footer
+     */
+    @Synchronized
+    fun firstPage(): String = fullPage(FIRST_PAGE_SIZE)
+
+    /**
+     * @return The page to load the WebView with, with all of the replies
+     */
+    @Synchronized
+    fun renderAll(): String = fullPage(rows.size)
+
+    /**
+     * Should be called from a background thread. Returns the same page until [onPageAppended] is called.
+     * @return The HTML of the next replies, or null if all of them were added
+     */
+    @Synchronized
+    fun nextPage(): String? {
+        pendingPage?.let { return it }
+        if (nextRow >= rows.size) return null
+        val builder = StringBuilder()
+        appendRows(builder, PAGE_SIZE)
+        return CanvasWebView.applyWorkAroundForDoubleSlashesAsUrlSource(builder.toString()).also { pendingPage = it }
+    }
+
+    /**
+     * To be called when [appendScript] evaluated to true, the page from [nextPage] is part of the WebView now
+     */
+    @Synchronized
+    fun onPageAppended() {
+        pendingPage = null
+    }
+
+    /**
+     * @return The JavaScript that adds a page from [nextPage] to the end of the replies, for WebView.evaluateJavascript().
+     * Evaluates to true if it was added, false if the WebView doesn't have the first page of this pager (yet).
+     */
+    fun appendScript(html: String): String {
+        return "(document.getElementById(\"$pageMarker\") ? (appendEntries(" + toJsString(html) + "), true) : false)"
+    }
+
+    private fun fullPage(rowCount: Int): String {
+        nextRow = 0
+        pendingPage = null
+        val builder = StringBuilder(header)
+        builder.append("<div id=\"").append(pageMarker).append("\" style=\"display: none;\"></div>")
+        appendRows(builder, rowCount)
+        //Append Footer - Don't do this in the loop to avoid String.replace() more than necessary
+        builder.append(footer)
+        return CanvasWebView.applyWorkAroundForDoubleSlashesAsUrlSource(builder.toString())
+    }
+
+    private fun appendRows(builder: StringBuilder, count: Int) {
+        val end = Math.min(rows.size, nextRow + count)
+        while (nextRow < end) {
+            renderRow(rows[nextRow++], builder)
+        }
+    }
+
+    companion object {
+        // Enough replies to fill the screen of a tablet
+        const val FIRST_PAGE_SIZE = 10
+        const val PAGE_SIZE = 20
+
+        private val nextPagerId = AtomicInteger()
+
+        @JvmStatic
+        fun toJsString(value: String): String {
+            val builder = StringBuilder(value.length + 16)
+            builder.append('"')
+            for (c in value) {
+                when (c) {
+                    '"' -> builder.append("\\\"")
+                    '\\' -> builder.append("\\\\")
+                    '\n' -> builder.append("\\n")
+                    '\r' -> builder.append("\\r")
+                    '\u2028' -> builder.append("\\u2028")
+                    '\u2029' -> builder.append("\\u2029")
+                    else -> builder.append(c)
+                }
+            }
+            builder.append('"')
+            return builder.toString()
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.instructure.pandautils.discussions
+
+import android.util.LruCache
+import io.paperdb.Paper
+import java.math.BigInteger
+import java.security.MessageDigest
+
+/**
+ * Keeps the data URIs of the images drawn for discussion WebViews, so an author's avatar or the like icon is only
+ * drawn, PNG compressed and Base64 encoded once instead of for every entry that shows it.
+ *
+ * Avatars are also kept on disk, as the same authors show up again in the next session.
+ */
+object DiscussionImageCache {
+
+    // Data URIs of the initials avatars are a few KB each
+    private const val MAX_MEMORY_CHARS = 1024 * 1024
+    private const val MAX_DISK_ENTRIES = 300
+
+    private val memory = object : LruCache<String, String>(MAX_MEMORY_CHARS) {
+        override fun sizeOf(key: String, value: String) = value.length
+    }
+
+    private val book by lazy { Paper.book("discussion_image_cache") }
+
+    // Number of avatars on disk, read from the book the first time one is written
+    private var diskEntries = -1
+
+    /**
+     * @return The data URI of the key from memory, or from disk when [persist] is set, otherwise the one made by [encode]
+     */
+    fun get(key: String, persist: Boolean, encode: () -> String): String {
+        memory.get(key)?.let { return it }
+
+        val diskKey = if (persist) diskKey(key) else null
+        val stored = diskKey?.let { readFromDisk(it) }
+        if (stored != null) {
+            memory.put(key, stored)
+            return stored
+        }
+
+        val dataUri = encode()
+        if (dataUri.isEmpty()) return dataUri
+        memory.put(key, dataUri)
+        if (diskKey != null) writeToDisk(diskKey, dataUri)
+        return dataUri
+    }
+
+    fun clear() {
+        memory.evictAll()
+        synchronized(this) {
+            try { book.destroy() } catch (e: Exception) {}
+            diskEntries = 0
+        }
+    }
+
+    private fun readFromDisk(diskKey: String): String? {
+        return try { book.read<String>(diskKey) } catch (e: Exception) { null }
+    }
+
+    @Synchronized
+    private fun writeToDisk(diskKey: String, dataUri: String) {
+        try {
+            if (diskEntries < 0) diskEntries = book.allKeys.size
+            if (diskEntries >= MAX_DISK_ENTRIES) {
+                // Rather than tracking access order on disk, start over; the avatars in use are still in memory
+                book.destroy()
+                diskEntries = 0
+            }
+            book.write(diskKey, dataUri)
+            diskEntries++
+        } catch (e: Exception) {
+            // Not being able to persist an avatar only means drawing it again next time
+        }
+    }
+
+    // Paper keys are file names, so keys that may contain any character are hashed
+    private fun diskKey(key: String): String {
+        val digest = MessageDigest.getInstance("MD5").digest(key.toByteArray(Charsets.UTF_8))
+        return String.format("%032x", BigInteger(1, digest))
+    }
+}
@@ -40,85 +40,27 @@ import java.util.regex.Pattern
 
 object DiscussionUtils {
 
+    private val HEADER_PLACEHOLDERS = listOf("__HEADER_CONTENT__", "__LTI_BUTTON_WIDTH__", "__LTI_BUTTON_MARGIN__")
+
     /* TODO: Support caching edited items. Comms - 868
     *  TODO: This has not yet been added due to a permissions issue.
     *  TODO: What needs to be done is to check the DiscussionUpdateFragment's response to ensure the last updated time stamp is correct.
     *  TODO: Then do a check here to not remove but replace discussion entries whos timestamps are behind the timestamps of cached items.
     * */
 
-    //region Cache Cleaning
+    //region Cache Cleaning and Unification
 
-    private fun cleanDiscussionCache(discussionTopicHeaderId: Long, discussionEntries: List<DiscussionEntry>) {
-        //Cleans up any duplicate entries in the discussion tree
+    private fun unifyWithDiscussionCache(discussionTopicHeaderId: Long, discussionEntries: List<DiscussionEntry>): List<DiscussionEntry> {
         val cachingManager = DiscussionCaching(discussionTopicHeaderId)
-        val mutableDiscussionEntries = discussionEntries.toMutableList()
-
-        mutableDiscussionEntries.forEach {
-            recursivelyClean(cachingManager, it, it.replies)
-        }
-    }
-
-    private fun recursivelyClean(cachingManager: DiscussionCaching, parentEntry: DiscussionEntry, discussionEntries: MutableList<DiscussionEntry>) {
-        var cachedEntries = cachingManager.loadEntries()
+        val cacheIndex = cachingManager.loadIndex()
+        if (cacheIndex.isEmpty()) return discussionEntries // Nothing in the cache
 
-        //Clean up the parent if necessary
-        cachedEntries.firstOrNull { it.id == parentEntry.id }?.let {
-            cachingManager.removeEntry(it.id)
-            cachedEntries = cachingManager.loadEntries()
-        }
+        //Cleans up cached entries that are now part of the discussion tree
+        val removedIds = cacheIndex.removeServerEntries(discussionEntries)
+        if (removedIds.isNotEmpty()) cachingManager.removeEntries(removedIds)
 
-        discussionEntries.forEach { discussionEntry ->
-            cachedEntries.firstOrNull { it.id == discussionEntry.id }?.let {
-                cachingManager.removeEntry(it.id)
-                cachedEntries = cachingManager.loadEntries()
-            }
-            recursivelyClean(cachingManager, discussionEntry, discussionEntry.replies)
-        }
-    }
-
-    //endregion
-
-    //region Cache and Discussion Unification
-
-    private fun unifyDiscussionEntries(discussionTopicHeaderId: Long, discussionEntries: MutableList<DiscussionEntry>): List<DiscussionEntry> {
-        val cachingManager = DiscussionCaching(discussionTopicHeaderId)
-        val cachedEntries = cachingManager.loadEntries()
-
-        if(cachedEntries.isEmpty()) return discussionEntries // Nothing in the cache
-
-        // Situation where the first set of replies is cached. We setup the parent ID as -1
-        discussionEntries.addAll(cachedEntries.filter { it.parentId == -1L })
-
-        //Sort the discussion entries
-        discussionEntries.sortBy { it.createdAt }
-
-        //Loop through the highest level entries and add cached items where necessary for all children of parent
-        discussionEntries.forEach { parentEntry ->
-            parentEntry.replies = recursiveUnify(cachingManager, parentEntry, parentEntry.replies)
-        }
-
-        return discussionEntries
-    }
-
-    private fun recursiveUnify(cachingManager: DiscussionCaching, parentEntry: DiscussionEntry, discussionEntries: MutableList<DiscussionEntry>): List<DiscussionEntry>? {
-        val cachedEntries = cachingManager.loadEntries()
-
-        //cached entries may not get added to the parent...
-        if(cachedEntries.isNotEmpty()) {
-
-            //Add cached items belonging to this entry
-            cachedEntries.filter { it.parentId == parentEntry.id }.let {
-                discussionEntries.addAll(it)
-                parentEntry.totalChildren += it.size
-                if(it.isNotEmpty()) discussionEntries.sortBy { it.createdAt }
-            }
-
-            discussionEntries.forEach { discussionEntry ->
-                discussionEntry.replies = recursiveUnify(cachingManager, discussionEntry, discussionEntry.replies)
-            }
-        }
-
-        return discussionEntries
+        //Add the remaining cached items under their parents
+        return cacheIndex.unify(discussionEntries.toMutableList())
     }
 
     //endregion
@@ -181,12 +123,10 @@ object DiscussionUtils {
     //region Discussion Topic Header
 
     fun createDiscussionTopicHeaderHtml(context: Context, isTablet: Boolean, contentHtml: String, ltiToolUrl: String? = null): String {
-        val document = getAssetsFile(context, "discussion_topic_header_html_template.html")
+        val template = AssetTemplates.getTemplate(context, "discussion_topic_header_html_template.html", HEADER_PLACEHOLDERS)
         Logger.d("LTIURL: $ltiToolUrl")
         val html = addLaunchLtiToolButton(context, contentHtml, ltiToolUrl)
-        var result = document.replace("__HEADER_CONTENT__", html)
-        result = result.replace("__LTI_BUTTON_WIDTH__", if(isTablet) "320px" else "100%")
-        result = result.replace("__LTI_BUTTON_MARGIN__", if(isTablet) "0px" else "auto")
+        val result = template.fill(arrayOf(html, if(isTablet) "320px" else "100%", if(isTablet) "0px" else "auto"))
         return CanvasWebView.applyWorkAroundForDoubleSlashesAsUrlSource(result)
     }
 
@@ -231,95 +171,81 @@ object DiscussionUtils {
             discussionTopicHeader: DiscussionTopicHeader,
             discussionEntries: List<DiscussionEntry>,
             startEntryId: Long): String {
+        return createDiscussionTopicHtmlPager(context, isTablet, canvasContext, discussionTopicHeader, discussionEntries, startEntryId).renderAll()
+    }
+
+    /**
+     * Prepares the replies to be rendered a page at a time, so the WebView can show the first replies before the rest
+     * are converted to HTML. This function should only be called from a background thread as it reads the reply cache.
+     */
+    fun createDiscussionTopicHtmlPager(
+            context: Context,
+            isTablet: Boolean,
+            canvasContext: CanvasContext,
+            discussionTopicHeader: DiscussionTopicHeader,
+            discussionEntries: List<DiscussionEntry>,
+            startEntryId: Long): DiscussionHtmlPager {
 
-        val builder = StringBuilder()
         val brandColor = ThemePrefs.brandColor
         val likeColor = ContextCompat.getColor(context, R.color.utils_discussion_liking)
         val converter = DiscussionEntryHtmlConverter()
-        val template = getAssetsFile(context, "discussion_html_template_item.html")
-        val likeImage = makeBitmapForWebView(brandColor, getBitmapFromAssets(context, "discussion_liked.png"))
+        val template = DiscussionEntryHtmlConverter.getTemplate(context)
+        val likeImage = makeAssetImageForWebView(context, brandColor, "discussion_liked.png")
         val replyButtonWidth = if (isTablet && context.resources.configuration.orientation == Configuration.ORIENTATION_LANDSCAPE) "260px" else "220px"
 
-        builder.append(getAssetsFile(context, "discussion_html_header_item.html"))
-
-        cleanDiscussionCache(discussionTopicHeader.id, discussionEntries)
+        val unifiedEntries = unifyWithDiscussionCache(discussionTopicHeader.id, discussionEntries)
 
-        val discussionEntryList: List<DiscussionEntry> = if (startEntryId == 0L) unifyDiscussionEntries(discussionTopicHeader.id, discussionEntries.toMutableList())
+        val discussionEntryList: List<DiscussionEntry> = if (startEntryId == 0L) unifiedEntries
         else { // We are looking for a subentry of discussions to display. This finds a subentry, and uses that as the initial entry for display.
-            findSubEntry(startEntryId, unifyDiscussionEntries(discussionTopicHeader.id, discussionEntries.toMutableList()))
+            findSubEntry(startEntryId, unifiedEntries)
         }
 
-        //This loops through each of the direct replies and for each child up to 3 or 5 based on if tablet or phone.
-        //General rule of thumb is to pass in any values that need calculation so we don't repeat those within the loop.
-        //We also filter out any deleted discussions and by nature their children so they don't get displayed.
-        discussionEntryList.forEach { discussionEntry ->
-            builder.append(build(context, isTablet, canvasContext, discussionTopicHeader, discussionEntry, converter, template,
-                    makeAvatarForWebView(context, discussionEntry), 0, false,
-                    brandColor, likeColor, likeImage, replyButtonWidth))
-
-            discussionEntry.replies.forEach { discussionEntry ->
-                builder.append(build(context, isTablet, canvasContext, discussionTopicHeader, discussionEntry, converter, template,
-                        makeAvatarForWebView(context, discussionEntry), 1, false,
-                        brandColor, likeColor, likeImage, replyButtonWidth))
-
-                if (isTablet) {
-                    discussionEntry.replies.forEach { discussionEntry ->
-                        builder.append(build(context, isTablet, canvasContext, discussionTopicHeader, discussionEntry, converter, template,
-                                makeAvatarForWebView(context, discussionEntry), 2, false,
-                                brandColor, likeColor, likeImage, replyButtonWidth))
-
-                        discussionEntry.replies.forEach { discussionEntry ->
-                            builder.append(build(context, isTablet, canvasContext, discussionTopicHeader, discussionEntry, converter, template,
-                                    makeAvatarForWebView(context, discussionEntry), 3, false,
-                                    brandColor, likeColor, likeImage, replyButtonWidth))
-
-                            discussionEntry.replies.forEach { discussionEntry ->
-                                builder.append(build(context, isTablet, canvasContext, discussionTopicHeader, discussionEntry, converter, template,
-                                        makeAvatarForWebView(context, discussionEntry), 4, false,
-                                        brandColor, likeColor, likeImage, replyButtonWidth))
-
-                                discussionEntry.replies.forEach { discussionEntry ->
-                                    val reachedViewableEnd = (discussionEntry.totalChildren > 0)
-                                    builder.append(build(context, isTablet, canvasContext, discussionTopicHeader, discussionEntry, converter, template,
-                                            makeAvatarForWebView(context, discussionEntry), 5, reachedViewableEnd,
-                                            brandColor, likeColor, likeImage, replyButtonWidth))
-                                }
-                            }
-                        }
-                    }
-                } else {
-                    discussionEntry.replies.forEach { discussionEntry ->
-                        val reachedViewableEnd = (discussionEntry.totalChildren > 0)
-                        builder.append(build(context, isTablet, canvasContext, discussionTopicHeader, discussionEntry, converter, template,
-                                makeAvatarForWebView(context, discussionEntry), 2, reachedViewableEnd,
-                                brandColor, likeColor, likeImage, replyButtonWidth))
-                    }
-                }
-            }
+        //This lists each of the direct replies and for each child up to 3 or 5 levels based on if tablet or phone.
+        //General rule of thumb is to pass in any values that need calculation so we don't repeat those for each row.
+        val rows = ArrayList<DiscussionHtmlRow>()
+        addRows(rows, discussionEntryList, 0, if (isTablet) 5 else 2)
+
+        return DiscussionHtmlPager(
+                getAssetsFile(context, "discussion_html_header_item.html"),
+                getAssetsFile(context, "discussion_html_footer_item.html"),
+                rows) { row, builder ->
+            build(builder, context, isTablet, canvasContext, discussionTopicHeader, row.entry, converter, template,
+                    makeAvatarForWebView(context, row.entry), row.indent, row.reachedViewableEnd,
+                    brandColor, likeColor, likeImage, replyButtonWidth)
         }
+    }
 
-        //Append Footer - Don't do this in the loop to avoid String.replace() more than necessary
-        builder.append(getAssetsFile(context, "discussion_html_footer_item.html"))
-        return CanvasWebView.applyWorkAroundForDoubleSlashesAsUrlSource(builder.toString())
+    private fun addRows(rows: MutableList<DiscussionHtmlRow>, discussionEntries: List<DiscussionEntry>, indent: Int, maxIndent: Int) {
+        discussionEntries.forEach { discussionEntry ->
+            if (indent == maxIndent) {
+                //Deeper replies are shown with a button that opens the entry on its own
+                rows.add(DiscussionHtmlRow(discussionEntry, indent, discussionEntry.totalChildren > 0))
+            } else {
+                rows.add(DiscussionHtmlRow(discussionEntry, indent, false))
+                addRows(rows, discussionEntry.replies, indent + 1, maxIndent)
+            }
+        }
     }
 
     private fun build(
+            builder: StringBuilder,
             context: Context,
             isTablet: Boolean,
             canvasContext: CanvasContext,
             discussionTopicHeader: DiscussionTopicHeader,
             discussionEntry: DiscussionEntry,
             converter: DiscussionEntryHtmlConverter,
-            template: String,
+            template: HtmlTemplate,
             avatarImage: String,
             indent: Int,
             reachedViewableEnd: Boolean,
             brandColor: Int,
             likeColor: Int,
             likeImage: String,
-            replyButtonWidth: String): String {
+            replyButtonWidth: String) {
 
-        return converter.buildHtml(
+        converter.buildHtml(
+                builder,
                 context,
                 isTablet,
                 brandColor,
@@ -437,22 +363,7 @@ object DiscussionUtils {
         }
     }
 
-    fun getAssetsFile(context: Context, fileName: String): String {
-        try {
-            var file = ""
-            val reader = BufferedReader(
-                    InputStreamReader(context.assets.open(fileName)))
-            var line: String? = ""
-            while (line != null) {
-                file += line
-                line = reader.readLine()
-            }
-            reader.close()
-            return file
-        } catch (e: Exception) {
-            return ""
-        }
-    }
+    fun getAssetsFile(context: Context, fileName: String): String = AssetTemplates.getText(context, fileName)
 
     fun getBitmapFromAssets(context: Context, filePath: String): Bitmap? {
         val assetManager = context.assets
@@ -467,6 +378,15 @@ object DiscussionUtils {
         return bitmap
     }
 
+    /**
+     * Same as [makeBitmapForWebView] with a bitmap from the assets, cached by color as it is the same for every entry
+     */
+    fun makeAssetImageForWebView(context: Context, color: Int, filePath: String): String {
+        return DiscussionImageCache.get("asset:$filePath:$color:${context.resources.displayMetrics.densityDpi}", false) {
+            makeBitmapForWebView(color, getBitmapFromAssets(context, filePath))
+        }
+    }
+
     fun makeBitmapForWebView(color: Int, bitmap: Bitmap?): String {
         if (bitmap == null) return ""
         val coloredBitmap = colorIt(color, bitmap)
@@ -515,35 +435,35 @@ object DiscussionUtils {
      */
     private fun makeAvatarForWebView(context: Context, discussionEntry: DiscussionEntry): String {
         if(discussionEntry.author != null && ProfileUtils.shouldLoadAltAvatarImage(discussionEntry.author.avatarImageUrl)) {
-            val avatarBitmap = ProfileUtils.getInitialsAvatarBitMap(
-                    context, discussionEntry.author.displayName,
-                    Color.TRANSPARENT,
-                    ContextCompat.getColor(context, R.color.utils_defaultTextDark),
-                    ContextCompat.getColor(context, R.color.utils_profileBorderColor))
-            val outputStream = ByteArrayOutputStream()
-            avatarBitmap.compress(Bitmap.CompressFormat.PNG, 100, outputStream)
-            val byteArray = outputStream.toByteArray()
-            val imageBase64 = Base64.encodeToString(byteArray, Base64.DEFAULT)
-            avatarBitmap.recycle()
-            return "data:image/png;base64," + imageBase64
+            return makeInitialsAvatarForWebView(context, discussionEntry.author.displayName)
         } else {
             if(discussionEntry.author == null || discussionEntry.author.avatarImageUrl.isNullOrBlank()) {
                 //Unknown author
-                val avatarBitmap = ProfileUtils.getInitialsAvatarBitMap(
-                        context, "?",
-                        Color.TRANSPARENT,
-                        ContextCompat.getColor(context, R.color.utils_defaultTextDark),
-                        ContextCompat.getColor(context, R.color.utils_profileBorderColor))
-                val outputStream = ByteArrayOutputStream()
-                avatarBitmap.compress(Bitmap.CompressFormat.PNG, 100, outputStream)
-                val byteArray = outputStream.toByteArray()
-                val imageBase64 = Base64.encodeToString(byteArray, Base64.DEFAULT)
-                avatarBitmap.recycle()
-                return "data:image/png;base64," + imageBase64
+                return makeInitialsAvatarForWebView(context, "?")
             }
             return discussionEntry.author?.avatarImageUrl ?: ""
         }
     }
 
+    /**
+     * Avatars only differ by initials, colors and size, so authors that share them share the cached data URI
+     */
+    private fun makeInitialsAvatarForWebView(context: Context, displayName: String?): String {
+        val initials = ProfileUtils.getUserInitials(displayName)
+        val textColor = ContextCompat.getColor(context, R.color.utils_defaultTextDark)
+        val borderColor = ContextCompat.getColor(context, R.color.utils_profileBorderColor)
+        val size = context.resources.getDimensionPixelSize(R.dimen.avatar_size)
+        val key = "avatar:$initials:$textColor:$borderColor:$size:${context.resources.displayMetrics.densityDpi}"
+        return DiscussionImageCache.get(key, true) {
+            val avatarBitmap = ProfileUtils.getInitialsAvatarBitMap(context, displayName ?: "?", Color.TRANSPARENT, textColor, borderColor)
+            val outputStream = ByteArrayOutputStream()
+            avatarBitmap.compress(Bitmap.CompressFormat.PNG, 100, outputStream)
+            val byteArray = outputStream.toByteArray()
+            val imageBase64 = Base64.encodeToString(byteArray, Base64.DEFAULT)
+            avatarBitmap.recycle()
+            "data:image/png;base64," + imageBase64
+        }
+    }
+
     //endregion
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.instructure.pandautils.discussions
+
+import android.view.ViewTreeObserver
+import android.widget.ScrollView
+
+/**
+ * Calls [onNearEnd] while the end of the content of the scroll view is less than a screen away, checked when it
+ * scrolls and when its content changes size. Used to add the next page of replies, see [DiscussionHtmlPager].
+ */
+class ScrollViewEndListener(private val scrollView: ScrollView, private val onNearEnd: () -> Unit)
+    : ViewTreeObserver.OnScrollChangedListener, ViewTreeObserver.OnGlobalLayoutListener {
+
+    fun attach() {
+        scrollView.viewTreeObserver.addOnScrollChangedListener(this)
+        scrollView.viewTreeObserver.addOnGlobalLayoutListener(this)
+    }
+
+    fun detach() {
+        scrollView.viewTreeObserver.removeOnScrollChangedListener(this)
+        scrollView.viewTreeObserver.removeOnGlobalLayoutListener(this)
+    }
+
+    override fun onScrollChanged() = checkNearEnd()
+
+    override fun onGlobalLayout() = checkNearEnd()
+
+    private fun checkNearEnd() {
+        val content = scrollView.getChildAt(0) ?: return
+        if (content.bottom - (scrollView.scrollY + scrollView.height) < scrollView.height) onNearEnd()
+    }
+}
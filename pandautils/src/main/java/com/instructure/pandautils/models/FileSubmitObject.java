@@ -17,6 +17,7 @@
 
 package com.instructure.pandautils.models;
 
+import android.content.ContentResolver;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.NonNull;
@@ -106,6 +107,14 @@ public class FileSubmitObject implements Parcelable {
         this.fullPath = fullPath;
     }
 
+    /**
+     * @return Whether this file is uploaded straight from a content Uri, in which case {@link #getFullPath()}
+     * holds the Uri rather than a path on disk
+     */
+    public boolean isContentUri() {
+        return fullPath != null && fullPath.startsWith(ContentResolver.SCHEME_CONTENT + "://");
+    }
+
     public String getErrorMessage() {
         return errorMessage;
     }
@@ -19,8 +19,10 @@ package com.instructure.pandautils.services
 import android.app.IntentService
 import android.app.NotificationChannel
 import android.app.NotificationManager
+import android.content.ClipData
 import android.content.Context
 import android.content.Intent
+import android.net.Uri
 import android.os.Build
 import android.os.Bundle
 import android.os.Parcelable
@@ -30,10 +32,16 @@ import com.instructure.canvasapi2.models.Assignment
 import com.instructure.canvasapi2.models.Attachment
 import com.instructure.canvasapi2.models.Conversation
 import com.instructure.canvasapi2.utils.ContextKeeper
+import com.instructure.canvasapi2.utils.StreamingFileBody
 import com.instructure.pandautils.R
 import com.instructure.pandautils.models.FileSubmitObject
 import com.instructure.pandautils.utils.*
+import retrofit2.HttpException
+import java.io.IOException
 import java.util.*
+import java.util.concurrent.CancellationException
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
 import kotlin.collections.ArrayList
 
 /**
@@ -45,8 +53,12 @@ import kotlin.collections.ArrayList
 class FileUploadService @JvmOverloads constructor(name: String = FileUploadService::class.java.simpleName) : IntentService(name) {
 
     private var uploadCount: Int = 0
+    @Volatile
     private var isCanceled = false
 
+    private var notificationProgress = -1
+    private var notificationUploadedCount = -1
+
     lateinit private var notificationBuilder: NotificationCompat.Builder
     private val notificationManager by lazy { getSystemService(Context.NOTIFICATION_SERVICE) as NotificationManager }
 
@@ -88,43 +100,75 @@ class FileUploadService @JvmOverloads constructor(name: String = FileUploadServi
         val position = bundle.getInt(Const.POSITION)
         val parentFolderId = if (bundle.containsKey(Const.PARENT_FOLDER_ID)) bundle.getLong(Const.PARENT_FOLDER_ID) else null
 
-        val attachments = mutableListOf<Attachment>()
+        val totalBytes = fileSubmitObjects.fold(0L) { total, fso -> total + fso.size }
+        val uploadedBytes = AtomicLong()
+        val uploadedCount = AtomicInteger()
 
         try {
-            fileSubmitObjects.forEachIndexed { idx, fso ->
-                updateNotificationCount(fso.name, idx + 1)
+            val progressListener = object : ParallelUploader.Listener<FileSubmitObject, Attachment?> {
+                override fun onStarted(item: FileSubmitObject, index: Int, attempt: Int) {
+                    updateNotificationCount(item.name, uploadedCount.get() + 1)
+                }
+
+                override fun onCompleted(item: FileSubmitObject, index: Int, result: Attachment?) {
+                    updateNotificationProgress(uploadedCount.incrementAndGet(), uploadedBytes.get(), totalBytes)
+                    broadcastUploadCompleted(item)
+                }
+            }
+
+            val attachments = ParallelUploader<FileSubmitObject, Attachment?>().uploadAll(fileSubmitObjects, progressListener, { isCanceled }) { fso ->
                 val config = FileUploadConfig(fso.name, fso.fullPath, fso.size, fso.contentType)
-                when (action) {
-                    ACTION_ASSIGNMENT_SUBMISSION -> {
-                        val uploadContext = if (groupId == null) SubmissionUploadContext(courseId, assignment!!.id) else GroupUploadContext(groupId)
-                        attachments += FileUploadManager.uploadFileSynchronous(uploadContext, config)!!
-                    }
-                    ACTION_COURSE_FILE -> {
-                        config.parentFolderId = parentFolderId
-                        attachments += FileUploadManager.uploadFileSynchronous(CourseUploadContext(courseId), config)!!
-                    }
-                    ACTION_USER_FILE -> {
-                        config.parentFolderId = parentFolderId
-                        attachments += FileUploadManager.uploadFileSynchronous(UserUploadContext(), config)!!
-                    }
-                    ACTION_MESSAGE_ATTACHMENTS -> {
-                        config.parentFolderPath = MESSAGE_ATTACHMENT_PATH
-                        attachments += FileUploadManager.uploadFileSynchronous(UserUploadContext(), config)!!
-                    }
-                    ACTION_QUIZ_FILE -> {
-                        attachments += FileUploadManager.uploadFileSynchronous(QuizUploadContext(courseId, quizId), config)!!
-                    }
-                    ACTION_DISCUSSION_ATTACHMENT -> {
-                        config.parentFolderPath = DISCUSSION_ATTACHMENT_PATH
-                        attachments += FileUploadManager.uploadFileSynchronous(UserUploadContext(), config)!!
+                if (fso.isContentUri) config.contentUri = Uri.parse(fso.fullPath)
+
+                // Bytes sent by this attempt, taken back out of the total if the attempt fails and is retried
+                var attemptBytes = 0L
+                config.progressListener = object : StreamingFileBody.ProgressListener {
+                    override fun onProgress(bytesWritten: Long, contentLength: Long) {
+                        val uploaded = uploadedBytes.addAndGet(bytesWritten - attemptBytes)
+                        attemptBytes = bytesWritten
+                        updateNotificationProgress(uploadedCount.get(), uploaded, totalBytes)
                     }
-                    ACTION_SUBMISSION_COMMENT -> {
-                        val uploadContext = SubmissionCommentUploadContext(courseId, assignment!!.id)
-                        attachments += FileUploadManager.uploadFileSynchronous(uploadContext, config)!!
+                }
+
+                try {
+                    val attachment = when (action) {
+                        ACTION_ASSIGNMENT_SUBMISSION -> {
+                            val uploadContext = if (groupId == null) SubmissionUploadContext(courseId, assignment!!.id) else GroupUploadContext(groupId)
+                            FileUploadManager.uploadFileSynchronous(uploadContext, config)
+                        }
+                        ACTION_COURSE_FILE -> {
+                            config.parentFolderId = parentFolderId
+                            FileUploadManager.uploadFileSynchronous(CourseUploadContext(courseId), config)
+                        }
+                        ACTION_USER_FILE -> {
+                            config.parentFolderId = parentFolderId
+                            FileUploadManager.uploadFileSynchronous(UserUploadContext(), config)
+                        }
+                        ACTION_MESSAGE_ATTACHMENTS -> {
+                            config.parentFolderPath = MESSAGE_ATTACHMENT_PATH
+                            FileUploadManager.uploadFileSynchronous(UserUploadContext(), config)
+                        }
+                        ACTION_QUIZ_FILE -> {
+                            FileUploadManager.uploadFileSynchronous(QuizUploadContext(courseId, quizId), config)
+                        }
+                        ACTION_DISCUSSION_ATTACHMENT -> {
+                            config.parentFolderPath = DISCUSSION_ATTACHMENT_PATH
+                            FileUploadManager.uploadFileSynchronous(UserUploadContext(), config)
+                        }
+                        ACTION_SUBMISSION_COMMENT -> {
+                            val uploadContext = SubmissionCommentUploadContext(courseId, assignment!!.id)
+                            FileUploadManager.uploadFileSynchronous(uploadContext, config)
+                        }
+                        else -> return@uploadAll null
                     }
+                    // A response without an attachment won't change when it's sent again
+                    attachment ?: throw IllegalStateException(getString(R.string.errorUploadingFile))
+                } catch (e: Exception) {
+                    uploadedBytes.addAndGet(-attemptBytes)
+                    throw e
                 }
-                broadcastUploadCompleted(fso)
-            }
+            }.filterNotNull()
+
             // Submit fileIds to the assignment
             val attachmentsIds = attachments.map { it.id }
             when (action) {
@@ -138,12 +182,16 @@ class FileUploadService @JvmOverloads constructor(name: String = FileUploadServi
                     updateNotificationComplete()
                 }
             }
+        } catch (exception: CancellationException) {
+            // Canceled by the user, nothing to report
         } catch (exception: Exception) {
             updateNotification(getString(R.string.errorUploadingFile))
+            // Network and server errors only have technical messages
+            val message = if (exception is IOException || exception is HttpException) getString(R.string.errorUploadingFile) else exception.message.orEmpty()
             if (quizQuestionId != INVALID_ID) {
-                broadcastQuizError(exception.message.orEmpty(), quizQuestionId, position)
+                broadcastQuizError(message, quizQuestionId, position)
             } else {
-                broadcastError(exception.message.orEmpty())
+                broadcastError(message)
             }
         }
 
@@ -236,36 +284,55 @@ class FileUploadService @JvmOverloads constructor(name: String = FileUploadServi
         startForeground(NOTIFICATION_ID, notificationBuilder.build())
     }
 
+    // Files are uploaded from several threads, so updates to the notification are synchronized
+    @Synchronized
     private fun updateNotificationCount(fileName: String, currentItem: Int) {
-        notificationBuilder.setContentTitle(String.format(Locale.US, getString(R.string.uploadingFileNum), currentItem, uploadCount))
+        notificationBuilder.setContentTitle(String.format(Locale.US, getString(R.string.uploadingFileNum), Math.min(currentItem, uploadCount), uploadCount))
                 .setContentText(fileName)
         notificationManager.notify(NOTIFICATION_ID, notificationBuilder.build())
     }
 
+    @Synchronized
+    private fun updateNotificationProgress(uploadedCount: Int, uploadedBytes: Long, totalBytes: Long) {
+        val progress = if (totalBytes > 0) (uploadedBytes * 100 / totalBytes).toInt() else uploadedCount * 100 / uploadCount
+        // Byte progress arrives far more often than the percentage changes, so skip updates that wouldn't show
+        if (progress == notificationProgress && uploadedCount == notificationUploadedCount) return
+        notificationProgress = progress
+        notificationUploadedCount = uploadedCount
+        notificationBuilder.setContentTitle(String.format(Locale.US, getString(R.string.uploadingFileNum), Math.min(uploadedCount + 1, uploadCount), uploadCount))
+                .setProgress(100, progress, false)
+        notificationManager.notify(NOTIFICATION_ID, notificationBuilder.build())
+    }
+
 
+    @Synchronized
     private fun updateNotification(message: String) {
         notificationBuilder.setContentText(message)
         notificationManager.notify(NOTIFICATION_ID, notificationBuilder.build())
     }
 
+    @Synchronized
     private fun updateNotificationError(message: String) {
         notificationBuilder.setContentText(message)
                 .setProgress(0, 0, false)
         notificationManager.notify(NOTIFICATION_ID, notificationBuilder.build())
     }
 
+    @Synchronized
     private fun updateNotificationComplete() {
         notificationBuilder.setProgress(0, 0, false)
                 .setContentTitle(getString(R.string.filesUploadedSuccessfully))
         notificationManager.notify(NOTIFICATION_ID, notificationBuilder.build())
     }
 
+    @Synchronized
     private fun updateSubmissionComplete() {
         notificationBuilder.setProgress(0, 0, false)
                 .setContentTitle(getString(R.string.filesSubmittedSuccessfully))
         notificationManager.notify(NOTIFICATION_ID, notificationBuilder.build())
     }
 
+    @Synchronized
     private fun updateMessageComplete() {
         notificationBuilder.setProgress(0, 0, false)
                 .setContentTitle(getString(R.string.messageSentSuccessfully))
@@ -328,6 +395,20 @@ class FileUploadService @JvmOverloads constructor(name: String = FileUploadServi
             FileUploadUtils.deleteTempDirectory(context)
         }
 
+        /**
+         * The read grants of picked and shared content Uris belong to the activity that received them, and end with it.
+         * This hands them to the service for as long as it works on the intent, so it can stream from the Uris.
+         */
+        @JvmStatic
+        fun grantContentUris(intent: Intent, fileSubmitObjects: List<FileSubmitObject>) {
+            val uris = fileSubmitObjects.filter { it.isContentUri }.map { Uri.parse(it.fullPath) }
+            if (uris.isEmpty()) return
+            val clipData = ClipData.newRawUri(null, uris[0])
+            uris.drop(1).forEach { clipData.addItem(ClipData.Item(it)) }
+            intent.clipData = clipData
+            intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION)
+        }
+
         @JvmStatic
         fun getUserFilesBundle(
                 fileSubmitObjects: ArrayList<FileSubmitObject>,
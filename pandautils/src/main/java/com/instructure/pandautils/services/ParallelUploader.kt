@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.instructure.pandautils.services
+
+import retrofit2.HttpException
+import java.io.IOException
+import java.util.concurrent.CancellationException
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Uploads a few items at a time instead of one after the other. An item that fails with a transient error is retried on
+ * its own with a growing delay, so the items that were already uploaded don't have to be sent again.
+ *
+ * @param maxConcurrent How many items are uploaded at the same time
+ * @param maxAttempts How many times an item is tried before the whole upload fails
+ * @param retryDelayMs The delay before the first retry, doubled for every retry after that
+ * @param isRetryable Whether an error is worth another attempt, anything else fails the upload right away
+ */
+class ParallelUploader<T, R> @JvmOverloads constructor(
+        private val maxConcurrent: Int = DEFAULT_MAX_CONCURRENT,
+        private val maxAttempts: Int = DEFAULT_MAX_ATTEMPTS,
+        private val retryDelayMs: Long = DEFAULT_RETRY_DELAY_MS,
+        private val isRetryable: (Exception) -> Boolean = { isTransient(it) }) {
+
+    interface Listener<in T, in R> {
+        /** Called from an upload thread when an item starts uploading, including retries */
+        fun onStarted(item: T, index: Int, attempt: Int)
+
+        /** Called from an upload thread when an item was uploaded */
+        fun onCompleted(item: T, index: Int, result: R)
+    }
+
+    /**
+     * Blocks until every item is uploaded or one of them failed all of its attempts.
+     * Items that haven't started yet are skipped once an item failed or [isCanceled] returns true.
+     *
+     * @return The results, in the order of the items
+     * @throws Exception The error of the first item that failed, or a [CancellationException]
+     */
+    @Throws(Exception::class)
+    fun uploadAll(items: List<T>, listener: Listener<T, R>?, isCanceled: () -> Boolean, upload: (T) -> R): List<R> {
+        if (items.isEmpty()) return emptyList()
+
+        val stopped = AtomicBoolean(false)
+        val threadCount = Math.min(maxConcurrent, items.size)
+        val executor = Executors.newFixedThreadPool(threadCount, UploadThreadFactory())
+        try {
+            val futures: List<Future<R>> = items.mapIndexed { index, item ->
+                executor.submit<R> { uploadItem(item, index, listener, stopped, isCanceled, upload) }
+            }
+
+            var error: Exception? = null
+            val results = ArrayList<R>(items.size)
+            futures.forEach { future ->
+                try {
+                    results += future.get()
+                } catch (e: ExecutionException) {
+                    val cause = e.cause
+                    // Skipped items fail with a cancellation, keep the error that stopped them
+                    if (error == null || error is CancellationException) {
+                        error = cause as? Exception ?: e
+                    }
+                }
+            }
+            error?.let { throw it }
+            return results
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    private fun uploadItem(item: T, index: Int, listener: Listener<T, R>?, stopped: AtomicBoolean, isCanceled: () -> Boolean, upload: (T) -> R): R {
+        var attempt = 1
+        while (true) {
+            if (stopped.get() || isCanceled()) throw CancellationException()
+            listener?.onStarted(item, index, attempt)
+            try {
+                val result = upload(item)
+                listener?.onCompleted(item, index, result)
+                return result
+            } catch (e: Exception) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    stopped.set(true)
+                    throw e
+                }
+                Thread.sleep(retryDelayMs shl (attempt - 1))
+                attempt++
+            }
+        }
+    }
+
+    private class UploadThreadFactory : ThreadFactory {
+        override fun newThread(runnable: Runnable) = Thread(runnable, "FileUpload-" + threadNumber.incrementAndGet())
+    }
+
+    companion object {
+        const val DEFAULT_MAX_CONCURRENT = 3
+        const val DEFAULT_MAX_ATTEMPTS = 3
+        const val DEFAULT_RETRY_DELAY_MS = 1000L
+
+        private val threadNumber = AtomicInteger()
+
+        /**
+         * Network errors and server errors, which may not happen again. Other errors, like a rejected file, would.
+         */
+        @JvmStatic
+        fun isTransient(e: Exception): Boolean = when (e) {
+            is HttpException -> e.code() >= 500
+            is IOException -> true
+            else -> false
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.instructure.pandautils.utils
+
+import android.content.Context
+import java.io.InputStreamReader
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Process wide cache of the HTML assets, each asset is read and compiled into a [HtmlTemplate] only once.
+ */
+object AssetTemplates {
+
+    private val texts = ConcurrentHashMap<String, String>()
+    private val templates = ConcurrentHashMap<String, HtmlTemplate>()
+
+    /**
+     * @return The contents of the asset without its line breaks, like the line by line reads this replaces,
+     * or an empty string if it can't be read
+     */
+    @JvmStatic
+    fun getText(context: Context, fileName: String): String {
+        texts[fileName]?.let { return it }
+        val text = readAsset(context, fileName) ?: return ""
+        return texts.putIfAbsent(fileName, text) ?: text
+    }
+
+    /**
+     * @return The asset compiled with the given placeholders
+     */
+    @JvmStatic
+    fun getTemplate(context: Context, fileName: String, placeholders: List<String>): HtmlTemplate {
+        val key = fileName + placeholders.joinToString(",", "[", "]")
+        templates[key]?.let { return it }
+        val template = HtmlTemplate(getText(context, fileName), placeholders)
+        return templates.putIfAbsent(key, template) ?: template
+    }
+
+    /**
+     * @return The asset compiled with its {$NAME$} placeholders, see [HtmlTemplate.findPlaceholders]
+     */
+    @JvmStatic
+    fun getTemplate(context: Context, fileName: String): HtmlTemplate {
+        templates[fileName]?.let { return it }
+        val text = getText(context, fileName)
+        val template = HtmlTemplate(text, HtmlTemplate.findPlaceholders(text))
+        return templates.putIfAbsent(fileName, template) ?: template
+    }
+
+    private fun readAsset(context: Context, fileName: String): String? {
+        return try {
+            InputStreamReader(context.assets.open(fileName), Charsets.UTF_8).use { reader ->
+                val builder = StringBuilder()
+                val buffer = CharArray(8192)
+                var count = reader.read(buffer)
+                while (count >= 0) {
+                    var start = 0
+                    for (i in 0 until count) {
+                        if (buffer[i] == '\n' || buffer[i] == '\r') {
+                            builder.append(buffer, start, i - start)
+                            start = i + 1
+                        }
+                    }
+                    builder.append(buffer, start, count - start)
+                    count = reader.read(buffer)
+                }
+                builder.toString()
+            }
+        } catch (e: Exception) {
+            null
+        }
+    }
+}
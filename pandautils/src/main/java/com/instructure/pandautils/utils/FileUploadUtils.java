@@ -26,6 +26,7 @@ import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.ParcelFileDescriptor;
 import android.provider.DocumentsContract;
 import android.provider.MediaStore;
 import android.provider.OpenableColumns;
@@ -259,11 +260,7 @@ public class FileUploadUtils {
             ContentResolver cr = context.getContentResolver();
 
             input = cr.openInputStream(uri);
-            // add extension to filename if needed
-            int lastDot = fileName.lastIndexOf(".");
-            if (lastDot == -1) {
-                fileName = fileName + "." + getFileExtensionFromMimeType(cr.getType(uri));
-            }
+            fileName = addExtensionIfNeeded(cr, uri, fileName);
 
             // create a temp file to copy the uri contents into
             String tempFilePath = getTempFilePath(context, fileName);
@@ -303,6 +300,45 @@ public class FileUploadUtils {
         return new FileSubmitObject(fileName, 0, mimeType, "", errorMessage);
     }
 
+    /**
+     * Creates a FileSubmitObject that points at the content Uri itself instead of a copy in the cache
+     * directory, so FileUploadService can stream the file from its descriptor. Falls back to
+     * {@link #getFileSubmitObjectFromInputStream} when the Uri isn't backed by a file of known size,
+     * e.g. piped or virtual documents. The read grant of the Uri has to be handed to the service, see
+     * FileUploadService.grantContentUris.
+     */
+    public static FileSubmitObject getStreamableFileSubmitObject(Context context, Uri uri, String fileName, final String mimeType) {
+        if (uri == null) return null;
+        if (CONTENT_SCHEME.equalsIgnoreCase(uri.getScheme())) {
+            ContentResolver cr = context.getContentResolver();
+            long size = -1;
+            ParcelFileDescriptor descriptor = null;
+            try {
+                descriptor = cr.openFileDescriptor(uri, "r");
+                if (descriptor != null) size = descriptor.getStatSize();
+            } catch (Exception e) {
+                Log.e(Const.PANDA_UTILS_FILE_UPLOAD_UTILS_LOG, e.toString());
+            } finally {
+                if (descriptor != null) try {
+                    descriptor.close();
+                } catch (Exception ignored) {
+                }
+            }
+            if (size >= 0) {
+                return new FileSubmitObject(addExtensionIfNeeded(cr, uri, fileName), size, mimeType, uri.toString());
+            }
+        }
+        return getFileSubmitObjectFromInputStream(context, uri, fileName, mimeType);
+    }
+
+    private static String addExtensionIfNeeded(ContentResolver cr, Uri uri, String fileName) {
+        int lastDot = fileName.lastIndexOf(".");
+        if (lastDot == -1) {
+            return fileName + "." + getFileExtensionFromMimeType(cr.getType(uri));
+        }
+        return fileName;
+    }
+
     public static String getFileNameWithDefault(ContentResolver resolver, Uri uri, String mimeType) {
         String fileName = "";
         String scheme = uri.getScheme();
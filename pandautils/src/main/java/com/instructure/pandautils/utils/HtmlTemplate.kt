@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+package com.instructure.pandautils.utils
+
+/**
+ * A template compiled once into its literal segments and the positions of its placeholders, so it can be filled in
+ * a single pass instead of a String.replace() over the whole template per placeholder.
+ *
+ * Values are not searched for placeholders, so content that happens to contain one is left alone.
+ * Templates that are assets should come from [AssetTemplates], which compiles each of them once per process.
+ *
+ * @param template The template text
+ * @param placeholders The placeholders to look for, values are passed in the same order
+ */
+class HtmlTemplate(template: String, placeholders: List<String>) {
+
+    private val segments: Array<String>
+    private val slots: IntArray
+
+    val placeholderCount = placeholders.size
+
+    init {
+        // Offset and placeholder index of every occurrence, in template order
+        val occurrences = ArrayList<Pair<Int, Int>>()
+        placeholders.forEachIndexed { index, placeholder ->
+            if (placeholder.isEmpty()) return@forEachIndexed
+            var offset = template.indexOf(placeholder)
+            while (offset >= 0) {
+                occurrences.add(offset to index)
+                offset = template.indexOf(placeholder, offset + placeholder.length)
+            }
+        }
+        occurrences.sortWith(compareBy({ it.first }, { -placeholders[it.second].length }))
+
+        val segmentList = ArrayList<String>(occurrences.size + 1)
+        val slotList = ArrayList<Int>(occurrences.size)
+        var position = 0
+        occurrences.forEach { (offset, index) ->
+            if (offset < position) return@forEach // Overlaps the previous placeholder
+            segmentList.add(template.substring(position, offset))
+            slotList.add(index)
+            position = offset + placeholders[index].length
+        }
+        segmentList.add(template.substring(position))
+
+        segments = segmentList.toTypedArray()
+        slots = slotList.toIntArray()
+    }
+
+    /**
+     * Appends the template with its placeholders replaced
+     * @param values A value for each placeholder, in the order of the placeholders
+     */
+    fun fill(builder: StringBuilder, values: Array<out CharSequence>) {
+        for (i in slots.indices) {
+            builder.append(segments[i])
+            builder.append(values[slots[i]])
+        }
+        builder.append(segments[slots.size])
+    }
+
+    fun fill(values: Array<out CharSequence>): String {
+        val builder = StringBuilder(segments.sumBy { it.length } + values.sumBy { it.length } * 2)
+        fill(builder, values)
+        return builder.toString()
+    }
+
+    companion object {
+        private val WRAPPER_PLACEHOLDER = Regex("\\{\\$[A-Za-z0-9_]+\\$\\}")
+
+        /**
+         * @return The {$NAME$} placeholders of the template, like the {$CONTENT$} of html_wrapper.html, in order of first use
+         */
+        @JvmStatic
+        fun findPlaceholders(template: String): List<String> {
+            return WRAPPER_PLACEHOLDER.findAll(template).map { it.value }.distinct().toList()
+        }
+    }
+}
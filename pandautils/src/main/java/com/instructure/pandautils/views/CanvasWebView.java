@@ -74,9 +74,9 @@ import android.widget.Toast;
 
 import com.instructure.canvasapi2.utils.APIHelper;
 import com.instructure.canvasapi2.utils.ApiPrefs;
-import com.instructure.canvasapi2.utils.FileUtils;
 import com.instructure.canvasapi2.utils.Logger;
 import com.instructure.pandautils.R;
+import com.instructure.pandautils.utils.AssetTemplates;
 import com.instructure.pandautils.utils.Utils;
 import com.instructure.pandautils.video.VideoWebChromeClient;
 
@@ -634,13 +634,11 @@ public class CanvasWebView extends WebView implements NestedScrollingChild {
      */
     @Deprecated
     public String formatHTML(String content, String title) {
-        String html = FileUtils.getAssetsFile(mContext, "html_wrapper.html");
-
         content = CanvasWebView.applyWorkAroundForDoubleSlashesAsUrlSource(content);
         content = CanvasWebView.addProtocolToLinks(content);
 
         content = checkForMathTags(content);
-        String result = html.replace("{$CONTENT$}", content);
+        String result = wrapHtml(content);
 
         // BaseURL is set as Referer. Referer needed for some vimeo videos to play
         this.loadDataWithBaseURL(CanvasWebView.getRefererDomain(getContext()), result, "text/html", encoding, getHtmlAsUrl(result, encoding));
@@ -675,13 +673,11 @@ public class CanvasWebView extends WebView implements NestedScrollingChild {
     }
 
     public String loadHtml(String html, String contentDescription) {
-        String htmlWrapper = FileUtils.getAssetsFile(mContext, "html_wrapper.html");
-
         html = CanvasWebView.applyWorkAroundForDoubleSlashesAsUrlSource(html);
         html = CanvasWebView.addProtocolToLinks(html);
         html = checkForMathTags(html);
 
-        String result = htmlWrapper.replace("{$CONTENT$}", html);
+        String result = wrapHtml(html);
 
         this.loadDataWithBaseURL(CanvasWebView.getReferrer(true), result, "text/html", encoding, getHtmlAsUrl(result, encoding));
 
@@ -690,6 +686,13 @@ public class CanvasWebView extends WebView implements NestedScrollingChild {
         return result;
     }
 
+    /**
+     * Puts the content in html_wrapper.html, which is read and compiled once per process
+     */
+    private String wrapHtml(String content) {
+        return AssetTemplates.getTemplate(mContext, "html_wrapper.html").fill(new String[]{content});
+    }
+
     /*
      *  Work around for API 16 devices (and perhaps others). When pressing back the webview was loading 'about:blank' instead of the custom html
      */
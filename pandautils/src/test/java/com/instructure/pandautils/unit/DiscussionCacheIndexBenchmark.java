@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.pandautils.unit;
+
+import com.instructure.canvasapi2.models.DiscussionEntry;
+import com.instructure.pandautils.discussions.DiscussionCacheIndex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.instructure.pandautils.unit.DiscussionCacheIndexTest.entry;
+import static com.instructure.pandautils.unit.DiscussionCacheIndexTest.flatten;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares DiscussionCacheIndex with the reload-per-entry cache handling it replaced, on a generated tree.
+ * Not part of the default test run, use ./gradlew :pandautils:testDebugUnitTest -Pbenchmark --tests '*DiscussionCacheIndexBenchmark'
+ */
+public class DiscussionCacheIndexBenchmark {
+
+    private static final int REPLIES = 2000;
+    private static final int CACHED = 400;
+
+    @Test
+    public void indexedMatchesLegacy() {
+        // Warm up both paths
+        runLegacy();
+        runIndexed();
+
+        long start = System.nanoTime();
+        List<DiscussionEntry> legacy = runLegacy();
+        long legacyTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<DiscussionEntry> indexed = runIndexed();
+        long indexedTime = System.nanoTime() - start;
+
+        assertEquals(flatten(legacy), flatten(indexed));
+        assertTrue(flatten(indexed).size() > REPLIES);
+
+        // The legacy cache is an in memory list here, on device every load was a read of all cached entries from disk
+        System.out.println("Legacy reload per entry: " + (legacyTime / 1000000) + "ms for " + REPLIES + " replies");
+        System.out.println("Single load index: " + (indexedTime / 1000000) + "ms for " + REPLIES + " replies");
+    }
+
+    private static List<DiscussionEntry> runIndexed() {
+        List<DiscussionEntry> serverEntries = createServerTree();
+        DiscussionCacheIndex index = new DiscussionCacheIndex(createCachedEntries());
+        index.removeServerEntries(serverEntries);
+        return index.unify(new ArrayList<>(serverEntries));
+    }
+
+    private static List<DiscussionEntry> runLegacy() {
+        List<DiscussionEntry> serverEntries = createServerTree();
+        LegacyCache cache = new LegacyCache(createCachedEntries());
+        for (DiscussionEntry entry : serverEntries) {
+            legacyClean(cache, entry, entry.getReplies());
+        }
+        return legacyUnify(cache, new ArrayList<>(serverEntries));
+    }
+
+    //region Synthetic trees
+
+    // Each reply goes under one of the previous entries, so the tree gets both wide and deep parts
+    private static List<DiscussionEntry> createServerTree() {
+        Map<Long, DiscussionEntry> entries = new LinkedHashMap<>();
+        List<DiscussionEntry> topLevel = new ArrayList<>();
+        for (long id = 1; id <= REPLIES; id++) {
+            long parentId = id <= 20 ? -1 : 1 + (id * 7919) % (id - 1);
+            DiscussionEntry entry = entry(id, parentId, id);
+            entries.put(id, entry);
+            if (parentId == -1) {
+                topLevel.add(entry);
+            } else {
+                entries.get(parentId).getReplies().add(entry);
+            }
+        }
+        return topLevel;
+    }
+
+    // Half of them were synced to the server since they were cached, the other half are new replies
+    private static List<DiscussionEntry> createCachedEntries() {
+        List<DiscussionEntry> cached = new ArrayList<>();
+        for (int i = 0; i < CACHED / 2; i++) {
+            long id = 1 + (i * 31L) % REPLIES;
+            cached.add(entry(id, -1, id));
+        }
+        for (int i = 0; i < CACHED / 2; i++) {
+            long id = REPLIES + 1 + i;
+            long parentId = i % 10 == 0 ? -1 : 1 + (i * 13L) % REPLIES;
+            cached.add(entry(id, parentId, id));
+        }
+        return cached;
+    }
+
+    //endregion
+
+    //region Legacy implementation, which reloaded the cache for every entry
+
+    private static class LegacyCache {
+        private final Map<Long, DiscussionEntry> mEntries = new LinkedHashMap<>();
+
+        LegacyCache(List<DiscussionEntry> entries) {
+            for (DiscussionEntry entry : entries) {
+                mEntries.put(entry.getId(), entry);
+            }
+        }
+
+        List<DiscussionEntry> loadEntries() {
+            return new ArrayList<>(mEntries.values());
+        }
+
+        void removeEntry(long id) {
+            mEntries.remove(id);
+        }
+    }
+
+    private static void legacyClean(LegacyCache cache, DiscussionEntry parentEntry, List<DiscussionEntry> discussionEntries) {
+        List<DiscussionEntry> cachedEntries = cache.loadEntries();
+        for (DiscussionEntry cached : cachedEntries) {
+            if (cached.getId() == parentEntry.getId()) {
+                cache.removeEntry(cached.getId());
+                cachedEntries = cache.loadEntries();
+                break;
+            }
+        }
+        for (DiscussionEntry discussionEntry : discussionEntries) {
+            for (DiscussionEntry cached : cachedEntries) {
+                if (cached.getId() == discussionEntry.getId()) {
+                    cache.removeEntry(cached.getId());
+                    cachedEntries = cache.loadEntries();
+                    break;
+                }
+            }
+            legacyClean(cache, discussionEntry, discussionEntry.getReplies());
+        }
+    }
+
+    private static List<DiscussionEntry> legacyUnify(LegacyCache cache, List<DiscussionEntry> discussionEntries) {
+        List<DiscussionEntry> cachedEntries = cache.loadEntries();
+        if (cachedEntries.isEmpty()) return discussionEntries;
+        for (DiscussionEntry cached : cachedEntries) {
+            if (cached.getParentId() == -1L) discussionEntries.add(cached);
+        }
+        Collections.sort(discussionEntries, BY_CREATED_AT);
+        for (DiscussionEntry parentEntry : discussionEntries) {
+            legacyRecursiveUnify(cache, parentEntry, parentEntry.getReplies());
+        }
+        return discussionEntries;
+    }
+
+    private static void legacyRecursiveUnify(LegacyCache cache, DiscussionEntry parentEntry, List<DiscussionEntry> discussionEntries) {
+        List<DiscussionEntry> cachedEntries = cache.loadEntries();
+        List<DiscussionEntry> children = new ArrayList<>();
+        for (DiscussionEntry cached : cachedEntries) {
+            if (cached.getParentId() == parentEntry.getId()) children.add(cached);
+        }
+        discussionEntries.addAll(children);
+        parentEntry.setTotalChildren(parentEntry.getTotalChildren() + children.size());
+        if (!children.isEmpty()) Collections.sort(discussionEntries, BY_CREATED_AT);
+        for (DiscussionEntry discussionEntry : discussionEntries) {
+            legacyRecursiveUnify(cache, discussionEntry, discussionEntry.getReplies());
+        }
+    }
+
+    //endregion
+
+    private static final Comparator<DiscussionEntry> BY_CREATED_AT = new Comparator<DiscussionEntry>() {
+        @Override
+        public int compare(DiscussionEntry o1, DiscussionEntry o2) {
+            return o1.getCreatedAt().compareTo(o2.getCreatedAt());
+        }
+    };
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.pandautils.unit;
+
+import com.instructure.canvasapi2.models.DiscussionEntry;
+import com.instructure.pandautils.discussions.DiscussionCacheIndex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DiscussionCacheIndexTest {
+
+    @Test
+    public void removeServerEntries_removesEntriesAtAnyDepth() {
+        DiscussionEntry top = entry(1, -1, 1);
+        DiscussionEntry reply = entry(2, 1, 2);
+        DiscussionEntry nested = entry(3, 2, 3);
+        reply.getReplies().add(nested);
+        top.getReplies().add(reply);
+
+        DiscussionCacheIndex index = new DiscussionCacheIndex(Arrays.asList(entry(1, -1, 1), entry(3, 2, 3), entry(4, 2, 4)));
+        List<Long> removed = index.removeServerEntries(Collections.singletonList(top));
+
+        assertEquals(Arrays.asList(1L, 3L), removed);
+        assertEquals(1, index.getSize());
+        assertNull(index.get(3));
+        assertNotNull(index.get(4));
+    }
+
+    @Test
+    public void unify_addsCachedEntriesUnderParents() {
+        DiscussionEntry top = entry(1, -1, 1);
+        DiscussionEntry reply = entry(2, 1, 3);
+        top.getReplies().add(reply);
+        List<DiscussionEntry> entries = new ArrayList<>(Collections.singletonList(top));
+
+        DiscussionEntry cachedTop = entry(10, -1, 5);
+        DiscussionEntry cachedReply = entry(11, 1, 2);
+        DiscussionEntry cachedNested = entry(12, 11, 6);
+        DiscussionEntry cachedUnderCachedTop = entry(13, 10, 7);
+        DiscussionCacheIndex index = new DiscussionCacheIndex(Arrays.asList(cachedTop, cachedReply, cachedNested, cachedUnderCachedTop));
+
+        List<DiscussionEntry> unified = index.unify(entries);
+
+        assertEquals(Arrays.asList(1L, 10L), ids(unified));
+        assertEquals(Arrays.asList(11L, 2L), ids(top.getReplies())); // Sorted by creation date
+        assertEquals(1, top.getTotalChildren());
+        assertEquals(Collections.singletonList(12L), ids(cachedReply.getReplies()));
+        assertEquals(Collections.singletonList(13L), ids(cachedTop.getReplies()));
+    }
+
+    @Test
+    public void unify_entryParentedToItselfIsAddedOnce() {
+        DiscussionEntry top = entry(1, -1, 1);
+        DiscussionEntry cached = entry(5, 5, 2);
+        DiscussionEntry cachedChild = entry(6, 1, 3);
+        DiscussionCacheIndex index = new DiscussionCacheIndex(Arrays.asList(cached, cachedChild));
+
+        index.unify(new ArrayList<>(Collections.singletonList(top)));
+
+        assertEquals(Collections.singletonList(6L), ids(top.getReplies()));
+    }
+
+    @Test
+    public void removeServerEntriesThenUnify_mergesCachedReplies() {
+        // 1 > 2 > 3 on the server
+        DiscussionEntry top = entry(1, -1, 1);
+        DiscussionEntry reply = entry(2, 1, 2);
+        DiscussionEntry nested = entry(3, 2, 3);
+        reply.getReplies().add(nested);
+        top.getReplies().add(reply);
+        List<DiscussionEntry> entries = new ArrayList<>(Collections.singletonList(top));
+
+        // 1 and 3 were synced since they were cached, 4, 5 and 6 are new
+        DiscussionCacheIndex index = new DiscussionCacheIndex(Arrays.asList(
+                entry(1, -1, 1), entry(3, 2, 3), entry(4, 3, 4), entry(5, -1, 5), entry(6, 5, 6)));
+
+        assertEquals(Arrays.asList(1L, 3L), index.removeServerEntries(entries));
+        List<DiscussionEntry> unified = index.unify(entries);
+
+        assertEquals(Arrays.asList("1:0", "2:0", "3:1", "4:0", "5:1", "6:0"), flatten(unified));
+    }
+
+    @Test
+    public void unify_deepReplyChain() {
+        int depth = 5000;
+        DiscussionEntry top = entry(1, -1, 1);
+        DiscussionEntry deepest = top;
+        for (long id = 2; id <= depth; id++) {
+            DiscussionEntry reply = entry(id, id - 1, id);
+            deepest.getReplies().add(reply);
+            deepest = reply;
+        }
+        DiscussionCacheIndex index = new DiscussionCacheIndex(Collections.singletonList(entry(depth + 1, depth, depth + 1)));
+
+        assertTrue(index.removeServerEntries(Collections.singletonList(top)).isEmpty());
+        index.unify(new ArrayList<>(Collections.singletonList(top)));
+
+        assertEquals(Collections.singletonList((long) depth + 1), ids(deepest.getReplies()));
+        assertEquals(1, deepest.getTotalChildren());
+    }
+
+    @Test
+    public void emptyIndex_leavesEntriesAsTheyAre() {
+        DiscussionEntry later = entry(2, -1, 2);
+        DiscussionEntry earlier = entry(1, -1, 1);
+        List<DiscussionEntry> entries = new ArrayList<>(Arrays.asList(later, earlier));
+        DiscussionCacheIndex index = new DiscussionCacheIndex(Collections.<DiscussionEntry>emptyList());
+
+        assertTrue(index.removeServerEntries(entries).isEmpty());
+        assertEquals(Arrays.asList(2L, 1L), ids(index.unify(entries)));
+    }
+
+    static DiscussionEntry entry(long id, long parentId, long minutes) {
+        DiscussionEntry entry = new DiscussionEntry();
+        entry.setId(id);
+        entry.setParentId(parentId);
+        entry.setCreatedAt(String.format("2018-01-%02dT%02d:%02d:00Z", 1 + minutes / 1440, (minutes / 60) % 24, minutes % 60));
+        return entry;
+    }
+
+    private static List<Long> ids(List<DiscussionEntry> entries) {
+        List<Long> ids = new ArrayList<>();
+        for (DiscussionEntry entry : entries) {
+            ids.add(entry.getId());
+        }
+        return ids;
+    }
+
+    // Ids in tree order, with the number of children of each entry
+    static List<String> flatten(List<DiscussionEntry> entries) {
+        List<String> flat = new ArrayList<>();
+        for (DiscussionEntry entry : entries) {
+            flat.add(entry.getId() + ":" + entry.getTotalChildren());
+            flat.addAll(flatten(entry.getReplies()));
+        }
+        return flat;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.instructure.pandautils.unit;
+
+import com.instructure.pandautils.utils.HtmlTemplate;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.instructure.pandautils.unit.HtmlTemplateTest.entryKeys;
+import static com.instructure.pandautils.unit.HtmlTemplateTest.entryValues;
+import static com.instructure.pandautils.unit.HtmlTemplateTest.readEntryTemplate;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares rendering discussion entries with HtmlTemplate against the chained replace() calls it replaced.
+ * Not part of the default test run, use ./gradlew :pandautils:testDebugUnitTest -Pbenchmark --tests '*HtmlTemplateBenchmark'
+ */
+public class HtmlTemplateBenchmark {
+
+    private static final int ENTRIES = 2000;
+
+    @Test
+    public void fillAgainstChainedReplace() throws Exception {
+        String html = readEntryTemplate();
+        List<String> keys = entryKeys();
+        String[] values = entryValues();
+
+        HtmlTemplate template = new HtmlTemplate(html, keys);
+        for (int warmup = 0; warmup < 3; warmup++) {
+            renderWithReplace(html, keys, values);
+            renderWithTemplate(template, values);
+        }
+
+        long start = System.nanoTime();
+        int replaceLength = renderWithReplace(html, keys, values);
+        long replaceTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int templateLength = renderWithTemplate(template, values);
+        long templateTime = System.nanoTime() - start;
+
+        assertEquals(replaceLength, templateLength);
+        System.out.println("Rendering " + ENTRIES + " entries: chained replace " + replaceTime / 1000000 + "ms, template " + templateTime / 1000000 + "ms");
+    }
+
+    private static int renderWithReplace(String html, List<String> keys, String[] values) {
+        StringBuilder builder = new StringBuilder();
+        for (int entry = 0; entry < ENTRIES; entry++) {
+            String result = html;
+            for (int i = 0; i < keys.size(); i++) {
+                result = result.replace(keys.get(i), values[i]);
+            }
+            builder.append(result);
+        }
+        return builder.length();
+    }
+
+    private static int renderWithTemplate(HtmlTemplate template, String[] values) {
+        StringBuilder builder = new StringBuilder();
+        for (int entry = 0; entry < ENTRIES; entry++) {
+            template.fill(builder, values);
+        }
+        return builder.length();
+    }
+}
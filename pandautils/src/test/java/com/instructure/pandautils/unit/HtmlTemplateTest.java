@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.pandautils.unit;
+
+import com.instructure.pandautils.discussions.DiscussionHtmlPager;
+import com.instructure.pandautils.discussions.EntryPlaceholder;
+import com.instructure.pandautils.utils.HtmlTemplate;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HtmlTemplateTest {
+
+    private static final String TEMPLATE_ASSET = "src/main/assets/discussion_html_template_item.html";
+
+    @Test
+    public void fill_replacesEveryOccurrence() throws Exception {
+        HtmlTemplate template = new HtmlTemplate("<p id=\"__ID__\">__NAME__ (__ID__)</p>", Arrays.asList("__ID__", "__NAME__"));
+
+        assertEquals(2, template.getPlaceholderCount());
+        assertEquals("<p id=\"7\">Bob (7)</p>", template.fill(new String[]{"7", "Bob"}));
+    }
+
+    @Test
+    public void fill_leavesValuesAlone() throws Exception {
+        HtmlTemplate template = new HtmlTemplate("__A__-__B__", Arrays.asList("__A__", "__B__"));
+
+        // Chained replace() calls would replace the __B__ that is part of the first value
+        assertEquals("__B__-b", template.fill(new String[]{"__B__", "b"}));
+    }
+
+    @Test
+    public void fill_prefersLongerPlaceholderAtSameOffset() throws Exception {
+        HtmlTemplate template = new HtmlTemplate("[__X____X_LONG__]", Arrays.asList("__X__", "__X_LONG__"));
+
+        assertEquals("[xlong]", template.fill(new String[]{"x", "long"}));
+    }
+
+    @Test
+    public void fill_templateWithoutPlaceholders() throws Exception {
+        HtmlTemplate template = new HtmlTemplate("<div></div>", Arrays.asList("__A__"));
+
+        assertEquals("<div></div>", template.fill(new String[]{"a"}));
+    }
+
+    @Test
+    public void findPlaceholders_wrapperStyle() throws Exception {
+        String wrapper = "<html><body>{$CONTENT$}<p>{$TITLE$}</p>{$CONTENT$}</body></html>";
+
+        assertEquals(Arrays.asList("{$CONTENT$}", "{$TITLE$}"), HtmlTemplate.findPlaceholders(wrapper));
+        assertEquals("<html><body>a<p>b</p>a</body></html>", new HtmlTemplate(wrapper, HtmlTemplate.findPlaceholders(wrapper)).fill(new String[]{"a", "b"}));
+    }
+
+    @Test
+    public void fill_matchesChainedReplaceOnEntryTemplate() throws Exception {
+        String html = readEntryTemplate();
+        List<String> keys = entryKeys();
+        String[] values = entryValues();
+
+        String expected = html;
+        for (int i = 0; i < keys.size(); i++) {
+            expected = expected.replace(keys.get(i), values[i]);
+        }
+
+        assertEquals(expected, new HtmlTemplate(html, keys).fill(values));
+    }
+
+    @Test
+    public void toJsString_escapes() throws Exception {
+        assertEquals("\"<a href=\\\"x\\\">\\\\</a>\\n\\u2028\"", DiscussionHtmlPager.toJsString("<a href=\"x\">\\</a>\n\u2028"));
+    }
+
+    @Test
+    public void fill_appendsToBuilder() throws Exception {
+        HtmlTemplate template = new HtmlTemplate("<p>__A__</p>", Arrays.asList("__A__"));
+        StringBuilder builder = new StringBuilder("<div>");
+
+        template.fill(builder, new String[]{"a"});
+        template.fill(builder, new String[]{"b"});
+
+        assertEquals("<div><p>a</p><p>b</p>", builder.toString());
+    }
+
+    static String readEntryTemplate() throws Exception {
+        return new String(Files.readAllBytes(new File(TEMPLATE_ASSET).toPath()), Charset.forName("UTF-8"));
+    }
+
+    static List<String> entryKeys() {
+        List<String> keys = new ArrayList<>();
+        for (EntryPlaceholder placeholder : EntryPlaceholder.values()) {
+            keys.add(placeholder.getKey());
+        }
+        return keys;
+    }
+
+    static String[] entryValues() {
+        String[] values = new String[EntryPlaceholder.values().length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = "value " + i + " <b>with some markup</b>";
+        }
+        return values;
+    }
+}
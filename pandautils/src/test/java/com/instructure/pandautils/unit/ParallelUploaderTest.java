@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.pandautils.unit;
+
+import com.instructure.pandautils.services.ParallelUploader;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import kotlin.jvm.functions.Function0;
+import kotlin.jvm.functions.Function1;
+import okhttp3.ResponseBody;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+import static org.junit.Assert.*;
+
+public class ParallelUploaderTest {
+
+    private static final Function0<Boolean> NOT_CANCELED = new Function0<Boolean>() {
+        @Override
+        public Boolean invoke() {
+            return false;
+        }
+    };
+
+    /**
+     * Stands in for the upload server: the given items fail with the given status a number of times first. If there is
+     * a latch, an upload waits for it after counting it down, so it only passes once that many uploads run at once.
+     */
+    private static class FakeServer implements Function1<Integer, String> {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final ConcurrentHashMap<Integer, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Integer, Integer> failures = new ConcurrentHashMap<>();
+        final CountDownLatch concurrent;
+        int failureCode = 503;
+
+        FakeServer(CountDownLatch concurrent) {
+            this.concurrent = concurrent;
+        }
+
+        @Override
+        public String invoke(Integer item) {
+            attempts.putIfAbsent(item, new AtomicInteger());
+            int attempt = attempts.get(item).incrementAndGet();
+            int current = active.incrementAndGet();
+            while (true) {
+                int max = maxActive.get();
+                if (current <= max || maxActive.compareAndSet(max, current)) break;
+            }
+            try {
+                if (concurrent != null) {
+                    concurrent.countDown();
+                    if (!concurrent.await(5, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("Uploads didn't run at the same time");
+                    }
+                }
+                Integer failCount = failures.get(item);
+                if (failCount != null && attempt <= failCount) {
+                    throw new HttpException(Response.error(failureCode, ResponseBody.create(null, "Failed uploading " + item)));
+                }
+                return "attachment" + item;
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+        int attemptsOf(int item) {
+            AtomicInteger count = attempts.get(item);
+            return count == null ? 0 : count.get();
+        }
+    }
+
+    private static List<Integer> items(int count) {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+
+    @Test
+    public void uploadAll_uploadsInParallelAndKeepsOrder() throws Exception {
+        // One at a time, the first upload would wait for the others and fail
+        FakeServer server = new FakeServer(new CountDownLatch(3));
+        ParallelUploader<Integer, String> uploader = new ParallelUploader<>(3, 1, 10);
+
+        List<String> results = uploader.uploadAll(items(9), null, NOT_CANCELED, server);
+
+        assertEquals(9, results.size());
+        for (int i = 0; i < 9; i++) {
+            assertEquals("attachment" + i, results.get(i));
+        }
+        assertEquals(3, server.maxActive.get());
+    }
+
+    @Test
+    public void uploadAll_retriesOnlyTheFailedItem() throws Exception {
+        FakeServer server = new FakeServer(null);
+        server.failures.put(4, 2);
+        final List<Integer> completed = new ArrayList<>();
+        ParallelUploader.Listener<Integer, String> listener = new ParallelUploader.Listener<Integer, String>() {
+            @Override
+            public void onStarted(Integer item, int index, int attempt) {}
+
+            @Override
+            public void onCompleted(Integer item, int index, String result) {
+                synchronized (completed) {
+                    completed.add(item);
+                }
+            }
+        };
+
+        List<String> results = new ParallelUploader<Integer, String>(3, 3, 10).uploadAll(items(6), listener, NOT_CANCELED, server);
+
+        assertEquals("attachment4", results.get(4));
+        assertEquals(3, server.attemptsOf(4));
+        for (int i = 0; i < 6; i++) {
+            if (i != 4) assertEquals(1, server.attemptsOf(i));
+        }
+        assertEquals(6, completed.size());
+    }
+
+    @Test
+    public void uploadAll_failsAfterMaxAttempts() throws Exception {
+        FakeServer server = new FakeServer(null);
+        server.failures.put(0, 5);
+
+        try {
+            new ParallelUploader<Integer, String>(1, 2, 10).uploadAll(items(4), null, NOT_CANCELED, server);
+            fail("Expected the upload to fail");
+        } catch (RuntimeException e) {
+            assertTrue(e instanceof HttpException);
+            assertEquals(503, ((HttpException) e).code());
+        }
+        assertEquals(2, server.attemptsOf(0));
+        // The items waiting behind the failed one are skipped
+        assertEquals(0, server.attemptsOf(3));
+    }
+
+    @Test
+    public void uploadAll_doesNotRetryClientErrors() throws Exception {
+        FakeServer server = new FakeServer(null);
+        server.failures.put(0, 1);
+        server.failureCode = 400;
+
+        try {
+            new ParallelUploader<Integer, String>(1, 3, 10).uploadAll(items(2), null, NOT_CANCELED, server);
+            fail("Expected the upload to fail");
+        } catch (HttpException e) {
+            assertEquals(400, e.code());
+        }
+        assertEquals(1, server.attemptsOf(0));
+        assertEquals(0, server.attemptsOf(1));
+    }
+
+    @Test
+    public void isTransient() throws Exception {
+        assertTrue(ParallelUploader.isTransient(new IOException("Connection reset")));
+        assertTrue(ParallelUploader.isTransient(new HttpException(Response.error(502, ResponseBody.create(null, "")))));
+        assertFalse(ParallelUploader.isTransient(new HttpException(Response.error(403, ResponseBody.create(null, "")))));
+        assertFalse(ParallelUploader.isTransient(new IllegalStateException("No attachment")));
+    }
+
+    @Test
+    public void uploadAll_stopsWhenCanceled() throws Exception {
+        final FakeServer server = new FakeServer(null);
+        Function0<Boolean> canceledAfterFirst = new Function0<Boolean>() {
+            @Override
+            public Boolean invoke() {
+                return server.attemptsOf(0) > 0;
+            }
+        };
+
+        try {
+            new ParallelUploader<Integer, String>(1, 3, 10).uploadAll(items(5), null, canceledAfterFirst, server);
+            fail("Expected the upload to be canceled");
+        } catch (CancellationException e) {
+            // Expected
+        }
+        assertEquals(1, server.attemptsOf(0));
+        assertEquals(0, server.attemptsOf(1));
+    }
+}
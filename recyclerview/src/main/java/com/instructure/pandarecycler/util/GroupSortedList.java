@@ -43,6 +43,13 @@ public class GroupSortedList<GROUP, ITEM> {
 
     private HashMap<Long, Boolean> mExpanded = new HashMap<>(); // The expanded state of a group is stored by its ID, so it doesn't matter if it moves positions
 
+    // Prefix sums of the visual group sizes (header + calculatedChildrenCount), see getGroupVisualOffset
+    private int[] mGroupVisualOffsets = new int[16];
+    private int mValidGroupVisualOffsets = 0; // Number of leading entries in mGroupVisualOffsets that are up to date
+
+    private IdPositionIndex mGroupIndex = new IdPositionIndex(); // Maps a group id to its stored group position
+    private IdPositionIndex mItemIndex = new IdPositionIndex(); // Maps an item id to its group id and position within the group
+
     // region Interfaces
 
     public interface GroupComparatorCallback <GRP> {
@@ -102,11 +109,7 @@ public class GroupSortedList<GROUP, ITEM> {
      * @return
      */
     public int size() {
-        int totalChildren = 0;
-        for (int i = 0; i < getStoredGroupCount(); i++) {
-            totalChildren += calculatedChildrenCount(i);
-        }
-        return totalChildren + getStoredGroupCount();
+        return getGroupVisualOffset(getStoredGroupCount());
     }
 
     /**
@@ -178,8 +181,9 @@ public class GroupSortedList<GROUP, ITEM> {
     }
 
 
-    private void setExpanded(long groupId, boolean isExpanded) {
+    private void setExpanded(long groupId, int storedGroupPosition, boolean isExpanded) {
         mExpanded.put(groupId, isExpanded);
+        invalidateGroupVisualOffsets(storedGroupPosition);
     }
 
     /**
@@ -201,7 +205,7 @@ public class GroupSortedList<GROUP, ITEM> {
             int groupPosition = storedGroupPosition(getGroupId(group));
             if (groupPosition == GROUP_NOT_FOUND) { return; }
 
-            setExpanded(getGroupId(group), true);
+            setExpanded(getGroupId(group), groupPosition, true);
             int visualGroupPosition = getGroupVisualPositionFromStoredPosition(groupPosition);
             if (isNotifyGroupChange) {
                 mVisualArrayCallback.onChanged(visualGroupPosition, 1);
@@ -262,7 +266,7 @@ public class GroupSortedList<GROUP, ITEM> {
                 }
                 mVisualArrayCallback.onRemoved(visualGroupPosition, calculatedChildrenCount(groupPosition));
             }
-            setExpanded(getGroupId(group), false); // make sure setExpanded occurs after calculatedChildrenCount, so the proper amount is notified to be removed
+            setExpanded(getGroupId(group), groupPosition, false); // make sure setExpanded occurs after calculatedChildrenCount, so the proper amount is notified to be removed
         }
     }
 
@@ -311,42 +315,67 @@ public class GroupSortedList<GROUP, ITEM> {
      * A way to think about finding the visual position is counting the group header, then the children in each group.
      *  i.e. Given Group0 = {child0, child1}; Group1 = {child0, child1, child2} (GCCGCCC).
      *
-     *      The storedPosition of Group1 is 1.
-     *
-     *      Running through the loop would be as follows (where the condition is i < storedPosition):
-     *          groupVisualPosition = 3; i = 0; storedPosition = 1 [0 < 1 is true]
-     *          groupVisualPosition = 3; i = 1; storedPosition = 1 [1 < 1 is false]. Visual group position is found.
+     *      The storedPosition of Group1 is 1, and the visual offset of stored position 1 is 3 (G + CC).
+     *      The visual position of Group1 is its visual offset: 3.
      *
      *  It is reversed when children are above (mIsChildrenAboveGroup). Given CCGCCCG
      *
-     *      The storedPosition of Group1 is 1.
-     *
-     *      Running through the loop would be as follows (where the condition is i <= storedPosition):
-     *          groupVisualPosition = 3; i = 0; storedPosition = 1 [0 <= 1 is true]
-     *          groupVisualPosition = 7; i = 1; storedPosition = 1 [1 <= 1 is true]
-     *          groupVisualPosition = 7; i = 2; storedPosition = 1 [2 <= 1 is false]. Visual group position is found.
+     *      The storedPosition of Group1 is 1, and the visual offset of stored position 1 is still 3 (CC + G).
+     *      The visual position of Group1 is its visual offset plus its own children: 3 + 3 = 6.
      * @param storedPosition
      * @return
      */
     private int getGroupVisualPositionFromStoredPosition(int storedPosition) {
-        int groupVisualPosition = 0;
+        if (storedPosition < 0) { return 0; }
+        int groupVisualPosition = getGroupVisualOffset(storedPosition);
         if (mIsChildrenAboveGroup) {
-            // Notice: This for loop has a '<=' which is different from the for loop in the else condition
-            for (int i = 0; i <= storedPosition; i++) {
-                if (i == storedPosition) { // Edge case, group is first in array
-                    groupVisualPosition += calculatedChildrenCount(i);
-                    break;
-                }
-                groupVisualPosition += 1; // group header
-                groupVisualPosition += calculatedChildrenCount(i);
+            groupVisualPosition += calculatedChildrenCount(storedPosition);
+        }
+        return groupVisualPosition;
+    }
+
+    /**
+     * The number of visual rows (group headers and children) that come before the group at storedPosition,
+     * or the visual size of the list when storedPosition is the group count.
+     *
+     * The offsets are cached as prefix sums and only recomputed from the first group that changed
+     * (see {@link #invalidateGroupVisualOffsets(int)}), so repeated lookups while binding rows don't walk every group.
+     * @param storedPosition
+     * @return
+     */
+    private int getGroupVisualOffset(int storedPosition) {
+        int groupCount = getStoredGroupCount();
+        if (storedPosition > groupCount) {
+            // Past the end, each missing group only counts its header
+            return getGroupVisualOffset(groupCount) + (storedPosition - groupCount);
+        }
+        if (storedPosition >= mValidGroupVisualOffsets) {
+            if (mGroupVisualOffsets.length <= storedPosition) {
+                mGroupVisualOffsets = Arrays.copyOf(mGroupVisualOffsets, Math.max(storedPosition + 1, mGroupVisualOffsets.length * 2));
             }
-        } else {
-            for (int i = 0; i < storedPosition; i++) {
-                groupVisualPosition += 1; // group header
-                groupVisualPosition += calculatedChildrenCount(i);
+            if (mValidGroupVisualOffsets == 0) {
+                mGroupVisualOffsets[0] = 0;
+                mValidGroupVisualOffsets = 1;
+            }
+            for (int i = mValidGroupVisualOffsets; i <= storedPosition; i++) {
+                mGroupVisualOffsets[i] = mGroupVisualOffsets[i - 1] + 1 + calculatedChildrenCount(i - 1); // group header + children
             }
+            mValidGroupVisualOffsets = storedPosition + 1;
         }
-        return groupVisualPosition;
+        return mGroupVisualOffsets[storedPosition];
+    }
+
+    /**
+     * Must be called whenever the visual size of a group changes, or groups are added, removed or moved.
+     * The offset of a group only depends on the groups before it, so everything up to and including storedGroupPosition stays valid.
+     * @param storedGroupPosition the first stored group position that changed
+     */
+    private void invalidateGroupVisualOffsets(int storedGroupPosition) {
+        mValidGroupVisualOffsets = Math.max(0, Math.min(mValidGroupVisualOffsets, storedGroupPosition + 1));
+    }
+
+    private void invalidateAllGroupVisualOffsets() {
+        mValidGroupVisualOffsets = 0;
     }
 
     private int getItemStoredPosition(int visualPosition) {
@@ -387,26 +416,31 @@ public class GroupSortedList<GROUP, ITEM> {
      * Searches for the group.
      *
      * i.e. Given a data set that had 2 groups first group has 2 children, the second group has 3 children (GCCGCCC).
-     *      The second group in the list has a visual position (or index) of 3.
-     *      As soon as the search position is greater than the visual position, or 3 in this case, the stored position is known.
+     *      The visual offsets of the groups are 0 and 3, and the list ends at 7.
+     *      The stored group position is the last group whose visual offset is less than or equal to the visual position,
+     *      so it can be found with a binary search over the offsets.
      *
-     *      Running through the loop would be as follows (where the condition is visualPosition < searchPosition):
-     *          searchPosition = 3; i = 0; visualPosition = 3 [3 < 3 is false]
-     *          searchPosition = 7; i = 1; visualPosition = 3 [3 < 7 is true]. Stored group position is found
+     *      For visualPosition = 3: offset(1) = 3 <= 3, offset(2) = 7 > 3. Stored group position is 1
      *
      * @param visualPosition
      * @return
      */
     private int getStoredGroupPosition(int visualPosition) {
-        int searchPosition = 0;
-        for (int i = 0; i < getStoredGroupCount(); i++) {
-            searchPosition += 1; // group header
-            searchPosition += calculatedChildrenCount(i);
-            if (visualPosition < searchPosition) {
-                return i;
+        int groupCount = getStoredGroupCount();
+        if (groupCount == 0 || visualPosition >= getGroupVisualOffset(groupCount)) {
+            return 0; // 0 by default
+        }
+        int low = 0;
+        int high = groupCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (getGroupVisualOffset(middle) <= visualPosition) {
+                low = middle;
+            } else {
+                high = middle - 1;
             }
         }
-        return 0; // 0 by default
+        return low;
     }
 
     // endregion
@@ -527,6 +561,9 @@ public class GroupSortedList<GROUP, ITEM> {
     public void clearAll(){
         mGroupObjects = new SortedList<>(mGroupKlazz, mGroupCallback);
         mItems = new HashMap<>();
+        mGroupIndex.clear();
+        mItemIndex.clear();
+        invalidateAllGroupVisualOffsets();
     }
 
     private void removeItems(SortedList<ITEM> items) {
@@ -537,21 +574,42 @@ public class GroupSortedList<GROUP, ITEM> {
     }
 
     /**
-     * Iterates through all the groups to find the group by its id
+     * Finds the group by its id using the group index
      * @param id
      * @return
      */
     private int storedGroupPosition(long id) {
-        // TODO Optimize this (it is really slow)
-        for (int i =0; i < mGroupObjects.size(); i++) {
-            GROUP group = mGroupObjects.get(i);
-            if (getGroupId(group) == id) {
+        int slot = mGroupIndex.find(id);
+        if (slot == IdPositionIndex.NOT_FOUND) {
+            return GROUP_NOT_FOUND; // Every group that is added is indexed by the group callback
+        }
+        int position = mGroupIndex.getPosition(slot);
+        if (position < mGroupObjects.size() && getGroupObjectId(position) == id) {
+            return position;
+        }
+
+        // The entry is stale (the group was removed), double check the slow way before dropping it
+        for (int i = 0; i < mGroupObjects.size(); i++) {
+            if (getGroupObjectId(i) == id) {
+                mGroupIndex.put(id, id, i);
                 return i;
             }
         }
+        mGroupIndex.remove(id);
         return GROUP_NOT_FOUND;
     }
 
+    /**
+     * Updates the group index for every group at or after the stored position, their positions shift when groups are added, removed or moved
+     * @param fromStoredGroupPosition
+     */
+    private void indexGroups(int fromStoredGroupPosition) {
+        for (int i = Math.max(0, fromStoredGroupPosition); i < mGroupObjects.size(); i++) {
+            long groupId = getGroupObjectId(i);
+            mGroupIndex.put(groupId, groupId, i);
+        }
+    }
+
     // ITEMs
 
     /**
@@ -663,19 +721,22 @@ public class GroupSortedList<GROUP, ITEM> {
             }
         }
 
+        // The callbacks are deferred while batching, so the item index is kept up to date here instead
+        long groupId = getGroupId(group);
         for (ITEM item : items) {
             ItemPosition itemPosition = storedItemPosition(getItemId(item));
             // Add or update the item
             if (itemPosition != null) {
-                if (itemPosition.groupId == getGroupId(group)) {
+                if (itemPosition.groupId == groupId) {
                     groupItems.updateItemAt(itemPosition.itemPosition, item);
+                    indexGroupItems(groupId, Math.min(itemPosition.itemPosition, groupItems.indexOf(item)));
                 } else { // handle the case where the item has changed groups
                     SortedList<ITEM> oldGroupItems = getGroupItems(getGroup(itemPosition.groupId));
                     oldGroupItems.removeItemAt(itemPosition.itemPosition);
-                    groupItems.add(item);
+                    indexGroupItems(groupId, groupItems.add(item));
                 }
             } else { // if its not there, just add it
-                groupItems.add(item);
+                indexGroupItems(groupId, groupItems.add(item));
             }
         }
 
@@ -777,25 +838,51 @@ public class GroupSortedList<GROUP, ITEM> {
     }
 
     /**
-     * Search for the item in all of the groups
+     * Finds the item using the item index
      * @param itemId
      * @return
      */
     @Nullable
     private ItemPosition storedItemPosition(long itemId) {
-        // TODO Optimize this (it is really slow)
+        int slot = mItemIndex.find(itemId);
+        if (slot == IdPositionIndex.NOT_FOUND) {
+            return null; // Every item that is added is indexed by the group's callback
+        }
+        long groupId = mItemIndex.getGroupId(slot);
+        int position = mItemIndex.getPosition(slot);
+        SortedList<ITEM> itemList = mItems.get(groupId);
+        if (itemList != null && position < itemList.size() && getItemId(itemList.get(position)) == itemId) {
+            return new ItemPosition(groupId, position);
+        }
+
+        // The entry is stale (the item was removed), double check the slow way before dropping it
         for (Map.Entry<Long, SortedList<ITEM>> entry : mItems.entrySet()) {
-            SortedList<ITEM> itemList = entry.getValue();
+            itemList = entry.getValue();
             for (int i =0; i < itemList.size(); i++) {
                 ITEM item = itemList.get(i);
                 if (getItemId(item) == itemId) {
+                    mItemIndex.put(itemId, entry.getKey(), i);
                     return new ItemPosition(entry.getKey(), i);
                 }
             }
         }
+        mItemIndex.remove(itemId);
         return null;
     }
 
+    /**
+     * Updates the item index for every item in the group at or after the position, their positions shift when items are added, removed or moved
+     * @param groupId
+     * @param fromPosition
+     */
+    private void indexGroupItems(long groupId, int fromPosition) {
+        SortedList<ITEM> itemList = mItems.get(groupId);
+        if (itemList == null) { return; }
+        for (int i = Math.max(0, fromPosition); i < itemList.size(); i++) {
+            mItemIndex.put(getItemId(itemList.get(i)), groupId, i);
+        }
+    }
+
     /**
      * Get the items in a group
      * @param group
@@ -822,16 +909,22 @@ public class GroupSortedList<GROUP, ITEM> {
 
         @Override
         public void onInserted(int storedGroupPosition, int count) {
+            indexGroups(storedGroupPosition);
+            invalidateGroupVisualOffsets(storedGroupPosition);
             mVisualArrayCallback.onInserted(getGroupVisualPositionFromStoredPosition(storedGroupPosition), count);
         }
 
         @Override
         public void onRemoved(int storedGroupPosition, int count) {
+            indexGroups(storedGroupPosition);
+            invalidateGroupVisualOffsets(storedGroupPosition);
             mVisualArrayCallback.onRemoved(getGroupVisualPositionFromStoredPosition(storedGroupPosition), count);
         }
 
         @Override
         public void onMoved(int storedGroupFromPosition, int storedGroupToPosition) {
+            indexGroups(Math.min(storedGroupFromPosition, storedGroupToPosition));
+            invalidateGroupVisualOffsets(Math.min(storedGroupFromPosition, storedGroupToPosition));
 
             // Handles when groups change positions
             //  Collapse both groups, move them, then expand again if expanded.
@@ -899,9 +992,11 @@ public class GroupSortedList<GROUP, ITEM> {
             @Override
             public void onInserted(int position, int count) {
                 long groupId = this.getGroupObjectId();
+                indexGroupItems(groupId, position);
                 if (isGroupExpanded(groupId)) {
                     int storedGroupPosition = storedGroupPosition(groupId);
                     if (storedGroupPosition == GROUP_NOT_FOUND) { return; }
+                    invalidateGroupVisualOffsets(storedGroupPosition);
                     mVisualArrayCallback.onInserted(getVisualIndex(storedGroupPosition, position), count);
                 }
             }
@@ -909,9 +1004,11 @@ public class GroupSortedList<GROUP, ITEM> {
             @Override
             public void onRemoved(int position, int count) {
                 long groupId = this.getGroupObjectId();
+                indexGroupItems(groupId, position);
                 if (isGroupExpanded(groupId)) {
                     int storedGroupPosition = storedGroupPosition(groupId);
                     if (storedGroupPosition == GROUP_NOT_FOUND) { return; }
+                    invalidateGroupVisualOffsets(storedGroupPosition);
                     mVisualArrayCallback.onRemoved(getVisualIndex(storedGroupPosition, position), count);
                 }
             }
@@ -919,6 +1016,7 @@ public class GroupSortedList<GROUP, ITEM> {
             @Override
             public void onMoved(int fromPosition, int toPosition) {
                 long groupId = this.getGroupObjectId();
+                indexGroupItems(groupId, Math.min(fromPosition, toPosition));
                 if (isGroupExpanded(groupId)) {
                     int storedGroupPosition = storedGroupPosition(groupId);
                     if (storedGroupPosition == GROUP_NOT_FOUND) { return; }
@@ -989,6 +1087,7 @@ public class GroupSortedList<GROUP, ITEM> {
      */
     public void setChildrenAboveGroup(boolean isChildrenAboveGroup) {
         this.mIsChildrenAboveGroup = isChildrenAboveGroup;
+        invalidateAllGroupVisualOffsets();
     }
 
     public boolean isDisplayEmptyCell() {
@@ -997,6 +1096,7 @@ public class GroupSortedList<GROUP, ITEM> {
 
     public void setDisplayEmptyCell(boolean isDisplayEmptyCell) {
         this.mIsDisplayEmptyCell = isDisplayEmptyCell;
+        invalidateAllGroupVisualOffsets();
     }
 
     /**
@@ -1013,6 +1113,7 @@ public class GroupSortedList<GROUP, ITEM> {
      */
     public void setExpandedByDefault(boolean isExpandedByDefault) {
         this.mIsExpandedByDefault = isExpandedByDefault;
+        invalidateAllGroupVisualOffsets();
     }
 
     public GroupComparatorCallback<GROUP> getGroupComparatorCallback() {
@@ -1021,6 +1122,9 @@ public class GroupSortedList<GROUP, ITEM> {
 
     public void setGroupComparatorCallback(GroupComparatorCallback<GROUP> groupComparatorCallback) {
         this.mGroupComparatorCallback = groupComparatorCallback;
+        mGroupIndex.clear();
+        indexGroups(0);
+        invalidateAllGroupVisualOffsets();
     }
 
     public ItemComparatorCallback<GROUP, ITEM> getItemComparatorCallback() {
@@ -1029,6 +1133,10 @@ public class GroupSortedList<GROUP, ITEM> {
 
     public void setItemComparatorCallback(ItemComparatorCallback<GROUP, ITEM> itemComparatorCallback) {
         this.mItemComparatorCallback = itemComparatorCallback;
+        mItemIndex.clear();
+        for (Long groupId : mItems.keySet()) {
+            indexGroupItems(groupId, 0);
+        }
     }
 
 // endregion
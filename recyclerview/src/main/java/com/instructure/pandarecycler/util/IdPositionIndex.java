@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2017 - present Instructure, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.instructure.pandarecycler.util;
+
+import java.util.Arrays;
+
+/**
+ * Maps a unique id to where it is stored: the id of the group that holds it and its position in that group.
+ *
+ * Open addressing with linear probing over primitive arrays, so lookups don't box the ids like a HashMap<Long, ...> would.
+ * Entries are only hints, callers must check that the stored position still holds the id.
+ */
+class IdPositionIndex {
+    public static final int NOT_FOUND = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] mIds;
+    private long[] mGroupIds;
+    private int[] mPositions;
+    private boolean[] mUsed;
+    private int mSize;
+
+    IdPositionIndex() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * @return the slot of the id, or {@link #NOT_FOUND}
+     */
+    int find(long id) {
+        int mask = mIds.length - 1;
+        int slot = hash(id) & mask;
+        while (mUsed[slot]) {
+            if (mIds[slot] == id) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    long getGroupId(int slot) {
+        return mGroupIds[slot];
+    }
+
+    int getPosition(int slot) {
+        return mPositions[slot];
+    }
+
+    void put(long id, long groupId, int position) {
+        if ((mSize + 1) * 4 > mIds.length * 3) { // Keep the load factor under 0.75
+            rehash(mIds.length * 2);
+        }
+        int mask = mIds.length - 1;
+        int slot = hash(id) & mask;
+        while (mUsed[slot]) {
+            if (mIds[slot] == id) {
+                mGroupIds[slot] = groupId;
+                mPositions[slot] = position;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        mUsed[slot] = true;
+        mIds[slot] = id;
+        mGroupIds[slot] = groupId;
+        mPositions[slot] = position;
+        mSize++;
+    }
+
+    void remove(long id) {
+        int slot = find(id);
+        if (slot == NOT_FOUND) { return; }
+
+        // Shift the following entries of the probe run back, so no tombstones are needed
+        int mask = mIds.length - 1;
+        int next = (slot + 1) & mask;
+        while (mUsed[next]) {
+            int home = hash(mIds[next]) & mask;
+            // Move the entry into the hole if its home slot isn't between the hole and where it currently is
+            if ((next > slot && (home <= slot || home > next)) || (next < slot && (home <= slot && home > next))) {
+                mIds[slot] = mIds[next];
+                mGroupIds[slot] = mGroupIds[next];
+                mPositions[slot] = mPositions[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        mUsed[slot] = false;
+        mSize--;
+    }
+
+    void clear() {
+        if (mIds.length > MIN_CAPACITY) {
+            allocate(MIN_CAPACITY);
+        } else {
+            Arrays.fill(mUsed, false);
+        }
+        mSize = 0;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    private void allocate(int capacity) {
+        mIds = new long[capacity];
+        mGroupIds = new long[capacity];
+        mPositions = new int[capacity];
+        mUsed = new boolean[capacity];
+    }
+
+    private void rehash(int capacity) {
+        long[] ids = mIds;
+        long[] groupIds = mGroupIds;
+        int[] positions = mPositions;
+        boolean[] used = mUsed;
+        allocate(capacity);
+        mSize = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (used[i]) {
+                put(ids[i], groupIds[i], positions[i]);
+            }
+        }
+    }
+
+    private static int hash(long id) {
+        // Ids are usually sequential, so spread them before masking
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
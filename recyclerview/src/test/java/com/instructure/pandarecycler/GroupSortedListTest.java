@@ -38,6 +38,10 @@ public class GroupSortedListTest extends TestCase {
     List<Pair> mMoves = new ArrayList<Pair>();
     List<Pair> mUpdates = new ArrayList<Pair>();
 
+    // How often the list asked for an id, a stand in for how many groups and items a lookup walked
+    int mGroupIdLookups = 0;
+    int mItemIdLookups = 0;
+
 
     protected void setUp() throws Exception {
         super.setUp();
@@ -86,6 +90,7 @@ public class GroupSortedListTest extends TestCase {
 
             @Override
             public long getUniqueGroupId(Item group) {
+                mGroupIdLookups++;
                 return group.getId();
             }
         };
@@ -113,6 +118,7 @@ public class GroupSortedListTest extends TestCase {
 
             @Override
             public long getUniqueItemId(Item item) {
+                mItemIdLookups++;
                 return item.getId();
             }
         };
@@ -1046,7 +1052,143 @@ public class GroupSortedListTest extends TestCase {
 
     // endregion
 
+    // region Scaling
+
+    private static final int SCALING_GROUP_COUNT = 10000;
+    private static final int SCALING_LOOKUPS_PER_CALL = 8;
+
+    @Test
+    public void testScaling_visualPositions_10kGroups() {
+        setDisplayEmtpyCell(true); // Every expanded group shows one empty cell: GEGEGE...
+        List<Item> groups = createGroups(SCALING_GROUP_COUNT);
+        assertEquals(SCALING_GROUP_COUNT * 2, size());
+
+        mGroupIdLookups = 0;
+        for (int visualPosition = 0; visualPosition < size(); visualPosition++) {
+            assertEquals(visualPosition % 2 == 0, isVisualGroupPosition(visualPosition));
+            assertEquals(visualPosition - visualPosition % 2, getGroupVisualPostion(visualPosition));
+            assertSame(groups.get(visualPosition / 2), mGroupList.getGroup(visualPosition));
+        }
+        // Walking every group per lookup would be SCALING_GROUP_COUNT lookups per position
+        assertTrue("Visual position lookups should not walk every group, walked " + mGroupIdLookups, mGroupIdLookups <= size() * SCALING_LOOKUPS_PER_CALL);
+    }
+
+    @Test
+    public void testScaling_visualPositions_10kGroups_childrenAboveGroups() {
+        setDisplayEmtpyCell(true);
+        setChildrenAboveGroup(true); // EGEGEG...
+        List<Item> groups = createGroups(SCALING_GROUP_COUNT);
+        assertEquals(SCALING_GROUP_COUNT * 2, size());
+
+        for (int visualPosition = 0; visualPosition < size(); visualPosition++) {
+            assertEquals(visualPosition % 2 == 1, isVisualGroupPosition(visualPosition));
+            assertEquals(visualPosition | 1, getGroupVisualPostion(visualPosition));
+            assertSame(groups.get(visualPosition / 2), mGroupList.getGroup(visualPosition));
+        }
+    }
+
+    @Test
+    public void testScaling_collapseAndExpand_10kGroups() {
+        setDisplayEmtpyCell(true);
+        List<Item> groups = createGroups(SCALING_GROUP_COUNT);
+
+        // Collapse every other group: GEG GEG ...
+        for (int i = 0; i < SCALING_GROUP_COUNT; i += 2) {
+            collapseGroup(groups.get(i), false);
+        }
+        assertEquals(SCALING_GROUP_COUNT * 3 / 2, size());
+        for (int i = 0; i < SCALING_GROUP_COUNT; i++) {
+            int expectedGroupVisualPosition = (i / 2) * 3 + (i % 2);
+            assertEquals(expectedGroupVisualPosition, getGroupVisualPostion(expectedGroupVisualPosition));
+            assertSame(groups.get(i), mGroupList.getGroup(expectedGroupVisualPosition));
+        }
+
+        // Expanding one group near the start shifts every group after it
+        mAdditions.clear();
+        expandGroup(groups.get(2), false);
+        assertEquals(SCALING_GROUP_COUNT * 3 / 2 + 1, size());
+        assertEquals(new Pair(4, 1), mAdditions.get(0));
+        assertSame(groups.get(SCALING_GROUP_COUNT - 1), mGroupList.getGroup(size() - 1));
+        assertTrue(isVisualGroupPosition(size() - 2));
+    }
+
+    @Test
+    public void testScaling_insertAndRemoveGroups_10kGroups() {
+        List<Item> groups = createGroups(SCALING_GROUP_COUNT);
+        Item middleGroup = groups.get(SCALING_GROUP_COUNT / 2);
+        addOrUpdateAllItems(middleGroup, createList(5, 0));
+        assertEquals(SCALING_GROUP_COUNT + 5, size());
+
+        // Insert a group in the middle, after the group with items
+        Item inserted = new Item(200000, middleGroup.cmpField + 1);
+        mAdditions.clear();
+        addOrUpdateGroup(inserted);
+        assertEquals(new Pair(SCALING_GROUP_COUNT / 2 + 6, 1), mAdditions.get(0));
+        assertSame(inserted, mGroupList.getGroup(SCALING_GROUP_COUNT / 2 + 6));
+        assertSame(groups.get(SCALING_GROUP_COUNT - 1), mGroupList.getGroup(size() - 1));
+
+        // Remove the group with items, everything after it moves up
+        removeGroup(middleGroup);
+        assertEquals(SCALING_GROUP_COUNT, size());
+        assertSame(inserted, mGroupList.getGroup(SCALING_GROUP_COUNT / 2));
+        assertSame(groups.get(SCALING_GROUP_COUNT - 1), mGroupList.getGroup(size() - 1));
+    }
+
+    @Test
+    public void testScaling_itemLookups_10kGroups() {
+        List<Item> groups = createGroups(SCALING_GROUP_COUNT);
+        for (int i = 0; i < SCALING_GROUP_COUNT; i++) {
+            addOrUpdateAllItems(groups.get(i), createList(2, i * 3)); // ids i * 3, i * 3 + 1
+            addOrUpdateItem(groups.get(i), new Item(i * 3 + 2, 2));
+        }
+        assertEquals(SCALING_GROUP_COUNT * 4, size());
+
+        mGroupIdLookups = 0;
+        mItemIdLookups = 0;
+        for (int i = 0; i < SCALING_GROUP_COUNT; i++) {
+            assertEquals(i * 4 + 1, getItemVisualPosition(i * 3));
+            assertEquals(i * 4 + 3, getItemVisualPosition(i * 3 + 2));
+        }
+        // Scanning for an item would ask for the id of every item before it
+        int lookups = SCALING_GROUP_COUNT * 2;
+        assertTrue("Item lookups should not scan every group, walked " + mItemIdLookups + " items", mItemIdLookups <= lookups * SCALING_LOOKUPS_PER_CALL);
+        assertTrue("Item lookups should not walk every group, walked " + mGroupIdLookups + " groups", mGroupIdLookups <= lookups * SCALING_LOOKUPS_PER_CALL);
+
+        // Removing the first item of a group shifts the other items of that group
+        assertTrue(removeItem(new Item(0, 0)));
+        assertEquals(-1, getItemVisualPosition(0));
+        assertEquals(1, getItemVisualPosition(1));
+        assertEquals(2, getItemVisualPosition(2));
+        assertEquals(4, getItemVisualPosition(3));
+
+        // Updating an item so it sorts first in its group moves it
+        Item updated = new Item(SCALING_GROUP_COUNT * 3 - 1, -1);
+        addOrUpdateItem(groups.get(SCALING_GROUP_COUNT - 1), updated);
+        assertEquals(size() - 3, getItemVisualPosition(updated.id));
+        assertEquals(size() - 2, getItemVisualPosition(SCALING_GROUP_COUNT * 3 - 3));
+
+        // Moving an item to another group
+        Item moved = new Item(4, 5);
+        addOrUpdateItem(groups.get(0), moved);
+        assertEquals(3, getGroupItemCount(groups.get(0)));
+        assertEquals(2, getGroupItemCount(groups.get(1)));
+        assertEquals(3, getItemVisualPosition(moved.id));
+        assertSame(moved, getItem(3));
+    }
+
+    // endregion
+
     // region Helpers
+    private List<Item> createGroups(int count) {
+        List<Item> groups = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Item group = new Item(100000 + i, i * 2);
+            groups.add(group);
+            addOrUpdateGroup(group);
+        }
+        return groups;
+    }
+
     private List<Item> createList(int count) {
         List<Item> items = new ArrayList<>();
         for (int i = 0; i < count; i++) {
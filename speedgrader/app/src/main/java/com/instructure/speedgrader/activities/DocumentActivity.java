@@ -82,6 +82,7 @@ import com.instructure.speedgrader.interfaces.GenericDialogListener;
 import com.instructure.speedgrader.interfaces.SubmissionListener;
 import com.instructure.speedgrader.util.App;
 import com.instructure.speedgrader.util.CanvasErrorDelegate;
+import com.instructure.speedgrader.util.CanvasPDFCache;
 import com.instructure.speedgrader.util.Const;
 import com.instructure.speedgrader.util.ViewUtils;
 import com.instructure.speedgrader.views.CircularProgressBar;
@@ -102,6 +103,7 @@ public class DocumentActivity extends ParentActivity implements SubmissionListen
     // get strings of the different submission types we are supporting to make it easier to read
     private static final String onlineURL = Assignment.submissionTypeToAPIString(Assignment.SUBMISSION_TYPE.ONLINE_URL);
     private static final String mediaUpload = Assignment.submissionTypeToAPIString(Assignment.SUBMISSION_TYPE.MEDIA_RECORDING);
+    private static final int PDF_PREFETCH_COUNT = 3; // Students ahead of the current one whose PDFs are downloaded in the background
 
 
     private App mApp;
@@ -648,6 +650,7 @@ public class DocumentActivity extends ParentActivity implements SubmissionListen
         mViewpager.setAdapter(mAdapter);
 
         setDefaultAttachment(0);
+        prefetchUpcomingPdfs(mViewpager.getCurrentItem());
 
         //add the rubric if it hasn't already been added. (Orientation changes don't need to recreate it)
         if (mGradingFragment == null && mSubmissionsList.size() > 0) {
@@ -786,10 +789,27 @@ public class DocumentActivity extends ParentActivity implements SubmissionListen
 
                 handleNavigationArrows();
                 setDefaultAttachment(position);
+                prefetchUpcomingPdfs(position);
             }
         };
     }
 
+    /**
+     * Downloads the PDF submissions of the next few students while the teacher grades this one
+     *
+     * @param position
+     */
+    private void prefetchUpcomingPdfs(int position) {
+        ArrayList<String> urls = new ArrayList<>();
+        for (int i = position + 1; i < mAdapter.getCount() && i <= position + PDF_PREFETCH_COUNT; i++) {
+            Attachment attachment = mAdapter.getPdfAttachment(i);
+            if (attachment != null) {
+                urls.add(attachment.getUrl());
+            }
+        }
+        CanvasPDFCache.getInstance(this).prefetch(urls);
+    }
+
     public void bounceDrawer() {
         if (mSlidingDrawer != null && ((App) getApplication()).shouldShowBounce()) {
             STATE_BOUNCING = true;
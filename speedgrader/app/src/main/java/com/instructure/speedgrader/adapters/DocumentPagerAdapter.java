@@ -55,6 +55,7 @@ public class DocumentPagerAdapter extends SortableFragmentPagerAdapter {
     private static final String onlineURL = Assignment.submissionTypeToAPIString(Assignment.SUBMISSION_TYPE.ONLINE_URL);
     private static final String discussionTopic = Assignment.submissionTypeToAPIString(Assignment.SUBMISSION_TYPE.DISCUSSION_TOPIC);
     private static final String mediaUpload = Assignment.submissionTypeToAPIString(Assignment.SUBMISSION_TYPE.MEDIA_RECORDING);
+    private static final String onlineUpload = Assignment.submissionTypeToAPIString(Assignment.SUBMISSION_TYPE.ONLINE_UPLOAD);
 
     public DocumentPagerAdapter(Activity activity, FragmentManager fm, List<Submission> submissions, Assignment assignment, HashMap<String, Long> currentAttempts, CanvasContext canvasContext) {
         super(fm);
@@ -137,6 +138,19 @@ public class DocumentPagerAdapter extends SortableFragmentPagerAdapter {
         }
     }
 
+    /**
+     * @return The attachment shown in a {@link PdfSubmissionFragment} at this position, or null if that page isn't a PDF
+     */
+    public @Nullable Attachment getPdfAttachment(int position){
+        Submission submission = submissions.get(position);
+        Submission submissionAttempt = getCurrentAttemptSubmission(submission, currentAttempts.get(String.valueOf(submission.getId())));
+        Attachment attachment = getCurrentAttemptAttachment(submissionAttempt);
+        if(!isEmptySubmission(submissionAttempt) && onlineUpload.equals(submissionAttempt.getSubmissionType()) && attachment != null && attachment.getMimeType().contains("pdf")){
+            return attachment;
+        }
+        return null;
+    }
+
     public static @Nullable  Attachment getCurrentAttemptAttachment(Submission submissionAttempt){
         if(submissionAttempt.getAttachments().size() > 0){
             return submissionAttempt.getAttachments().get(0);
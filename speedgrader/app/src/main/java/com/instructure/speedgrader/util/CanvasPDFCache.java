@@ -25,14 +25,18 @@ import com.instructure.annotations_library.FetchFileAsyncTask;
 import com.instructure.annotations_library.SimpleDiskCache;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 public class CanvasPDFCache {
 
     public static final String TAG = "SpeedGrader";
 
-    private static final int DEFAULT_DISK_CACHE_MAX_SIZE_MB = 10;
+    private static final int DEFAULT_DISK_CACHE_MAX_SIZE_MB = 100;
     private static final int MEGABYTE = 1024 * 1024;
-    private static final int DEFAULT_DISK_CACHE_SIZE = Integer.MAX_VALUE;
+    private static final int DEFAULT_DISK_CACHE_SIZE = DEFAULT_DISK_CACHE_MAX_SIZE_MB * MEGABYTE;
 
     /**
      *  Application Version, you can define it by default otherwise you can
@@ -53,6 +57,15 @@ public class CanvasPDFCache {
      */
     private SimpleDiskCache mSimpleDiskCache;
 
+    private Context mContext;
+
+    /**
+     * Prefetches go through the same download task as the submission on screen, one at a time, so at most one
+     * of them is ever ahead of it. Only used on the main thread.
+     */
+    private final LinkedHashSet<String> mPrefetchQueue = new LinkedHashSet<>();
+    private String mPrefetchingUrl;
+    private List<FetchFileAsyncTask.FetchFileCallback> mPrefetchWaiters = new ArrayList<>();
 
 
     public static CanvasPDFCache getInstance(Context context){
@@ -64,6 +77,7 @@ public class CanvasPDFCache {
 
     //Constructor
     private CanvasPDFCache(Context context){
+        mContext = context.getApplicationContext();
         try{
             final File diskCacheDir = getDiskCacheDir(context, TAG );
             mSimpleDiskCache = SimpleDiskCache.open(diskCacheDir, APP_VERSION, DEFAULT_DISK_CACHE_SIZE);
@@ -77,9 +91,60 @@ public class CanvasPDFCache {
     }
 
     public void getInputStream(Context context, String url, FetchFileAsyncTask.FetchFileCallback callback){
+        mPrefetchQueue.remove(url);
+        if(url.equals(mPrefetchingUrl)){
+            // Already on its way down, no need to download it twice
+            mPrefetchWaiters.add(callback);
+            return;
+        }
         FetchFileAsyncTask.download(context, mSimpleDiskCache, url, callback);
     }
 
+    /**
+     * Downloads the documents into the cache so they're already there when the teacher gets to them.
+     * Replaces anything still queued from an earlier call.
+     * @param urls
+     */
+    public void prefetch(List<String> urls){
+        mPrefetchQueue.clear();
+        mPrefetchQueue.addAll(urls);
+        if(mPrefetchingUrl != null){
+            mPrefetchQueue.remove(mPrefetchingUrl);
+        } else {
+            prefetchNext();
+        }
+    }
+
+    private void prefetchNext(){
+        Iterator<String> iterator = mPrefetchQueue.iterator();
+        if(!iterator.hasNext()){
+            return;
+        }
+        final String url = iterator.next();
+        iterator.remove();
+        mPrefetchingUrl = url;
+
+        // Files already in the cache come straight back from the task
+        FetchFileAsyncTask.download(mContext, mSimpleDiskCache, url, new FetchFileAsyncTask.FetchFileCallback() {
+            @Override
+            public void onFileLoaded(File file) {
+                List<FetchFileAsyncTask.FetchFileCallback> waiters = mPrefetchWaiters;
+                mPrefetchWaiters = new ArrayList<>();
+                mPrefetchingUrl = null;
+
+                for(FetchFileAsyncTask.FetchFileCallback waiter : waiters){
+                    if(file != null){
+                        waiter.onFileLoaded(file);
+                    } else {
+                        // Let the regular download have a go at it
+                        FetchFileAsyncTask.download(mContext, mSimpleDiskCache, url, waiter);
+                    }
+                }
+                prefetchNext();
+            }
+        });
+    }
+
     /**
      * Check if media is mounted or storage is built-in, if so, try and use external cache dir
      * otherwise use internal cache dir
@@ -33,7 +33,9 @@ import com.instructure.canvasapi2.utils.weave.awaitApi
 import com.instructure.canvasapi2.utils.weave.catch
 import com.instructure.canvasapi2.utils.weave.tryWeave
 import com.instructure.pandautils.dialogs.AttachmentPickerDialog
+import com.instructure.pandautils.discussions.DiscussionHtmlPager
 import com.instructure.pandautils.discussions.DiscussionUtils
+import com.instructure.pandautils.discussions.ScrollViewEndListener
 import com.instructure.pandautils.fragments.BasePresenterFragment
 import com.instructure.pandautils.utils.*
 import com.instructure.pandautils.views.CanvasWebView
@@ -85,6 +87,10 @@ class DiscussionsDetailsFragment : BasePresenterFragment<
     private var mAuthenticatedSessionURL: String? = null
 
     private var loadDiscussionJob: WeaveJob? = null
+    private var loadMoreRepliesJob: WeaveJob? = null
+    private var repliesPager: DiscussionHtmlPager? = null
+    private var repliesEndListener: ScrollViewEndListener? = null
+    private var isAppendingReplies = false
 
     //endregion
 
@@ -107,6 +113,7 @@ class DiscussionsDetailsFragment : BasePresenterFragment<
         super.onDestroy()
         mSessionAuthJob?.cancel()
         loadDiscussionJob?.cancel()
+        loadMoreRepliesJob?.cancel()
     }
 
     override val identity: Long? get() = if(mDiscussionTopicHeaderId != 0L) mDiscussionTopicHeaderId else mDiscussionTopicHeader.id
@@ -211,6 +218,7 @@ class DiscussionsDetailsFragment : BasePresenterFragment<
         loadDiscussionJob = tryWeave {
 
             swipeRefreshLayout.isRefreshing = false
+            repliesPager = null
 
             if(discussionTopic.views.isEmpty()) {
                 //Nothing to display
@@ -220,8 +228,8 @@ class DiscussionsDetailsFragment : BasePresenterFragment<
 
             discussionRepliesHeaderWrapper.setVisible()
 
-            val html = inBackground {
-                DiscussionUtils.createDiscussionTopicHtml(
+            val pager = inBackground {
+                DiscussionUtils.createDiscussionTopicHtmlPager(
                         activity,
                         isTablet,
                         mCanvasContext,
@@ -229,6 +237,10 @@ class DiscussionsDetailsFragment : BasePresenterFragment<
                         discussionTopic.views,
                         mDiscussionEntryId)
             }
+            // Restoring the scroll position needs the replies above it, otherwise the rest are added while scrolling
+            val scrollPosition = presenter?.scrollPosition ?: 0
+            val html = inBackground { if (scrollPosition > 0) pager.renderAll() else pager.firstPage() }
+            repliesPager = pager
 
             discussionRepliesWebView.setInvisible()
             if(CanvasWebView.containsArcLTI(html, "utf-8")) {
@@ -246,6 +258,28 @@ class DiscussionsDetailsFragment : BasePresenterFragment<
         } catch { Logger.e("Error loading discussion " + it.message) }
     }
 
+    private fun loadMoreReplies() {
+        val pager = repliesPager ?: return
+        if (!pager.hasMore || isAppendingReplies) return
+        isAppendingReplies = true
+        loadMoreRepliesJob = tryWeave {
+            val html = inBackground { pager.nextPage() }
+            if (html == null) {
+                isAppendingReplies = false
+                return@tryWeave
+            }
+            val authenticatedHtml = if (mAuthenticatedSessionURL.isNullOrBlank()) html else getNewHTML(html)
+            discussionRepliesWebView.evaluateJavascript(pager.appendScript(authenticatedHtml)) { appended ->
+                // Not added while the first page is still loading, the next scroll or layout tries again
+                if (appended == "true") pager.onPageAppended()
+                isAppendingReplies = false
+            }
+        } catch {
+            isAppendingReplies = false
+            Logger.e("Error loading more replies " + it.message)
+        }
+    }
+
     private fun setupAssignmentDetails(assignment: Assignment) = with(assignment) {
 
         pointsTextView.setVisible()
@@ -442,6 +476,8 @@ class DiscussionsDetailsFragment : BasePresenterFragment<
     override fun onPause() {
         super.onPause()
         presenter?.scrollPosition = discussionsScrollView.scrollY
+        repliesEndListener?.detach()
+        repliesEndListener = null
         discussionTopicHeaderWebView.onPause()
         discussionRepliesWebView.onPause()
     }
@@ -449,6 +485,7 @@ class DiscussionsDetailsFragment : BasePresenterFragment<
     override fun onResume() {
         super.onResume()
         setupToolbar()
+        repliesEndListener = ScrollViewEndListener(discussionsScrollView) { loadMoreReplies() }.apply { attach() }
 
         swipeRefreshLayout.setOnRefreshListener {
             presenter.loadData(true)
@@ -602,8 +639,7 @@ class DiscussionsDetailsFragment : BasePresenterFragment<
         @JavascriptInterface
         fun getLikedImage(): String {
             //Returns a string of a bitmap colored for the thumbs up (like) image.
-            val likeImage = DiscussionUtils.getBitmapFromAssets(context, "discussion_liked.png")
-            return DiscussionUtils.makeBitmapForWebView(ThemePrefs.brandColor, likeImage)
+            return DiscussionUtils.makeAssetImageForWebView(context, ThemePrefs.brandColor, "discussion_liked.png")
         }
 
         //A helper to log out messages from the JS code
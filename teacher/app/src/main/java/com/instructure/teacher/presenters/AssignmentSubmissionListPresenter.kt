@@ -25,11 +25,10 @@ import com.instructure.canvasapi2.models.*
 import com.instructure.canvasapi2.models.post_models.AssignmentPostBody
 import com.instructure.canvasapi2.utils.intersectBy
 import com.instructure.canvasapi2.utils.weave.*
-import com.instructure.pandautils.utils.AssignmentUtils2
 import com.instructure.teacher.events.AssignmentUpdatedEvent
 import com.instructure.teacher.events.post
+import com.instructure.teacher.utils.SubmissionListIndex
 import com.instructure.teacher.utils.TeacherPrefs
-import com.instructure.teacher.utils.getState
 import com.instructure.teacher.viewinterface.AssignmentSubmissionListView
 import instructure.androidblueprint.SyncPresenter
 import kotlinx.coroutines.experimental.Job
@@ -52,6 +51,7 @@ class AssignmentSubmissionListPresenter(val mAssignment: Assignment, private var
 
     private var mUnfilteredSubmissions: List<GradeableStudentSubmission> = emptyList()
     private var mFilteredSubmissions: List<GradeableStudentSubmission> = emptyList()
+    private var mSubmissionIndex = SubmissionListIndex(mAssignment, emptyList())
 
     private var mFilterValue: Double = 0.0
 
@@ -78,11 +78,12 @@ class AssignmentSubmissionListPresenter(val mAssignment: Assignment, private var
                         { AssignmentManager.getAllSubmissionsForAssignment(mAssignment.courseId, mAssignment.id, forceNetwork, it) }
                 )
                 val enrollmentMap = enrollments.associateBy { it.user.id }
+                val enrollmentsByUser = enrollments.groupBy { it.userId }
                 val students = gradeableStudents.distinctBy { it.id }.map {
                     // students need the enrollment info
                     val user = enrollmentMap[it.id]?.user
                     // users can be enrolled in multiple sections, so we need to get all of them
-                    user?.enrollments?.addAll(enrollments.filter { it.userId == user.id })
+                    user?.enrollments?.addAll(enrollmentsByUser[user.id].orEmpty())
                     // Need to null out the user object to prevent infinite parcels
                     user?.enrollments?.forEach { it.user = null }
                     user
@@ -97,6 +98,7 @@ class AssignmentSubmissionListPresenter(val mAssignment: Assignment, private var
                         GradeableStudentSubmission(StudentAssignee(it), submissionMap[it.id])
                     }
                 }
+                mSubmissionIndex = SubmissionListIndex(mAssignment, mUnfilteredSubmissions)
 
                 //see if anonymous grading is set by the institution
                 val features = awaitApi<List<String>> { FeaturesManager.getEnabledFeaturesForCourse(mAssignment.courseId, forceNetwork, it) }
@@ -161,42 +163,19 @@ class AssignmentSubmissionListPresenter(val mAssignment: Assignment, private var
     }
 
     private fun setFilteredData() {
-        mFilteredSubmissions = mUnfilteredSubmissions.filter {
-            when (mFilter) {
-                SubmissionListFilter.ALL -> true
-                SubmissionListFilter.LATE -> it.submission?.let { mAssignment.getState(it) == AssignmentUtils2.ASSIGNMENT_STATE_SUBMITTED_LATE || mAssignment.getState(it) == AssignmentUtils2.ASSIGNMENT_STATE_GRADED_LATE } ?: false
-                SubmissionListFilter.NOT_GRADED -> it.submission?.let { mAssignment.getState(it) == AssignmentUtils2.ASSIGNMENT_STATE_SUBMITTED ||  mAssignment.getState(it) == AssignmentUtils2.ASSIGNMENT_STATE_SUBMITTED_LATE || !it.isGradeMatchesCurrentSubmission } ?: false
-                SubmissionListFilter.GRADED -> it.submission?.let { (mAssignment.getState(it) == AssignmentUtils2.ASSIGNMENT_STATE_GRADED || mAssignment.getState(it) == AssignmentUtils2.ASSIGNMENT_STATE_GRADED_LATE)  && it.isGradeMatchesCurrentSubmission} ?: false
-                SubmissionListFilter.ABOVE_VALUE -> it.submission?.let { it.isGraded && it.score >= mFilterValue } ?: false
-                SubmissionListFilter.BELOW_VALUE -> it.submission?.let { it.isGraded && it.score < mFilterValue } ?: false
-                // Filtering by ASSIGNMENT_STATE_MISSING here doesn't work because it assumes that the due date has already passed, which isn't necessarily the case when the teacher wants to see
-                // which students haven't submitted yet
-                SubmissionListFilter.MISSING -> it.submission?.workflowState == "unsubmitted" || it.submission == null
-            }
-        }
+        val index = mSubmissionIndex
+        var rows = index.rowsOf(index.filter(mFilter, mFilterValue))
 
         // Shuffle if grading anonymously
-        if (TeacherPrefs.shouldGradeAnonymously(mAssignment.courseId, mAssignment.id)) mFilteredSubmissions = mFilteredSubmissions.shuffled(Random(1234))
+        if (TeacherPrefs.shouldGradeAnonymously(mAssignment.courseId, mAssignment.id)) rows = rows.shuffled(Random(1234))
+        mFilteredSubmissions = rows.map { index.submissions[it] }
 
         data.clear()
 
         // Filter by section if there is a section filter set
         if (!mSectionsSelected.isEmpty()) {
-
-            // get list of ids
-            var sectionIds = mSectionsSelected.map { it.id }
-
-            mFilteredSubmissions.forEach { submission ->
-                sectionIds.forEach { section ->
-                    if (submission.assignee is StudentAssignee) {
-                        (submission.assignee as StudentAssignee).student.enrollments.forEach {
-                            if (it.courseSectionId == section) {
-                                data.addOrUpdate(submission)
-                            }
-                        }
-                    }
-                }
-            }
+            val sectionRows = index.inSections(mSectionsSelected.map { it.id })
+            data.addOrUpdate(rows.filter { sectionRows[it] }.map { index.submissions[it] })
         } else {
             // No section filter, add all the submission filtered users
             data.addOrUpdate(mFilteredSubmissions)
@@ -215,6 +194,7 @@ class AssignmentSubmissionListPresenter(val mAssignment: Assignment, private var
     override fun refresh(forceNetwork: Boolean) {
         clearData()
         mUnfilteredSubmissions = emptyList()
+        mSubmissionIndex = SubmissionListIndex(mAssignment, emptyList())
         loadData(forceNetwork)
     }
 
@@ -251,6 +231,8 @@ class AssignmentSubmissionListPresenter(val mAssignment: Assignment, private var
             val postData = AssignmentPostBody().apply { isMuted = !mAssignment.isMuted }
             awaitApi<Assignment> { AssignmentManager.editAssignment(mAssignment.courseId, mAssignment.id, postData, it, false) }
             mAssignment.isMuted = !mAssignment.isMuted
+            // Muting changes which submissions count as graded
+            mSubmissionIndex = SubmissionListIndex(mAssignment, mUnfilteredSubmissions)
             AssignmentUpdatedEvent(mAssignment.id).post() // Post bus event
             viewCallback?.onMuteUpdated(success = true, isMuted = mAssignment.isMuted)
         } catch {
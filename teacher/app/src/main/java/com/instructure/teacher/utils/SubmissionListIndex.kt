@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.instructure.teacher.utils
+
+import com.instructure.canvasapi2.models.Assignment
+import com.instructure.canvasapi2.models.GradeableStudentSubmission
+import com.instructure.canvasapi2.models.StudentAssignee
+import com.instructure.pandautils.utils.AssignmentUtils2
+import com.instructure.teacher.presenters.AssignmentSubmissionListPresenter.SubmissionListFilter
+import java.util.*
+
+/**
+ * Everything the submission list filters need, worked out once per load. Rows are the positions in [submissions].
+ * Each filter is a precomputed [BitSet] of rows, score filters are a binary search over the graded scores and a
+ * section filter is the union of each section's rows.
+ */
+class SubmissionListIndex(assignment: Assignment, val submissions: List<GradeableStudentSubmission>) {
+
+    /** The [AssignmentUtils2] state of each row, or [NO_SUBMISSION] */
+    val stateCodes = IntArray(submissions.size)
+
+    private val late = BitSet(submissions.size)
+    private val missing = BitSet(submissions.size)
+    private val notGraded = BitSet(submissions.size)
+    private val graded = BitSet(submissions.size)
+
+    /** Graded rows, ordered by score, alongside their scores */
+    private val gradedRows: IntArray
+    private val gradedScores: DoubleArray
+
+    private val sectionRows = HashMap<Long, BitSet>()
+
+    init {
+        val gradedByScore = ArrayList<Int>()
+        submissions.forEachIndexed { row, gradeableSubmission ->
+            val submission = gradeableSubmission.submission
+            if (submission == null) {
+                stateCodes[row] = NO_SUBMISSION
+                missing.set(row)
+            } else {
+                val state = assignment.getState(submission)
+                stateCodes[row] = state
+                val isLate = state == AssignmentUtils2.ASSIGNMENT_STATE_SUBMITTED_LATE || state == AssignmentUtils2.ASSIGNMENT_STATE_GRADED_LATE
+                if (isLate) late.set(row)
+                if (submission.workflowState == "unsubmitted") missing.set(row)
+                if (state == AssignmentUtils2.ASSIGNMENT_STATE_SUBMITTED || state == AssignmentUtils2.ASSIGNMENT_STATE_SUBMITTED_LATE || !submission.isGradeMatchesCurrentSubmission) notGraded.set(row)
+                if ((state == AssignmentUtils2.ASSIGNMENT_STATE_GRADED || state == AssignmentUtils2.ASSIGNMENT_STATE_GRADED_LATE) && submission.isGradeMatchesCurrentSubmission) graded.set(row)
+                if (submission.isGraded) gradedByScore += row
+            }
+
+            (gradeableSubmission.assignee as? StudentAssignee)?.student?.enrollments?.forEach {
+                sectionRows.getOrPut(it.courseSectionId) { BitSet(submissions.size) }.set(row)
+            }
+        }
+
+        gradedByScore.sortBy { submissions[it].submission!!.score }
+        gradedRows = gradedByScore.toIntArray()
+        gradedScores = DoubleArray(gradedRows.size) { submissions[gradedRows[it]].submission!!.score }
+    }
+
+    /**
+     * @return The rows matching the filter. The returned set is a copy and can be modified.
+     */
+    fun filter(filter: SubmissionListFilter, value: Double = 0.0): BitSet = when (filter) {
+        SubmissionListFilter.ALL -> BitSet(submissions.size).apply { set(0, submissions.size) }
+        SubmissionListFilter.LATE -> late.clone() as BitSet
+        SubmissionListFilter.NOT_GRADED -> notGraded.clone() as BitSet
+        SubmissionListFilter.GRADED -> graded.clone() as BitSet
+        // Filtering by ASSIGNMENT_STATE_MISSING here doesn't work because it assumes that the due date has already passed, which isn't necessarily the case when the teacher wants to see
+        // which students haven't submitted yet
+        SubmissionListFilter.MISSING -> missing.clone() as BitSet
+        SubmissionListFilter.ABOVE_VALUE -> gradedRowsBetween(firstScoreAtLeast(value), gradedRows.size)
+        SubmissionListFilter.BELOW_VALUE -> gradedRowsBetween(0, firstScoreAtLeast(value))
+    }
+
+    /**
+     * @return The student rows enrolled in any of the sections. Group rows are never in a section.
+     */
+    fun inSections(sectionIds: Collection<Long>): BitSet {
+        val rows = BitSet(submissions.size)
+        sectionIds.forEach { sectionRows[it]?.let { rows.or(it) } }
+        return rows
+    }
+
+    /** @return The set rows in ascending order */
+    fun rowsOf(rows: BitSet): List<Int> {
+        val list = ArrayList<Int>(rows.cardinality())
+        var row = rows.nextSetBit(0)
+        while (row >= 0) {
+            list += row
+            row = rows.nextSetBit(row + 1)
+        }
+        return list
+    }
+
+    private fun gradedRowsBetween(from: Int, to: Int): BitSet {
+        val rows = BitSet(submissions.size)
+        for (i in from until to) rows.set(gradedRows[i])
+        return rows
+    }
+
+    /** Index of the first graded score >= [value], or the number of graded scores if there isn't one */
+    private fun firstScoreAtLeast(value: Double): Int {
+        var low = 0
+        var high = gradedScores.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (gradedScores[mid] < value) low = mid + 1 else high = mid
+        }
+        return low
+    }
+
+    companion object {
+        const val NO_SUBMISSION = Int.MIN_VALUE
+    }
+}
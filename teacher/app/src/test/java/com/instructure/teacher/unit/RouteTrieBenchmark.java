@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2018 - present  Instructure, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.instructure.teacher.unit;
+
+import com.instructure.interactions.router.Route;
+import com.instructure.interactions.router.RouteTrie;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static com.instructure.teacher.unit.RouteTrieTest.URLS;
+import static com.instructure.teacher.unit.RouteTrieTest.createRoutes;
+import static com.instructure.teacher.unit.RouteTrieTest.matchLinear;
+import static com.instructure.teacher.unit.RouteTrieTest.matchTrie;
+
+/**
+ * Compares RouteTrie with the linear scan over every route's regex that it replaced.
+ * Not part of the default test run, use ./gradlew :app:testDebugUnitTest -Pbenchmark --tests '*RouteTrieBenchmark'
+ */
+@Config(sdk = 17)
+@RunWith(RobolectricTestRunner.class)
+public class RouteTrieBenchmark extends Assert {
+
+    private static final int ROUNDS = 200;
+
+    @Test
+    public void trieAgainstLinearScan() {
+        List<Route> routes = createRoutes();
+        RouteTrie trie = new RouteTrie(routes);
+
+        for (int warmup = 0; warmup < 3; warmup++) {
+            matchLinear(routes, ROUNDS);
+            matchTrie(trie, ROUNDS);
+        }
+
+        long start = System.nanoTime();
+        int linearMatches = matchLinear(routes, ROUNDS);
+        long linearTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int trieMatches = matchTrie(trie, ROUNDS);
+        long trieTime = System.nanoTime() - start;
+
+        assertEquals(linearMatches, trieMatches);
+        System.out.println("Routing " + ROUNDS * URLS.size() + " urls: linear scan " + linearTime / 1000000 + "ms, trie " + trieTime / 1000000 + "ms");
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2018 - present  Instructure, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.instructure.teacher.unit;
+
+import com.instructure.interactions.router.Route;
+import com.instructure.interactions.router.RouteContext;
+import com.instructure.interactions.router.RouteMatch;
+import com.instructure.interactions.router.RouteTrie;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+@Config(sdk = 17)
+@RunWith(RobolectricTestRunner.class)
+public class RouteTrieTest extends Assert {
+
+    private static final String COURSE_OR_GROUP = "/(?:courses|groups)";
+
+    static final List<String> URLS = Arrays.asList(
+            "https://mobiledev.instructure.com/",
+            "https://mobiledev.instructure.com",
+            "https://mobiledev.instructure.com/login/oauth2/auth?client_id=1",
+            "https://mobiledev.instructure.com/conversations",
+            "https://mobiledev.instructure.com/conversations/8712393/",
+            "https://mobiledev.instructure.com/courses",
+            "https://mobiledev.instructure.com/groups/",
+            "https://mobiledev.instructure.com/courses/953090",
+            "https://mobiledev.instructure.com/courses/953090/",
+            "https://mobiledev.instructure.com/api/v1/courses/953090",
+            "https://mobiledev.instructure.com/courses/953090/assignments/syllabus",
+            "https://mobiledev.instructure.com/courses/953090/assignments",
+            "https://mobiledev.instructure.com/courses/953090/assignments/2651861",
+            "https://mobiledev.instructure.com/api/v1/courses/953090/assignments/2651861/",
+            "https://mobiledev.instructure.com/courses/953090/assignments/2651861/submissions/3690827",
+            "https://mobiledev.instructure.com/groups/102937/discussion_topics",
+            "https://mobiledev.instructure.com/groups/102937/discussion_topics/1242342?module_item_id=6723096",
+            "https://mobiledev.instructure.com/courses/836357/quizzes",
+            "https://mobiledev.instructure.com/courses/836357/quizzes/990775?module_item_id=6723096#Fragment",
+            "https://mobiledev.instructure.com/courses/833052/files/39506637/download?wrap=1",
+            "https://mobiledev.instructure.com/courses/833052/files/39506637",
+            "https://mobiledev.instructure.com/courses/833052/files/folder/Week%201/Readings",
+            "https://mobiledev.instructure.com/courses/833052/files/folder/",
+            "https://mobiledev.instructure.com/courses/833052/files/folder",
+            "https://mobiledev.instructure.com/courses/833052/files",
+            "https://mobiledev.instructure.com/courses/833052/pages",
+            "https://mobiledev.instructure.com/courses/833052/pages/page-3/",
+            "https://mobiledev.instructure.com/courses/833052/wiki/front-page",
+            "https://mobiledev.instructure.com/courses/833052/announcements/",
+            "https://mobiledev.instructure.com/courses/833052/announcements/29384",
+            "https://mobiledev.instructure.com/courses/833052/modules/items/6723096",
+            "https://mobiledev.instructure.com/courses/833052/external_tools/24",
+            "https://mobiledev.instructure.com/courses//assignments",
+            "https://mobiledev.instructure.com/users/1234/files",
+            "https://mobiledev.instructure.com/about/1234"
+    );
+
+    static List<Route> createRoutes() {
+        // Mirrors the teacher app's RouteMatcher, plus a few routes that exercise the other rules
+        List<Route> routes = new ArrayList<>();
+        routes.add(new Route("/"));
+        routes.add(new Route("/login.*", RouteContext.DO_NOT_ROUTE));
+        routes.add(new Route("/conversations"));
+        routes.add(new Route("/conversations/:conversation_id"));
+        routes.add(new Route(COURSE_OR_GROUP + "/"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/assignments/syllabus", RouteContext.DO_NOT_ROUTE));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/assignments"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/assignments/:assignment_id"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/assignments/:assignment_id/submissions/:submission_id", RouteContext.SPEED_GRADER));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/quizzes"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/quizzes/:quiz_id"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/discussion_topics"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/discussion_topics/:message_id"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/files/:file_id/download", RouteContext.FILE));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/files/:file_id", RouteContext.FILE));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/files/folder/.*"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/files"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/pages/"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/pages/:page_id/"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/wiki/"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/wiki/:page_id/"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/announcements"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/announcements/:message_id"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/modules/items/[0-9]+"));
+        routes.add(new Route(COURSE_OR_GROUP + "/:course_id/external_tools/:external_id", RouteContext.EXTERNAL));
+        routes.add(new Route("/(?:users)/:user_id/(.*)"));
+        return routes;
+    }
+
+    private static Route findLinear(List<Route> routes, String url) {
+        for (Route route : routes) {
+            if (route.apply(url)) return route;
+        }
+        return null;
+    }
+
+    @Test
+    public void testMatchesLinearScan() {
+        List<Route> routes = createRoutes();
+        RouteTrie trie = new RouteTrie(routes);
+
+        for (String url : URLS) {
+            Route expected = findLinear(routes, url);
+            RouteMatch match = trie.match(url);
+            if (expected == null) {
+                assertNull(url, match);
+                continue;
+            }
+            assertNotNull(url, match);
+            assertSame(url, expected, match.getRoute());
+            if (RouteContext.EXTERNAL != expected.getRouteContext()) {
+                assertEquals(url, expected.getParamsHash(), match.getParams());
+                assertEquals(url, expected.getQueryParamsHash(), match.getQueryParams());
+            }
+        }
+    }
+
+    @Test
+    public void testPrecedence() {
+        List<Route> routes = createRoutes();
+        RouteTrie trie = new RouteTrie(routes);
+
+        // syllabus is listed before :assignment_id, and folder/.* before the generic files route
+        assertSame(routes.get(6), trie.match("https://mobiledev.instructure.com/courses/1/assignments/syllabus").getRoute());
+        assertSame(routes.get(15), trie.match("https://mobiledev.instructure.com/courses/1/files/folder").getRoute());
+        assertSame(routes.get(16), trie.match("https://mobiledev.instructure.com/courses/1/files/folder/a/b").getRoute());
+    }
+
+    @Test
+    public void testParams() {
+        RouteTrie trie = new RouteTrie(createRoutes());
+
+        HashMap<String, String> expectedParams = new HashMap<>();
+        expectedParams.put("course_id", "953090");
+        expectedParams.put("assignment_id", "2651861");
+        expectedParams.put("submission_id", "3690827");
+
+        RouteMatch match = trie.match("http://mobiledev.instructure.com/api/v1/groups/953090/assignments/2651861/submissions/3690827/");
+        assertEquals(expectedParams, match.getParams());
+
+        Route route = match.toRoute();
+        assertEquals(expectedParams, route.getParamsHash());
+        assertEquals(RouteContext.SPEED_GRADER, route.getRouteContext());
+        assertEquals("/api/v1/groups/953090/assignments/2651861/submissions/3690827/", route.getUri().getPath());
+    }
+
+    @Test
+    public void testQueryParamNames() {
+        Route moduleItemRoute = new Route(COURSE_OR_GROUP + "/:course_id/quizzes/:quiz_id");
+        moduleItemRoute.getQueryParamNames().add("module_item_id");
+        Route quizRoute = new Route(COURSE_OR_GROUP + "/:course_id/quizzes/:quiz_id");
+        RouteTrie trie = new RouteTrie(Arrays.asList(moduleItemRoute, quizRoute));
+
+        RouteMatch match = trie.match("https://mobiledev.instructure.com/courses/836357/quizzes/990775?module_item_id=6723096");
+        assertSame(moduleItemRoute, match.getRoute());
+        assertEquals("6723096", match.getQueryParams().get("module_item_id"));
+
+        assertSame(quizRoute, trie.match("https://mobiledev.instructure.com/courses/836357/quizzes/990775").getRoute());
+    }
+
+    @Test
+    public void testDoesNotMutateRoutes() {
+        List<Route> routes = createRoutes();
+        RouteTrie trie = new RouteTrie(routes);
+
+        Route route = trie.match("https://mobiledev.instructure.com/courses/953090/quizzes/12").toRoute();
+        assertEquals("12", route.getParamsHash().get("quiz_id"));
+        assertNotSame(routes.get(11), route);
+        assertNull(routes.get(11).getUrl());
+        assertTrue(routes.get(11).getParamsHash().isEmpty());
+    }
+
+    @Test
+    public void testRepeatedMatchesLinearScan() {
+        List<Route> routes = createRoutes();
+        RouteTrie trie = new RouteTrie(routes);
+
+        // Matching must not leave state behind in the trie
+        assertEquals(matchLinear(routes, 3), matchTrie(trie, 3));
+    }
+
+    static int matchLinear(List<Route> routes, int rounds) {
+        int matches = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (String url : URLS) {
+                if (findLinear(routes, url) != null) matches++;
+            }
+        }
+        return matches;
+    }
+
+    static int matchTrie(RouteTrie trie, int rounds) {
+        int matches = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (String url : URLS) {
+                if (trie.match(url) != null) matches++;
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2018 - present Instructure, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.instructure.teacher.unit
+
+import com.instructure.canvasapi2.models.*
+import com.instructure.teacher.presenters.AssignmentSubmissionListPresenter.SubmissionListFilter
+import com.instructure.teacher.utils.SubmissionListIndex
+import com.instructure.teacher.utils.getState
+import com.instructure.pandautils.utils.AssignmentUtils2
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.*
+
+@Suppress("IllegalIdentifier")
+class SubmissionListIndexTest {
+
+    internal val assignment = Assignment()
+
+    internal val sectionIds = (1L..12L).toList()
+
+    internal val scoreValues = listOf(-1.0, 0.0, 3.5, 5.0, 7.25, 10.0, 11.0)
+
+    @Test
+    fun `Filters match a scan of every submission`() {
+        val submissions = makeSubmissions(500, Random(7))
+        val index = SubmissionListIndex(assignment, submissions)
+
+        for (filter in SubmissionListFilter.values()) {
+            for (value in scoreValues) {
+                assertEquals("$filter $value", scanFilter(submissions, filter, value), index.rowsOf(index.filter(filter, value)))
+            }
+        }
+    }
+
+    @Test
+    fun `Section filter matches a scan of every enrollment`() {
+        val submissions = makeSubmissions(500, Random(11))
+        val index = SubmissionListIndex(assignment, submissions)
+
+        listOf(listOf(1L), listOf(2L, 5L), sectionIds, listOf(404L)).forEach { sections ->
+            assertEquals(sections.toString(), scanSections(submissions, sections), index.rowsOf(index.inSections(sections)))
+        }
+    }
+
+    @Test
+    fun `Group rows are never in a section`() {
+        val student = makeStudent(1, listOf(1L))
+        val group = Group().apply { setId(50) }
+        val submissions = listOf(
+                GradeableStudentSubmission(GroupAssignee(group, listOf(student))),
+                GradeableStudentSubmission(StudentAssignee(student))
+        )
+        val index = SubmissionListIndex(assignment, submissions)
+
+        assertEquals(listOf(1), index.rowsOf(index.inSections(listOf(1L))))
+        assertEquals(listOf(0, 1), index.rowsOf(index.filter(SubmissionListFilter.MISSING)))
+    }
+
+    @Test
+    fun `Filter results are copies`() {
+        val submissions = makeSubmissions(50, Random(3))
+        val index = SubmissionListIndex(assignment, submissions)
+
+        index.filter(SubmissionListFilter.LATE).clear()
+
+        assertEquals(scanFilter(submissions, SubmissionListFilter.LATE, 0.0), index.rowsOf(index.filter(SubmissionListFilter.LATE)))
+    }
+
+    @Test
+    fun `Filters within sections match a scan of 5000 students`() {
+        val submissions = makeSubmissions(5000, Random(42))
+        val sections = sectionIds.take(4)
+
+        val indexCount = indexAll(SubmissionListIndex(assignment, submissions), sections)
+
+        assertEquals(scanAll(submissions, sections), indexCount)
+        assertTrue(indexCount > 0)
+    }
+
+    internal fun scanAll(submissions: List<GradeableStudentSubmission>, sections: List<Long>): Int {
+        var count = 0
+        for (filter in SubmissionListFilter.values()) {
+            for (value in scoreValues) {
+                val rows = scanFilter(submissions, filter, value)
+                val sectionRows = scanSections(rows.map { submissions[it] }, sections)
+                count += sectionRows.size
+            }
+        }
+        return count
+    }
+
+    internal fun indexAll(index: SubmissionListIndex, sections: List<Long>): Int {
+        var count = 0
+        for (filter in SubmissionListFilter.values()) {
+            for (value in scoreValues) {
+                val rows = index.filter(filter, value)
+                rows.and(index.inSections(sections))
+                count += rows.cardinality()
+            }
+        }
+        return count
+    }
+
+    /** The filtering the presenter did before the index, one submission at a time */
+    private fun scanFilter(submissions: List<GradeableStudentSubmission>, filter: SubmissionListFilter, value: Double): List<Int> {
+        return submissions.indices.filter { row ->
+            val gradeable = submissions[row]
+            when (filter) {
+                SubmissionListFilter.ALL -> true
+                SubmissionListFilter.LATE -> gradeable.submission?.let { assignment.getState(it) == AssignmentUtils2.ASSIGNMENT_STATE_SUBMITTED_LATE || assignment.getState(it) == AssignmentUtils2.ASSIGNMENT_STATE_GRADED_LATE } ?: false
+                SubmissionListFilter.NOT_GRADED -> gradeable.submission?.let { assignment.getState(it) == AssignmentUtils2.ASSIGNMENT_STATE_SUBMITTED ||  assignment.getState(it) == AssignmentUtils2.ASSIGNMENT_STATE_SUBMITTED_LATE || !it.isGradeMatchesCurrentSubmission } ?: false
+                SubmissionListFilter.GRADED -> gradeable.submission?.let { (assignment.getState(it) == AssignmentUtils2.ASSIGNMENT_STATE_GRADED || assignment.getState(it) == AssignmentUtils2.ASSIGNMENT_STATE_GRADED_LATE)  && it.isGradeMatchesCurrentSubmission} ?: false
+                SubmissionListFilter.ABOVE_VALUE -> gradeable.submission?.let { it.isGraded && it.score >= value } ?: false
+                SubmissionListFilter.BELOW_VALUE -> gradeable.submission?.let { it.isGraded && it.score < value } ?: false
+                SubmissionListFilter.MISSING -> gradeable.submission?.workflowState == "unsubmitted" || gradeable.submission == null
+            }
+        }
+    }
+
+    private fun scanSections(submissions: List<GradeableStudentSubmission>, sections: List<Long>): List<Int> {
+        return submissions.indices.filter { row ->
+            val assignee = submissions[row].assignee
+            assignee is StudentAssignee && sections.any { section -> assignee.student.enrollments.any { it.courseSectionId == section } }
+        }
+    }
+
+    internal fun makeSubmissions(count: Int, random: Random): List<GradeableStudentSubmission> {
+        return (1..count).map { id ->
+            val sections = sectionIds.filter { random.nextInt(sectionIds.size) < 2 }
+            val student = makeStudent(id.toLong(), sections)
+            val submission = when (random.nextInt(5)) {
+                0 -> null
+                1 -> Submission(id = id.toLong(), workflowState = "unsubmitted")
+                else -> Submission(
+                        id = id.toLong(),
+                        attempt = 1,
+                        workflowState = if (random.nextBoolean()) "graded" else "submitted",
+                        isLate = random.nextInt(4) == 0,
+                        isGradeMatchesCurrentSubmission = random.nextInt(5) != 0,
+                        grade = if (random.nextBoolean()) "B" else null,
+                        score = random.nextInt(21) / 2.0
+                )
+            }
+            GradeableStudentSubmission(StudentAssignee(student), submission)
+        }
+    }
+
+    private fun makeStudent(id: Long, sections: List<Long>) = User().apply {
+        setId(id)
+        setName("Student $id")
+        setEnrollments(sections.map { section -> Enrollment().apply { courseSectionId = section } })
+    }
+}